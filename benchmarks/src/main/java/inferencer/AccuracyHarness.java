@@ -0,0 +1,389 @@
+package inferencer;
+
+import modelFormat.BinaryModel;
+import modelGenerator.BenchmarkModels;
+import naiveProbabilities.JointProbabilityCalculator;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Differential accuracy harness: generates small models, runs
+ * every inferencer of Model.inference on them and compares the
+ * marginals with the exact marginals of the brute-force
+ * JointProbabilityCalculator. The approximate inferencers run
+ * with increasing effort, so that every row gives a point of
+ * the accuracy-versus-latency curve of an inferencer.
+ *
+ * Per inferencer setting, topology and size the harness reports
+ * the number of models, how many the inferencer rejected as
+ * expected (the pairwise tree inferencer on cyclic models), how
+ * many it failed on otherwise, with their messages on the error
+ * stream, the maximum and mean absolute error of P(A=1) over all
+ * arguments and the mean inference time, on the command line
+ * and as tab separated values.
+ *
+ * usage: java -cp benchmarks.jar inferencer.AccuracyHarness [-n <nodes>] [-d <topologies>]
+ *                  [-m <models>] [-o <file>] [--seed <seed>]
+ *          -n,--nodes        node counts (default 8,12,16,20)
+ *          -d,--topology     topologies (default polytree,sparse,dense)
+ *          -m,--models       models per topology and node count (default 5)
+ *          -o,--output       tab separated results (default accuracy.tsv)
+ *          --seed            seed the model seeds are drawn from (default 0)
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+public class AccuracyHarness {
+
+    /**
+     * Samples per chain of the Gibbs sampler settings
+     */
+    private static final int[] GIBBS_SAMPLES = {500, 2000, 8000};
+    /**
+     * Convergence tolerances of the loopy BP settings
+     */
+    private static final double[] LBP_TOLERANCES = {1e-2, 1e-4, 1e-6};
+
+    /**
+     * The node counts
+     */
+    private List<Integer> nodes = Arrays.asList(8, 12, 16, 20);
+    /**
+     * The topologies, see BenchmarkModels
+     */
+    private List<String> topologies = BenchmarkModels.TOPOLOGIES;
+    /**
+     * Models per topology and node count
+     */
+    private int models = 5;
+    /**
+     * File the results are written to
+     */
+    private File output = new File("accuracy.tsv");
+    /**
+     * Seed the model seeds are drawn from
+     */
+    private long seed = 0;
+
+    /**
+     * An inferencer with its settings
+     */
+    private static class Engine {
+        /**
+         * The inferencer, one of Model.INFERENCERS
+         */
+        final String inferencer;
+        /**
+         * Name of the inferencer and its settings in the report
+         */
+        final String name;
+        /**
+         * The settings of the inferencer
+         */
+        final InferenceSettings settings;
+
+        // Ctor
+        Engine(String inferencer, String name, InferenceSettings settings){
+            this.inferencer = inferencer;
+            this.name = name;
+            this.settings = settings;
+        }
+    }
+
+    /**
+     * The errors and times of an engine on the models of
+     * one topology and node count
+     */
+    private static class Row {
+        /**
+         * Number of models
+         */
+        int models;
+        /**
+         * Number of models the engine rejected as expected
+         */
+        int rejected;
+        /**
+         * Number of models the engine failed on otherwise
+         */
+        int failed;
+        /**
+         * Maximum absolute error over all arguments
+         */
+        double maxError;
+        /**
+         * Sum of the absolute errors of all arguments
+         */
+        double errorSum;
+        /**
+         * Number of arguments the errors are summed over
+         */
+        long arguments;
+        /**
+         * Sum of the inference times
+         */
+        long nanos;
+    }
+
+    /**
+     * Returns the engines to compare: every inferencer of
+     * Model.INFERENCERS, the approximate ones with increasing effort
+     *
+     * @return the engines
+     */
+    private static List<Engine> engines(){
+        List<Engine> engines = new ArrayList<>();
+        for(String inferencer : Model.INFERENCERS){
+            if(inferencer.equals("gibbsSampler")){
+                for(int samples : GIBBS_SAMPLES){
+                    InferenceSettings settings = new InferenceSettings();
+                    settings.setSamples(samples);
+                    settings.setBurnIn(samples / 5);
+                    // Always draw all samples
+                    settings.setPrecision(0);
+                    engines.add(new Engine(inferencer, inferencer + " samples=" + samples, settings));
+                }
+            }
+            else if(inferencer.equals("loopyBP")){
+                for(double tolerance : LBP_TOLERANCES){
+                    InferenceSettings settings = new InferenceSettings();
+                    settings.setTolerance(tolerance);
+                    engines.add(new Engine(inferencer, inferencer + " tolerance=" + tolerance, settings));
+                }
+            }
+            else{
+                engines.add(new Engine(inferencer, inferencer, new InferenceSettings()));
+            }
+        }
+        return engines;
+    }
+
+    /**
+     * Returns a usage message to be printed to the command line
+     *
+     * @return String usage message
+     */
+    private static String usage(){
+        return "usage: AccuracyHarness [-n <nodes>] [-d <topologies>] [-m <models>] [-o <file>] [--seed <seed>]\n" +
+                " -n,--nodes        node counts (default 8,12,16,20)\n" +
+                " -d,--topology     topologies (default polytree,sparse,dense)\n" +
+                " -m,--models       models per topology and node count (default 5)\n" +
+                " -o,--output       tab separated results (default accuracy.tsv)\n" +
+                " --seed            seed the model seeds are drawn from (default 0)\n";
+    }
+
+    /**
+     * Parses command line arguments
+     *
+     * @param args command line arguments, passed from main method
+     * @throws Exception if a parsing error occurs
+     */
+    void parseArgs(String[] args) throws Exception {
+        for(int i = 0; i < args.length; i += 2){
+            if(i + 1 >= args.length){
+                throw new Exception("Arguments entered incorrectly!\n" + usage());
+            }
+            String value = args[i + 1];
+            try{
+                switch (args[i]) {
+                    case "-n":
+                    case "--nodes":
+                        nodes = new ArrayList<>();
+                        for(String n : value.split(",")){
+                            int count = Integer.parseInt(n);
+                            if(count < 1 || count > JointProbabilityCalculator.MAX_ARGUMENTS){
+                                throw new IllegalArgumentException();
+                            }
+                            nodes.add(count);
+                        }
+                        break;
+                    case "-d":
+                    case "--topology":
+                        topologies = Arrays.asList(value.split(","));
+                        break;
+                    case "-m":
+                    case "--models":
+                        models = Integer.parseInt(value);
+                        if(models < 1) throw new IllegalArgumentException();
+                        break;
+                    case "-o":
+                    case "--output":
+                        output = new File(value);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(value);
+                        break;
+                    default:
+                        throw new Exception("Arguments entered incorrectly!\n" + usage());
+                }
+            } catch(IllegalArgumentException e){
+                throw new Exception("Invalid value for " + args[i] + ": " + value + "\n" + usage());
+            }
+        }
+    }
+
+    /**
+     * Runs an engine on a model and adds its errors to the row
+     *
+     * @param engine the engine
+     * @param text the model text
+     * @param exact the exact marginals, by label
+     * @param row the row of the engine
+     */
+    private static void measure(Engine engine, String text, Map<String, Double> exact, Row row){
+        row.models++;
+        try{
+            Model model = new Model();
+            model.setSettings(engine.settings);
+            model.parseModel(text);
+            InferenceResult result = model.inference(engine.inferencer);
+            for(int i = 0; i < result.size(); i++){
+                double error = Math.abs(result.getProbability(i) - exact.get(result.getLabel(i)));
+                row.maxError = Math.max(row.maxError, error);
+                row.errorSum += error;
+                row.arguments++;
+            }
+            row.nanos += result.getInferenceNanos();
+        } catch(Exception e){
+            if(rejects(engine, e)){
+                row.rejected++;
+            }
+            else{
+                row.failed++;
+                System.err.println(engine.name + " failed: " + e);
+            }
+        }
+    }
+
+    /**
+     * Checks whether an engine rejected a model it doesn't
+     * support, i.e. the pairwise tree inferencer a cyclic model
+     *
+     * @param engine the engine
+     * @param e the exception of the engine
+     * @return true if the rejection is expected
+     */
+    private static boolean rejects(Engine engine, Exception e){
+        return engine.inferencer.equals("pairwiseTree") && e.getMessage() != null
+                && e.getMessage().startsWith(PairwiseTreeInferencer.CYCLES);
+    }
+
+    /**
+     * Generates the models, runs all engines on them and
+     * reports the errors
+     *
+     * @throws IOException if the results can't be written
+     */
+    void run() throws IOException {
+        List<Engine> engines = engines();
+        SplittableRandom seeds = new SplittableRandom(seed);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        // Warm up the engines, so that the first rows
+        // don't measure the just-in-time compiler
+        String warmUp = BenchmarkModels.model("polytree", nodes.get(0), seed);
+        for(Engine engine : engines){
+            measure(engine, warmUp, exactMarginals(warmUp, pool, new Row()), new Row());
+        }
+
+        try (Writer tsv = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(output), StandardCharsets.UTF_8))) {
+            tsv.write("engine\ttopology\tnodes\tmodels\trejected\tfailed\tmax_abs_error\tmean_abs_error\tmean_ms\n");
+            System.out.println(String.format("%-28s %-10s %5s %6s %8s %6s %14s %14s %10s", "engine", "topology",
+                    "nodes", "models", "rejected", "failed", "max abs error", "mean abs error", "mean ms"));
+
+            for(String topology : topologies){
+                for(int n : nodes){
+                    // The same models for every engine
+                    String[] texts = new String[models];
+                    List<Map<String, Double>> exact = new ArrayList<>();
+                    Row exactRow = new Row();
+                    for(int k = 0; k < models; k++){
+                        texts[k] = BenchmarkModels.model(topology, n, seeds.nextLong());
+                        exact.add(exactMarginals(texts[k], pool, exactRow));
+                    }
+                    report(tsv, "exact", topology, n, exactRow);
+
+                    for(Engine engine : engines){
+                        Row row = new Row();
+                        for(int k = 0; k < models; k++){
+                            measure(engine, texts[k], exact.get(k), row);
+                        }
+                        report(tsv, engine.name, topology, n, row);
+                    }
+                }
+            }
+        }
+        System.out.println("Results written to " + output.getPath());
+    }
+
+    /**
+     * Computes the exact marginals of a model by enumeration,
+     * with the default factor values of Model
+     *
+     * @param text the model text
+     * @param pool the workers of the enumeration
+     * @param row the row the enumeration time is added to
+     * @return the exact marginals, by label
+     */
+    private static Map<String, Double> exactMarginals(String text, ForkJoinPool pool, Row row){
+        try{
+            BinaryModel model = BinaryModel.readText(new BufferedReader(new StringReader(text)));
+            Model defaults = new Model();
+            long start = System.nanoTime();
+            double[] marginals = JointProbabilityCalculator.marginals(model, defaults.getAttack(),
+                    defaults.getSupport(), pool);
+            row.nanos += System.nanoTime() - start;
+            row.models++;
+            row.arguments += marginals.length;
+
+            Map<String, Double> exact = new HashMap<>();
+            for(int i = 0; i < marginals.length; i++){
+                exact.put(model.label(i), marginals[i]);
+            }
+            return exact;
+        } catch(Exception e){
+            // Generated models always parse
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Prints a row and writes it to the results
+     *
+     * @param tsv the results
+     * @param engine name of the engine
+     * @param topology the topology
+     * @param n the node count
+     * @param row the row
+     * @throws IOException if the row can't be written
+     */
+    private static void report(Writer tsv, String engine, String topology, int n, Row row) throws IOException {
+        int done = row.models - row.rejected - row.failed;
+        double meanError = row.arguments == 0 ? Double.NaN : row.errorSum / row.arguments;
+        double meanMs = done == 0 ? Double.NaN : row.nanos / 1e6 / done;
+        double maxError = done == 0 ? Double.NaN : row.maxError;
+        System.out.println(String.format(Locale.ROOT, "%-28s %-10s %5d %6d %8d %6d %14.3e %14.3e %10.3f", engine,
+                topology, n, row.models, row.rejected, row.failed, maxError, meanError, meanMs));
+        tsv.write(String.format(Locale.ROOT, "%s\t%s\t%d\t%d\t%d\t%d\t%s\t%s\t%s\n", engine, topology, n,
+                row.models, row.rejected, row.failed, maxError, meanError, meanMs));
+    }
+
+    public static void main(String[] args) {
+        AccuracyHarness harness = new AccuracyHarness();
+        try{
+            harness.parseArgs(args);
+        } catch(Exception e){
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+        try{
+            harness.run();
+        } catch(IOException e){
+            System.err.println("Could not write " + harness.output + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
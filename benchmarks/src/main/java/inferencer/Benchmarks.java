@@ -0,0 +1,38 @@
+package inferencer;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with the usual JMH command line
+ * options, but writes the results as JSON to jmh-result.json
+ * unless another result format or file is given, so that
+ * runs can be compared to track regressions.
+ *
+ * usage: java -jar benchmarks.jar [JMH options] [benchmark regex]
+ *          e.g. -p topology=polytree -p nodes=1000,10000 InferenceBenchmark
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+public class Benchmarks {
+
+    /**
+     * Default file the results are written to
+     */
+    private static final String RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+        if(!cmd.getResultFormat().hasValue()){
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if(!cmd.getResult().hasValue()){
+            options.result(RESULT_FILE);
+        }
+        new Runner(options.build()).run();
+    }
+}
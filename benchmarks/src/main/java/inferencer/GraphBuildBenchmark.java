@@ -0,0 +1,93 @@
+package inferencer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the structures the inferencers run on from
+ * a parsed model: the PairwiseNetwork of loopy BP, the Gibbs
+ * sampler and the pairwise tree inferencer, the compiled junction
+ * tree, and loading new factor values into an existing
+ * PairwiseNetwork.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBuildBenchmark {
+
+    /**
+     * Builds the PairwiseNetwork of the whole model
+     *
+     * @param state the benchmark model
+     * @return the PairwiseNetwork
+     */
+    @Benchmark
+    public PairwiseNetwork pairwiseNetwork(ModelState state){
+        return new PairwiseNetwork(state.model.getGraph(), state.att, state.sup);
+    }
+
+    /**
+     * Triangulates the whole model and compiles its junction
+     * tree, as the junction tree inferencer does for every
+     * structure that isn't cached yet
+     *
+     * @param state the benchmark model
+     * @return the compiled junction tree
+     * @throws Exception if the model is too densely connected
+     */
+    @Benchmark
+    public CompiledJunctionTree junctionTree(ModelState state) throws Exception {
+        return new CompiledJunctionTree(state.model.getGraph());
+    }
+
+    /**
+     * Loads other factor values into a PairwiseNetwork of the
+     * whole model, e.g. after choosing another preset
+     *
+     * @param state the benchmark network
+     * @return the PairwiseNetwork under the new factor values
+     */
+    @Benchmark
+    public PairwiseNetwork withFactors(NetworkState state){
+        return state.network.withFactors(state.att, state.sup);
+    }
+
+    /**
+     * The PairwiseNetwork of the benchmark model, built once
+     */
+    @State(Scope.Benchmark)
+    public static class NetworkState {
+
+        /**
+         * The network of the benchmark model
+         */
+        PairwiseNetwork network;
+        /**
+         * The factor values loaded into the network
+         */
+        double[] att;
+        /**
+         * The factor values loaded into the network
+         */
+        double[] sup;
+
+        /**
+         * Builds the network under the strong preset, to be
+         * loaded with the factor values of the benchmark
+         *
+         * @param model the benchmark model
+         */
+        @Setup(Level.Trial)
+        public void setUp(ModelState model){
+            FactorSetting strong = FactorSetting.preset("strong");
+            network = new PairwiseNetwork(model.model.getGraph(), strong.getAttack(), strong.getSupport());
+            att = model.att;
+            sup = model.sup;
+        }
+    }
+}
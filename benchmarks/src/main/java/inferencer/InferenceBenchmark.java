@@ -0,0 +1,45 @@
+package inferencer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures computeMarginals of the inferencers on a parsed
+ * model. Every invocation starts with an empty ComponentCache,
+ * so no component is reused from an earlier invocation.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InferenceBenchmark {
+
+    /**
+     * The inferencer, one of Model.INFERENCERS
+     */
+    @Param({"junctionTree", "gibbsSampler"})
+    public String inferencer;
+
+    /**
+     * Settings of the inferencers
+     */
+    private final InferenceSettings settings = new InferenceSettings();
+
+    /**
+     * Computes the marginals of all arguments
+     *
+     * @param state the benchmark model
+     * @return P(A=1) for every argument
+     * @throws Exception if the inferencer can't handle the model
+     */
+    @Benchmark
+    public double[] computeMarginals(ModelState state) throws Exception {
+        ComponentInferencer inf = new ComponentInferencer(inferencer, settings, state.att, state.sup);
+        return inf.computeMarginals(state.model.getGraph(), new ComponentCache());
+    }
+}
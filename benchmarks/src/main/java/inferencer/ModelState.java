@@ -0,0 +1,64 @@
+package inferencer;
+
+import modelFormat.BinaryModel;
+import modelGenerator.BenchmarkModels;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * A generated benchmark model in all stages: as text, in the
+ * binary model format and parsed, together with the factor
+ * values used by the benchmarks.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+@State(Scope.Benchmark)
+public class ModelState {
+
+    /**
+     * Topology of the model, see BenchmarkModels.TOPOLOGIES
+     */
+    @Param({"polytree", "sparse", "dense"})
+    public String topology;
+    /**
+     * Number of arguments of the model; the junction tree
+     * inferencer takes seconds per model from 1000 arguments on
+     */
+    @Param({"100", "300", "1000"})
+    public int nodes;
+
+    /**
+     * The model text
+     */
+    String text;
+    /**
+     * The model in the binary model format
+     */
+    BinaryModel binary;
+    /**
+     * The parsed model
+     */
+    Model model;
+    /**
+     * Attack factor values
+     */
+    double[] att;
+    /**
+     * Support factor values
+     */
+    double[] sup;
+
+    /**
+     * Generates or loads the model and parses it
+     *
+     * @throws Exception if the model can't be generated or parsed
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        text = BenchmarkModels.model(topology, nodes);
+        model = new Model();
+        model.parseModel(text);
+        binary = model.toBinaryModel();
+        att = model.getAttack();
+        sup = model.getSupport();
+    }
+}
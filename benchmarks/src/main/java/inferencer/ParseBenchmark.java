@@ -0,0 +1,47 @@
+package inferencer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing a model into the internal model, from the
+ * text format and from the binary model format.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    /**
+     * Parses the model text
+     *
+     * @param state the benchmark model
+     * @return the parsed model
+     * @throws Exception if the model can't be parsed
+     */
+    @Benchmark
+    public Model parseText(ModelState state) throws Exception {
+        Model model = new Model();
+        model.parseModel(state.text);
+        return model;
+    }
+
+    /**
+     * Builds the internal model from the binary model
+     *
+     * @param state the benchmark model
+     * @return the parsed model
+     * @throws Exception if the model can't be parsed
+     */
+    @Benchmark
+    public Model parseBinary(ModelState state) throws Exception {
+        Model model = new Model();
+        model.parseModel(state.binary);
+        return model;
+    }
+}
@@ -0,0 +1,60 @@
+package modelGenerator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Provides the generated models of the benchmarks and the
+ * accuracy harness. Each model is generated by PolyTreeModel,
+ * RandomModel or, for the structured topologies, GraphModel
+ * with one relation per argument, from a fixed seed, so that
+ * every run measures the same models and results stay
+ * comparable without storing the models.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+public class BenchmarkModels {
+
+    /**
+     * The topologies of the benchmark models
+     */
+    public static final List<String> TOPOLOGIES = Arrays.asList("polytree", "sparse", "dense");
+    /**
+     * Seed of all benchmark models
+     */
+    public static final long SEED = 20191204L;
+
+    /**
+     * Returns the text of a benchmark model
+     *
+     * @param topology one of TOPOLOGIES
+     * @param nodes number of arguments
+     * @return the model text
+     */
+    public static String model(String topology, int nodes){
+        return model(topology, nodes, SEED);
+    }
+
+    /**
+     * Returns the text of a generated model
+     *
+     * @param topology one of TOPOLOGIES or a structured topology,
+     *          see GraphModel.TOPOLOGIES
+     * @param nodes number of arguments
+     * @param seed the seed of the model
+     * @return the model text
+     */
+    public static String model(String topology, int nodes, long seed){
+        SplittableRandom random = new SplittableRandom(seed);
+        if(GraphModel.TOPOLOGIES.contains(topology)){
+            return GraphModel.create(topology, nodes, 1.0, 0.5, new TopologySettings(), random).generateModel();
+        }
+        if(!TOPOLOGIES.contains(topology)){
+            throw new IllegalArgumentException("Unknown topology " + topology + "!");
+        }
+        return topology.equals("polytree")
+                ? new PolyTreeModel(nodes, random).generateModel()
+                : new RandomModel(nodes, topology, random).generateModel();
+    }
+}
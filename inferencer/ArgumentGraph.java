@@ -0,0 +1,336 @@
+package inferencer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The parsed Bipolar Argumentation Framework (BAF): the
+ * argument labels, indexed by a hash map, and the attack and
+ * support relations between them as primitive arrays of
+ * argument indices. A relation may have its own factor values
+ * instead of those of its type, and an argument may be clamped
+ * to a known value as evidence.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class ArgumentGraph {
+
+    /**
+     * Relation type of an attack relation
+     */
+    static final byte ATTACK = 0;
+    /**
+     * Relation type of a support relation
+     */
+    static final byte SUPPORT = 1;
+    /**
+     * Evidence value of an argument without evidence
+     */
+    static final byte NO_EVIDENCE = -1;
+
+    /**
+     * The argument labels, in order of declaration
+     */
+    private String[] labels = new String[16];
+    /**
+     * The number of arguments
+     */
+    private int numArguments = 0;
+    /**
+     * Maps each argument label to its index
+     */
+    private Map<String, Integer> index = new HashMap<>();
+    /**
+     * Index of the first argument of each relation
+     */
+    private int[] from = new int[16];
+    /**
+     * Index of the second argument of each relation
+     */
+    private int[] to = new int[16];
+    /**
+     * Type of each relation, ATTACK or SUPPORT
+     */
+    private byte[] types = new byte[16];
+    /**
+     * Factor values of each relation overriding the factor
+     * values of its type, null for none; null as a whole
+     * until the first override is added
+     */
+    private double[][] factors;
+    /**
+     * The number of relations
+     */
+    private int numRelations = 0;
+    /**
+     * Evidence of each argument, 0 or 1, NO_EVIDENCE for none;
+     * null as a whole until the first evidence is set
+     */
+    private byte[] evidence;
+
+    /**
+     * Constructor of an empty BAF
+     */
+    ArgumentGraph(){
+    }
+
+    /**
+     * Constructor of a BAF sharing the arguments and relations
+     * of another one, see withEvidence
+     *
+     * @param graph the BAF whose arguments and relations are shared
+     * @param evidence the evidence of the new BAF
+     */
+    private ArgumentGraph(ArgumentGraph graph, byte[] evidence){
+        labels = graph.labels;
+        numArguments = graph.numArguments;
+        index = graph.index;
+        from = graph.from;
+        to = graph.to;
+        types = graph.types;
+        factors = graph.factors;
+        numRelations = graph.numRelations;
+        this.evidence = evidence;
+    }
+
+    /**
+     * Adds a new argument
+     *
+     * @param label the label of the argument
+     * @return index of the new argument, -1 if an argument
+     *          with this label already exists
+     */
+    int addArgument(String label){
+        if(index.putIfAbsent(label, numArguments) != null){
+            return -1;
+        }
+        if(numArguments == labels.length){
+            labels = Arrays.copyOf(labels, 2 * numArguments);
+        }
+        labels[numArguments] = label;
+        return numArguments++;
+    }
+
+    /**
+     * Adds a new relation between two arguments
+     *
+     * @param type ATTACK or SUPPORT
+     * @param x index of the first argument (Ai)
+     * @param y index of the second argument (Aj)
+     */
+    void addRelation(byte type, int x, int y){
+        addRelation(type, x, y, null);
+    }
+
+    /**
+     * Adds a new relation between two arguments with its own
+     * factor values
+     *
+     * @param type ATTACK or SUPPORT
+     * @param x index of the first argument (Ai)
+     * @param y index of the second argument (Aj)
+     * @param factor factor values of this relation, null to use
+     *          the factor values of its type
+     */
+    void addRelation(byte type, int x, int y, double[] factor){
+        if(numRelations == from.length){
+            from = Arrays.copyOf(from, 2 * numRelations);
+            to = Arrays.copyOf(to, 2 * numRelations);
+            types = Arrays.copyOf(types, 2 * numRelations);
+            if(factors != null){
+                factors = Arrays.copyOf(factors, 2 * numRelations);
+            }
+        }
+        if(factor != null && factors == null){
+            factors = new double[from.length][];
+        }
+        from[numRelations] = x;
+        to[numRelations] = y;
+        types[numRelations] = type;
+        if(factors != null){
+            factors[numRelations] = factor;
+        }
+        numRelations++;
+    }
+
+    /**
+     * Returns the index of an argument
+     *
+     * @param label the label of the argument
+     * @return index of the argument, -1 if there is none
+     */
+    int indexOf(String label){
+        Integer i = index.get(label);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * Returns the number of arguments
+     *
+     * @return the number of arguments
+     */
+    int numArguments(){ return numArguments; }
+
+    /**
+     * Returns the label of an argument
+     *
+     * @param i index of the argument
+     * @return the label of the argument
+     */
+    String label(int i){ return labels[i]; }
+
+    /**
+     * Returns the labels of all arguments
+     *
+     * @return the labels, by argument index
+     */
+    String[] labels(){ return Arrays.copyOf(labels, numArguments); }
+
+    /**
+     * Returns the number of relations
+     *
+     * @return the number of relations
+     */
+    int numRelations(){ return numRelations; }
+
+    /**
+     * Returns the first argument of a relation
+     *
+     * @param r index of the relation
+     * @return index of the first argument (Ai)
+     */
+    int from(int r){ return from[r]; }
+
+    /**
+     * Returns the second argument of a relation
+     *
+     * @param r index of the relation
+     * @return index of the second argument (Aj)
+     */
+    int to(int r){ return to[r]; }
+
+    /**
+     * Returns the type of a relation
+     *
+     * @param r index of the relation
+     * @return ATTACK or SUPPORT
+     */
+    byte type(int r){ return types[r]; }
+
+    /**
+     * Returns the own factor values of a relation
+     *
+     * @param r index of the relation
+     * @return its factor values, null if it uses the factor
+     *          values of its type
+     */
+    double[] factor(int r){ return factors == null ? null : factors[r]; }
+
+    /**
+     * Returns the factor values that apply to a relation
+     *
+     * @param r index of the relation
+     * @param att attack factor values
+     * @param sup support factor values
+     * @return its own factor values if it has some, otherwise
+     *          att or sup depending on its type
+     */
+    double[] factor(int r, double[] att, double[] sup){
+        double[] factor = factor(r);
+        if(factor != null){
+            return factor;
+        }
+        return types[r] == ATTACK ? att : sup;
+    }
+
+    /**
+     * Sets or retracts the evidence of an argument while the
+     * BAF is being built
+     *
+     * @param i index of the argument
+     * @param value 0 or 1, NO_EVIDENCE to retract the evidence
+     */
+    void setEvidence(int i, int value){
+        if(evidence == null){
+            if(value == NO_EVIDENCE){
+                return;
+            }
+            evidence = new byte[Math.max(labels.length, numArguments)];
+            Arrays.fill(evidence, NO_EVIDENCE);
+        }
+        if(i >= evidence.length){
+            int length = evidence.length;
+            evidence = Arrays.copyOf(evidence, Math.max(labels.length, i + 1));
+            Arrays.fill(evidence, length, evidence.length, NO_EVIDENCE);
+        }
+        evidence[i] = (byte) value;
+    }
+
+    /**
+     * Returns the evidence of an argument
+     *
+     * @param i index of the argument
+     * @return 0 or 1, NO_EVIDENCE if there is none
+     */
+    int evidence(int i){
+        return evidence == null || i >= evidence.length ? NO_EVIDENCE : evidence[i];
+    }
+
+    /**
+     * Returns whether any argument has evidence
+     *
+     * @return true if there is evidence
+     */
+    boolean hasEvidence(){
+        if(evidence != null){
+            for(int i = 0; i < numArguments; i++){
+                if(evidence[i] != NO_EVIDENCE){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the same parsed BAF with other evidence for one
+     * argument. The arguments and relations are shared, only
+     * the evidence is copied, so this BAF is unchanged.
+     *
+     * @param i index of the argument
+     * @param value 0 or 1, NO_EVIDENCE to retract the evidence
+     * @return the BAF with the new evidence
+     */
+    ArgumentGraph withEvidence(int i, int value){
+        byte[] copy = new byte[numArguments];
+        Arrays.fill(copy, NO_EVIDENCE);
+        if(evidence != null){
+            System.arraycopy(evidence, 0, copy, 0, Math.min(evidence.length, numArguments));
+        }
+        copy[i] = (byte) value;
+        return new ArgumentGraph(this, copy);
+    }
+
+    /**
+     * Returns the same parsed BAF without any evidence. The
+     * arguments and relations are shared, so this BAF is unchanged.
+     *
+     * @return the BAF without evidence
+     */
+    ArgumentGraph withoutEvidence(){
+        return new ArgumentGraph(this, null);
+    }
+
+    /**
+     * Checks whether another BAF has the arguments and relations
+     * of this one, i.e. was derived from it by withEvidence
+     *
+     * @param graph the other BAF
+     * @return true if only the evidence may differ
+     */
+    boolean sharesRelations(ArgumentGraph graph){
+        return graph.from == from && graph.to == to && graph.types == types && graph.factors == factors
+                && graph.labels == labels && graph.numArguments == numArguments && graph.numRelations == numRelations;
+    }
+}
@@ -0,0 +1,483 @@
+package inferencer;
+
+import modelFormat.BinaryModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless batch mode of the BAF-Inferencer application.
+ * Runs the inference on a list of .txt or binary .baf model
+ * files (or all such files in the given directories) on a
+ * bounded pool of worker threads and writes the results next
+ * to the models or into a given output directory. With --sweep
+ * or --grid each model is inferred under several factor settings
+ * at once, see FactorSweep, and one table is written per model.
+ * Directories are scanned for model files without the results
+ * written by earlier runs; models that would write the same result
+ * file, e.g. a.txt and a.baf, get result names with their extension.
+ * The threads bound the whole batch: the models processed at once
+ * share them for their components, Gibbs chains and sweeps.
+ *
+ * usage: BAFInferencer [-t <threads>] [-i <inferencer>] [-o <dir>] [settings] <file|dir> ...
+ *          -t,--threads      number of threads of the batch (default: number of cores)
+ *          -i,--inferencer   junctionTree (default), gibbsSampler, pairwiseTree or loopyBP
+ *          -o,--output       output directory (default: directory of each model)
+ *          -f,--format       result format: txt (default), csv, tsv or bin
+ *          --true-only       csv/tsv: write only P(A=1) per argument
+ *          --damping         loopy BP damping in [0,1) (default 0.5)
+ *          --tolerance       loopy BP convergence tolerance (default 1e-6)
+ *          --max-iterations  loopy BP maximum iterations (default 1000)
+ *          --burn-in         Gibbs burn-in sweeps per chain (default 1000)
+ *          --samples         Gibbs maximum samples per chain (default 5000)
+ *          --chains          number of parallel Gibbs chains (default 4)
+ *          --precision       Gibbs target standard error, 0 = no early stop (default 0.005)
+ *          --seed            Gibbs random seed (default 0)
+ *          --cache-dir       keep results and junction trees in this directory and reuse them
+ *          --sweep           infer under the given presets (or all) at once
+ *          --grid            infer under a grid of factor values, e.g. "att10=1,2;sup01=0:1:0.5"
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+public class BatchInferencer {
+
+    /**
+     * Suffix of the result file names, before the extension
+     */
+    private static final String RESULT_SUFFIX = "_results";
+    /**
+     * Suffix of the sweep result file names, before the extension
+     */
+    private static final String SWEEP_SUFFIX = "_sweep";
+
+    /**
+     * Number of worker threads
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /**
+     * Number of threads each model may use, so that the models
+     * processed at once don't use more than threads together
+     */
+    private int modelThreads = 1;
+    /**
+     * The inferencer to use, see Model.inference
+     */
+    private String inferencer = "junctionTree";
+    /**
+     * Settings of the configurable inferencers
+     */
+    private InferenceSettings settings = new InferenceSettings();
+    /**
+     * Output directory for the result files (null = next to the model)
+     */
+    private File outputDir = null;
+    /**
+     * Format of the result files, see InferenceResult.FORMATS
+     */
+    private String format = "txt";
+    /**
+     * True to write only P(A=1) to csv and tsv result files
+     */
+    private boolean trueOnly = false;
+    /**
+     * Results shared by all models, e.g. for duplicate models
+     */
+    private ResultCache resultCache = new ResultCache(ResultCache.DEFAULT_MEMORY, DiskBudget.DEFAULT_BYTES, null);
+    /**
+     * Compiled junction trees shared by all models, e.g. for
+     * models with the same structure but other factor values
+     */
+    private JunctionTreeCache junctionTreeCache = new JunctionTreeCache(JunctionTreeCache.DEFAULT_MEMORY, DiskBudget.DEFAULT_BYTES, null);
+    /**
+     * The factor settings to sweep, empty for a single inference
+     * with the default factor values
+     */
+    private List<FactorSetting> sweep = new ArrayList<>();
+    /**
+     * The model files to process
+     */
+    private List<File> modelFiles = new ArrayList<>();
+    /**
+     * True if only the usage message shall be printed
+     */
+    private boolean help = false;
+
+    /**
+     * Returns a usage message to be printed to the command line
+     *
+     * @return String usage message
+     */
+    static String usage(){
+        return "usage: BAFInferencer [-t <threads>] [-i <inferencer>] [-o <dir>] [settings] <file|dir> ...\n" +
+                " -t,--threads      number of threads of the batch (default: number of cores)\n" +
+                " -i,--inferencer   junctionTree (default), gibbsSampler, pairwiseTree or loopyBP\n" +
+                " -o,--output       output directory (default: directory of each model)\n" +
+                " -f,--format       result format: txt (default), csv, tsv or bin\n" +
+                " --true-only       csv/tsv: write only P(A=1) per argument\n" +
+                " --damping         loopy BP damping in [0,1) (default 0.5)\n" +
+                " --tolerance       loopy BP convergence tolerance (default 1e-6)\n" +
+                " --max-iterations  loopy BP maximum iterations (default 1000)\n" +
+                " --burn-in         Gibbs burn-in sweeps per chain (default 1000)\n" +
+                " --samples         Gibbs maximum samples per chain (default 5000)\n" +
+                " --chains          number of parallel Gibbs chains (default 4)\n" +
+                " --precision       Gibbs target standard error, 0 = no early stop (default 0.005)\n" +
+                " --seed            Gibbs random seed (default 0)\n" +
+                " --cache-dir       keep results and junction trees in this directory and reuse them\n" +
+                " --sweep           infer under the given presets (or all) at once, one column each:\n" +
+                "                   " + presetNames() + "\n" +
+                " --grid            infer under a grid of factor values, one column each, e.g.\n" +
+                "                   \"att10=1,1.5,2;sup01=0:1:0.5\" (others keep the default values)\n" +
+                " Directories are scanned for .txt and .baf models, skipping the *_results and\n" +
+                " *_sweep files of earlier runs.\n" +
+                " Without arguments the graphical application is started.\n";
+    }
+
+    /**
+     * Returns the names of the presets for the usage message
+     *
+     * @return the comma separated preset names
+     */
+    private static String presetNames(){
+        StringBuilder names = new StringBuilder();
+        for(FactorSetting preset : FactorSetting.PRESETS){
+            names.append(preset.getName()).append(',');
+        }
+        return names.append("all").toString();
+    }
+
+    /**
+     * Parses command line arguments
+     *
+     * @param args command line arguments, passed from main method
+     * @throws Exception if a parsing error occurs
+     */
+    void parseArgs(String[] args) throws Exception {
+        int i = 0;
+        while(i < args.length){
+            switch (args[i]) {
+                case "-h":
+                case "--help":
+                    help = true;
+                    return;
+                case "-t":
+                case "--threads":
+                    try{
+                        threads = Integer.parseInt(args[++i]);
+                    } catch(NumberFormatException | ArrayIndexOutOfBoundsException e){
+                        throw new Exception("Arguments entered incorrectly!\n" + usage());
+                    }
+                    if(threads < 1){
+                        throw new Exception("Number of threads must be at least 1!\n" + usage());
+                    }
+                    break;
+                case "-i":
+                case "--inferencer":
+                    if(i + 1 >= args.length){
+                        throw new Exception("Arguments entered incorrectly!\n" + usage());
+                    }
+                    inferencer = args[++i];
+                    if(!Model.INFERENCERS.contains(inferencer)){
+                        throw new Exception("Unknown inferencer " + inferencer + "!\n" + usage());
+                    }
+                    break;
+                case "--damping":
+                case "--tolerance":
+                case "--max-iterations":
+                case "--burn-in":
+                case "--samples":
+                case "--chains":
+                case "--precision":
+                case "--seed":
+                    if(i + 1 >= args.length){
+                        throw new Exception("Arguments entered incorrectly!\n" + usage());
+                    }
+                    try{
+                        if(args[i].equals("--damping")){
+                            settings.setDamping(Double.parseDouble(args[i+1]));
+                        }
+                        else if(args[i].equals("--tolerance")){
+                            settings.setTolerance(Double.parseDouble(args[i+1]));
+                        }
+                        else if(args[i].equals("--max-iterations")){
+                            settings.setMaxIterations(Integer.parseInt(args[i+1]));
+                        }
+                        else if(args[i].equals("--burn-in")){
+                            settings.setBurnIn(Integer.parseInt(args[i+1]));
+                        }
+                        else if(args[i].equals("--samples")){
+                            settings.setSamples(Integer.parseInt(args[i+1]));
+                        }
+                        else if(args[i].equals("--chains")){
+                            settings.setChains(Integer.parseInt(args[i+1]));
+                        }
+                        else if(args[i].equals("--precision")){
+                            settings.setPrecision(Double.parseDouble(args[i+1]));
+                        }
+                        else{
+                            settings.setSeed(Long.parseLong(args[i+1]));
+                        }
+                    } catch(IllegalArgumentException e){
+                        throw new Exception("Invalid value for " + args[i] + ": " + args[i+1] + "\n" + usage());
+                    }
+                    i++;
+                    break;
+                case "-o":
+                case "--output":
+                    if(i + 1 >= args.length){
+                        throw new Exception("Arguments entered incorrectly!\n" + usage());
+                    }
+                    outputDir = new File(args[++i]);
+                    break;
+                case "-f":
+                case "--format":
+                    if(i + 1 >= args.length){
+                        throw new Exception("Arguments entered incorrectly!\n" + usage());
+                    }
+                    format = args[++i];
+                    if(!InferenceResult.FORMATS.contains(format)){
+                        throw new Exception("Unknown format " + format + "!\n" + usage());
+                    }
+                    break;
+                case "--true-only":
+                    trueOnly = true;
+                    break;
+                case "--sweep":
+                case "--grid":
+                    if(i + 1 >= args.length){
+                        throw new Exception("Arguments entered incorrectly!\n" + usage());
+                    }
+                    try{
+                        if(args[i].equals("--sweep")){
+                            sweep.addAll(FactorSetting.presets(args[i+1]));
+                        }
+                        else{
+                            Model defaults = new Model();
+                            sweep.addAll(FactorSetting.grid(args[i+1], defaults.getAttack(), defaults.getSupport()));
+                        }
+                    } catch(IllegalArgumentException e){
+                        throw new Exception("Invalid value for " + args[i] + ": " + args[i+1] + "\n" +
+                                (e instanceof NumberFormatException ? "" : e.getMessage() + "\n") + usage());
+                    }
+                    i++;
+                    break;
+                case "--cache-dir":
+                    if(i + 1 >= args.length){
+                        throw new Exception("Arguments entered incorrectly!\n" + usage());
+                    }
+                    resultCache.setDirectory(new File(args[++i]));
+                    junctionTreeCache.setDirectory(new File(args[i]));
+                    break;
+                default:
+                    addModelFiles(new File(args[i]));
+            }
+            i++;
+        }
+
+        if(modelFiles.isEmpty()){
+            throw new Exception("No model files given!\n" + usage());
+        }
+        if(!sweep.isEmpty() && !SweepResult.FORMATS.contains(format)){
+            throw new Exception("A sweep can only be written as txt, csv or tsv!\n" + usage());
+        }
+    }
+
+    /**
+     * Adds a model file, or all .txt and .baf files of a
+     * directory but the result files, to the files to be processed
+     *
+     * @param file a .txt or .baf model file or a directory
+     * @throws Exception if the file does not exist or is no model file
+     */
+    private void addModelFiles(File file) throws Exception {
+        if(file.isDirectory()){
+            File[] content = file.listFiles((dir, name) -> isModelFile(name) && !isResultFile(name));
+            if(content != null){
+                Arrays.sort(content);
+                modelFiles.addAll(Arrays.asList(content));
+            }
+        }
+        else if(file.isFile() && isModelFile(file.getName())){
+            modelFiles.add(file);
+        }
+        else {
+            throw new Exception("Not a .txt or .baf model file or directory: " + file + "\n" + usage());
+        }
+    }
+
+    /**
+     * Checks whether a file name is the name of a model file
+     *
+     * @param name the file name
+     * @return true if it ends with .txt or .baf
+     */
+    private static boolean isModelFile(String name){
+        return name.endsWith(".txt") || name.endsWith("." + BinaryModel.EXTENSION);
+    }
+
+    /**
+     * Checks whether a file name is the name of a result file,
+     * e.g. written by an earlier run into the model directory
+     *
+     * @param name the file name
+     * @return true if its name ends with _results or _sweep
+     *          before the extension
+     */
+    private static boolean isResultFile(String name){
+        int dot = name.lastIndexOf('.');
+        String base = dot >= 0 ? name.substring(0, dot) : name;
+        return base.endsWith(RESULT_SUFFIX) || base.endsWith(SWEEP_SUFFIX);
+    }
+
+    /**
+     * Chooses the result file of a model: <model>_results.<format>
+     * (or _sweep) in the output directory. If another model of this
+     * run already writes that file, the extension of the model is
+     * added to the name, then a number.
+     *
+     * @param modelFile the .txt or .baf model file
+     * @param taken the result files chosen so far, by absolute path
+     * @return the result file
+     */
+    private File resultFile(File modelFile, Set<String> taken){
+        String name = modelFile.getName();
+        int dot = name.lastIndexOf('.');
+        String base = name.substring(0, dot);
+        String suffix = (sweep.isEmpty() ? RESULT_SUFFIX : SWEEP_SUFFIX) + "." + format;
+        File dir = outputDir != null ? outputDir : modelFile.getAbsoluteFile().getParentFile();
+        File file = new File(dir, base + suffix);
+        if(!taken.add(file.getAbsolutePath())){
+            base += "_" + name.substring(dot + 1);
+            file = new File(dir, base + suffix);
+            for(int k = 2; !taken.add(file.getAbsolutePath()); k++){
+                file = new File(dir, base + "_" + k + suffix);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Parses a single model file, does the inference and writes
+     * the results to the output file. Each call uses its own
+     * Model, so calls can run concurrently.
+     *
+     * @param modelFile the .txt or .baf model file
+     * @param resultFile the file to write the results to
+     * @return a report line with the wall time of this file
+     * @throws Exception if the model cannot be read, parsed or saved
+     */
+    private String process(File modelFile, File resultFile) throws Exception {
+        long start = System.nanoTime();
+
+        Model model = new Model();
+        model.setSettings(settings);
+        model.setThreads(modelThreads);
+        model.setResultCache(resultCache);
+        model.setJunctionTreeCache(junctionTreeCache);
+        model.parseModelFromFile(modelFile.getAbsolutePath());
+        long parsed = System.nanoTime();
+
+        InferenceResult results = null;
+        SweepResult sweepResults = null;
+        if(sweep.isEmpty()){
+            results = model.inference(inferencer);
+        }
+        else{
+            sweepResults = model.sweep(inferencer, sweep);
+        }
+        long inferred = System.nanoTime();
+
+        try{
+            if(results != null){
+                results.writeTo(resultFile, format, trueOnly);
+            }
+            else{
+                sweepResults.writeTo(resultFile, format);
+            }
+        } catch(IOException e){
+            throw new IOException("IOException when trying to save " + resultFile + "!");
+        }
+        long end = System.nanoTime();
+
+        return String.format("%s: parse %d ms, inference %d ms, total %d ms -> %s",
+                modelFile.getPath(), (parsed - start) / 1000000, (inferred - parsed) / 1000000,
+                (end - start) / 1000000, resultFile.getPath());
+    }
+
+    /**
+     * Processes all model files on a fixed size worker pool and
+     * prints a report line per file and the total throughput
+     *
+     * @return number of files that failed
+     */
+    int run(){
+        if(outputDir != null && !outputDir.isDirectory() && !outputDir.mkdirs()){
+            System.err.println("Could not create output directory " + outputDir + "!");
+            return modelFiles.size();
+        }
+
+        int failed = 0;
+        long start = System.nanoTime();
+        int workers = Math.max(1, Math.min(threads, modelFiles.size()));
+        modelThreads = Math.max(1, threads / workers);
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try{
+            List<Future<String>> reports = new ArrayList<>();
+            Set<String> taken = new HashSet<>();
+            for(File modelFile : modelFiles){
+                File resultFile = resultFile(modelFile, taken);
+                reports.add(pool.submit(() -> process(modelFile, resultFile)));
+            }
+
+            // Report in input order
+            for(int i = 0; i < reports.size(); i++){
+                try{
+                    System.out.println(reports.get(i).get());
+                } catch(ExecutionException e){
+                    failed++;
+                    Throwable cause = e.getCause();
+                    String message = cause.getMessage() != null ? cause.getMessage() : cause.toString();
+                    System.err.println(modelFiles.get(i).getPath() + ": " + message);
+                }
+            }
+        } catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int done = modelFiles.size() - failed;
+        System.out.println(String.format("Processed %d of %d models (%d failed) on %d workers x %d threads"
+                + " in %.3f s, %.2f models/s", done, modelFiles.size(), failed, workers, modelThreads, seconds,
+                done / seconds));
+        System.out.println(String.format("Result cache: %d hits (%d from disk), %d misses",
+                resultCache.getHits(), resultCache.getDiskHits(), resultCache.getMisses()));
+        System.out.println(String.format("Junction tree cache: %d hits (%d from disk), %d misses",
+                junctionTreeCache.getHits(), junctionTreeCache.getDiskHits(), junctionTreeCache.getMisses()));
+        return failed;
+    }
+
+    public static void main(String[] args) {
+        BatchInferencer batch = new BatchInferencer();
+        try{
+            batch.parseArgs(args);
+        } catch(Exception e){
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+        if(batch.help){
+            System.out.println(usage());
+            return;
+        }
+        System.exit(batch.run() == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,866 @@
+package inferencer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * The structure of a junction tree of a BAF, compiled once and
+ * independent of the factor values: the elimination order found
+ * by triangulating the graph, one clique per eliminated argument
+ * and the relations each clique holds. Computing the marginals
+ * for some factor values only loads the potentials into the
+ * cliques and passes messages up and down the tree, so the same
+ * structure serves any number of factor settings, also from
+ * several threads at once. Evidence is entered into the clique
+ * of its argument; a Calibration keeps the calibrated tables, so
+ * that further evidence is passed on from that clique alone.
+ *
+ * The clique of an argument holds the argument and its neighbours
+ * at the time it was eliminated; its parent is the clique of the
+ * neighbour eliminated next, which holds all of these neighbours
+ * as well. Within a clique table, bit j of an assignment is the
+ * value of the j-th argument of the clique, the eliminated
+ * argument itself being bit 0.
+ *
+ * The structure refers to the relations by index, so it fits
+ * every BAF with the same arguments and relations in the same
+ * order, whatever their types and factor values; see
+ * JunctionTreeCache, which keeps compiled structures by a
+ * structural hash, also on disk.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class CompiledJunctionTree {
+
+    /**
+     * Largest clique, in arguments, whose table is still built;
+     * a table holds 2^size values
+     */
+    static final int MAX_CLIQUE_SIZE = 24;
+    /**
+     * Above this degree the fill-in of an argument is estimated
+     * instead of counted, to keep the triangulation fast on hubs
+     */
+    private static final int FILL_DEGREE_LIMIT = 64;
+
+    /**
+     * Number of arguments, which is also the number of cliques
+     */
+    private final int n;
+    /**
+     * Clique of each argument, i.e. its position in the
+     * elimination order
+     */
+    private final int[] cliqueOf;
+    /**
+     * Arguments of the cliques: those of clique k are
+     * cliqueArgs[cliqueStart[k]] ... cliqueArgs[cliqueStart[k+1]-1]
+     */
+    private final int[] cliqueStart;
+    /**
+     * Argument indices of the cliques
+     */
+    private final int[] cliqueArgs;
+    /**
+     * Position of each clique argument in the parent clique,
+     * aligned with cliqueArgs (-1 for the eliminated argument)
+     */
+    private final int[] parentPos;
+    /**
+     * Parent of each clique, -1 for the root of a component
+     */
+    private final int[] parent;
+    /**
+     * Relations of the cliques: those of clique k are
+     * relations[relationStart[k]] ... relations[relationStart[k+1]-1]
+     */
+    private final int[] relationStart;
+    /**
+     * Relation indices, grouped by clique
+     */
+    private final int[] relations;
+    /**
+     * Position of the first argument of each relation in its
+     * clique, aligned with relations
+     */
+    private final int[] fromPos;
+    /**
+     * Position of the second argument of each relation in its
+     * clique, aligned with relations
+     */
+    private final int[] toPos;
+    /**
+     * Number of arguments of the largest clique
+     */
+    private final int maxCliqueSize;
+
+    /**
+     * Triangulates the graph of a BAF and compiles its junction tree
+     *
+     * @param graph the parsed BAF
+     * @throws InterruptedException if the compilation was cancelled
+     * @throws Exception if the BAF is too densely connected
+     */
+    CompiledJunctionTree(ArgumentGraph graph) throws Exception {
+
+        n = graph.numArguments();
+        List<Set<Integer>> adj = new ArrayList<>(n);
+        for(int i = 0; i < n; i++){
+            adj.add(new HashSet<>());
+        }
+        for(int r = 0; r < graph.numRelations(); r++){
+            int x = graph.from(r);
+            int y = graph.to(r);
+            if(x != y){
+                adj.get(x).add(y);
+                adj.get(y).add(x);
+            }
+        }
+
+        // Greedy min-fill elimination, ties broken by the degree;
+        // outdated queue entries are skipped
+        long[] fill = new long[n];
+        PriorityQueue<long[]> queue = new PriorityQueue<>(Math.max(1, n), (a, b) -> {
+            int c = Long.compare(a[0], b[0]);
+            if(c == 0) c = Long.compare(a[1], b[1]);
+            return c != 0 ? c : Long.compare(a[2], b[2]);
+        });
+        for(int i = 0; i < n; i++){
+            fill[i] = fillIn(adj, i);
+            queue.add(new long[] {fill[i], adj.get(i).size(), i});
+        }
+
+        cliqueOf = new int[n];
+        Arrays.fill(cliqueOf, -1);
+        int[][] members = new int[n][];
+        int largest = 0;
+        int k = 0;
+        while(!queue.isEmpty()){
+            long[] head = queue.poll();
+            int v = (int) head[2];
+            Set<Integer> nb = adj.get(v);
+            if(cliqueOf[v] >= 0 || head[0] != fill[v] || head[1] != nb.size()){
+                continue;
+            }
+            if(nb.size() + 1 > MAX_CLIQUE_SIZE){
+                throw new Exception("The model is too densely connected for the junction tree inferencer " +
+                        "(cliques of more than " + MAX_CLIQUE_SIZE + " arguments),\n" +
+                        "choose loopy BP or the Gibbs sampler instead.");
+            }
+
+            // The clique: v and its neighbours, which become pairwise connected
+            int[] clique = new int[nb.size() + 1];
+            clique[0] = v;
+            int j = 1;
+            for(int w : nb){
+                clique[j++] = w;
+            }
+            for(int a = 1; a < clique.length; a++){
+                Set<Integer> na = adj.get(clique[a]);
+                na.remove(v);
+                for(int b = 1; b < clique.length; b++){
+                    if(a != b) na.add(clique[b]);
+                }
+            }
+            nb.clear();
+            members[k] = clique;
+            cliqueOf[v] = k++;
+            largest = Math.max(largest, clique.length);
+            for(int a = 1; a < clique.length; a++){
+                int w = clique[a];
+                fill[w] = fillIn(adj, w);
+                queue.add(new long[] {fill[w], adj.get(w).size(), w});
+            }
+            PairwiseNetwork.checkInterrupted(k);
+        }
+        maxCliqueSize = largest;
+
+        // Parent: the clique of the neighbour eliminated next
+        parent = new int[n];
+        cliqueStart = new int[n + 1];
+        for(int c = 0; c < n; c++){
+            cliqueStart[c+1] = cliqueStart[c] + members[c].length;
+        }
+        cliqueArgs = new int[cliqueStart[n]];
+        parentPos = new int[cliqueStart[n]];
+        for(int c = 0; c < n; c++){
+            int[] clique = members[c];
+            int p = -1;
+            for(int a = 1; a < clique.length; a++){
+                if(p < 0 || cliqueOf[clique[a]] < p) p = cliqueOf[clique[a]];
+            }
+            parent[c] = p;
+            System.arraycopy(clique, 0, cliqueArgs, cliqueStart[c], clique.length);
+            parentPos[cliqueStart[c]] = -1;
+            for(int a = 1; a < clique.length; a++){
+                parentPos[cliqueStart[c] + a] = indexOf(members[p], clique[a]);
+            }
+        }
+
+        // Each relation goes to the clique of its argument eliminated first
+        int m = graph.numRelations();
+        int[] relationClique = new int[m];
+        relationStart = new int[n + 1];
+        for(int r = 0; r < m; r++){
+            relationClique[r] = Math.min(cliqueOf[graph.from(r)], cliqueOf[graph.to(r)]);
+            relationStart[relationClique[r] + 1]++;
+        }
+        for(int c = 0; c < n; c++){
+            relationStart[c+1] += relationStart[c];
+        }
+        relations = new int[m];
+        fromPos = new int[m];
+        toPos = new int[m];
+        int[] next = Arrays.copyOf(relationStart, n);
+        for(int r = 0; r < m; r++){
+            int c = relationClique[r];
+            int slot = next[c]++;
+            relations[slot] = r;
+            fromPos[slot] = indexOf(members[c], graph.from(r));
+            toPos[slot] = indexOf(members[c], graph.to(r));
+        }
+    }
+
+    /**
+     * Constructor of a structure read from disk, see read
+     *
+     * @param cliqueStart start of the arguments of each clique
+     * @param cliqueArgs argument indices of the cliques
+     * @param parent parent of each clique
+     * @param relationStart start of the relations of each clique
+     * @param relations relation indices, grouped by clique
+     * @param fromPos position of the first argument of each relation
+     * @param toPos position of the second argument of each relation
+     * @throws IOException if an argument of a clique is missing in its parent
+     */
+    private CompiledJunctionTree(int[] cliqueStart, int[] cliqueArgs, int[] parent, int[] relationStart,
+                                 int[] relations, int[] fromPos, int[] toPos) throws IOException {
+        n = parent.length;
+        this.cliqueStart = cliqueStart;
+        this.cliqueArgs = cliqueArgs;
+        this.parent = parent;
+        this.relationStart = relationStart;
+        this.relations = relations;
+        this.fromPos = fromPos;
+        this.toPos = toPos;
+
+        // The eliminated argument comes first in its clique
+        cliqueOf = new int[n];
+        parentPos = new int[cliqueArgs.length];
+        int largest = 0;
+        for(int c = 0; c < n; c++){
+            cliqueOf[cliqueArgs[cliqueStart[c]]] = c;
+            largest = Math.max(largest, cliqueStart[c+1] - cliqueStart[c]);
+        }
+        for(int c = 0; c < n; c++){
+            parentPos[cliqueStart[c]] = -1;
+            int[] parentArgs = parent[c] < 0 ? new int[0]
+                    : Arrays.copyOfRange(cliqueArgs, cliqueStart[parent[c]], cliqueStart[parent[c] + 1]);
+            for(int k = cliqueStart[c] + 1; k < cliqueStart[c+1]; k++){
+                parentPos[k] = indexOf(parentArgs, cliqueArgs[k]);
+                if(parentPos[k] < 0){
+                    throw new IOException("Broken junction tree!");
+                }
+            }
+        }
+        maxCliqueSize = largest;
+    }
+
+    /**
+     * Writes the structure, see read
+     *
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(n);
+        out.writeInt(relations.length);
+        writeInts(out, cliqueStart);
+        writeInts(out, cliqueArgs);
+        writeInts(out, parent);
+        writeInts(out, relationStart);
+        writeInts(out, relations);
+        writeInts(out, fromPos);
+        writeInts(out, toPos);
+    }
+
+    /**
+     * Reads a structure written by write and checks that it is
+     * a valid structure of a BAF, so that a broken or stale file
+     * is rejected instead of giving wrong marginals
+     *
+     * @param in the stream to read from
+     * @param graph the BAF the structure is read for
+     * @return the structure
+     * @throws IOException if reading fails or the structure is broken
+     *          or doesn't fit the BAF
+     */
+    static CompiledJunctionTree read(DataInputStream in, ArgumentGraph graph) throws IOException {
+        int n = in.readInt();
+        int m = in.readInt();
+        if(n != graph.numArguments() || m != graph.numRelations()){
+            throw new IOException("Broken junction tree!");
+        }
+
+        // Check the clique sizes before allocating their arguments
+        int[] cliqueStart = readInts(in, n + 1);
+        if(cliqueStart[0] != 0){
+            throw new IOException("Broken junction tree!");
+        }
+        for(int c = 0; c < n; c++){
+            int size = cliqueStart[c+1] - cliqueStart[c];
+            if(size < 1 || size > MAX_CLIQUE_SIZE){
+                throw new IOException("Broken junction tree!");
+            }
+        }
+        int[] cliqueArgs = readInts(in, cliqueStart[n]);
+        int[] parent = readInts(in, n);
+        int[] relationStart = readInts(in, n + 1);
+        int[] relations = readInts(in, m);
+        int[] fromPos = readInts(in, m);
+        int[] toPos = readInts(in, m);
+
+        // Every argument is eliminated once, parents come later
+        // in the elimination order
+        boolean[] eliminated = new boolean[n];
+        for(int c = 0; c < n; c++){
+            for(int k = cliqueStart[c]; k < cliqueStart[c+1]; k++){
+                if(cliqueArgs[k] < 0 || cliqueArgs[k] >= n){
+                    throw new IOException("Broken junction tree!");
+                }
+            }
+            int v = cliqueArgs[cliqueStart[c]];
+            if(eliminated[v] || (parent[c] != -1 && (parent[c] <= c || parent[c] >= n))){
+                throw new IOException("Broken junction tree!");
+            }
+            eliminated[v] = true;
+        }
+
+        // Every relation is held by one clique, at positions within it
+        if(relationStart[0] != 0 || relationStart[n] != m){
+            throw new IOException("Broken junction tree!");
+        }
+        boolean[] held = new boolean[m];
+        for(int c = 0; c < n; c++){
+            if(relationStart[c+1] < relationStart[c] || relationStart[c+1] > m){
+                throw new IOException("Broken junction tree!");
+            }
+            int size = cliqueStart[c+1] - cliqueStart[c];
+            for(int k = relationStart[c]; k < relationStart[c+1]; k++){
+                if(relations[k] < 0 || relations[k] >= m || held[relations[k]]
+                        || fromPos[k] < 0 || fromPos[k] >= size || toPos[k] < 0 || toPos[k] >= size){
+                    throw new IOException("Broken junction tree!");
+                }
+                held[relations[k]] = true;
+            }
+        }
+        CompiledJunctionTree tree = new CompiledJunctionTree(cliqueStart, cliqueArgs, parent, relationStart,
+                relations, fromPos, toPos);
+        if(!tree.fits(graph)){
+            throw new IOException("Broken junction tree!");
+        }
+        return tree;
+    }
+
+    /**
+     * Writes an int array without its length
+     *
+     * @param out the stream to write to
+     * @param values the values
+     * @throws IOException if writing fails
+     */
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for(int value : values){
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Reads an int array of known length
+     *
+     * @param in the stream to read from
+     * @param length the number of values
+     * @return the values
+     * @throws IOException if reading fails
+     */
+    private static int[] readInts(DataInputStream in, int length) throws IOException {
+        if(length < 0){
+            throw new IOException("Broken junction tree!");
+        }
+        int[] values = new int[length];
+        for(int k = 0; k < length; k++){
+            values[k] = in.readInt();
+        }
+        return values;
+    }
+
+    /**
+     * Counts the relations that eliminating an argument adds
+     * between its neighbours, estimated for arguments of high degree
+     *
+     * @param adj the current adjacency sets
+     * @param v the argument
+     * @return the fill-in of v
+     */
+    private static long fillIn(List<Set<Integer>> adj, int v){
+        Set<Integer> nb = adj.get(v);
+        long d = nb.size();
+        if(d > FILL_DEGREE_LIMIT){
+            return d * (d - 1) / 2;
+        }
+        int[] a = new int[(int) d];
+        int j = 0;
+        for(int w : nb){
+            a[j++] = w;
+        }
+        long missing = 0;
+        for(int x = 0; x < a.length; x++){
+            Set<Integer> nx = adj.get(a[x]);
+            for(int y = x + 1; y < a.length; y++){
+                if(!nx.contains(a[y])) missing++;
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Returns the position of an argument in a clique
+     *
+     * @param clique the arguments of the clique
+     * @param v the argument
+     * @return its position, -1 if v isn't in the clique
+     */
+    private static int indexOf(int[] clique, int v){
+        for(int j = 0; j < clique.length; j++){
+            if(clique[j] == v) return j;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of arguments of the largest clique
+     *
+     * @return the size of the largest clique
+     */
+    int getMaxCliqueSize(){ return maxCliqueSize; }
+
+    /**
+     * Checks whether the structure fits a BAF, i.e. has as
+     * many arguments and relations and every clique holds the
+     * arguments of its relations where it expects them
+     *
+     * @param graph the BAF
+     * @return true if the structure fits
+     */
+    boolean fits(ArgumentGraph graph){
+        if(graph.numArguments() != n || graph.numRelations() != relations.length){
+            return false;
+        }
+        for(int c = 0; c < n; c++){
+            for(int k = relationStart[c]; k < relationStart[c+1]; k++){
+                int r = relations[k];
+                if(cliqueArgs[cliqueStart[c] + fromPos[k]] != graph.from(r)
+                        || cliqueArgs[cliqueStart[c] + toPos[k]] != graph.to(r)){
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the estimated memory of the structure
+     *
+     * @return size in bytes
+     */
+    long bytes(){
+        return 256 + 4L * (4L * n + 2L * cliqueArgs.length + 3L * relations.length);
+    }
+
+    /**
+     * Computes the exact marginals of all arguments for the
+     * given factor values and the evidence of the BAF. The
+     * structure isn't changed, so several threads may call this
+     * at the same time.
+     *
+     * @param graph the BAF the structure was compiled from
+     * @param att attack factor values
+     * @param sup support factor values
+     * @return P(A=1) for every argument, by argument index,
+     *          NaN if the factor values rule out every assignment
+     * @throws InterruptedException if the inference was cancelled
+     */
+    double[] computeMarginals(ArgumentGraph graph, double[] att, double[] sup) throws InterruptedException {
+        return marginals(calibrate(graph, att, sup, true));
+    }
+
+    /**
+     * Loads the potentials into the cliques and passes messages
+     * up and down the tree, so that every clique table holds the
+     * joint belief of its arguments
+     *
+     * @param graph the BAF the structure was compiled from
+     * @param att attack factor values
+     * @param sup support factor values
+     * @param withEvidence whether to enter the evidence of the BAF
+     * @return the calibrated tables
+     * @throws InterruptedException if the inference was cancelled
+     */
+    Calibration calibrate(ArgumentGraph graph, double[] att, double[] sup, boolean withEvidence)
+            throws InterruptedException {
+
+        Calibration cal = new Calibration(n);
+        for(int c = 0; c < n; c++){
+            cal.pot[c] = loadPotential(graph, c, att, sup);
+            if(parent[c] >= 0){
+                cal.sep[c] = new double[cal.pot[c].length >> 1];
+                Arrays.fill(cal.sep[c], 1.0);
+            }
+            PairwiseNetwork.checkInterrupted(c);
+        }
+        if(withEvidence){
+            for(int i = 0; i < n; i++){
+                int value = graph.evidence(i);
+                if(value != ArgumentGraph.NO_EVIDENCE){
+                    enterEvidence(cal, i, value);
+                }
+            }
+        }
+        collect(cal);
+        distribute(cal);
+        return cal;
+    }
+
+    /**
+     * Brings a calibration up to date with the evidence of a
+     * BAF. If the evidence only grew since the current
+     * calibration, the new evidence is entered into it and, for a
+     * single new item, distributed from the clique of its argument
+     * only; otherwise all evidence is entered into a copy of the
+     * calibration without evidence and the tree calibrated again.
+     * The factor values are never loaded again.
+     *
+     * @param prior the calibration without evidence, not changed
+     * @param current the calibration of the last evidence, changed
+     *          in place if possible unless it is the prior one,
+     *          may be null
+     * @param graph the BAF with the new evidence
+     * @return the calibration of the new evidence
+     * @throws InterruptedException if the inference was cancelled
+     */
+    Calibration update(Calibration prior, Calibration current, ArgumentGraph graph) throws InterruptedException {
+
+        // Evidence can be added to a calibration, but not taken back
+        Calibration cal = current == prior ? null : current;
+        for(int i = 0; cal != null && i < n; i++){
+            int old = cal.evidence[i];
+            if(old != ArgumentGraph.NO_EVIDENCE && old != graph.evidence(i)){
+                cal = null;
+            }
+        }
+        if(cal == null){
+            cal = prior.copy();
+        }
+
+        int added = 0;
+        int last = -1;
+        for(int i = 0; i < n; i++){
+            int value = graph.evidence(i);
+            if(value != ArgumentGraph.NO_EVIDENCE && cal.evidence[i] == ArgumentGraph.NO_EVIDENCE){
+                enterEvidence(cal, i, value);
+                added++;
+                last = i;
+            }
+        }
+        if(added == 1){
+            distributeFrom(cal, cliqueOf[last]);
+        }
+        else if(added > 1){
+            collect(cal);
+            distribute(cal);
+        }
+        return cal;
+    }
+
+    /**
+     * Reads the marginals of all arguments off a calibration
+     *
+     * @param cal the calibrated tables
+     * @return P(A=1) for every argument, by argument index,
+     *          NaN if the evidence rules out every assignment
+     */
+    double[] marginals(Calibration cal){
+        // The eliminated argument of a clique is bit 0
+        double[] marginals = new double[n];
+        for(int i = 0; i < n; i++){
+            double[] table = cal.pot[cliqueOf[i]];
+            double b0 = 0;
+            double b1 = 0;
+            for(int a = 0; a < table.length; a += 2){
+                b0 += table[a];
+                b1 += table[a + 1];
+            }
+            marginals[i] = b1 / (b0 + b1);
+        }
+        return marginals;
+    }
+
+    /**
+     * Enters the evidence of an argument into the table of its
+     * clique, where it is bit 0
+     *
+     * @param cal the tables
+     * @param i the argument
+     * @param value its value, 0 or 1
+     */
+    private void enterEvidence(Calibration cal, int i, int value){
+        double[] table = cal.pot[cliqueOf[i]];
+        for(int a = 1 - value; a < table.length; a += 2){
+            table[a] = 0;
+        }
+        cal.evidence[i] = (byte) value;
+    }
+
+    /**
+     * Upward pass in elimination order, children before parents
+     *
+     * @param cal the tables
+     * @throws InterruptedException if the inference was cancelled
+     */
+    private void collect(Calibration cal) throws InterruptedException {
+        for(int c = 0; c < n; c++){
+            if(parent[c] >= 0){
+                sendUp(cal, c);
+            }
+            PairwiseNetwork.checkInterrupted(c);
+        }
+    }
+
+    /**
+     * Downward pass, parents before children
+     *
+     * @param cal the tables
+     * @throws InterruptedException if the inference was cancelled
+     */
+    private void distribute(Calibration cal) throws InterruptedException {
+        for(int c = n - 1; c >= 0; c--){
+            if(parent[c] >= 0){
+                sendDown(cal, c);
+            }
+            PairwiseNetwork.checkInterrupted(c);
+        }
+    }
+
+    /**
+     * Passes messages away from a single clique of a calibrated
+     * tree, after evidence was entered into it: up the path to
+     * the root, then down into all other cliques of that tree
+     *
+     * @param cal the tables
+     * @param source the clique holding the new evidence
+     * @throws InterruptedException if the inference was cancelled
+     */
+    private void distributeFrom(Calibration cal, int source) throws InterruptedException {
+        boolean[] reached = new boolean[n];
+        int top = source;
+        reached[top] = true;
+        while(parent[top] >= 0){
+            sendUp(cal, top);
+            top = parent[top];
+            reached[top] = true;
+        }
+        // The edges on the path have been passed upwards already
+        boolean[] onPath = reached.clone();
+        for(int c = top - 1; c >= 0; c--){
+            int p = parent[c];
+            if(p >= 0 && !onPath[c] && reached[p]){
+                sendDown(cal, c);
+                reached[c] = true;
+            }
+            PairwiseNetwork.checkInterrupted(c);
+        }
+    }
+
+    /**
+     * Sends the message of a clique to its parent: sums the
+     * eliminated argument out and replaces the old separator
+     * belief in the parent table by the new one
+     *
+     * @param cal the tables
+     * @param c the clique
+     */
+    private void sendUp(Calibration cal, int c){
+        double[] table = cal.pot[c];
+        double[] msg = new double[table.length >> 1];
+        for(int a = 0; a < msg.length; a++){
+            msg[a] = table[a << 1] + table[(a << 1) | 1];
+        }
+        normalize(msg);
+        double[] old = cal.sep[c];
+        double[] pt = cal.pot[parent[c]];
+        for(int b = 0; b < pt.length; b++){
+            int s = separatorIndex(c, b);
+            pt[b] = old[s] == 0 ? 0 : pt[b] * msg[s] / old[s];
+        }
+        normalizeMax(pt);
+        cal.sep[c] = msg;
+    }
+
+    /**
+     * Sends the message of the parent of a clique down to it:
+     * sums the parent table onto their separator and replaces the
+     * old separator belief in the clique table by the new one
+     *
+     * @param cal the tables
+     * @param c the clique
+     */
+    private void sendDown(Calibration cal, int c){
+        double[] pt = cal.pot[parent[c]];
+        double[] msg = new double[cal.sep[c].length];
+        for(int b = 0; b < pt.length; b++){
+            msg[separatorIndex(c, b)] += pt[b];
+        }
+        normalize(msg);
+        double[] old = cal.sep[c];
+        double[] table = cal.pot[c];
+        for(int a = 0; a < table.length; a++){
+            double u = old[a >> 1];
+            table[a] = u == 0 ? 0 : table[a] * msg[a >> 1] / u;
+        }
+        normalizeMax(table);
+        cal.sep[c] = msg;
+    }
+
+    /**
+     * Builds the table of a clique: the product of the factors
+     * of its relations, scaled to a maximum of 1
+     *
+     * @param graph the BAF
+     * @param c the clique
+     * @param att attack factor values
+     * @param sup support factor values
+     * @return the clique table
+     */
+    private double[] loadPotential(ArgumentGraph graph, int c, double[] att, double[] sup){
+        double[] table = new double[1 << (cliqueStart[c+1] - cliqueStart[c])];
+        Arrays.fill(table, 1.0);
+        for(int k = relationStart[c]; k < relationStart[c+1]; k++){
+            double[] factor = graph.factor(relations[k], att, sup);
+            int x = fromPos[k];
+            int y = toPos[k];
+            for(int a = 0; a < table.length; a++){
+                table[a] *= factor[2 * ((a >> x) & 1) + ((a >> y) & 1)];
+            }
+        }
+        normalizeMax(table);
+        return table;
+    }
+
+    /**
+     * Maps an assignment of the parent of a clique to the
+     * assignment of their separator, i.e. of the clique's
+     * arguments but the eliminated one
+     *
+     * @param c the clique
+     * @param b an assignment of its parent
+     * @return the index into the separator table
+     */
+    private int separatorIndex(int c, int b){
+        int index = 0;
+        for(int k = cliqueStart[c] + 1, bit = 0; k < cliqueStart[c+1]; k++, bit++){
+            index |= ((b >> parentPos[k]) & 1) << bit;
+        }
+        return index;
+    }
+
+    /**
+     * Scales the values to a maximum of 1, unless all are 0,
+     * to keep clique tables in range
+     *
+     * @param values the values
+     */
+    private static void normalizeMax(double[] values){
+        double max = 0;
+        for(double value : values){
+            max = Math.max(max, value);
+        }
+        if(max > 0){
+            for(int k = 0; k < values.length; k++){
+                values[k] /= max;
+            }
+        }
+    }
+
+    /**
+     * Scales the values to a sum of 1, unless all are 0
+     *
+     * @param values the values
+     */
+    private static void normalize(double[] values){
+        double sum = 0;
+        for(double value : values){
+            sum += value;
+        }
+        if(sum > 0){
+            for(int k = 0; k < values.length; k++){
+                values[k] /= sum;
+            }
+        }
+    }
+
+    /**
+     * The calibrated clique tables of a junction tree for some
+     * factor values and evidence, kept to enter further evidence
+     * without loading the potentials again, see update
+     */
+    static final class Calibration {
+
+        /**
+         * Table of each clique
+         */
+        private final double[][] pot;
+        /**
+         * Last separator belief between each clique and its
+         * parent, null for roots
+         */
+        private final double[][] sep;
+        /**
+         * Entered evidence of each argument, NO_EVIDENCE if none
+         */
+        private final byte[] evidence;
+
+        /**
+         * Constructor of empty tables without evidence
+         *
+         * @param n the number of cliques
+         */
+        private Calibration(int n){
+            pot = new double[n][];
+            sep = new double[n][];
+            evidence = new byte[n];
+            Arrays.fill(evidence, ArgumentGraph.NO_EVIDENCE);
+        }
+
+        /**
+         * Returns a deep copy of the tables
+         *
+         * @return the copy
+         */
+        private Calibration copy(){
+            Calibration cal = new Calibration(pot.length);
+            for(int c = 0; c < pot.length; c++){
+                cal.pot[c] = pot[c].clone();
+                cal.sep[c] = sep[c] == null ? null : sep[c].clone();
+            }
+            System.arraycopy(evidence, 0, cal.evidence, 0, evidence.length);
+            return cal;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package inferencer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the marginals of the components of the last inferred
+ * model, so that after an edit only the components touched
+ * by the change are inferred again. Components are
+ * identified by a signature over their argument labels, their
+ * relations, their evidence and the factor values; the
+ * marginals additionally by the inferencer and its settings.
+ *
+ * Only the components of the last run are kept, so the cache
+ * never grows beyond the size of the model.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class ComponentCache {
+
+    /**
+     * The cached components of the last run, by signature
+     */
+    private Map<String, Entry> entries = new HashMap<>();
+    /**
+     * The components of the current run, by signature
+     */
+    private Map<String, Entry> current = new HashMap<>();
+
+    /**
+     * The cached data of one component
+     */
+    static class Entry {
+
+        /**
+         * P(A=1) of the arguments of the component, by
+         * inferencer and settings key
+         */
+        final Map<String, double[]> marginals = new HashMap<>();
+        /**
+         * Diagnostics of the inferencer on the component, by
+         * inferencer and settings key, see ComponentInferencer
+         */
+        final Map<String, double[]> diagnostics = new HashMap<>();
+    }
+
+    /**
+     * Computes the signature of a component: a 128 bit hash
+     * over the labels of its arguments, its relations with
+     * their own factor values, its evidence and the factor values
+     *
+     * @param graph the parsed BAF
+     * @param dec its components
+     * @param c the component
+     * @param att attack factor values
+     * @param sup support factor values
+     * @return the signature as a hex String
+     */
+    static String signature(ArgumentGraph graph, ComponentDecomposition dec, int c, double[] att, double[] sup){
+        long h1 = 0x243F6A8885A308D3L;
+        long h2 = 0x13198A2E03707344L;
+        for(double value : att){
+            long bits = Double.doubleToLongBits(value);
+            h1 = mix(h1, bits);
+            h2 = mix(h2 ^ 0x5A5A5A5A5A5A5A5AL, bits);
+        }
+        for(double value : sup){
+            long bits = Double.doubleToLongBits(value);
+            h1 = mix(h1, bits);
+            h2 = mix(h2 ^ 0x5A5A5A5A5A5A5A5AL, bits);
+        }
+        for(int k = 0; k < dec.size(c); k++){
+            String label = graph.label(dec.member(c, k));
+            h1 = mix(h1, label.hashCode() ^ ((long) label.length() << 32));
+            for(int i = 0; i < label.length(); i++){
+                h2 = mix(h2, label.charAt(i));
+            }
+        }
+        for(int k = 0; k < dec.numRelations(c); k++){
+            int r = dec.relation(c, k);
+            long relation = ((long) dec.localIndexOf(graph.from(r)) << 33)
+                    | ((long) dec.localIndexOf(graph.to(r)) << 1) | graph.type(r);
+            h1 = mix(h1, relation);
+            h2 = mix(h2 ^ 0x5A5A5A5A5A5A5A5AL, relation);
+            double[] factor = graph.factor(r);
+            if(factor != null){
+                for(double value : factor){
+                    long bits = Double.doubleToLongBits(value);
+                    h1 = mix(h1, bits);
+                    h2 = mix(h2 ^ 0x5A5A5A5A5A5A5A5AL, bits);
+                }
+            }
+        }
+        for(int k = 0; k < dec.size(c); k++){
+            int value = graph.evidence(dec.member(c, k));
+            if(value != ArgumentGraph.NO_EVIDENCE){
+                long evidence = ((long) k << 1) | value;
+                h1 = mix(h1 ^ 0x3C3C3C3C3C3C3C3CL, evidence);
+                h2 = mix(h2 ^ 0x5A5A5A5A5A5A5A5AL, evidence);
+            }
+        }
+        return String.format("%016x%016x%08x", h1, h2, dec.numRelations(c));
+    }
+
+    /**
+     * Mixes a value into a running hash
+     *
+     * @param h the running hash
+     * @param value the value
+     * @return the new hash
+     */
+    private static long mix(long h, long value){
+        h = (h ^ value) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * Returns the cached entry of a component and marks it as
+     * part of the current run, creating a new entry if the
+     * component is not cached
+     *
+     * @param signature the signature of the component
+     * @return the entry of the component
+     */
+    synchronized Entry get(String signature){
+        Entry entry = current.get(signature);
+        if(entry == null){
+            entry = entries.get(signature);
+            if(entry == null){
+                entry = new Entry();
+            }
+            current.put(signature, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Ends a successful run: only the components of this
+     * run are kept for the next one
+     */
+    synchronized void commit(){
+        entries = current;
+        current = new HashMap<>();
+    }
+
+    /**
+     * Ends a failed run: the cache stays as it was before
+     */
+    synchronized void rollback(){
+        current = new HashMap<>();
+    }
+
+    /**
+     * Drops all cached components
+     */
+    synchronized void clear(){
+        entries = new HashMap<>();
+        current = new HashMap<>();
+    }
+}
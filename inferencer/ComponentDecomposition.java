@@ -0,0 +1,221 @@
+package inferencer;
+
+import java.util.Arrays;
+
+/**
+ * Splits a parsed BAF into its connected components. Arguments
+ * of different components don't influence each other, so every
+ * component can be inferred on its own.
+ *
+ * The arguments and relations of each component are stored as
+ * contiguous slices of two index arrays, component c owning
+ * members[memberStart[c]] ... members[memberStart[c+1]-1] and
+ * relations[relationStart[c]] ... relations[relationStart[c+1]-1].
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class ComponentDecomposition {
+
+    /**
+     * The decomposed BAF
+     */
+    private final ArgumentGraph graph;
+    /**
+     * Number of components
+     */
+    private final int count;
+    /**
+     * Component of each argument
+     */
+    private final int[] component;
+    /**
+     * Index of each argument within its component
+     */
+    private final int[] localIndex;
+    /**
+     * Start of the members of each component
+     */
+    private final int[] memberStart;
+    /**
+     * Argument indices, grouped by component
+     */
+    private final int[] members;
+    /**
+     * Start of the relations of each component
+     */
+    private final int[] relationStart;
+    /**
+     * Relation indices, grouped by component
+     */
+    private final int[] relations;
+
+    /**
+     * Finds the connected components of a parsed BAF
+     * with a union-find over its relations
+     *
+     * @param graph the parsed BAF
+     */
+    ComponentDecomposition(ArgumentGraph graph){
+
+        this.graph = graph;
+        int n = graph.numArguments();
+        int numRelations = graph.numRelations();
+
+        // Union-find with path halving
+        int[] parent = new int[n];
+        for(int i = 0; i < n; i++){
+            parent[i] = i;
+        }
+        for(int r = 0; r < numRelations; r++){
+            int x = find(parent, graph.from(r));
+            int y = find(parent, graph.to(r));
+            if(x != y){
+                parent[Math.max(x, y)] = Math.min(x, y);
+            }
+        }
+
+        // Number the components in order of their first argument
+        component = new int[n];
+        int c = 0;
+        for(int i = 0; i < n; i++){
+            int root = find(parent, i);
+            component[i] = root == i ? c++ : component[root];
+        }
+        count = c;
+
+        // Group the arguments by component
+        memberStart = new int[count + 1];
+        for(int i = 0; i < n; i++){
+            memberStart[component[i] + 1]++;
+        }
+        for(int k = 0; k < count; k++){
+            memberStart[k+1] += memberStart[k];
+        }
+        members = new int[n];
+        localIndex = new int[n];
+        int[] fill = new int[count];
+        for(int i = 0; i < n; i++){
+            int k = component[i];
+            localIndex[i] = fill[k];
+            members[memberStart[k] + fill[k]++] = i;
+        }
+
+        // Group the relations by component
+        relationStart = new int[count + 1];
+        for(int r = 0; r < numRelations; r++){
+            relationStart[component[graph.from(r)] + 1]++;
+        }
+        for(int k = 0; k < count; k++){
+            relationStart[k+1] += relationStart[k];
+        }
+        relations = new int[numRelations];
+        Arrays.fill(fill, 0);
+        for(int r = 0; r < numRelations; r++){
+            int k = component[graph.from(r)];
+            relations[relationStart[k] + fill[k]++] = r;
+        }
+    }
+
+    /**
+     * Finds the root of an argument in the union-find forest
+     *
+     * @param parent the union-find forest
+     * @param i the argument
+     * @return the root of its tree
+     */
+    private static int find(int[] parent, int i){
+        while(parent[i] != i){
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Returns the number of components
+     *
+     * @return the number of components
+     */
+    int count(){ return count; }
+
+    /**
+     * Returns the component of an argument
+     *
+     * @param i index of the argument
+     * @return index of its component
+     */
+    int componentOf(int i){ return component[i]; }
+
+    /**
+     * Returns the index of an argument within its component
+     *
+     * @param i index of the argument
+     * @return its index in the subgraph of its component
+     */
+    int localIndexOf(int i){ return localIndex[i]; }
+
+    /**
+     * Returns the number of arguments of a component
+     *
+     * @param c the component
+     * @return the number of arguments
+     */
+    int size(int c){ return memberStart[c+1] - memberStart[c]; }
+
+    /**
+     * Returns an argument of a component
+     *
+     * @param c the component
+     * @param k index of the argument within the component
+     * @return index of the argument in the whole BAF
+     */
+    int member(int c, int k){ return members[memberStart[c] + k]; }
+
+    /**
+     * Returns the number of relations of a component
+     *
+     * @param c the component
+     * @return the number of relations
+     */
+    int numRelations(int c){ return relationStart[c+1] - relationStart[c]; }
+
+    /**
+     * Returns a relation of a component
+     *
+     * @param c the component
+     * @param k index of the relation within the component
+     * @return index of the relation in the whole BAF
+     */
+    int relation(int c, int k){ return relations[relationStart[c] + k]; }
+
+    /**
+     * Returns whether a component is a single argument,
+     * possibly related to itself but to no other argument
+     *
+     * @param c the component
+     * @return true if the argument is isolated
+     */
+    boolean isIsolated(int c){ return size(c) == 1; }
+
+    /**
+     * Builds the BAF of a single component, with the
+     * arguments numbered by their index within the component
+     *
+     * @param c the component
+     * @return the arguments, relations and evidence of the component
+     */
+    ArgumentGraph subgraph(int c){
+        ArgumentGraph sub = new ArgumentGraph();
+        for(int k = 0; k < size(c); k++){
+            sub.addArgument(graph.label(member(c, k)));
+        }
+        for(int k = 0; k < numRelations(c); k++){
+            int r = relation(c, k);
+            sub.addRelation(graph.type(r), localIndex[graph.from(r)], localIndex[graph.to(r)], graph.factor(r));
+        }
+        for(int k = 0; k < size(c); k++){
+            sub.setEvidence(k, graph.evidence(member(c, k)));
+        }
+        return sub;
+    }
+}
@@ -0,0 +1,547 @@
+package inferencer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs an inferencer on each connected component of a BAF
+ * separately, in parallel on all cores, and merges the
+ * marginals. Isolated arguments need no inferencer at all:
+ * their marginal follows directly from their relations with
+ * themselves, 0.5 if there are none.
+ *
+ * Small components are grouped into tasks of similar size,
+ * so models with many tiny components don't pay per task.
+ * Components that didn't change since the last run are taken
+ * from the ComponentCache instead of being inferred again.
+ * The junction tree inferencer takes the compiled structure of
+ * a component from the JunctionTreeCache, so a component whose
+ * factor values changed isn't triangulated again.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class ComponentInferencer {
+
+    /**
+     * Tasks per thread when inferring many components,
+     * to balance components of different size
+     */
+    private static final int TASKS_PER_THREAD = 4;
+
+    /**
+     * The inferencer to use, one of Model.INFERENCERS
+     */
+    private final String inferencer;
+    /**
+     * The settings of the configurable inferencers
+     */
+    private final InferenceSettings settings;
+    /**
+     * Attack factor values
+     */
+    private final double[] att;
+    /**
+     * Support factor values
+     */
+    private final double[] sup;
+    /**
+     * Number of threads
+     */
+    private final int threads;
+    /**
+     * Key of the inferencer and its settings in the cache
+     */
+    private final String key;
+    /**
+     * The compiled junction trees, by structure
+     */
+    private final JunctionTreeCache junctionTrees;
+
+    /**
+     * Number of components of the last run
+     */
+    private int components;
+    /**
+     * Number of isolated arguments of the last run
+     */
+    private int isolated;
+    /**
+     * Number of components reused from the cache in the last run
+     */
+    private int reused;
+    /**
+     * Number of components inferred by loopy BP
+     */
+    private int lbpRuns;
+    /**
+     * Loopy BP: largest number of iterations of a component
+     */
+    private int lbpIterations;
+    /**
+     * Loopy BP: largest final residual of a component
+     */
+    private double lbpResidual;
+    /**
+     * Loopy BP: whether all components converged
+     */
+    private boolean lbpConverged = true;
+    /**
+     * Number of components inferred by the Gibbs sampler
+     */
+    private int gibbsRuns;
+    /**
+     * Gibbs sampler: largest number of samples per chain of a component
+     */
+    private int gibbsSamples;
+    /**
+     * Gibbs sampler: whether all components stopped early
+     */
+    private boolean gibbsStoppedEarly = true;
+    /**
+     * Gibbs sampler: largest R-hat of an argument
+     */
+    private double gibbsMaxRHat = 1;
+    /**
+     * Gibbs sampler: smallest effective sample size of an argument
+     */
+    private double gibbsMinEss = Double.POSITIVE_INFINITY;
+    /**
+     * Gibbs sampler: largest standard error of an argument
+     */
+    private double gibbsMaxError = 0;
+    /**
+     * Number of components inferred by the junction tree inferencer
+     */
+    private int jtRuns;
+    /**
+     * Junction tree: number of structures taken from the cache
+     */
+    private int jtReused;
+    /**
+     * Junction tree: number of structures compiled
+     */
+    private int jtCompiled;
+    /**
+     * Junction tree: largest clique of a component
+     */
+    private int jtMaxClique;
+
+    /**
+     * Constructor, sets the inferencer and its parameters
+     *
+     * @param inferencer the inferencer to use, one of Model.INFERENCERS
+     * @param settings the settings of the configurable inferencers
+     * @param att attack factor values
+     * @param sup support factor values
+     * @throws Exception if the inferencer is unknown
+     */
+    ComponentInferencer(String inferencer, InferenceSettings settings, double[] att, double[] sup) throws Exception {
+        this(inferencer, settings, att, sup, new JunctionTreeCache(JunctionTreeCache.DEFAULT_MEMORY, DiskBudget.DEFAULT_BYTES, null),
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor, sets the inferencer, its parameters and
+     * the cache of compiled junction trees
+     *
+     * @param inferencer the inferencer to use, one of Model.INFERENCERS
+     * @param settings the settings of the configurable inferencers
+     * @param att attack factor values
+     * @param sup support factor values
+     * @param junctionTrees the compiled junction trees, by structure
+     * @param threads number of threads of the components and
+     *          of the inferencer on a single component
+     * @throws Exception if the inferencer is unknown
+     */
+    ComponentInferencer(String inferencer, InferenceSettings settings, double[] att, double[] sup,
+                        JunctionTreeCache junctionTrees, int threads) throws Exception {
+        if(!Model.INFERENCERS.contains(inferencer)){
+            throw new Exception("Unknown inferencer " + inferencer + "!");
+        }
+        this.inferencer = inferencer;
+        this.settings = settings;
+        this.att = att;
+        this.sup = sup;
+        this.threads = threads;
+        this.key = key(inferencer, settings);
+        this.junctionTrees = junctionTrees;
+    }
+
+    /**
+     * Returns the key of an inferencer and its settings, as
+     * used to tell cached results apart
+     *
+     * @param inferencer the inferencer, one of Model.INFERENCERS
+     * @param settings the settings of the configurable inferencers
+     * @return the key
+     */
+    static String key(String inferencer, InferenceSettings settings){
+        // Only the approximate inferencers depend on the settings
+        boolean exact = inferencer.equals("junctionTree") || inferencer.equals("pairwiseTree");
+        return exact ? inferencer : inferencer + " " + settings;
+    }
+
+    /**
+     * Returns the key of the inferencer and its settings
+     *
+     * @return the key
+     */
+    String getKey(){ return key; }
+
+    /**
+     * Computes the marginals of all arguments of a BAF,
+     * reusing the cached marginals of components that didn't
+     * change since the last run
+     *
+     * @param graph the parsed BAF
+     * @param cache the components of the last run
+     * @return P(A=1) for every argument, by argument index
+     * @throws InterruptedException if the inference was cancelled
+     * @throws Exception if the inferencer can't handle the model
+     */
+    double[] computeMarginals(ArgumentGraph graph, ComponentCache cache) throws Exception {
+
+        ComponentDecomposition dec = new ComponentDecomposition(graph);
+        double[] marginals = new double[graph.numArguments()];
+        components = dec.count();
+        isolated = 0;
+        reused = 0;
+
+        try{
+            // Isolated arguments analytically, cached components
+            // from the cache, collect the others
+            List<Integer> pending = new ArrayList<>();
+            List<ComponentCache.Entry> pendingEntries = new ArrayList<>();
+            int pendingArguments = 0;
+            for(int c = 0; c < dec.count(); c++){
+                if(dec.isIsolated(c)){
+                    marginals[dec.member(c, 0)] = isolatedMarginal(graph, dec, c, att, sup);
+                    isolated++;
+                    continue;
+                }
+                ComponentCache.Entry entry = cache.get(ComponentCache.signature(graph, dec, c, att, sup));
+                double[] local = entry.marginals.get(key);
+                if(local != null){
+                    for(int k = 0; k < local.length; k++){
+                        marginals[dec.member(c, k)] = local[k];
+                    }
+                    // The summary covers reused components as well
+                    addDiagnostics(entry.diagnostics.get(key));
+                    reused++;
+                }
+                else{
+                    pending.add(c);
+                    pendingEntries.add(entry);
+                    pendingArguments += dec.size(c);
+                }
+            }
+
+            // A single component may use all threads itself
+            if(pending.size() == 1){
+                inferInto(graph, dec, pending.get(0), pendingEntries.get(0), marginals, threads);
+            }
+            else if(pending.size() > 1){
+                inferAll(graph, dec, pending, pendingEntries, pendingArguments, marginals);
+            }
+        } catch(Exception e){
+            cache.rollback();
+            throw e;
+        }
+        cache.commit();
+        return marginals;
+    }
+
+    /**
+     * Infers several components in parallel, grouped
+     * into tasks of similar size
+     *
+     * @param graph the parsed BAF
+     * @param dec its components
+     * @param pending the components to infer
+     * @param pendingEntries the cache entries of these components
+     * @param pendingArguments the number of their arguments
+     * @param marginals the marginals of the whole BAF
+     * @throws Exception if the inferencer fails
+     */
+    private void inferAll(ArgumentGraph graph, ComponentDecomposition dec, List<Integer> pending,
+                          List<ComponentCache.Entry> pendingEntries, int pendingArguments,
+                          double[] marginals) throws Exception {
+
+        int target = Math.max(1, pendingArguments / (threads * TASKS_PER_THREAD));
+        List<Callable<Void>> tasks = new ArrayList<>();
+        int first = 0;
+        int size = 0;
+        for(int k = 0; k < pending.size(); k++){
+            size += dec.size(pending.get(k));
+            if(size >= target || k == pending.size() - 1){
+                int from = first;
+                int to = k + 1;
+                tasks.add(() -> {
+                    for(int j = from; j < to; j++){
+                        inferInto(graph, dec, pending.get(j), pendingEntries.get(j), marginals, 1);
+                    }
+                    return null;
+                });
+                first = k + 1;
+                size = 0;
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+        try{
+            for(Future<Void> f : pool.invokeAll(tasks)){
+                f.get();
+            }
+        } catch(ExecutionException e){
+            // Report the error of the component itself
+            if(e.getCause() instanceof Exception){
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Derives the Gibbs sampler seed of a component from the seed
+     * of the settings and the signature of the component, so that
+     * the components draw independent samples while the marginals
+     * of a component stay the same in every model it occurs in
+     *
+     * @param seed the seed of the settings
+     * @param signature the signature of the component, see ComponentCache.signature
+     * @return the seed of the component
+     */
+    static long componentSeed(long seed, String signature){
+        for(int i = 0; i < signature.length(); i++){
+            seed = (seed ^ signature.charAt(i)) * 0x9E3779B97F4A7C15L;
+            seed ^= seed >>> 29;
+        }
+        return seed;
+    }
+
+    /**
+     * Computes the marginal of an isolated argument from
+     * the diagonal of its relations with itself and its evidence
+     *
+     * @param graph the parsed BAF
+     * @param dec its components
+     * @param c the component of the isolated argument
+     * @param att attack factor values
+     * @param sup support factor values
+     * @return P(A=1) of the argument
+     */
+    static double isolatedMarginal(ArgumentGraph graph, ComponentDecomposition dec, int c,
+                                   double[] att, double[] sup){
+        double b0 = 0;
+        double b1 = 0;
+        for(int k = 0; k < dec.numRelations(c); k++){
+            double[] pot = graph.factor(dec.relation(c, k), att, sup);
+            b0 += Math.log(pot[0]);
+            b1 += Math.log(pot[3]);
+        }
+        int value = graph.evidence(dec.member(c, 0));
+        if(value != ArgumentGraph.NO_EVIDENCE){
+            return value == 1 && b1 != Double.NEGATIVE_INFINITY ? 1.0
+                    : value == 0 && b0 != Double.NEGATIVE_INFINITY ? 0.0 : Double.NaN;
+        }
+        return PairwiseNetwork.probability(b0, b1);
+    }
+
+    /**
+     * Infers a single component, caches its marginals and
+     * writes them into the marginals of the whole BAF
+     *
+     * @param graph the parsed BAF
+     * @param dec its components
+     * @param c the component
+     * @param entry the cache entry of the component
+     * @param marginals the marginals of the whole BAF
+     * @param threads number of threads the inferencer may use
+     * @throws Exception if the inferencer fails
+     */
+    private void inferInto(ArgumentGraph graph, ComponentDecomposition dec, int c, ComponentCache.Entry entry,
+                           double[] marginals, int threads) throws Exception {
+
+        // A connected model is inferred as a whole
+        ArgumentGraph sub = dec.count() > 1 ? dec.subgraph(c) : graph;
+        long seed = inferencer.equals("gibbsSampler")
+                ? componentSeed(settings.getSeed(), ComponentCache.signature(graph, dec, c, att, sup)) : settings.getSeed();
+        double[] local = inferComponent(sub, threads, seed, entry);
+        entry.marginals.put(key, local);
+        for(int k = 0; k < local.length; k++){
+            marginals[dec.member(c, k)] = local[k];
+        }
+    }
+
+    /**
+     * Runs the inferencer on a connected BAF
+     *
+     * @param graph the BAF
+     * @param threads number of threads the inferencer may use
+     * @param seed Gibbs sampler: the seed of the component
+     * @param entry the cache entry the diagnostics are kept in
+     * @return P(A=1) for every argument, by argument index
+     * @throws Exception if the inferencer fails
+     */
+    private double[] inferComponent(ArgumentGraph graph, int threads, long seed, ComponentCache.Entry entry)
+            throws Exception {
+
+        if(inferencer.equals("junctionTree")){
+            // Only triangulate structures that aren't cached yet
+            CompiledJunctionTree tree = junctionTrees.get(graph);
+            boolean cached = tree != null;
+            if(!cached){
+                long start = System.nanoTime();
+                tree = new CompiledJunctionTree(graph);
+                junctionTrees.put(graph, tree, System.nanoTime() - start);
+            }
+            double[] marginals = tree.computeMarginals(graph, att, sup);
+            if(Thread.currentThread().isInterrupted()){
+                throw new InterruptedException("Inference cancelled!");
+            }
+            recordJunctionTree(cached);
+            entry.diagnostics.put(key, addDiagnostics(new double[] {tree.getMaxCliqueSize()}));
+            return marginals;
+        }
+
+        PairwiseNetwork net = new PairwiseNetwork(graph, att, sup);
+        if(inferencer.equals("pairwiseTree")){
+            return new PairwiseTreeInferencer().computeMarginals(net);
+        }
+        if(inferencer.equals("gibbsSampler")){
+            MultiChainGibbsSampler gibbs = new MultiChainGibbsSampler(settings, threads, seed);
+            double[] marginals = gibbs.computeMarginals(net);
+            entry.diagnostics.put(key, addDiagnostics(gibbsDiagnostics(gibbs, marginals)));
+            return marginals;
+        }
+        LoopyBeliefPropagation lbp = new LoopyBeliefPropagation(settings);
+        double[] marginals = lbp.computeMarginals(net);
+        entry.diagnostics.put(key, addDiagnostics(new double[] {lbp.getIterations(), lbp.getFinalResidual(),
+                lbp.hasConverged() ? 1 : 0}));
+        return marginals;
+    }
+
+    /**
+     * Collects the diagnostics of a Gibbs sampler run on a component
+     *
+     * @param gibbs the finished sampler
+     * @param marginals its marginals
+     * @return samples per chain, 1 if stopped early, largest R-hat,
+     *          smallest ESS and largest standard error
+     */
+    private static double[] gibbsDiagnostics(MultiChainGibbsSampler gibbs, double[] marginals){
+        double maxRHat = 1;
+        double minEss = Double.POSITIVE_INFINITY;
+        double maxError = 0;
+        for(int i = 0; i < marginals.length; i++){
+            maxRHat = Math.max(maxRHat, gibbs.getRHat()[i]);
+            minEss = Math.min(minEss, gibbs.getEss()[i]);
+            maxError = Math.max(maxError, MultiChainGibbsSampler.standardError(marginals[i], gibbs.getEss()[i]));
+        }
+        return new double[] {gibbs.getSamplesDrawn(), gibbs.stoppedEarly() ? 1 : 0, maxRHat, minEss, maxError};
+    }
+
+    /**
+     * Adds the diagnostics of the inferencer on a component to
+     * the summary, whether the component was inferred or its
+     * results were reused, so that the summary only depends on
+     * the model and the settings
+     *
+     * @param diagnostics junction tree: largest clique; Gibbs sampler:
+     *          see gibbsDiagnostics; loopy BP: iterations, final
+     *          residual and 1 if converged; null if there are none
+     * @return the diagnostics
+     */
+    private synchronized double[] addDiagnostics(double[] diagnostics){
+        if(diagnostics == null){
+            return null;
+        }
+        if(inferencer.equals("junctionTree")){
+            jtRuns++;
+            jtMaxClique = Math.max(jtMaxClique, (int) diagnostics[0]);
+        }
+        else if(inferencer.equals("gibbsSampler")){
+            gibbsRuns++;
+            gibbsSamples = Math.max(gibbsSamples, (int) diagnostics[0]);
+            gibbsStoppedEarly &= diagnostics[1] == 1;
+            gibbsMaxRHat = Math.max(gibbsMaxRHat, diagnostics[2]);
+            gibbsMinEss = Math.min(gibbsMinEss, diagnostics[3]);
+            gibbsMaxError = Math.max(gibbsMaxError, diagnostics[4]);
+        }
+        else if(inferencer.equals("loopyBP")){
+            lbpRuns++;
+            lbpIterations = Math.max(lbpIterations, (int) diagnostics[0]);
+            lbpResidual = Math.max(lbpResidual, diagnostics[1]);
+            lbpConverged &= diagnostics[2] == 1;
+        }
+        return diagnostics;
+    }
+
+    /**
+     * Counts a junction tree run on a component
+     *
+     * @param cached whether the structure came from the cache
+     */
+    private synchronized void recordJunctionTree(boolean cached){
+        if(cached){
+            jtReused++;
+        }
+        else{
+            jtCompiled++;
+        }
+    }
+
+    /**
+     * Returns a summary of the last run: the components
+     * and the diagnostics of the approximate inferencers
+     *
+     * @return summary lines, empty if there is nothing to report
+     */
+    synchronized String getSummary(){
+        String summary = "";
+        if(components > 1){
+            summary += String.format("Inferred %d components separately (%d isolated arguments)\n",
+                    components, isolated);
+        }
+        if(jtRuns > 0){
+            summary += String.format("Junction tree: largest clique %d arguments\n", jtMaxClique);
+        }
+        if(gibbsRuns > 0){
+            summary += String.format("Gibbs sampling: %d chains, %d samples each%s, max R-hat %.4f, min ESS %.0f, max standard error %.4f\n",
+                    settings.getChains(), gibbsSamples, gibbsStoppedEarly ? " (stopped early)" : "",
+                    gibbsMaxRHat, gibbsMinEss, gibbsMaxError);
+        }
+        if(lbpRuns > 0){
+            summary += String.format("Loopy BP %s after %d iterations, final residual %.3g\n",
+                    lbpConverged ? "converged" : "did NOT converge", lbpIterations, lbpResidual);
+        }
+        return summary;
+    }
+
+    /**
+     * Returns what the last run took from the caches: the
+     * results of unchanged components and the compiled junction
+     * trees. As this depends on what ran before, it is kept out
+     * of the summary of the results.
+     *
+     * @return a status line, empty if nothing was reused or compiled
+     */
+    synchronized String getCacheStatus(){
+        String status = "";
+        if(reused > 0){
+            status += String.format("unchanged components reused: %d", reused);
+        }
+        if(jtReused + jtCompiled > 0){
+            status += String.format("%sjunction trees reused: %d, compiled: %d",
+                    status.isEmpty() ? "" : ", ", jtReused, jtCompiled);
+        }
+        return status;
+    }
+}
@@ -3,8 +3,16 @@ package inferencer;
 import javax.swing.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 /**
  * The controller class mediating between the
@@ -23,6 +31,33 @@ public class Controller implements ActionListener {
      */
     private Model model;
     private int counter = 1;
+    /**
+     * Runs parsing and inference off the Event Dispatch Thread
+     */
+    private ExecutorService inferenceExecutor = newInferenceExecutor();
+    /**
+     * The currently running inference or sweep (null if none)
+     */
+    private SwingWorker<?, String> inferenceWorker;
+    /**
+     * Model files larger than this (in bytes) are not
+     * displayed in the view after loading
+     */
+    private static final long MAX_DISPLAYED_MODEL_SIZE = 1 << 20;
+    /**
+     * Directory of the result and junction tree caches on disk, if enabled
+     */
+    private static final File DISK_CACHE_DIR =
+            new File(System.getProperty("user.home"), ".bafinferencer" + File.separator + "cache");
+    /**
+     * Path of a loaded model file that is not displayed
+     * (null if the model text is displayed)
+     */
+    private String loadedModelPath;
+    /**
+     * The text displayed instead of a loaded model file
+     */
+    private String loadedModelHint;
 
     /**
      * Constructor, sets model and view
@@ -39,11 +74,18 @@ public class Controller implements ActionListener {
         // File Menu
         view.itemClear.addActionListener(this);
         view.itemOpen.addActionListener(this);
+        view.itemShowModel.addActionListener(this);
         view.itemSaveModelTxt.addActionListener(this);
+        view.itemSaveModelBaf.addActionListener(this);
         view.itemSaveResultsTxt.addActionListener(this);
         view.itemSaveResultsCsv.addActionListener(this);
+        view.itemSaveResultsTsv.addActionListener(this);
         // Edit Menu
         view.itemEditFactors.addActionListener(this);
+        view.itemSweepFactors.addActionListener(this);
+        view.itemEditSettings.addActionListener(this);
+        view.itemDiskCache.addActionListener(this);
+        view.itemWhatIf.addActionListener(this);
         view.setFactorsStrong.addActionListener(this);
         view.setFactorsTol.addActionListener(this);
         view.setFactorsReq.addActionListener(this);
@@ -54,6 +96,7 @@ public class Controller implements ActionListener {
         view.setFactorsPerm.addActionListener(this);
 
         view.inferenceButton.addActionListener(this);
+        view.cancelButton.addActionListener(this);
         view.itemShowHelp.addActionListener(this);
     }
 
@@ -66,52 +109,115 @@ public class Controller implements ActionListener {
     public void actionPerformed(ActionEvent ae) {
 
         if(ae.getSource() == view.itemClear){
+            setLoadedModel(null);
             view.clearModelText();
             view.clearResultText();
         }
 
         if(ae.getSource() == view.itemOpen){
-            // Choose File, build internal model and update modelText in view
+            // Choose File and update modelText in view; large
+            // files are only parsed from disk when needed
             try{
                 String path = model.chooseFile();
                 if(path != null){
-                    view.setModelText(model.buildModelFromFile(path));
+                    if(new File(path).length() > MAX_DISPLAYED_MODEL_SIZE){
+                        setLoadedModel(path);
+                    }
+                    else{
+                        setLoadedModel(null);
+                        view.setModelText(model.buildModelFromFile(path));
+                    }
                 }
             } catch (Exception e){
                 view.setResultText(e.getMessage());
             }
         }
 
+        if(ae.getSource() == view.itemShowModel){
+            // Display the loaded model file after all
+            try{
+                String text = model.buildModelFromFile(loadedModelPath);
+                setLoadedModel(null);
+                view.setModelText(text);
+            } catch (Exception e){
+                view.setResultText(e.getMessage());
+            }
+        }
+
         if(ae.getSource() == view.itemSaveModelTxt){
             // Save modelText to .txt file
             try{
-                model.saveToFile(view.getModelText(), "txt");
+                if(isLoadedModelShown()){
+                    model.saveToFile(model.buildModelFromFile(loadedModelPath), "txt");
+                }
+                else{
+                    model.saveToFile(view.getModelText(), "txt");
+                }
             }
-            catch(IOException e){
+            catch(Exception e){
                 view.setResultText(e.getMessage());
             }
         }
 
-        if(ae.getSource() == view.itemSaveResultsTxt){
-            // Save modelText to .txt file
+        if(ae.getSource() == view.itemSaveModelBaf){
+            // Parse the model and save it as binary .baf file
             try{
-                model.saveToFile(view.getResultText(), "txt");
+                if(isLoadedModelShown()){
+                    model.parseModelFromFile(loadedModelPath);
+                }
+                else{
+                    model.parseModel(view.getModelText());
+                }
+                model.saveBinaryModel();
             }
-            catch(IOException e){
+            catch(Exception e){
                 view.setResultText(e.getMessage());
             }
         }
 
-        if(ae.getSource() == view.itemSaveResultsCsv){
+        if(ae.getSource() == view.itemSaveResultsTxt){
             // Save modelText to .txt file
             try{
-                model.saveToFile(view.getResultText(), "csv");
+                // Stream a displayed result, otherwise save the text
+                if(view.getSweepResult() != null){
+                    model.saveSweepResult(view.getSweepResult(), "txt");
+                }
+                else if(view.getResult() != null){
+                    model.saveResults(view.getResult(), "txt", false);
+                }
+                else{
+                    model.saveToFile(view.getResultText(), "txt");
+                }
             }
             catch(IOException e){
                 view.setResultText(e.getMessage());
             }
         }
 
+        if(ae.getSource() == view.itemSaveResultsCsv || ae.getSource() == view.itemSaveResultsTsv){
+            // Save the displayed result to .csv or .tsv file
+            String ext = ae.getSource() == view.itemSaveResultsCsv ? "csv" : "tsv";
+            if(view.getSweepResult() != null){
+                try{
+                    model.saveSweepResult(view.getSweepResult(), ext);
+                }
+                catch(IOException e){
+                    view.setResultText(e.getMessage());
+                }
+            }
+            else if(view.getResult() == null){
+                JOptionPane.showMessageDialog(view, "Please run the inference first!", null, JOptionPane.ERROR_MESSAGE);
+            }
+            else{
+                try{
+                    model.saveResults(view.getResult(), ext, view.itemSaveTrueOnly.isSelected());
+                }
+                catch(IOException e){
+                    view.setResultText(e.getMessage());
+                }
+            }
+        }
+
         if(ae.getSource() == view.itemEditFactors){
 
             // Show edit frame
@@ -120,6 +226,51 @@ public class Controller implements ActionListener {
             view.editFactorsFrame.setVisible(true);
         }
 
+        if(ae.getSource() == view.itemSweepFactors){
+
+            // Show sweep frame
+            view.sweepFrame = view.initSweep();
+            view.sweepRunButton.addActionListener(this);
+            view.sweepFrame.setVisible(true);
+        }
+
+        if(ae.getSource() == view.sweepRunButton){
+            // Collect the chosen presets and the grid
+            List<FactorSetting> settings = new ArrayList<>();
+            for(int k = 0; k < view.sweepPresets.length; k++){
+                if(view.sweepPresets[k].isSelected()){
+                    settings.add(FactorSetting.PRESETS.get(k));
+                }
+            }
+            String grid = view.sweepGrid.getText().trim();
+            try
+            {
+                if(!grid.isEmpty()){
+                    settings.addAll(FactorSetting.grid(grid, model.getAttack(), model.getSupport()));
+                }
+
+                if(settings.isEmpty()){
+                    JOptionPane.showMessageDialog(view, "Please choose a preset or enter a grid!", null, JOptionPane.ERROR_MESSAGE);
+                }
+                else if(inferenceWorker != null && !inferenceWorker.isDone()){
+                    JOptionPane.showMessageDialog(view, "Please wait for the running inference!", null, JOptionPane.ERROR_MESSAGE);
+                }
+                else if(view.getModelText().equals("")){
+                    view.sweepFrame.setVisible(false);
+                    view.setResultText("Please enter or upload a model first!");
+                }
+                else{
+                    view.sweepFrame.setVisible(false);
+                    startSweep(isLoadedModelShown() ? null : view.getModelText(), selectedInferencer(), settings);
+                }
+            }
+            catch(IllegalArgumentException e)
+            {
+                String message = e instanceof NumberFormatException ? "Please enter numerical values only!" : e.getMessage();
+                JOptionPane.showMessageDialog(view, message, null, JOptionPane.ERROR_MESSAGE);
+            }
+        }
+
         if(ae.getSource() == view.editFactorsSaveButton){
             // Check if all doubles
             double[] newAtt = new double[4];
@@ -154,75 +305,317 @@ public class Controller implements ActionListener {
             }
         }
 
-        if(ae.getSource() == view.inferenceButton){
+        if(ae.getSource() == view.itemEditSettings){
 
-            // If there is no model, do nothing
-            if(view.getModelText().equals("")){
-                view.setResultText("Please enter or upload a model first!");
-            }
+            // Show edit frame
+            view.editSettingsFrame = view.initEditSettings(model.getSettings());
+            view.editSettingsSaveButton.addActionListener(this);
+            view.editSettingsFrame.setVisible(true);
+        }
 
-            // If there is a model, only do inference if correctly parsed
+        if(ae.getSource() == view.itemDiskCache){
+            File directory = view.itemDiskCache.isSelected() ? DISK_CACHE_DIR : null;
+            model.getResultCache().setDirectory(directory);
+            model.getJunctionTreeCache().setDirectory(directory);
+        }
+
+        if(ae.getSource() == view.itemWhatIf){
+
+            // Show evidence frame
+            view.evidenceFrame = view.initEvidence();
+            view.evidenceApplyButton.addActionListener(this);
+            view.evidenceClearButton.addActionListener(this);
+            view.evidenceFrame.setVisible(true);
+        }
+
+        if(ae.getSource() == view.evidenceApplyButton || ae.getSource() == view.evidenceClearButton){
+            // Only the evidence of the parsed model changes
+            if(model.getGraph().numArguments() == 0){
+                JOptionPane.showMessageDialog(view, "Please run the inference first!", null, JOptionPane.ERROR_MESSAGE);
+            }
+            else if(inferenceWorker != null && !inferenceWorker.isDone()){
+                JOptionPane.showMessageDialog(view, "Please wait for the running inference!", null, JOptionPane.ERROR_MESSAGE);
+            }
             else{
-                String modelNoWhitespace = view.getModelText().replaceAll(" ","");
                 try{
-                    model.parseModel(modelNoWhitespace);
-                    // Check which inferencer to use
-                    if(view.junctionTree.isSelected()){
-                        view.setResultText(model.inference("junctionTree"));
+                    if(ae.getSource() == view.evidenceClearButton){
+                        model.clearEvidence();
                     }
-                    if(view.gibbsSampler.isSelected()){
-                        view.setResultText(model.inference("gibbsSampler"));
+                    else{
+                        int value = view.evidenceTrue.isSelected() ? 1
+                                : view.evidenceFalse.isSelected() ? 0 : ArgumentGraph.NO_EVIDENCE;
+                        model.setEvidence(view.evidenceArgument.getText().trim(), value);
                     }
+                    startEvidenceUpdate(selectedInferencer());
                 }
-                // Parsing error
-                catch (Exception e){
-                    view.setResultText(e.getMessage());
+                catch(Exception e){
+                    JOptionPane.showMessageDialog(view, e.getMessage(), null, JOptionPane.ERROR_MESSAGE);
                 }
             }
         }
 
-        if(ae.getSource() == view.itemShowHelp){
-            view.showHelp();
+        if(ae.getSource() == view.editSettingsSaveButton){
+            // Check if all numbers in range
+            InferenceSettings newSettings = new InferenceSettings();
+            try
+            {
+                newSettings.setDamping(Double.parseDouble(view.damping.getText()));
+                newSettings.setTolerance(Double.parseDouble(view.tolerance.getText()));
+                newSettings.setMaxIterations(Integer.parseInt(view.maxIterations.getText()));
+                newSettings.setBurnIn(Integer.parseInt(view.burnIn.getText()));
+                newSettings.setSamples(Integer.parseInt(view.samples.getText()));
+                newSettings.setChains(Integer.parseInt(view.chains.getText()));
+                newSettings.setPrecision(Double.parseDouble(view.precision.getText()));
+                newSettings.setSeed(Long.parseLong(view.seed.getText()));
+
+                model.setSettings(newSettings);
+                view.editSettingsFrame.setVisible(false);
+            }
+            catch(NumberFormatException e)
+            {
+                JOptionPane.showMessageDialog(view, "Please enter numerical values only!", null, JOptionPane.ERROR_MESSAGE);
+            }
+            catch(IllegalArgumentException e)
+            {
+                JOptionPane.showMessageDialog(view, e.getMessage(), null, JOptionPane.ERROR_MESSAGE);
+            }
         }
 
-        if(ae.getSource() == view.setFactorsStrong){
-            model.setAtt(new double[] {1.0, 1.0, 2.0, 0.0});
-            model.setSup(new double[] {1.0, 1.0, 0.0, 2.0});
-        }
+        if(ae.getSource() == view.inferenceButton){
+
+            // If there is no model, do nothing
+            if(view.getModelText().equals("")){
+                view.setResultText("Please enter or upload a model first!");
+            }
 
-        if(ae.getSource() == view.setFactorsTol){
-            model.setAtt(new double[] {1.0, 1.0, 2.0, 0.5});
-            model.setSup(new double[] {1.0, 1.0, 0.5, 2.0});
+            // If there is a model, only do inference if correctly parsed
+            else{
+                // Parse a loaded model straight from its file
+                String modelText = isLoadedModelShown() ? null : view.getModelText();
+                startInference(modelText, selectedInferencer());
+            }
         }
 
-        if(ae.getSource() == view.setFactorsReq){
-            model.setAtt(new double[] {1.0, 1.0, 2.0, 1.0});
-            model.setSup(new double[] {1.0, 1.0, 1.0, 2.0});
+        if(ae.getSource() == view.cancelButton){
+            cancelInference();
         }
 
-        if(ae.getSource() == view.setFactorsStrict){
-            model.setAtt(new double[] {1.0, 1.0, 1.5, 0.0});
-            model.setSup(new double[] {1.0, 1.0, 0.0, 1.5});
+        if(ae.getSource() == view.itemShowHelp){
+            view.showHelp();
         }
 
-        if(ae.getSource() == view.setFactorsWeak){
-            model.setAtt(new double[] {1.0, 1.0, 1.5, 0.5});
-            model.setSup(new double[] {1.0, 1.0, 0.5, 1.5});
+        // Presets of the factor values
+        JRadioButtonMenuItem[] presetItems = view.getPresetItems();
+        for(int k = 0; k < presetItems.length; k++){
+            if(ae.getSource() == presetItems[k]){
+                model.setAtt(FactorSetting.PRESETS.get(k).getAttack());
+                model.setSup(FactorSetting.PRESETS.get(k).getSupport());
+            }
         }
+    }
 
-        if(ae.getSource() == view.setFactorsPars){
-            model.setAtt(new double[] {1.0, 1.0, 1.5, 1.0});
-            model.setSup(new double[] {1.0, 1.0, 1.0, 1.5});
+    /**
+     * Returns the inferencer chosen in the Inferencer menu
+     *
+     * @return the inferencer, one of Model.INFERENCERS
+     */
+    private String selectedInferencer(){
+        if(view.gibbsSampler.isSelected()){
+            return "gibbsSampler";
+        }
+        if(view.pairwiseTree.isSelected()){
+            return "pairwiseTree";
         }
+        if(view.loopyBP.isSelected()){
+            return "loopyBP";
+        }
+        return "junctionTree";
+    }
+
+    /**
+     * Parses the model and does the inference in the background,
+     * keeping the GUI responsive. The result (or the parsing
+     * error) is displayed when done.
+     *
+     * @param modelText the model String to be parsed, null to
+     *          parse the loaded model file instead
+     * @param inferencer the inferencer to use
+     */
+    private void startInference(String modelText, String inferencer){
+        startWorker(true, modelText, "Running " + inferencer + "...",
+                () -> model.inference(inferencer), this::showResult);
+    }
+
+    /**
+     * Displays an inference result, and in the progress bar the
+     * hits and misses of the result cache so far and what the
+     * inference took from the caches
+     *
+     * @param result the inference result
+     */
+    private void showResult(InferenceResult result){
+        view.setResult(result);
+        ResultCache cache = model.getResultCache();
+        String status = model.getCacheStatus();
+        view.setProgressText(String.format("Result cache: %d hits (%d from disk), %d misses%s",
+                cache.getHits(), cache.getDiskHits(), cache.getMisses(), status.isEmpty() ? "" : "; " + status));
+    }
+
+    /**
+     * Updates the results of the parsed model to its new evidence
+     * in the background, see Model.updateInference. The model
+     * isn't parsed again.
+     *
+     * @param inferencer the inferencer to use
+     */
+    private void startEvidenceUpdate(String inferencer){
+        startWorker(false, null, "Updating " + inferencer + " to the evidence...",
+                () -> model.updateInference(inferencer), view::setResult);
+    }
+
+    /**
+     * Parses the model and infers it under several factor
+     * settings in the background, see Model.sweep. The table
+     * of all settings (or the parsing error) is displayed when done.
+     *
+     * @param modelText the model String to be parsed, null to
+     *          parse the loaded model file instead
+     * @param inferencer the inferencer to use
+     * @param settings the factor settings
+     */
+    private void startSweep(String modelText, String inferencer, List<FactorSetting> settings){
+        startWorker(true, modelText, "Sweeping " + settings.size() + " factor settings with " + inferencer + "...",
+                () -> model.sweep(inferencer, settings), view::setSweepResult);
+    }
+
+    /**
+     * Parses the model and runs a task on it in the background
+     *
+     * @param parse whether to parse the model first, false
+     *          to run the task on the parsed model
+     * @param modelText the model String to be parsed, null to
+     *          parse the loaded model file instead
+     * @param phase the progress text while the task runs
+     * @param task the task, run after parsing
+     * @param display displays the result of the task
+     * @param <T> the type of the result
+     */
+    private <T> void startWorker(boolean parse, String modelText, String phase, Callable<T> task, Consumer<T> display){
+
+        String modelPath = loadedModelPath;
+
+        view.setInferenceRunning(true);
+        view.setProgressText(parse ? "Parsing model..." : phase);
+
+        SwingWorker<T, String> worker = new SwingWorker<T, String>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                if(!parse){
+                    return task.call();
+                }
+                if(modelText != null){
+                    model.parseModel(modelText);
+                }
+                else{
+                    model.parseModelFromFile(modelPath);
+                }
+                publish(phase);
+                return task.call();
+            }
+
+            @Override
+            protected void process(List<String> phases) {
+                if(!isCancelled()){
+                    view.setProgressText(phases.get(phases.size() - 1));
+                }
+            }
 
-        if(ae.getSource() == view.setFactorsPenal){
-            model.setAtt(new double[] {1.0, 1.0, 1.0, 0.0});
-            model.setSup(new double[] {1.0, 1.0, 0.0, 1.0});
+            @Override
+            protected void done() {
+                // A cancelled run has already reset the view
+                if(isCancelled()){
+                    return;
+                }
+                view.setInferenceRunning(false);
+                try{
+                    display.accept(get());
+                }
+                // Parsing error
+                catch(ExecutionException e){
+                    Throwable cause = e.getCause();
+                    view.setResultText(cause.getMessage() != null ? cause.getMessage() : cause.toString());
+                }
+                catch(InterruptedException e){
+                    view.setResultText("Inference cancelled!");
+                }
+            }
+        };
+        inferenceWorker = worker;
+        inferenceExecutor.execute(worker);
+    }
+
+    /**
+     * Cancels the running inference and frees the internal model.
+     * The worker thread is interrupted; as an exact inferencer can't
+     * be stopped within computeMarginals, the thread is abandoned
+     * and its results are dropped as soon as the call returns.
+     */
+    private void cancelInference(){
+
+        if(inferenceWorker == null || inferenceWorker.isDone()){
+            return;
         }
+        inferenceWorker.cancel(true);
+        inferenceWorker = null;
+
+        // Don't let the next run wait for the abandoned one
+        inferenceExecutor.shutdownNow();
+        inferenceExecutor = newInferenceExecutor();
+        model.resetModel();
 
-        if(ae.getSource() == view.setFactorsPerm){
-            model.setAtt(new double[] {1.0, 1.0, 1.0, 0.5});
-            model.setSup(new double[] {1.0, 1.0, 0.5, 1.0});
+        view.setInferenceRunning(false);
+        view.setResultText("Inference cancelled!");
+    }
+
+    /**
+     * Sets the loaded model file that is not displayed in the
+     * view; a hint is displayed in its place instead
+     *
+     * @param path absolute path of the model file, null if
+     *          the model text is displayed
+     */
+    private void setLoadedModel(String path){
+        loadedModelPath = path;
+        view.itemShowModel.setEnabled(path != null);
+        if(path != null){
+            loadedModelHint = "# Model loaded from " + path + "\n" +
+                    "# (" + new File(path).length() / 1024 + " KB, not displayed)\n" +
+                    "# Choose 'File' -> 'Show loaded model' to display and edit it.\n";
+            view.setModelText(loadedModelHint);
         }
     }
+
+    /**
+     * Checks whether a loaded model file is in use instead of
+     * the displayed text, i.e. the hint hasn't been edited
+     *
+     * @return true if the loaded model file is to be used
+     */
+    private boolean isLoadedModelShown(){
+        return loadedModelPath != null && view.getModelText().equals(loadedModelHint);
+    }
+
+    /**
+     * Creates the executor running the inferences; its daemon
+     * thread doesn't keep the application alive on exit
+     *
+     * @return a new single thread executor
+     */
+    private static ExecutorService newInferenceExecutor(){
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "inference");
+            t.setDaemon(true);
+            return t;
+        });
+    }
 }
@@ -0,0 +1,118 @@
+package inferencer;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Keeps the files of a cache directory within a byte budget: the
+ * results of ResultCache and the junction trees of JunctionTreeCache,
+ * which may share one directory. The sizes of written files are
+ * added up; once they exceed the budget, the directory is listed
+ * and the least recently used files of both caches are deleted
+ * until they take three quarters of the budget, so that the
+ * directory isn't listed on every write. Reading a file marks it
+ * as used.
+ *
+ * The sum is only an estimate, as other caches and processes may
+ * write to the same directory; every listing corrects it.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class DiskBudget {
+
+    /**
+     * Default budget of a cache directory in bytes
+     */
+    static final long DEFAULT_BYTES = 256L << 20;
+    /**
+     * Extensions of the cache files
+     */
+    private static final String[] EXTENSIONS = {".bin", ".jt"};
+
+    /**
+     * Maximum size of all cache files in bytes
+     */
+    private final long maxBytes;
+    /**
+     * Directory whose cache files bytes counts
+     */
+    private File directory;
+    /**
+     * Estimated size of the cache files in directory,
+     * -1 until the directory has been listed
+     */
+    private long bytes = -1;
+
+    /**
+     * Constructor
+     *
+     * @param maxBytes maximum size of all cache files in bytes
+     */
+    DiskBudget(long maxBytes){
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Adds a written cache file and deletes the least recently
+     * used files once the budget is exceeded
+     *
+     * @param dir the cache directory
+     * @param length size of the written file in bytes
+     */
+    synchronized void written(File dir, long length){
+        if(bytes >= 0 && dir.equals(directory)){
+            bytes += length;
+            if(bytes <= maxBytes){
+                return;
+            }
+        }
+        File[] files = dir.listFiles((d, name) -> isCacheFile(name));
+        if(files == null){
+            return;
+        }
+        long[] used = new long[files.length];
+        long total = 0;
+        Integer[] order = new Integer[files.length];
+        for(int i = 0; i < files.length; i++){
+            used[i] = files[i].lastModified();
+            total += files[i].length();
+            order[i] = i;
+        }
+        if(total > maxBytes){
+            Arrays.sort(order, (a, b) -> Long.compare(used[a], used[b]));
+            for(int i = 0; i < order.length && total > maxBytes / 4 * 3; i++){
+                long size = files[order[i]].length();
+                if(files[order[i]].delete()){
+                    total -= size;
+                }
+            }
+        }
+        directory = dir;
+        bytes = total;
+    }
+
+    /**
+     * Marks a cache file as used, so that other files are
+     * deleted first
+     *
+     * @param file the cache file
+     */
+    static void used(File file){
+        file.setLastModified(System.currentTimeMillis());
+    }
+
+    /**
+     * Checks whether a file name is one of a cache file
+     *
+     * @param name the file name
+     * @return true for result and junction tree cache files
+     */
+    private static boolean isCacheFile(String name){
+        for(String extension : EXTENSIONS){
+            if(name.endsWith(extension)){
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,330 @@
+package inferencer;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the state of an inference on a BAF to answer what-if
+ * questions: after setting or retracting the evidence of a few
+ * arguments, only the components of these arguments are inferred
+ * again, and that incrementally where the inferencer allows it.
+ * The junction tree inferencer keeps the calibrated clique tables
+ * of each component and passes new evidence on from the clique of
+ * its argument, without loading the potentials or triangulating
+ * again; loopy BP starts from the converged messages of the last
+ * run. The pairwise tree inferencer and the Gibbs sampler infer
+ * the changed components again, on the pairwise network built
+ * once per component.
+ *
+ * A session belongs to one parsed BAF, one inferencer with its
+ * settings and one set of factor values; only the evidence may
+ * change, see ArgumentGraph.withEvidence.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class EvidenceSession {
+
+    /**
+     * The inferencer to use, one of Model.INFERENCERS
+     */
+    private final String inferencer;
+    /**
+     * The settings of the configurable inferencers
+     */
+    private final InferenceSettings settings;
+    /**
+     * Attack factor values
+     */
+    private final double[] att;
+    /**
+     * Support factor values
+     */
+    private final double[] sup;
+    /**
+     * Key of the inferencer and its settings
+     */
+    private final String key;
+    /**
+     * Number of threads
+     */
+    private final int threads;
+    /**
+     * The components of the BAF
+     */
+    private final ComponentDecomposition dec;
+    /**
+     * Canonical hash of the BAF without its evidence
+     */
+    private final long[] structureHash;
+    /**
+     * The BAF of each component under the current evidence,
+     * null for isolated arguments
+     */
+    private final ArgumentGraph[] subgraphs;
+    /**
+     * Junction tree: the compiled structure of each component
+     */
+    private final CompiledJunctionTree[] trees;
+    /**
+     * Junction tree: the calibration of each component without evidence
+     */
+    private final CompiledJunctionTree.Calibration[] priors;
+    /**
+     * Junction tree: the calibration of each component under the
+     * current evidence
+     */
+    private final CompiledJunctionTree.Calibration[] calibrations;
+    /**
+     * The pairwise network of each component under the current
+     * evidence, for all other inferencers
+     */
+    private final PairwiseNetwork[] nets;
+    /**
+     * Loopy BP: the messages of the last run on each component
+     */
+    private final double[][] messages;
+    /**
+     * The BAF with the evidence the marginals belong to
+     */
+    private ArgumentGraph graph;
+    /**
+     * P(A=1) of every argument under the current evidence
+     */
+    private final double[] marginals;
+
+    /**
+     * Constructor, infers the marginals of a BAF under its evidence
+     * and keeps the state needed to update them
+     *
+     * @param graph the parsed BAF
+     * @param inferencer the inferencer to use, one of Model.INFERENCERS
+     * @param settings the settings of the configurable inferencers
+     * @param att attack factor values
+     * @param sup support factor values
+     * @param junctionTrees the compiled junction trees, by structure
+     * @param threads number of threads of the Gibbs sampler
+     * @throws InterruptedException if the inference was cancelled
+     * @throws Exception if the inferencer is unknown or can't handle the model
+     */
+    EvidenceSession(ArgumentGraph graph, String inferencer, InferenceSettings settings, double[] att, double[] sup,
+                    JunctionTreeCache junctionTrees, int threads) throws Exception {
+        if(!Model.INFERENCERS.contains(inferencer)){
+            throw new Exception("Unknown inferencer " + inferencer + "!");
+        }
+        this.inferencer = inferencer;
+        this.settings = settings;
+        this.att = att.clone();
+        this.sup = sup.clone();
+        this.key = ComponentInferencer.key(inferencer, settings);
+        this.threads = threads;
+        this.graph = graph;
+        dec = new ComponentDecomposition(graph);
+        structureHash = ResultCache.structureHash(graph);
+        subgraphs = new ArgumentGraph[dec.count()];
+        trees = new CompiledJunctionTree[dec.count()];
+        priors = new CompiledJunctionTree.Calibration[dec.count()];
+        calibrations = new CompiledJunctionTree.Calibration[dec.count()];
+        nets = new PairwiseNetwork[dec.count()];
+        messages = new double[dec.count()][];
+        marginals = new double[graph.numArguments()];
+
+        for(int c = 0; c < dec.count(); c++){
+            if(dec.isIsolated(c)){
+                marginals[dec.member(c, 0)] = ComponentInferencer.isolatedMarginal(graph, dec, c, att, sup);
+                continue;
+            }
+            // A connected model is inferred as a whole
+            ArgumentGraph sub = dec.count() > 1 ? dec.subgraph(c) : graph;
+            subgraphs[c] = sub;
+            if(inferencer.equals("junctionTree")){
+                CompiledJunctionTree tree = junctionTrees.get(sub);
+                if(tree == null){
+                    long start = System.nanoTime();
+                    tree = new CompiledJunctionTree(sub);
+                    junctionTrees.put(sub, tree, System.nanoTime() - start);
+                }
+                trees[c] = tree;
+                priors[c] = tree.calibrate(sub, att, sup, false);
+                calibrations[c] = sub.hasEvidence() ? tree.update(priors[c], null, sub) : priors[c];
+            }
+            else{
+                nets[c] = new PairwiseNetwork(sub, att, sup);
+            }
+            infer(graph, c);
+        }
+    }
+
+    /**
+     * Checks whether this session can answer a BAF, i.e. whether
+     * only its evidence differs from the BAF of the session
+     *
+     * @param graph the BAF
+     * @param inferencer the inferencer, one of Model.INFERENCERS
+     * @param settings the settings of the configurable inferencers
+     * @param att attack factor values
+     * @param sup support factor values
+     * @return true if the session fits
+     */
+    boolean fits(ArgumentGraph graph, String inferencer, InferenceSettings settings, double[] att, double[] sup){
+        return this.graph.sharesRelations(graph) && Arrays.equals(this.att, att) && Arrays.equals(this.sup, sup)
+                && key.equals(ComponentInferencer.key(inferencer, settings));
+    }
+
+    /**
+     * Updates the marginals to the evidence of a BAF, inferring
+     * only the components whose evidence changed
+     *
+     * @param graph the BAF with the new evidence, see fits
+     * @param parseNanos time spent parsing the model
+     * @return the results under the new evidence
+     * @throws InterruptedException if the inference was cancelled;
+     *          the session must not be used any more then
+     * @throws Exception if the inferencer fails
+     */
+    InferenceResult update(ArgumentGraph graph, long parseNanos) throws Exception {
+
+        long start = System.nanoTime();
+        boolean[] changed = new boolean[dec.count()];
+        for(int i = 0; i < graph.numArguments(); i++){
+            int value = graph.evidence(i);
+            if(value == this.graph.evidence(i)){
+                continue;
+            }
+            int c = dec.componentOf(i);
+            changed[c] = true;
+            if(subgraphs[c] != null && dec.count() > 1){
+                subgraphs[c] = subgraphs[c].withEvidence(dec.localIndexOf(i), value);
+            }
+        }
+
+        int updated = 0;
+        for(int c = 0; c < dec.count(); c++){
+            if(!changed[c]){
+                continue;
+            }
+            updated++;
+            if(dec.isIsolated(c)){
+                marginals[dec.member(c, 0)] = ComponentInferencer.isolatedMarginal(graph, dec, c, att, sup);
+                continue;
+            }
+            ArgumentGraph sub = dec.count() > 1 ? subgraphs[c] : graph;
+            subgraphs[c] = sub;
+            if(trees[c] != null){
+                calibrations[c] = trees[c].update(priors[c], calibrations[c], sub);
+            }
+            else{
+                nets[c] = nets[c].withEvidence(sub);
+            }
+            infer(graph, c);
+        }
+        this.graph = graph;
+
+        String summary = String.format("Evidence: %d arguments clamped, %d of %d components updated (%s) in %.2f ms\n",
+                numClamped(), updated, dec.count(), method(), (System.nanoTime() - start) / 1e6);
+        return getResult(summary, parseNanos, System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the results under the current evidence, e.g. right
+     * after the session was created
+     *
+     * @param summary the summary lines
+     * @param parseNanos time spent parsing the model
+     * @param inferenceNanos time spent on the inference
+     * @return the results
+     */
+    InferenceResult getResult(String summary, long parseNanos, long inferenceNanos){
+        return new InferenceResult(graph.labels(), marginals.clone(), summary,
+                ResultCache.evidenceHash(graph, structureHash), att, sup, key, parseNanos, inferenceNanos);
+    }
+
+    /**
+     * Returns the number of arguments with evidence
+     *
+     * @return the number of clamped arguments
+     */
+    int numClamped(){
+        int clamped = 0;
+        for(int i = 0; i < graph.numArguments(); i++){
+            if(graph.evidence(i) != ArgumentGraph.NO_EVIDENCE){
+                clamped++;
+            }
+        }
+        return clamped;
+    }
+
+    /**
+     * Returns the number of components of the BAF
+     *
+     * @return the number of components
+     */
+    int numComponents(){ return dec.count(); }
+
+    /**
+     * Infers a component under the current evidence and writes
+     * its marginals into the marginals of the whole BAF
+     *
+     * @param graph the BAF with the current evidence
+     * @param c the component
+     * @throws InterruptedException if the inference was cancelled
+     * @throws Exception if the inferencer fails
+     */
+    private void infer(ArgumentGraph graph, int c) throws Exception {
+        double[] local;
+        if(trees[c] != null){
+            local = trees[c].marginals(calibrations[c]);
+        }
+        else if(inferencer.equals("pairwiseTree")){
+            local = new PairwiseTreeInferencer().computeMarginals(nets[c]);
+        }
+        else if(inferencer.equals("gibbsSampler")){
+            // The same seed as a full inference of the component
+            long seed = ComponentInferencer.componentSeed(settings.getSeed(),
+                    ComponentCache.signature(graph, dec, c, att, sup));
+            local = new MultiChainGibbsSampler(settings, threads, seed).computeMarginals(nets[c]);
+        }
+        else{
+            // Messages of impossible evidence are no place to start from
+            LoopyBeliefPropagation lbp = new LoopyBeliefPropagation(settings);
+            double[] start = messages[c] != null && !hasNaN(c) ? messages[c] : null;
+            local = lbp.computeMarginals(nets[c], start);
+            messages[c] = lbp.getMessages();
+        }
+        if(Thread.currentThread().isInterrupted()){
+            throw new InterruptedException("Inference cancelled!");
+        }
+        for(int k = 0; k < local.length; k++){
+            marginals[dec.member(c, k)] = local[k];
+        }
+    }
+
+    /**
+     * Checks whether a component has undefined marginals,
+     * i.e. its evidence was impossible
+     *
+     * @param c the component
+     * @return true if a marginal of the component is NaN
+     */
+    private boolean hasNaN(int c){
+        for(int k = 0; k < dec.size(c); k++){
+            if(Double.isNaN(marginals[dec.member(c, k)])){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Describes how the inferencer handles new evidence
+     *
+     * @return the description for the summary
+     */
+    private String method(){
+        if(inferencer.equals("junctionTree")){
+            return "calibrated junction trees reused";
+        }
+        if(inferencer.equals("loopyBP")){
+            return "loopy BP started from the last messages";
+        }
+        return "inferred again";
+    }
+}
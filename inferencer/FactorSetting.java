@@ -0,0 +1,231 @@
+package inferencer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A named pair of attack and support factor values, i.e. one
+ * column of a factor sweep. Holds the eight presets of the
+ * 'Factors' menu and parses the settings of a sweep: preset
+ * names or a grid over the eight factor values.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class FactorSetting {
+
+    /**
+     * The presets of the 'Factors' menu, in menu order
+     */
+    static final List<FactorSetting> PRESETS = Collections.unmodifiableList(Arrays.asList(
+            new FactorSetting("strong", new double[] {1.0, 1.0, 2.0, 0.0}, new double[] {1.0, 1.0, 0.0, 2.0}),
+            new FactorSetting("tolerant", new double[] {1.0, 1.0, 2.0, 0.5}, new double[] {1.0, 1.0, 0.5, 2.0}),
+            new FactorSetting("required", new double[] {1.0, 1.0, 2.0, 1.0}, new double[] {1.0, 1.0, 1.0, 2.0}),
+            new FactorSetting("strict", new double[] {1.0, 1.0, 1.5, 0.0}, new double[] {1.0, 1.0, 0.0, 1.5}),
+            new FactorSetting("weak", new double[] {1.0, 1.0, 1.5, 0.5}, new double[] {1.0, 1.0, 0.5, 1.5}),
+            new FactorSetting("parsimonious", new double[] {1.0, 1.0, 1.5, 1.0}, new double[] {1.0, 1.0, 1.0, 1.5}),
+            new FactorSetting("penal", new double[] {1.0, 1.0, 1.0, 0.0}, new double[] {1.0, 1.0, 0.0, 1.0}),
+            new FactorSetting("permissive", new double[] {1.0, 1.0, 1.0, 0.5}, new double[] {1.0, 1.0, 0.5, 1.0})));
+    /**
+     * Names of the eight factor values in a grid, as in the
+     * 'Edit factors' window; att10 is attack[2], i.e. Ai = 1, Aj = 0
+     */
+    static final List<String> VALUE_NAMES = Arrays.asList(
+            "att00", "att01", "att10", "att11", "sup00", "sup01", "sup10", "sup11");
+    /**
+     * Largest number of settings of a grid
+     */
+    static final int MAX_GRID_SIZE = 4096;
+
+    /**
+     * Name of the setting, the column header of a sweep
+     */
+    private final String name;
+    /**
+     * Attack factor values
+     */
+    private final double[] att;
+    /**
+     * Support factor values
+     */
+    private final double[] sup;
+
+    /**
+     * Constructor
+     *
+     * @param name name of the setting
+     * @param att attack factor values
+     * @param sup support factor values
+     */
+    FactorSetting(String name, double[] att, double[] sup){
+        this.name = name;
+        this.att = att.clone();
+        this.sup = sup.clone();
+    }
+
+    /**
+     * Returns the name of the setting
+     *
+     * @return the name
+     */
+    String getName(){ return name; }
+
+    /**
+     * Returns the attack factor values
+     *
+     * @return attack factor values
+     */
+    double[] getAttack(){ return att.clone(); }
+
+    /**
+     * Returns the support factor values
+     *
+     * @return support factor values
+     */
+    double[] getSupport(){ return sup.clone(); }
+
+    /**
+     * Looks up a preset by name
+     *
+     * @param name name of the preset
+     * @return the preset
+     * @throws IllegalArgumentException if there is no such preset
+     */
+    static FactorSetting preset(String name){
+        for(FactorSetting preset : PRESETS){
+            if(preset.name.equals(name)){
+                return preset;
+            }
+        }
+        throw new IllegalArgumentException("Unknown preset " + name + "!");
+    }
+
+    /**
+     * Parses a comma separated list of preset names, "all"
+     * standing for all presets
+     *
+     * @param names the preset names
+     * @return the presets, in the given order
+     * @throws IllegalArgumentException if a name is unknown
+     */
+    static List<FactorSetting> presets(String names){
+        if(names.equals("all")){
+            return PRESETS;
+        }
+        List<FactorSetting> presets = new ArrayList<>();
+        for(String name : names.split(",")){
+            presets.add(preset(name.trim()));
+        }
+        return presets;
+    }
+
+    /**
+     * Parses a grid over the eight factor values, e.g.
+     * "att10=1,1.5,2;att11=0:1:0.5", and returns all of its
+     * settings. Each entry names a factor value (see VALUE_NAMES)
+     * and lists its values, or gives them as from:to:step;
+     * factor values without an entry keep their base value.
+     * The settings are named after the values of the entries.
+     *
+     * @param spec the grid
+     * @param att base attack factor values
+     * @param sup base support factor values
+     * @return the settings of the grid, the last entry varying fastest
+     * @throws IllegalArgumentException if the grid is malformed
+     */
+    static List<FactorSetting> grid(String spec, double[] att, double[] sup){
+        List<Integer> positions = new ArrayList<>();
+        List<double[]> values = new ArrayList<>();
+        long size = 1;
+        for(String entry : spec.split(";")){
+            int eq = entry.indexOf('=');
+            int position = eq < 0 ? -1 : VALUE_NAMES.indexOf(entry.substring(0, eq).trim());
+            if(position < 0 || positions.contains(position)){
+                throw new IllegalArgumentException("Invalid grid entry " + entry.trim() + "!");
+            }
+            double[] v = parseValues(entry.substring(eq + 1).trim());
+            positions.add(position);
+            values.add(v);
+            size *= v.length;
+            if(size > MAX_GRID_SIZE){
+                throw new IllegalArgumentException("A grid may have at most " + MAX_GRID_SIZE + " settings!");
+            }
+        }
+
+        List<FactorSetting> grid = new ArrayList<>();
+        int[] digits = new int[positions.size()];
+        for(int s = 0; s < size; s++){
+            double[] factors = new double[8];
+            System.arraycopy(att, 0, factors, 0, 4);
+            System.arraycopy(sup, 0, factors, 4, 4);
+            StringBuilder name = new StringBuilder();
+            for(int k = 0; k < digits.length; k++){
+                double value = values.get(k)[digits[k]];
+                factors[positions.get(k)] = value;
+                if(k > 0) name.append(' ');
+                name.append(VALUE_NAMES.get(positions.get(k))).append('=').append(format(value));
+            }
+            grid.add(new FactorSetting(name.toString(), Arrays.copyOfRange(factors, 0, 4),
+                    Arrays.copyOfRange(factors, 4, 8)));
+
+            // Next combination, the last entry varying fastest
+            for(int k = digits.length - 1; k >= 0; k--){
+                if(++digits[k] < values.get(k).length) break;
+                digits[k] = 0;
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Parses the values of a grid entry: a comma separated
+     * list or a range from:to:step, both ends included
+     *
+     * @param text the values
+     * @return the values
+     * @throws IllegalArgumentException if a value is negative or malformed
+     */
+    private static double[] parseValues(String text){
+        double[] values;
+        String[] range = text.split(":");
+        if(range.length == 3){
+            double from = Double.parseDouble(range[0]);
+            double to = Double.parseDouble(range[1]);
+            double step = Double.parseDouble(range[2]);
+            if(!(step > 0) || !(to >= from) || (to - from) / step >= MAX_GRID_SIZE){
+                throw new IllegalArgumentException("Invalid range " + text + "!");
+            }
+            // Tolerate rounding errors at the upper end
+            int count = (int) Math.floor((to - from) / step + 1e-9) + 1;
+            values = new double[count];
+            for(int k = 0; k < count; k++){
+                values[k] = Math.round((from + k * step) * 1e6) / 1e6;
+            }
+        }
+        else{
+            String[] list = text.split(",");
+            values = new double[list.length];
+            for(int k = 0; k < list.length; k++){
+                values[k] = Double.parseDouble(list[k].trim());
+            }
+        }
+        for(double value : values){
+            if(!(value >= 0) || Double.isInfinite(value)){
+                throw new IllegalArgumentException("Factor values must not be negative: " + text + "!");
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Formats a factor value for a setting name, without
+     * a trailing ".0" for whole numbers
+     *
+     * @param value the factor value
+     * @return the formatted value
+     */
+    private static String format(double value){
+        return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+}
@@ -0,0 +1,164 @@
+package inferencer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Infers one parsed BAF under several factor settings at once,
+ * e.g. all presets of the 'Factors' menu, instead of parsing and
+ * inferring it once per setting. The structure that doesn't
+ * depend on the factor values is built once: for the junction
+ * tree inferencer the triangulated junction tree, see
+ * CompiledJunctionTree, which is also taken from and kept in
+ * the JunctionTreeCache, for the others the edges of the
+ * PairwiseNetwork, of which every setting only computes the
+ * shared factor tables. The settings are then evaluated in
+ * parallel, one task per setting.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class FactorSweep {
+
+    /**
+     * The inferencer to use, one of Model.INFERENCERS
+     */
+    private final String inferencer;
+    /**
+     * The settings of the configurable inferencers
+     */
+    private final InferenceSettings settings;
+    /**
+     * The factor settings to evaluate, one column each
+     */
+    private final List<FactorSetting> factorSettings;
+    /**
+     * Number of threads
+     */
+    private final int threads;
+    /**
+     * The compiled junction trees, by structure
+     */
+    private final JunctionTreeCache junctionTrees;
+
+    /**
+     * Constructor, sets the inferencer and the factor settings
+     *
+     * @param inferencer the inferencer to use, one of Model.INFERENCERS
+     * @param settings the settings of the configurable inferencers
+     * @param factorSettings the factor settings to evaluate
+     * @param junctionTrees the compiled junction trees, by structure
+     * @param threads number of threads evaluating the settings
+     * @throws Exception if the inferencer is unknown or there are no settings
+     */
+    FactorSweep(String inferencer, InferenceSettings settings, List<FactorSetting> factorSettings,
+                JunctionTreeCache junctionTrees, int threads) throws Exception {
+        if(!Model.INFERENCERS.contains(inferencer)){
+            throw new Exception("Unknown inferencer " + inferencer + "!");
+        }
+        if(factorSettings.isEmpty()){
+            throw new Exception("No factor settings to sweep!");
+        }
+        this.inferencer = inferencer;
+        this.settings = settings;
+        this.factorSettings = factorSettings;
+        this.threads = threads;
+        this.junctionTrees = junctionTrees;
+    }
+
+    /**
+     * Computes the marginals of all arguments under every
+     * factor setting
+     *
+     * @param graph the parsed BAF
+     * @return the marginals, one column per setting
+     * @throws InterruptedException if the sweep was cancelled
+     * @throws Exception if the inferencer can't handle the model
+     */
+    SweepResult run(ArgumentGraph graph) throws Exception {
+
+        long start = System.nanoTime();
+        CompiledJunctionTree jt = null;
+        PairwiseNetwork network = null;
+        boolean cached = false;
+        if(inferencer.equals("junctionTree")){
+            jt = junctionTrees.get(graph);
+            cached = jt != null;
+            if(!cached){
+                jt = new CompiledJunctionTree(graph);
+                junctionTrees.put(graph, jt, System.nanoTime() - start);
+            }
+        }
+        else{
+            FactorSetting first = factorSettings.get(0);
+            network = new PairwiseNetwork(graph, first.getAttack(), first.getSupport());
+        }
+        long compiled = System.nanoTime();
+
+        CompiledJunctionTree tree = jt;
+        PairwiseNetwork net = network;
+        List<Callable<double[]>> tasks = new ArrayList<>();
+        for(FactorSetting setting : factorSettings){
+            tasks.add(() -> tree != null
+                    ? tree.computeMarginals(graph, setting.getAttack(), setting.getSupport())
+                    : infer(net.withFactors(setting.getAttack(), setting.getSupport())));
+        }
+
+        int poolSize = Math.min(threads, tasks.size());
+        double[][] marginals = new double[tasks.size()][];
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+        try{
+            List<Future<double[]>> futures = pool.invokeAll(tasks);
+            for(int s = 0; s < futures.size(); s++){
+                marginals[s] = futures.get(s).get();
+            }
+        } catch(ExecutionException e){
+            // Report the error of the setting itself
+            if(e.getCause() instanceof Exception){
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        } finally {
+            pool.shutdownNow();
+        }
+        long end = System.nanoTime();
+
+        String[] names = new String[factorSettings.size()];
+        for(int s = 0; s < names.length; s++){
+            names[s] = factorSettings.get(s).getName();
+        }
+        String summary = String.format("Swept %d factor settings with %s on %d threads in %d ms\n",
+                names.length, ComponentInferencer.key(inferencer, settings), poolSize, (end - start) / 1000000);
+        if(jt != null){
+            summary += String.format("Junction tree %s in %d ms, largest clique %d arguments\n",
+                    cached ? "taken from the cache" : "compiled once", (compiled - start) / 1000000, jt.getMaxCliqueSize());
+        }
+        else{
+            summary += String.format("Pairwise network built once in %d ms, %d edges sharing %d factor tables\n",
+                    (compiled - start) / 1000000, network.m, network.numTables());
+        }
+        return new SweepResult(graph.labels(), names, marginals, summary);
+    }
+
+    /**
+     * Runs one of the native inferencers on the network of the
+     * BAF under a factor setting, on a single thread
+     *
+     * @param net the network under the factor setting
+     * @return P(A=1) for every argument, by argument index
+     * @throws Exception if the inferencer fails
+     */
+    private double[] infer(PairwiseNetwork net) throws Exception {
+        if(inferencer.equals("pairwiseTree")){
+            return new PairwiseTreeInferencer().computeMarginals(net);
+        }
+        if(inferencer.equals("gibbsSampler")){
+            return new MultiChainGibbsSampler(settings, 1).computeMarginals(net);
+        }
+        return new LoopyBeliefPropagation(settings).computeMarginals(net);
+    }
+}
@@ -0,0 +1,367 @@
+package inferencer;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The result of an inference: the argument labels and their
+ * marginals P(A=1) as primitive arrays, plus the summary lines
+ * of the inferencer and where the result came from (model hash,
+ * factor values, inferencer, timings). Renderers stream from
+ * these arrays in time linear in the number of arguments.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class InferenceResult {
+
+    /**
+     * Separator line of the result table
+     */
+    static final String TABLE_SEPARATOR = "+----------+---------+-------------+\n";
+    /**
+     * Header of the result table
+     */
+    static final String TABLE_HEADER = TABLE_SEPARATOR +
+                                       "| Variable | Outcome | Probability |\n" +
+                                       TABLE_SEPARATOR;
+    /**
+     * Approximate length of the table rows of one argument
+     */
+    private static final int ROWS_LENGTH = 3 * TABLE_SEPARATOR.length();
+    /**
+     * The file formats of writeTo
+     */
+    static final List<String> FORMATS = Arrays.asList("txt", "csv", "tsv", "bin");
+    /**
+     * Buffer size used when writing result files
+     */
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The argument labels, by argument index
+     */
+    private final String[] labels;
+    /**
+     * P(A=1) of each argument, by argument index
+     */
+    private final double[] marginals;
+    /**
+     * The summary lines of the inferencer
+     */
+    private final String summary;
+    /**
+     * Canonical hash of the inferred model, see ResultCache.modelHash
+     */
+    private final long[] modelHash;
+    /**
+     * Attack factor values
+     */
+    private final double[] att;
+    /**
+     * Support factor values
+     */
+    private final double[] sup;
+    /**
+     * The inferencer and, if they matter, its settings
+     */
+    private final String inferencer;
+    /**
+     * Time spent parsing the model in nanoseconds
+     */
+    private final long parseNanos;
+    /**
+     * Time spent on the inference in nanoseconds
+     */
+    private final long inferenceNanos;
+
+    /**
+     * Constructor
+     *
+     * @param labels the argument labels, by argument index
+     * @param marginals P(A=1) of each argument, by argument index
+     * @param summary the summary lines of the inferencer
+     * @param modelHash canonical hash of the model
+     * @param att attack factor values
+     * @param sup support factor values
+     * @param inferencer the inferencer and, if they matter, its settings
+     * @param parseNanos time spent parsing the model
+     * @param inferenceNanos time spent on the inference
+     */
+    InferenceResult(String[] labels, double[] marginals, String summary, long[] modelHash,
+                    double[] att, double[] sup, String inferencer, long parseNanos, long inferenceNanos){
+        this.labels = labels;
+        this.marginals = marginals;
+        this.summary = summary;
+        this.modelHash = modelHash;
+        this.att = att.clone();
+        this.sup = sup.clone();
+        this.inferencer = inferencer;
+        this.parseNanos = parseNanos;
+        this.inferenceNanos = inferenceNanos;
+    }
+
+    /**
+     * Returns the number of arguments
+     *
+     * @return the number of arguments
+     */
+    int size(){ return labels.length; }
+
+    /**
+     * Returns the label of an argument
+     *
+     * @param i index of the argument
+     * @return the label
+     */
+    String getLabel(int i){ return labels[i]; }
+
+    /**
+     * Returns the probability of an argument being true
+     *
+     * @param i index of the argument
+     * @return P(A=1)
+     */
+    double getProbability(int i){ return marginals[i]; }
+
+    /**
+     * Returns the probability of an outcome of an argument
+     *
+     * @param i index of the argument
+     * @param outcome 0 (false) or 1 (true)
+     * @return P(A=outcome)
+     */
+    double getProbability(int i, int outcome){
+        return outcome == 1 ? marginals[i] : 1 - marginals[i];
+    }
+
+    /**
+     * Returns the summary lines of the inferencer
+     *
+     * @return the summary, empty if there is none
+     */
+    String getSummary(){ return summary; }
+
+    /**
+     * Returns the canonical hash of the inferred model
+     *
+     * @return four 64 bit hash values
+     */
+    long[] getModelHash(){ return modelHash; }
+
+    /**
+     * Returns the attack factor values of the inference
+     *
+     * @return attack factor values
+     */
+    double[] getAttack(){ return att; }
+
+    /**
+     * Returns the support factor values of the inference
+     *
+     * @return support factor values
+     */
+    double[] getSupport(){ return sup; }
+
+    /**
+     * Returns the inferencer and, if they matter, its settings
+     *
+     * @return the inferencer
+     */
+    String getInferencer(){ return inferencer; }
+
+    /**
+     * Returns the time spent parsing the model
+     *
+     * @return time in nanoseconds
+     */
+    long getParseNanos(){ return parseNanos; }
+
+    /**
+     * Returns the time spent on the inference
+     *
+     * @return time in nanoseconds
+     */
+    long getInferenceNanos(){ return inferenceNanos; }
+
+    /**
+     * Writes the result table and the summary
+     *
+     * @param out where the table is written to
+     * @throws IOException if writing fails
+     */
+    void writeTable(Appendable out) throws IOException {
+        out.append(TABLE_HEADER);
+        for(int i = 0; i < labels.length; i++){
+            appendRow(out, labels[i], 0, getProbability(i, 0));
+            appendRow(out, labels[i], 1, getProbability(i, 1));
+            out.append(TABLE_SEPARATOR);
+        }
+        out.append(summary);
+    }
+
+    /**
+     * Renders the result table and the summary
+     *
+     * @return the result table as a String
+     */
+    String toTable(){
+        StringBuilder sb = new StringBuilder(TABLE_HEADER.length() + ROWS_LENGTH * labels.length + summary.length());
+        try{
+            writeTable(sb);
+        } catch(IOException e){
+            // StringBuilder doesn't throw
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the result as delimited text (CSV or TSV), either
+     * one row per argument and outcome or only P(A=1) per argument
+     *
+     * @param out where the rows are written to
+     * @param delimiter the column delimiter, ',' or '\t'
+     * @param trueOnly true to write only P(A=1) per argument
+     * @throws IOException if writing fails
+     */
+    void writeDelimited(Appendable out, char delimiter, boolean trueOnly) throws IOException {
+        if(trueOnly){
+            out.append("Variable").append(delimiter).append("P(A=1)\n");
+        }
+        else{
+            out.append("Variable").append(delimiter).append("Outcome").append(delimiter).append("Probability\n");
+        }
+        for(int i = 0; i < labels.length; i++){
+            for(int outcome = trueOnly ? 1 : 0; outcome < 2; outcome++){
+                appendField(out, labels[i], delimiter);
+                out.append(delimiter);
+                if(!trueOnly){
+                    out.append((char) ('0' + outcome)).append(delimiter);
+                }
+                out.append(formatProbability(getProbability(i, outcome))).append('\n');
+            }
+        }
+    }
+
+    /**
+     * Writes the result to a file through a buffered writer
+     *
+     * @param file the file to write
+     * @param format one of FORMATS: txt (result table), csv, tsv
+     *          or bin (see ResultFile)
+     * @param trueOnly csv and tsv only: true to write only P(A=1)
+     * @throws IOException if writing fails
+     */
+    void writeTo(File file, String format, boolean trueOnly) throws IOException {
+        if(format.equals("bin")){
+            ResultFile.write(this, file);
+            return;
+        }
+        try(Writer w = new BufferedWriter(new FileWriter(file), WRITE_BUFFER_SIZE)){
+            if(format.equals("csv")){
+                writeDelimited(w, ',', trueOnly);
+            }
+            else if(format.equals("tsv")){
+                writeDelimited(w, '\t', trueOnly);
+            }
+            else{
+                writeTable(w);
+            }
+        }
+    }
+
+    /**
+     * Writes a label as a field of delimited text, quoted
+     * if it contains the delimiter, quotes or line breaks
+     *
+     * @param out where the field is written to
+     * @param label the label
+     * @param delimiter the column delimiter
+     * @throws IOException if writing fails
+     */
+    static void appendField(Appendable out, String label, char delimiter) throws IOException {
+        boolean quote = false;
+        for(int k = 0; k < label.length() && !quote; k++){
+            char ch = label.charAt(k);
+            quote = ch == delimiter || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if(!quote){
+            out.append(label);
+            return;
+        }
+        out.append('"');
+        for(int k = 0; k < label.length(); k++){
+            char ch = label.charAt(k);
+            if(ch == '"'){
+                out.append('"');
+            }
+            out.append(ch);
+        }
+        out.append('"');
+    }
+
+    /**
+     * Writes one row of the result table, formatted like
+     * "| %8s | %7d | %11.4f |"
+     *
+     * @param out where the row is written to
+     * @param label the argument label
+     * @param outcome the outcome
+     * @param p the probability of the outcome
+     * @throws IOException if writing fails
+     */
+    private static void appendRow(Appendable out, String label, int outcome, double p) throws IOException {
+        out.append("| ");
+        pad(out, label.length(), 8);
+        out.append(label).append(" |       ").append((char) ('0' + outcome)).append(" | ");
+        String value = formatProbability(p);
+        pad(out, value.length(), 11);
+        out.append(value).append(" |\n");
+    }
+
+    /**
+     * Writes spaces to right-align a value
+     *
+     * @param out where the spaces are written to
+     * @param length length of the value
+     * @param width width of the column
+     * @throws IOException if writing fails
+     */
+    private static void pad(Appendable out, int length, int width) throws IOException {
+        for(int k = length; k < width; k++){
+            out.append(' ');
+        }
+    }
+
+    /**
+     * Formats a probability with 4 decimals, like "%.4f" in
+     * Locale.ROOT but without parsing a format String every time.
+     * "%.4f" rounds the shortest decimal String of p half up,
+     * e.g. 0.80485 to 0.8049 although the double is slightly
+     * below; p * 10000 is off from that decimal by less than
+     * 1e-11, so only near-ties are rounded from the String.
+     *
+     * @param p the probability
+     * @return the formatted probability
+     */
+    static String formatProbability(double p){
+        if(!(p >= 0 && p <= 1)){
+            return String.format(Locale.ROOT, "%.4f", p);
+        }
+        double x = p * 10000;
+        long v;
+        if(Math.abs(x - Math.floor(x) - 0.5) > 1e-9){
+            v = Math.round(x);
+        }
+        else{
+            v = BigDecimal.valueOf(p).setScale(4, RoundingMode.HALF_UP).unscaledValue().longValue();
+        }
+        char[] digits = {(char) ('0' + v / 10000), '.',
+                (char) ('0' + v / 1000 % 10), (char) ('0' + v / 100 % 10),
+                (char) ('0' + v / 10 % 10), (char) ('0' + v % 10)};
+        return new String(digits);
+    }
+}
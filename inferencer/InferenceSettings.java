@@ -0,0 +1,207 @@
+package inferencer;
+
+/**
+ * The settings of the configurable inferencers, used by
+ * Model.inference; the defaults work for most models.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class InferenceSettings {
+
+    /**
+     * Loopy BP: weight of the old message in each update,
+     * between 0 (no damping) and 1 (exclusive)
+     */
+    private double damping = 0.5;
+    /**
+     * Loopy BP: converged once no message changes by more
+     * than this (in probability)
+     */
+    private double tolerance = 1e-6;
+    /**
+     * Loopy BP: maximum number of iterations, one iteration
+     * being as many updates as there are messages
+     */
+    private int maxIterations = 1000;
+    /**
+     * Gibbs sampler: sweeps of each chain before samples are counted
+     */
+    private int burnIn = 1000;
+    /**
+     * Gibbs sampler: maximum number of samples of each chain
+     */
+    private int samples = 5000;
+    /**
+     * Gibbs sampler: number of chains, run in parallel
+     */
+    private int chains = 4;
+    /**
+     * Gibbs sampler: stops early once the standard error of
+     * every marginal is below this, 0 to always draw all samples
+     */
+    private double precision = 0.005;
+    /**
+     * Gibbs sampler: seed the seeds of the chains are split from
+     */
+    private long seed = 0;
+
+    /**
+     * Returns the loopy BP damping
+     *
+     * @return weight of the old message in each update
+     */
+    double getDamping(){ return damping; }
+
+    /**
+     * Sets the loopy BP damping
+     *
+     * @param damping weight of the old message, in [0,1)
+     */
+    void setDamping(double damping){
+        if(!(damping >= 0 && damping < 1)){
+            throw new IllegalArgumentException("Damping must be in [0,1)!");
+        }
+        this.damping = damping;
+    }
+
+    /**
+     * Returns the loopy BP convergence tolerance
+     *
+     * @return the convergence tolerance
+     */
+    double getTolerance(){ return tolerance; }
+
+    /**
+     * Sets the loopy BP convergence tolerance
+     *
+     * @param tolerance the convergence tolerance, greater than 0
+     */
+    void setTolerance(double tolerance){
+        if(!(tolerance > 0)){
+            throw new IllegalArgumentException("Tolerance must be greater than 0!");
+        }
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Returns the maximum number of loopy BP iterations
+     *
+     * @return the maximum number of iterations
+     */
+    int getMaxIterations(){ return maxIterations; }
+
+    /**
+     * Sets the maximum number of loopy BP iterations
+     *
+     * @param maxIterations the maximum number of iterations, at least 1
+     */
+    void setMaxIterations(int maxIterations){
+        if(maxIterations < 1){
+            throw new IllegalArgumentException("Maximum iterations must be at least 1!");
+        }
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Returns the Gibbs sampler burn-in
+     *
+     * @return sweeps of each chain before samples are counted
+     */
+    int getBurnIn(){ return burnIn; }
+
+    /**
+     * Sets the Gibbs sampler burn-in
+     *
+     * @param burnIn sweeps of each chain before samples are counted, at least 0
+     */
+    void setBurnIn(int burnIn){
+        if(burnIn < 0){
+            throw new IllegalArgumentException("Burn-in must not be negative!");
+        }
+        this.burnIn = burnIn;
+    }
+
+    /**
+     * Returns the maximum number of samples of each Gibbs chain
+     *
+     * @return the maximum number of samples
+     */
+    int getSamples(){ return samples; }
+
+    /**
+     * Sets the maximum number of samples of each Gibbs chain
+     *
+     * @param samples the maximum number of samples, at least 1
+     */
+    void setSamples(int samples){
+        if(samples < 1){
+            throw new IllegalArgumentException("Samples must be at least 1!");
+        }
+        this.samples = samples;
+    }
+
+    /**
+     * Returns the number of Gibbs chains
+     *
+     * @return the number of chains
+     */
+    int getChains(){ return chains; }
+
+    /**
+     * Sets the number of Gibbs chains
+     *
+     * @param chains the number of chains, at least 1
+     */
+    void setChains(int chains){
+        if(chains < 1){
+            throw new IllegalArgumentException("Chains must be at least 1!");
+        }
+        this.chains = chains;
+    }
+
+    /**
+     * Returns the target standard error of the Gibbs sampler
+     *
+     * @return the target precision, 0 if disabled
+     */
+    double getPrecision(){ return precision; }
+
+    /**
+     * Sets the target standard error of the Gibbs sampler
+     *
+     * @param precision the target precision, 0 to always draw all samples
+     */
+    void setPrecision(double precision){
+        if(!(precision >= 0)){
+            throw new IllegalArgumentException("Precision must not be negative!");
+        }
+        this.precision = precision;
+    }
+
+    /**
+     * Returns the Gibbs sampler seed
+     *
+     * @return the seed
+     */
+    long getSeed(){ return seed; }
+
+    /**
+     * Sets the Gibbs sampler seed
+     *
+     * @param seed the seed the seeds of the chains are split from
+     */
+    void setSeed(long seed){ this.seed = seed; }
+
+    /**
+     * Returns all settings as a String, e.g. to tell
+     * results of different settings apart
+     *
+     * @return the settings as a String
+     */
+    @Override
+    public String toString(){
+        return "damping=" + damping + " tolerance=" + tolerance + " maxIterations=" + maxIterations +
+                " burnIn=" + burnIn + " samples=" + samples + " chains=" + chains +
+                " precision=" + precision + " seed=" + seed;
+    }
+}
@@ -0,0 +1,297 @@
+package inferencer;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches compiled junction trees, keyed by a structural hash
+ * over the arguments and relations of a BAF without their types
+ * and factor values. When only the factor values change, e.g.
+ * after choosing another preset, the junction tree inferencer
+ * reuses the structure and only loads the new potentials into
+ * it instead of triangulating the model again.
+ *
+ * Structures are kept in memory up to a byte budget, evicting
+ * the least recently used ones, and optionally also written to a
+ * directory, so that a restarted process skips the triangulation
+ * of big models. Only structures that took a while to compile
+ * are written; small ones compile faster than they are read.
+ * Files are read and written outside the lock of the cache, and
+ * the files in the directory are bounded by a DiskBudget.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class JunctionTreeCache {
+
+    /**
+     * Default memory budget of a cache in bytes
+     */
+    static final long DEFAULT_MEMORY = 64L << 20;
+    /**
+     * First int of every cache file, "BAFJ"
+     */
+    private static final int MAGIC = 0x4241464A;
+    /**
+     * Version of the cache file format
+     */
+    private static final int VERSION = 1;
+    /**
+     * Structures compiled faster than this (in nanoseconds)
+     * are not written to disk
+     */
+    private static final long MIN_DISK_NANOS = 10_000_000L;
+    /**
+     * Buffer size used when reading and writing cache files
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Maximum memory of all structures in bytes
+     */
+    private final long maxBytes;
+    /**
+     * The structures in memory, least recently used first
+     */
+    private final LinkedHashMap<String, CompiledJunctionTree> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Current memory of all structures in bytes
+     */
+    private long bytes = 0;
+    /**
+     * Budget of the files in the directory of the disk tier
+     */
+    private final DiskBudget diskBudget;
+    /**
+     * Directory of the disk tier, null if disabled
+     */
+    private File directory;
+    /**
+     * Number of lookups answered from memory or disk
+     */
+    private long hits = 0;
+    /**
+     * Number of lookups answered from disk
+     */
+    private long diskHits = 0;
+    /**
+     * Number of lookups not answered
+     */
+    private long misses = 0;
+
+    /**
+     * Constructor
+     *
+     * @param maxBytes maximum memory of all structures in bytes
+     * @param maxDiskBytes maximum size of all cache files in bytes,
+     *          see DiskBudget
+     * @param directory directory of the disk tier, null to keep
+     *          structures in memory only
+     */
+    JunctionTreeCache(long maxBytes, long maxDiskBytes, File directory){
+        this.maxBytes = maxBytes;
+        this.diskBudget = new DiskBudget(maxDiskBytes);
+        this.directory = directory;
+    }
+
+    /**
+     * Computes the structural key of a BAF: a 128 bit hash over
+     * its size and the arguments of its relations, in order
+     *
+     * @param graph the parsed BAF
+     * @return the key as a hex String
+     */
+    static String key(ArgumentGraph graph){
+        long h1 = 0x243F6A8885A308D3L;
+        long h2 = 0x13198A2E03707344L;
+        for(int r = 0; r < graph.numRelations(); r++){
+            long relation = ((long) graph.from(r) << 32) | graph.to(r);
+            h1 = mix(h1, relation);
+            h2 = mix(h2 ^ 0x5A5A5A5A5A5A5A5AL, relation);
+        }
+        return String.format("%016x%016x%08x%08x", h1, h2, graph.numArguments(), graph.numRelations());
+    }
+
+    /**
+     * Mixes a value into a running hash
+     *
+     * @param h the running hash
+     * @param value the value
+     * @return the new hash
+     */
+    private static long mix(long h, long value){
+        h = (h ^ value) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * Looks up the structure of a BAF, first in memory, then on disk
+     *
+     * @param graph the parsed BAF
+     * @return the structure, null if there is none
+     */
+    CompiledJunctionTree get(ArgumentGraph graph){
+        String key = key(graph);
+        File dir;
+        synchronized(this){
+            CompiledJunctionTree tree = entries.get(key);
+            if(tree != null && tree.fits(graph)){
+                hits++;
+                return tree;
+            }
+            dir = directory;
+        }
+
+        // Read the file without holding the lock
+        CompiledJunctionTree tree = dir != null ? read(new File(dir, key + ".jt"), graph) : null;
+        synchronized(this){
+            if(tree == null){
+                misses++;
+                return null;
+            }
+            hits++;
+            diskHits++;
+            putInMemory(key, tree);
+        }
+        return tree;
+    }
+
+    /**
+     * Caches the structure of a BAF in memory and, if enabled
+     * and worth it, on disk
+     *
+     * @param graph the parsed BAF
+     * @param tree its compiled structure
+     * @param nanos the time it took to compile the structure
+     */
+    void put(ArgumentGraph graph, CompiledJunctionTree tree, long nanos){
+        String key = key(graph);
+        File dir;
+        synchronized(this){
+            putInMemory(key, tree);
+            dir = directory;
+        }
+
+        // Write the file without holding the lock
+        if(dir != null && nanos >= MIN_DISK_NANOS){
+            long written = write(new File(dir, key + ".jt"), tree);
+            if(written > 0){
+                diskBudget.written(dir, written);
+            }
+        }
+    }
+
+    /**
+     * Caches a structure in memory, evicting the least recently
+     * used structures beyond the memory budget
+     *
+     * @param key the structural key of the BAF
+     * @param tree the structure
+     */
+    private void putInMemory(String key, CompiledJunctionTree tree){
+        if(tree.bytes() > maxBytes){
+            return;
+        }
+        CompiledJunctionTree old = entries.put(key, tree);
+        if(old != null){
+            bytes -= old.bytes();
+        }
+        bytes += tree.bytes();
+        Iterator<Map.Entry<String, CompiledJunctionTree>> it = entries.entrySet().iterator();
+        while(bytes > maxBytes && it.hasNext()){
+            bytes -= it.next().getValue().bytes();
+            it.remove();
+        }
+    }
+
+    /**
+     * Reads a structure from disk
+     *
+     * @param file the cache file
+     * @param graph the BAF the structure is read for
+     * @return the structure, null if there is no valid file or
+     *          it doesn't fit the BAF
+     */
+    private static CompiledJunctionTree read(File file, ArgumentGraph graph){
+        if(!file.isFile()){
+            return null;
+        }
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))){
+            if(in.readInt() != MAGIC || in.readInt() != VERSION){
+                return null;
+            }
+            CompiledJunctionTree tree = CompiledJunctionTree.read(in, graph);
+            DiskBudget.used(file);
+            return tree;
+        } catch(IOException | RuntimeException e){
+            // A broken cache file is just a miss
+            return null;
+        }
+    }
+
+    /**
+     * Writes a structure to disk, via a temporary file so that
+     * concurrent readers never see a partial file
+     *
+     * @param file the cache file
+     * @param tree the structure
+     * @return the size of the file in bytes, 0 if it wasn't written
+     */
+    private static long write(File file, CompiledJunctionTree tree){
+        File dir = file.getParentFile();
+        if(!dir.isDirectory() && !dir.mkdirs()){
+            return 0;
+        }
+        try{
+            File tmp = File.createTempFile("jtree", ".tmp", dir);
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), BUFFER_SIZE))){
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                tree.write(out);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return file.length();
+        } catch(IOException e){
+            // The disk tier is optional, the structure stays in memory
+            return 0;
+        }
+    }
+
+    /**
+     * Sets the directory of the disk tier
+     *
+     * @param directory the directory, null to disable the disk tier
+     */
+    synchronized void setDirectory(File directory){ this.directory = directory; }
+
+    /**
+     * Returns the directory of the disk tier
+     *
+     * @return the directory, null if the disk tier is disabled
+     */
+    synchronized File getDirectory(){ return directory; }
+
+    /**
+     * Returns the number of lookups answered from memory or disk
+     *
+     * @return the number of hits
+     */
+    synchronized long getHits(){ return hits; }
+
+    /**
+     * Returns the number of lookups answered from disk
+     *
+     * @return the number of disk hits
+     */
+    synchronized long getDiskHits(){ return diskHits; }
+
+    /**
+     * Returns the number of lookups not answered
+     *
+     * @return the number of misses
+     */
+    synchronized long getMisses(){ return misses; }
+}
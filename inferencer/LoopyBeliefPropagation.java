@@ -0,0 +1,301 @@
+package inferencer;
+
+import java.util.Arrays;
+
+/**
+ * Approximate inferencer running loopy belief propagation on
+ * the PairwiseNetwork of a BAF. Messages are kept normalized in
+ * log space and updated with damping in a residual schedule:
+ * the message that would change most is always sent next, so
+ * computation goes where the beliefs are not yet settled.
+ *
+ * Stops once no message would change by more than the tolerance
+ * or after the maximum number of iterations, one iteration being
+ * as many updates as there are messages. On trees the result is
+ * exact. A run may start from the messages of an earlier run on
+ * the same network, e.g. under other evidence, so that only the
+ * messages the change affects are sent again.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class LoopyBeliefPropagation {
+
+    /**
+     * Weight of the old message in each update
+     */
+    private final double damping;
+    /**
+     * Maximum change of a message (in probability) at convergence
+     */
+    private final double tolerance;
+    /**
+     * Maximum number of iterations
+     */
+    private final int maxIterations;
+
+    /**
+     * The pairwise network of the BAF
+     */
+    private PairwiseNetwork net;
+    /**
+     * Current log messages, 2 values per directed message;
+     * message d = 2 * edge + direction, direction 0 being
+     * edgeA -> edgeB and direction 1 edgeB -> edgeA
+     */
+    private double[] msg;
+    /**
+     * Log messages that would be sent next, same layout as msg
+     */
+    private double[] next;
+    /**
+     * Residual of each directed message
+     */
+    private double[] residual;
+    /**
+     * Max heap of the directed messages by residual
+     */
+    private int[] heap;
+    /**
+     * Position of each directed message in the heap
+     */
+    private int[] pos;
+
+    /**
+     * Number of iterations done in the last run
+     */
+    private int iterations;
+    /**
+     * Largest residual left after the last run
+     */
+    private double finalResidual;
+
+    /**
+     * Constructor, sets the loopy BP settings
+     *
+     * @param settings damping, tolerance and maximum iterations
+     */
+    LoopyBeliefPropagation(InferenceSettings settings){
+        this.damping = settings.getDamping();
+        this.tolerance = settings.getTolerance();
+        this.maxIterations = settings.getMaxIterations();
+    }
+
+    /**
+     * Computes the approximate marginals of all arguments
+     *
+     * @param net the pairwise network of the BAF
+     * @return P(A=1) for every argument, by argument index
+     * @throws InterruptedException if the inference was cancelled
+     */
+    double[] computeMarginals(PairwiseNetwork net) throws InterruptedException {
+        return computeMarginals(net, null);
+    }
+
+    /**
+     * Computes the approximate marginals of all arguments,
+     * starting from given messages
+     *
+     * @param net the pairwise network of the BAF
+     * @param start the log messages to start from, see getMessages,
+     *          null for uniform messages
+     * @return P(A=1) for every argument, by argument index
+     * @throws InterruptedException if the inference was cancelled
+     */
+    double[] computeMarginals(PairwiseNetwork net, double[] start) throws InterruptedException {
+
+        this.net = net;
+        int messages = 2 * net.m;
+        msg = new double[2 * messages];
+        next = new double[2 * messages];
+        residual = new double[messages];
+        heap = new int[messages];
+        pos = new int[messages];
+
+        // Uniform messages to start with, unless given
+        if(start != null && start.length == msg.length){
+            System.arraycopy(start, 0, msg, 0, msg.length);
+        }
+        else{
+            Arrays.fill(msg, Math.log(0.5));
+        }
+        for(int d = 0; d < messages; d++){
+            computeNext(d);
+            heap[d] = d;
+            pos[d] = d;
+        }
+        for(int i = messages / 2 - 1; i >= 0; i--){
+            siftDown(i);
+        }
+
+        // Always send the message with the largest residual
+        long updates = 0;
+        long maxUpdates = (long) maxIterations * messages;
+        while(messages > 0 && residual[heap[0]] >= tolerance && updates < maxUpdates){
+            int d = heap[0];
+            double p0 = (1 - damping) * Math.exp(next[2*d]) + damping * Math.exp(msg[2*d]);
+            double p1 = (1 - damping) * Math.exp(next[2*d+1]) + damping * Math.exp(msg[2*d+1]);
+            msg[2*d] = Math.log(p0 / (p0 + p1));
+            msg[2*d+1] = Math.log(p1 / (p0 + p1));
+            updateResidual(d);
+            update(d);
+
+            // Messages of the receiver depend on the new one
+            int e = d >> 1;
+            int receiver = (d & 1) == 0 ? net.edgeB[e] : net.edgeA[e];
+            for(int k = net.adjStart[receiver]; k < net.adjStart[receiver+1]; k++){
+                int f = net.adjEdge[k];
+                if(f != e){
+                    int out = 2 * f + (net.edgeA[f] == receiver ? 0 : 1);
+                    computeNext(out);
+                    update(out);
+                }
+            }
+            updates++;
+            PairwiseNetwork.checkInterrupted((int) updates);
+        }
+        iterations = messages == 0 ? 0 : (int) ((updates + messages - 1) / messages);
+        finalResidual = messages == 0 ? 0 : residual[heap[0]];
+
+        // Belief = unary + all incoming messages
+        double[] marginals = new double[net.n];
+        for(int v = 0; v < net.n; v++){
+            double b0 = net.logUnary[2*v];
+            double b1 = net.logUnary[2*v+1];
+            for(int k = net.adjStart[v]; k < net.adjStart[v+1]; k++){
+                int in = incoming(net.adjEdge[k], v);
+                b0 += msg[2*in];
+                b1 += msg[2*in+1];
+            }
+            marginals[v] = PairwiseNetwork.probability(b0, b1);
+        }
+        return marginals;
+    }
+
+    /**
+     * Returns the log messages of the last run
+     *
+     * @return the messages, 2 values per directed message
+     */
+    double[] getMessages(){ return msg; }
+
+    /**
+     * Returns the number of iterations done in the last run
+     *
+     * @return the number of iterations
+     */
+    int getIterations(){ return iterations; }
+
+    /**
+     * Returns the largest residual left after the last run
+     *
+     * @return the final residual
+     */
+    double getFinalResidual(){ return finalResidual; }
+
+    /**
+     * Returns whether the last run converged
+     *
+     * @return true if the final residual is below the tolerance
+     */
+    boolean hasConverged(){ return finalResidual < tolerance; }
+
+    /**
+     * Returns the directed message of an edge towards an argument
+     *
+     * @param e the edge
+     * @param v the receiving argument
+     * @return the directed message index
+     */
+    private int incoming(int e, int v){
+        return 2 * e + (net.edgeA[e] == v ? 1 : 0);
+    }
+
+    /**
+     * Computes the message that would be sent next over a
+     * directed edge from the current incoming messages of the
+     * sender (except the one from the receiver)
+     *
+     * @param d the directed message
+     */
+    private void computeNext(int d){
+        int e = d >> 1;
+        int sender = (d & 1) == 0 ? net.edgeA[e] : net.edgeB[e];
+        double h0 = net.logUnary[2*sender];
+        double h1 = net.logUnary[2*sender+1];
+        for(int k = net.adjStart[sender]; k < net.adjStart[sender+1]; k++){
+            int f = net.adjEdge[k];
+            if(f != e){
+                int in = incoming(f, sender);
+                h0 += msg[2*in];
+                h1 += msg[2*in+1];
+            }
+        }
+        net.sendMessage(e, sender, h0, h1, next, 2 * d);
+        updateResidual(d);
+    }
+
+    /**
+     * Sets the residual of a directed message, the change
+     * in probability if it was sent next
+     *
+     * @param d the directed message
+     */
+    private void updateResidual(int d){
+        residual[d] = Math.abs(Math.exp(next[2*d]) - Math.exp(msg[2*d]));
+    }
+
+    /**
+     * Restores the heap order after the residual of a
+     * directed message changed
+     *
+     * @param d the directed message
+     */
+    private void update(int d){
+        siftUp(pos[d]);
+        siftDown(pos[d]);
+    }
+
+    /**
+     * Moves a heap entry up until its parent is larger
+     *
+     * @param i position in the heap
+     */
+    private void siftUp(int i){
+        int d = heap[i];
+        while(i > 0){
+            int parent = (i - 1) >> 1;
+            if(residual[heap[parent]] >= residual[d]){
+                break;
+            }
+            heap[i] = heap[parent];
+            pos[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = d;
+        pos[d] = i;
+    }
+
+    /**
+     * Moves a heap entry down until its children are smaller
+     *
+     * @param i position in the heap
+     */
+    private void siftDown(int i){
+        int d = heap[i];
+        int size = heap.length;
+        while(2 * i + 1 < size){
+            int child = 2 * i + 1;
+            if(child + 1 < size && residual[heap[child+1]] > residual[heap[child]]){
+                child++;
+            }
+            if(residual[heap[child]] <= residual[d]){
+                break;
+            }
+            heap[i] = heap[child];
+            pos[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = d;
+        pos[d] = i;
+    }
+}
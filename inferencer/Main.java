@@ -4,13 +4,21 @@ import java.awt.*;
 
 /**
  * inferencer.Main program, instantiates model, view and
- * controller in a new Runnable instance
+ * controller in a new Runnable instance. If command line
+ * arguments are given, the headless BatchInferencer is
+ * run instead of the GUI.
  *
  * @author Hannah Lewerentz <hlewerentz@uos.de>
  */
 public class Main {
     public static void main(String[] args) {
 
+        // Headless batch mode
+        if(args.length > 0){
+            BatchInferencer.main(args);
+            return;
+        }
+
         // Lambda expression to substitute new Runnable()
         EventQueue.invokeLater(() -> {
             // Model-View-Controller pattern
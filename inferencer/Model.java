@@ -1,22 +1,19 @@
 package inferencer;
 
-import edu.umass.cs.mallet.grmm.inference.GibbsSampler;
-import edu.umass.cs.mallet.grmm.inference.Inferencer;
-import edu.umass.cs.mallet.grmm.inference.JunctionTreeInferencer;
-import edu.umass.cs.mallet.grmm.inference.SamplingInferencer;
-import edu.umass.cs.mallet.grmm.types.*;
+import modelFormat.BinaryModel;
+import modelFormat.TextModelParser;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileSystemView;
 import java.awt.*;
 import java.io.*;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * The model class; handles the internal model
- * (the FactorGraph representing the Bipolar
- * Argumentation Framework (BAF)), the inference, the
+ * (the parsed Bipolar Argumentation Framework (BAF)),
+ * the inference, the
  * internal logic and is responsible for storing
  * and retrieving data.
  *
@@ -24,6 +21,16 @@ import java.util.List;
  */
 class Model {
 
+    /**
+     * The inferencers supported by inference(String)
+     */
+    static final List<String> INFERENCERS = Arrays.asList("junctionTree", "gibbsSampler", "pairwiseTree", "loopyBP");
+
+    /**
+     * Buffer size used when reading model files
+     */
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
     /**
      * Attack factor specification (default = weak)
      */
@@ -33,22 +40,59 @@ class Model {
      */
     private double[] sup = {1.0, 1.0, 0.5, 1.5};
     /**
-     * The internal model representing the BAF
+     * The parsed arguments and relations of the BAF
      */
-    private FactorGraph fg;
+    private ArgumentGraph graph = new ArgumentGraph();
     /**
-     * The variables, i.e. the arguments, used in the BAF
+     * The components of the last inferred model, reused
+     * by the next inference where the model didn't change
      */
-    private Variable[] vars;
+    private ComponentCache componentCache = new ComponentCache();
+    /**
+     * The results of previously inferred models
+     */
+    private ResultCache resultCache = new ResultCache(ResultCache.DEFAULT_MEMORY, DiskBudget.DEFAULT_BYTES, null);
+    /**
+     * The compiled junction trees of previously inferred
+     * models, reused when only the factor values change
+     */
+    private JunctionTreeCache junctionTreeCache = new JunctionTreeCache(JunctionTreeCache.DEFAULT_MEMORY, DiskBudget.DEFAULT_BYTES, null);
+    /**
+     * The settings of the configurable inferencers
+     */
+    private InferenceSettings settings = new InferenceSettings();
+    /**
+     * Number of threads an inference may use
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /**
+     * What the last inference took from the caches, kept out
+     * of its results, see ComponentInferencer.getCacheStatus
+     */
+    private volatile String cacheStatus = "";
+    /**
+     * The state of the last what-if inference, updated when
+     * only the evidence changes, see updateInference
+     */
+    private EvidenceSession evidenceSession;
+    /**
+     * Time spent parsing the current model in nanoseconds
+     */
+    private long parseNanos = 0;
+    /**
+     * Number of resets of the model; a run started before the
+     * last reset, i.e. a cancelled one, publishes nothing
+     */
+    private volatile int generation = 0;
 
     /**
-     * Opens a JFileChooser to pick a .txt file
-     * containing the model description
+     * Opens a JFileChooser to pick a .txt or a binary
+     * .baf file containing the model description
      *
      * @return absolute path to chosen file
      *          (null if no file was chosen)
      * @throws IOException if chosen file is not a
-     *          .txt file
+     *          .txt or .baf file
      */
     String chooseFile() throws IOException {
 
@@ -63,7 +107,7 @@ class Model {
             File selectedFile = jfc.getSelectedFile();
             absPath = selectedFile.getAbsolutePath();
 
-            // Check if txt
+            // Check if txt or baf
             String extension = "";
             int i = absPath.lastIndexOf(".");
             // Cover cases like dots in directory names
@@ -71,11 +115,11 @@ class Model {
             if(i > p){
                 extension = absPath.substring(i+1);
             }
-            if(extension.equals("txt")){
+            if(extension.equals("txt") || extension.equals(BinaryModel.EXTENSION)){
                 return absPath;
             }
             else{
-                throw new IOException("Wrong file extension! Try uploading a .txt file!");
+                throw new IOException("Wrong file extension! Try uploading a .txt or .baf file!");
             }
         }
         // No error, just go back to view
@@ -83,10 +127,10 @@ class Model {
     }
 
     /**
-     * Opens a JFileChooser to save the results to a .txt file
+     * Opens a JFileChooser to save a text to a .txt file
      *
-     * @param results the result String to be saved
-     * @param ext specifies the file extension, either txt or csv
+     * @param results the String to be saved
+     * @param ext specifies the file extension, txt
      * @throws IOException writing to file error
      */
     void saveToFile(String results, String ext) throws IOException{
@@ -106,27 +150,75 @@ class Model {
                     throw new IOException("IOException when trying to save file!");
                 }
             }
+        }
+    }
 
-            // CSV
-            if (ext.equals("csv")) {
-                try (FileWriter fw = new FileWriter(jfc.getSelectedFile() + ".csv")) {
-                    // Remove separators + whitespace
-                    String noSep = results.replaceAll("\\+----------\\+---------\\+-------------\\+\n", "");
-                    String noWS = noSep.replaceAll(" ", "");
-                    // Split into lines
-                    String[] split = noWS.split("\n");
-
-                    String csvResult = "";
-                    for(String line : split){
-                        // Remove starting and ending "|"
-                        String cropped = line.substring(1, line.length() - 1);
-                        // Insert commas
-                        csvResult += cropped.replaceAll("\\|", ",") + "\n";
-                    }
-                    fw.write(csvResult);
-                } catch (IOException e) {
-                    throw new IOException("IOException when trying to save file!");
-                }
+    /**
+     * Opens a JFileChooser to save the internal model
+     * as a binary .baf model file
+     *
+     * @throws IOException writing to file error
+     */
+    void saveBinaryModel() throws IOException {
+
+        JFileChooser jfc = new JFileChooser(FileSystemView.getFileSystemView().getHomeDirectory());
+        jfc.setPreferredSize(new Dimension(600, 400));
+        int returnValue = jfc.showSaveDialog(null);
+
+        // Only act if Save button is pressed at all
+        if(returnValue == JFileChooser.APPROVE_OPTION){
+            try{
+                toBinaryModel().write(new File(jfc.getSelectedFile() + "." + BinaryModel.EXTENSION));
+            } catch(IOException e){
+                throw new IOException("IOException when trying to save file!");
+            }
+        }
+    }
+
+    /**
+     * Opens a JFileChooser to save inference results, streaming
+     * them straight into the file
+     *
+     * @param result the inference results to be saved
+     * @param ext the file format, one of InferenceResult.FORMATS
+     * @param trueOnly csv and tsv only: true to save only P(A=1)
+     * @throws IOException writing to file error
+     */
+    void saveResults(InferenceResult result, String ext, boolean trueOnly) throws IOException {
+
+        JFileChooser jfc = new JFileChooser(FileSystemView.getFileSystemView().getHomeDirectory());
+        jfc.setPreferredSize(new Dimension(600, 400));
+        int returnValue = jfc.showSaveDialog(null);
+
+        // Only act if Save button is pressed at all
+        if(returnValue == JFileChooser.APPROVE_OPTION){
+            try{
+                result.writeTo(new File(jfc.getSelectedFile() + "." + ext), ext, trueOnly);
+            } catch(IOException e){
+                throw new IOException("IOException when trying to save file!");
+            }
+        }
+    }
+
+    /**
+     * Opens a JFileChooser to save the result of a factor sweep
+     *
+     * @param result the sweep result to be saved
+     * @param ext the file format, one of SweepResult.FORMATS
+     * @throws IOException writing to file error
+     */
+    void saveSweepResult(SweepResult result, String ext) throws IOException {
+
+        JFileChooser jfc = new JFileChooser(FileSystemView.getFileSystemView().getHomeDirectory());
+        jfc.setPreferredSize(new Dimension(600, 400));
+        int returnValue = jfc.showSaveDialog(null);
+
+        // Only act if Save button is pressed at all
+        if(returnValue == JFileChooser.APPROVE_OPTION){
+            try{
+                result.writeTo(new File(jfc.getSelectedFile() + "." + ext), ext);
+            } catch(IOException e){
+                throw new IOException("IOException when trying to save file!");
             }
         }
     }
@@ -139,189 +231,420 @@ class Model {
      */
     void parseModel(String model) throws Exception {
 
-        resetModel();
-
         // Display hint for empty model
         if(model.equals("")){
+            resetModel();
             throw new Exception("Please enter or upload a model first!");
         }
 
-        // Split to get different lines
-        String[] splitModel = model.split("\n");
-
-        // Extract arguments
-        List<String> varLabels = new ArrayList<String>();
-        int lineCount = 1;
-        for(String line : splitModel){
-            // Empty lines and comments allowed
-            // Skip Supports and Attacks for now
-            if(line.equals("") || isComment(line) || isSupLine(line) || isAttLine(line)){
-                lineCount++;
-            }
+        parseModel(new BufferedReader(new StringReader(model)));
+    }
 
-            else if(isArgLine(line)){
-                String content = line.substring(5, line.length()-1);
-                for(String label : content.split(",")){
-                    if(varLabels.contains(label)){
-                        throw new Exception("Error in line " + lineCount + ":\n Duplicate Variable!");
-                    }
-                    varLabels.add(label);
-                }
-                lineCount++;
+    /**
+     * Parses a model line by line in a single pass with the
+     * TextModelParser and checks its correctness
+     *
+     * @param reader reader providing the model lines
+     * @throws Exception error message when a parsing error occurs
+     */
+    void parseModel(BufferedReader reader) throws Exception {
+
+        long start = System.nanoTime();
+        int run = startParse();
+
+        ArgumentGraph graph = new ArgumentGraph();
+        TextModelParser.parse(reader, new TextModelParser.Target() {
+            @Override
+            public int addArgument(String label){ return graph.addArgument(label); }
+
+            @Override
+            public int indexOf(String label){ return graph.indexOf(label); }
+
+            @Override
+            public void addRelation(boolean attack, int x, int y, double[] factor){
+                graph.addRelation(attack ? ArgumentGraph.ATTACK : ArgumentGraph.SUPPORT, x, y, factor);
             }
 
-            else {
-                throw new Exception("Error in line " + lineCount + ":\n Illegal start of expression!");
+            @Override
+            public void setEvidence(int i, int value){ graph.setEvidence(i, value); }
+        });
+
+        publishModel(run, graph, System.nanoTime() - start);
+    }
+
+    /**
+     * Builds the internal model from a model in the binary
+     * model format
+     *
+     * @param model the model
+     * @throws Exception error message when the model is not
+     *          a valid BAF
+     */
+    void parseModel(BinaryModel model) throws Exception {
+
+        long start = System.nanoTime();
+        int run = startParse();
+
+        ArgumentGraph graph = new ArgumentGraph();
+        for(int i = 0; i < model.numArguments(); i++){
+            if(graph.addArgument(model.label(i)) < 0){
+                throw new Exception("Duplicate Variable " + model.label(i) + "!");
             }
         }
 
-        // Create Variables and FactorGraph
-        vars = new Variable[varLabels.size()];
-        for(int i = 0; i < varLabels.size(); i++){
-            vars[i] = new Variable(2);
-            vars[i].setLabel(varLabels.get(i));
+        // Own factor values, by relation
+        double[][] factors = new double[model.numAttacks() + model.numSupports()][];
+        for(int k = 0; k < model.numOverrides(); k++){
+            factors[model.overrideRelation(k)] = model.overrideFactor(k);
+        }
+        for(int r = 0; r < model.numAttacks(); r++){
+            graph.addRelation(ArgumentGraph.ATTACK, model.attackFrom(r), model.attackTo(r), factors[r]);
+        }
+        int attacks = model.numAttacks();
+        for(int r = 0; r < model.numSupports(); r++){
+            graph.addRelation(ArgumentGraph.SUPPORT, model.supportFrom(r), model.supportTo(r), factors[attacks + r]);
         }
-        fg = new FactorGraph(vars);
+        for(int k = 0; k < model.numEvidence(); k++){
+            graph.setEvidence(model.evidenceArgument(k), model.evidenceValue(k));
+        }
+        checkInterrupted();
 
-        // Extract Supports and Attacks
-        lineCount = 1;
-        for(String line : splitModel){
+        publishModel(run, graph, System.nanoTime() - start);
+    }
 
-            // Empty lines and comments allowed
-            if(line.equals("") || isComment(line) || isArgLine(line)){
-                lineCount++;
-            }
+    /**
+     * Clears the internal model before a new one is parsed
+     *
+     * @return the generation of the parsing run
+     */
+    private synchronized int startParse(){
+        clearModel();
+        return generation;
+    }
 
-            // ATT
-            else if(isAttLine(line)){
-                String content = line.substring(7, line.length()-1);
-                String [] stringVars = content.split(",");
-                if(stringVars.length > 2 || stringVars.length == 1){
-                    throw new Exception("Error in line " + lineCount + ":\n" +
-                            "Attack relation can only be binary! " +
-                            "Attack relations need to be of the form attack(Ai,Aj)");
-                }
-                if(!varLabels.contains(stringVars[0]) ||
-                        !varLabels.contains(stringVars[1])){
-                    throw new Exception("Error in line " + lineCount + ":\n" +
-                            "Variable not found!");
-                }
-                else {
-                    int x = varLabels.indexOf(stringVars[0]);
-                    int y = varLabels.indexOf(stringVars[1]);
-                    fg.addFactor(vars[x], vars[y], att);
-                }
-            }
+    /**
+     * Makes a parsed model the internal model, unless the model
+     * has been reset since its run started: an abandoned run
+     * must not replace the model of a later one
+     *
+     * @param run the generation of the parsing run
+     * @param graph the parsed model
+     * @param nanos time spent parsing the model in nanoseconds
+     * @throws InterruptedException if the run has been cancelled
+     */
+    private synchronized void publishModel(int run, ArgumentGraph graph, long nanos) throws InterruptedException {
+        if(run != generation){
+            throw new InterruptedException("Inference cancelled!");
+        }
+        this.graph = graph;
+        parseNanos = nanos;
+    }
 
-            // SUP
-            else if(isSupLine(line)){
-                String content = line.substring(8, line.length()-1);
-                String [] stringVars = content.split(",");
-                if(stringVars.length > 2 || stringVars.length == 1){
-                    throw new Exception("Error in line " + lineCount + ":\n" +
-                            "Support relation can only be binary! " +
-                            "Support relations need to be of the form support(Ai,Aj).");
-                }
-                else if(!varLabels.contains(stringVars[0]) ||
-                        !varLabels.contains(stringVars[1])){
-                    throw new Exception("Error in line " + lineCount + ":\n" +
-                            "Variable not found!");
-                }
-                else {
-                    int x = varLabels.indexOf(stringVars[0]);
-                    int y = varLabels.indexOf(stringVars[1]);
-                    fg.addFactor(vars[x], vars[y], sup);
-                }
+    /**
+     * Converts the internal model into the binary model format
+     *
+     * @return the model
+     */
+    BinaryModel toBinaryModel(){
+        ArgumentGraph g = graph;
+        int attacks = 0;
+        int overrides = 0;
+        for(int r = 0; r < g.numRelations(); r++){
+            if(g.type(r) == ArgumentGraph.ATTACK){
+                attacks++;
             }
-
-            // Parsing error
-            else {
-                throw new Exception("Error in line " + lineCount + ":\n Illegal start of expression!");
+            if(g.factor(r) != null){
+                overrides++;
+            }
+        }
+        int[] attackFrom = new int[attacks];
+        int[] attackTo = new int[attacks];
+        int[] supportFrom = new int[g.numRelations() - attacks];
+        int[] supportTo = new int[g.numRelations() - attacks];
+        int[] overrideRelations = new int[overrides];
+        double[] overrideFactors = new double[4 * overrides];
+        int a = 0;
+        int s = 0;
+        int k = 0;
+        for(int r = 0; r < g.numRelations(); r++){
+            int relation;
+            if(g.type(r) == ArgumentGraph.ATTACK){
+                attackFrom[a] = g.from(r);
+                attackTo[a] = g.to(r);
+                relation = a++;
+            }
+            else{
+                supportFrom[s] = g.from(r);
+                supportTo[s] = g.to(r);
+                relation = attacks + s++;
+            }
+            if(g.factor(r) != null){
+                overrideRelations[k] = relation;
+                System.arraycopy(g.factor(r), 0, overrideFactors, 4 * k++, 4);
             }
         }
+        int numEvidence = 0;
+        for(int i = 0; i < g.numArguments(); i++){
+            if(g.evidence(i) != ArgumentGraph.NO_EVIDENCE){
+                numEvidence++;
+            }
+        }
+        int[] evidence = new int[numEvidence];
+        int e = 0;
+        for(int i = 0; i < g.numArguments(); i++){
+            if(g.evidence(i) != ArgumentGraph.NO_EVIDENCE){
+                evidence[e++] = 2 * i + g.evidence(i);
+            }
+        }
+        return new BinaryModel(g.labels(), attackFrom, attackTo, supportFrom, supportTo,
+                overrideRelations, overrideFactors, evidence);
     }
 
     /**
-     * Builds the internal model from a .txt file,
-     * given its absolute path
+     * Reads a .txt model file into a String, given its
+     * absolute path, e.g. to display it in the view; a binary
+     * .baf model file is converted into the text format
      *
-     * @param absPath absolute path to a .txt file
+     * @param absPath absolute path to a .txt or .baf file
      * @return model String if no exception occurs
      * @throws Exception FileNotFoundException or IOException
      */
     String buildModelFromFile(String absPath) throws Exception {
 
-        String modelTextString = "";
+        // Binary models are displayed in the text format
+        if(BinaryModel.isBinaryModel(new File(absPath))){
+            StringWriter text = new StringWriter();
+            BinaryModel.read(new File(absPath)).writeText(text);
+            return text.toString();
+        }
+
+        StringBuilder modelText = new StringBuilder((int) Math.min(new File(absPath).length(), Integer.MAX_VALUE - 8));
 
-        try(BufferedReader br = new BufferedReader(new FileReader(absPath))){
-            // Ignore whitespace
+        try(BufferedReader br = new BufferedReader(new FileReader(absPath), READ_BUFFER_SIZE)){
             String line = br.readLine();
 
             while(line != null){
-                modelTextString += line + "\n";
-                // Again, ignore whitespace
+                modelText.append(line).append('\n');
                 line = br.readLine();
             }
         } catch(Exception e){
             // FileNotFoundException or IOException
             throw e;
         }
-        return modelTextString;
+        return modelText.toString();
     }
 
     /**
-     * Does the inference on a given internal model
-     * and returns the results as a String
+     * Builds the internal model from a .txt file, given its
+     * absolute path. The file is streamed into the parser
+     * line by line, without reading it into one String.
+     * Binary .baf model files are read in bulk instead.
      *
-     * @param inferencer the inferencer to use
-     * @return String containing the results
+     * @param absPath absolute path to a .txt or .baf file
+     * @throws Exception FileNotFoundException, IOException or
+     *          error message when a parsing error occurs
      */
-    String inference(String inferencer){
+    void parseModelFromFile(String absPath) throws Exception {
 
-        String results = "+----------+---------+-------------+\n" +
-                         "| Variable | Outcome | Probability |\n" +
-                         "+----------+---------+-------------+\n";
+        if(BinaryModel.isBinaryModel(new File(absPath))){
+            parseModel(BinaryModel.read(new File(absPath)));
+            return;
+        }
+        try(BufferedReader br = new BufferedReader(new FileReader(absPath), READ_BUFFER_SIZE)){
+            parseModel(br);
+        }
+    }
 
-        // Set the inferencer
-        Inferencer inf = null;
-        if(inferencer.equals("junctionTree")){
-            inf = new JunctionTreeInferencer();
+    /**
+     * Does the inference on a given internal model
+     * and returns the marginals of all arguments
+     *
+     * @param inferencer the inferencer to use, one of INFERENCERS
+     * @return the results
+     * @throws InterruptedException if the calling thread was
+     *          interrupted, i.e. the inference was cancelled
+     * @throws Exception if the inferencer can't handle the model
+     */
+    InferenceResult inference(String inferencer) throws Exception {
+
+        // Keep own references, a cancelled run must not
+        // interfere with the next parsed model
+        int run = generation;
+        ArgumentGraph argumentGraph = graph;
+        ComponentCache cache = componentCache;
+        long parseTime = parseNanos;
+        long start = System.nanoTime();
+
+        ComponentInferencer inf = new ComponentInferencer(inferencer, settings, att, sup, junctionTreeCache, threads);
+
+        // Look up the whole model in the result cache
+        long[] modelHash = ResultCache.modelHash(argumentGraph);
+        int[] order = ResultCache.canonicalOrder(argumentGraph);
+        String key = ResultCache.key(argumentGraph, order, att, sup, inf.getKey());
+        ResultCache.Entry cached = resultCache.get(key);
+        double[] marginals;
+        String summary;
+        String status;
+        if(cached != null && cached.marginals.length == argumentGraph.numArguments()){
+            marginals = new double[argumentGraph.numArguments()];
+            for(int k = 0; k < order.length; k++){
+                marginals[order[k]] = cached.marginals[k];
+            }
+            summary = cached.summary;
+            status = "result taken from the cache";
         }
-        if(inferencer.equals("gibbsSampler")){
-//            int samples = vars.length*200;
-//            int burnin = samples/5;
-            inf = new SamplingInferencer(new GibbsSampler(1000), 5000);
+        else{
+            // Infer each connected component separately,
+            // unchanged components come from the cache
+            marginals = inf.computeMarginals(argumentGraph, cache);
+            checkInterrupted();
+            summary = inf.getSummary();
+            status = inf.getCacheStatus();
+
+            double[] canonical = new double[marginals.length];
+            for(int k = 0; k < order.length; k++){
+                canonical[k] = marginals[order[k]];
+            }
+            resultCache.put(key, new ResultCache.Entry(canonical, summary));
+        }
+        if(run == generation){
+            cacheStatus = status;
         }
+        return new InferenceResult(argumentGraph.labels(), marginals, summary, modelHash,
+                att, sup, inf.getKey(), parseTime, System.nanoTime() - start);
+    }
 
-        // TIME THIS
+    /**
+     * Does the inference on the internal model under several
+     * factor settings at once, see FactorSweep. The factor
+     * values of the model itself are left unchanged.
+     *
+     * @param inferencer the inferencer to use, one of INFERENCERS
+     * @param factorSettings the factor settings, one column each
+     * @return the marginals, one column per setting
+     * @throws InterruptedException if the calling thread was
+     *          interrupted, i.e. the sweep was cancelled
+     * @throws Exception if the inferencer can't handle the model
+     */
+    SweepResult sweep(String inferencer, List<FactorSetting> factorSettings) throws Exception {
+        // Keep an own reference, like inference
+        ArgumentGraph argumentGraph = graph;
+        return new FactorSweep(inferencer, settings, factorSettings, junctionTreeCache, threads).run(argumentGraph);
+    }
+
+    /**
+     * Sets or retracts the evidence of an argument of the
+     * internal model, without parsing the model again
+     *
+     * @param label the label of the argument
+     * @param value 0 or 1, ArgumentGraph.NO_EVIDENCE to retract
+     *          the evidence
+     * @throws Exception if there is no such argument or the
+     *          value is invalid
+     */
+    void setEvidence(String label, int value) throws Exception {
+        int i = graph.indexOf(label);
+        if(i < 0){
+            throw new Exception("Variable " + label + " not found!");
+        }
+        if(value != 0 && value != 1 && value != ArgumentGraph.NO_EVIDENCE){
+            throw new Exception("Evidence needs to be 0 or 1!");
+        }
+        graph = graph.withEvidence(i, value);
+    }
 
-        inf.computeMarginals(fg);
+    /**
+     * Retracts the evidence of all arguments of the internal model
+     */
+    void clearEvidence(){
+        graph = graph.withoutEvidence();
+    }
 
-        // Collect marginals
-        for(Variable var : vars){
-            Factor f = inf.lookupMarginal(var);
-            AssignmentIterator it = f.assignmentIterator();
-            while(it.hasNext()){
-                int outcome = it.indexOfCurrentAssn();
-                double prob = f.value(it);
-                results += String.format("| %8s | %7d | %11.4f |\n", var, outcome, prob);
-                it.next();
+    /**
+     * Does the inference on the internal model after its evidence
+     * changed, see setEvidence: only the components whose evidence
+     * changed since the last call are inferred again, incrementally
+     * where the inferencer allows it, see EvidenceSession. The
+     * first call, or one after the model, the inferencer or the
+     * factor values changed, infers the whole model.
+     *
+     * @param inferencer the inferencer to use, one of INFERENCERS
+     * @return the results
+     * @throws InterruptedException if the calling thread was
+     *          interrupted, i.e. the inference was cancelled
+     * @throws Exception if the inferencer can't handle the model
+     */
+    InferenceResult updateInference(String inferencer) throws Exception {
+
+        // Keep own references, like inference; a cancelled
+        // update leaves the session half updated, so it is
+        // only kept once the update finished
+        int run = generation;
+        ArgumentGraph argumentGraph = graph;
+        EvidenceSession session = evidenceSession;
+        long start = System.nanoTime();
+        evidenceSession = null;
+
+        InferenceResult result;
+        if(session != null && session.fits(argumentGraph, inferencer, settings, att, sup)){
+            result = session.update(argumentGraph, parseNanos);
+        }
+        else{
+            session = new EvidenceSession(argumentGraph, inferencer, settings, att, sup, junctionTreeCache, threads);
+            String summary = String.format("Evidence: %d arguments clamped, inferred all %d components, kept for what-if updates\n",
+                    session.numClamped(), session.numComponents());
+            result = session.getResult(summary, parseNanos, System.nanoTime() - start);
+        }
+        synchronized(this){
+            if(run != generation){
+                throw new InterruptedException("Inference cancelled!");
             }
-            results += "+----------+---------+-------------+\n";
+            evidenceSession = session;
+        }
+        return result;
+    }
+
+    /**
+     * Throws an InterruptedException if the current thread
+     * has been interrupted, i.e. a running inference has been
+     * cancelled. The exact inferencers themselves can't be
+     * interrupted, so this is checked in between.
+     *
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    private void checkInterrupted() throws InterruptedException {
+        if(Thread.currentThread().isInterrupted()){
+            throw new InterruptedException("Inference cancelled!");
         }
-        return results;
     }
 
     /**
-     * Resets the internal FactorGraph model
+     * Resets the internal model and drops the cached
+     * components, e.g. after a cancelled inference; the
+     * cancelled run can't publish its model any more
      */
-    private void resetModel(){
-        // Due to GRMM internals, the clear() method
-        // doesn't work here
-        fg = new FactorGraph();
-        vars = new Variable[] {};
+    synchronized void resetModel(){
+        generation++;
+        clearModel();
+        componentCache = new ComponentCache();
     }
 
+    /**
+     * Clears the internal model, keeping the cached components
+     */
+    private void clearModel(){
+        graph = new ArgumentGraph();
+        parseNanos = 0;
+        evidenceSession = null;
+    }
+
+    /**
+     * Returns the parsed arguments and relations of the BAF
+     *
+     * @return the parsed BAF
+     */
+    ArgumentGraph getGraph(){ return this.graph; }
+
     /**
      * Returns current attack factor values
      *
@@ -351,38 +674,69 @@ class Model {
     void setSup(double[] support){ this.sup = support;}
 
     /**
-     * Checks whether a line is an argument line
-     * @param line Line to be checked
-     * @return boolean true if argument line, else false
+     * Returns the cache of inference results
+     *
+     * @return the result cache
      */
-    private boolean isArgLine(String line){
-        return line.startsWith("args{") & line.endsWith("}");
-    }
+    ResultCache getResultCache(){ return this.resultCache; }
 
     /**
-     * Checks whether a line is a support line
-     * @param line Line to be checked
-     * @return boolean true if support line, else false
+     * Sets the cache of inference results, e.g. to share
+     * one cache between several models
+     *
+     * @param resultCache the result cache
      */
-    private boolean isSupLine(String line) {
-        return line.startsWith("support(") & line.endsWith(")");
-    }
+    void setResultCache(ResultCache resultCache){ this.resultCache = resultCache; }
 
     /**
-     * Checks whether a line is an attack line
-     * @param line Line to be checked
-     * @return boolean true if attack line, else false
+     * Returns the cache of compiled junction trees
+     *
+     * @return the junction tree cache
      */
-    private boolean isAttLine(String line) {
-        return line.startsWith("attack(") & line.endsWith(")");
-    }
+    JunctionTreeCache getJunctionTreeCache(){ return this.junctionTreeCache; }
 
     /**
-     * Checks whether a line is a comment line
-     * @param line Line to be checked
-     * @return boolean true if comment line, else false
+     * Sets the cache of compiled junction trees, e.g. to share
+     * one cache between several models
+     *
+     * @param junctionTreeCache the junction tree cache
      */
-    private boolean isComment(String line) {
-        return line.startsWith("#");
-    }
+    void setJunctionTreeCache(JunctionTreeCache junctionTreeCache){ this.junctionTreeCache = junctionTreeCache; }
+
+    /**
+     * Returns the settings of the configurable inferencers
+     *
+     * @return the inferencer settings
+     */
+    InferenceSettings getSettings(){ return this.settings; }
+
+    /**
+     * Sets new settings for the configurable inferencers
+     *
+     * @param settings the inferencer settings
+     */
+    void setSettings(InferenceSettings settings){ this.settings = settings; }
+
+    /**
+     * Returns what the last inference took from the caches,
+     * e.g. for the status of the GUI; results don't contain it
+     *
+     * @return a status line, empty if nothing was taken
+     */
+    String getCacheStatus(){ return this.cacheStatus; }
+
+    /**
+     * Returns the number of threads an inference may use
+     *
+     * @return the number of threads
+     */
+    int getThreads(){ return this.threads; }
+
+    /**
+     * Sets the number of threads an inference may use, e.g. to
+     * share the cores between several models inferred at once
+     *
+     * @param threads the number of threads, at least 1
+     */
+    void setThreads(int threads){ this.threads = threads; }
 }
@@ -0,0 +1,435 @@
+package inferencer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Approximate inferencer running several independent Gibbs
+ * sampling chains on the PairwiseNetwork of a BAF, each on its
+ * own thread with its own seed. The chains sample in rounds of
+ * one batch; after every round the marginals of all chains are
+ * merged and the convergence diagnostics are computed:
+ *
+ *  - R-hat (potential scale reduction) per argument, comparing
+ *    the variance between the chains to the one within them
+ *  - the effective sample size (ESS) per argument, from the
+ *    batch means of each chain
+ *
+ * Sampling stops early once every argument has R-hat below
+ * 1.01 and a Monte Carlo standard error (sqrt(p(1-p)/ESS))
+ * below the target precision.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class MultiChainGibbsSampler {
+
+    /**
+     * Maximum R-hat of every argument for an early stop
+     */
+    static final double MAX_R_HAT = 1.01;
+    /**
+     * Number of batches the samples of a chain are split into
+     */
+    private static final int BATCHES = 20;
+    /**
+     * Minimum number of batches before stopping early
+     */
+    private static final int MIN_BATCHES = 5;
+
+    /**
+     * Sweeps of each chain before samples are counted
+     */
+    private final int burnIn;
+    /**
+     * Maximum number of samples (sweeps) of each chain
+     */
+    private final int samples;
+    /**
+     * Number of chains
+     */
+    private final int chains;
+    /**
+     * Target standard error of every marginal, 0 to always
+     * draw all samples
+     */
+    private final double precision;
+    /**
+     * Seed the seeds of the chains are split from
+     */
+    private final long seed;
+    /**
+     * Maximum number of threads running the chains
+     */
+    private final int threads;
+
+    /**
+     * R-hat per argument of the last run
+     */
+    private double[] rHat;
+    /**
+     * Effective sample size per argument of the last run
+     */
+    private double[] ess;
+    /**
+     * Samples drawn per chain in the last run
+     */
+    private int samplesDrawn;
+
+    /**
+     * Constructor, sets the sampling settings; the chains
+     * run in parallel on all cores
+     *
+     * @param settings burn-in, samples, chains, precision and seed
+     */
+    MultiChainGibbsSampler(InferenceSettings settings){
+        this(settings, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor, sets the sampling settings and the number
+     * of threads running the chains
+     *
+     * @param settings burn-in, samples, chains, precision and seed
+     * @param threads maximum number of threads, 1 to run all
+     *          chains in the calling thread
+     */
+    MultiChainGibbsSampler(InferenceSettings settings, int threads){
+        this(settings, threads, settings.getSeed());
+    }
+
+    /**
+     * Constructor, sets the sampling settings, the number of
+     * threads running the chains and a seed of its own, e.g.
+     * one per component of a BAF
+     *
+     * @param settings burn-in, samples, chains and precision
+     * @param threads maximum number of threads, 1 to run all
+     *          chains in the calling thread
+     * @param seed the seed the seeds of the chains are split from
+     */
+    MultiChainGibbsSampler(InferenceSettings settings, int threads, long seed){
+        this.threads = threads;
+        this.burnIn = settings.getBurnIn();
+        this.samples = settings.getSamples();
+        this.chains = settings.getChains();
+        this.precision = settings.getPrecision();
+        this.seed = seed;
+    }
+
+    /**
+     * Computes the approximate marginals of all arguments
+     *
+     * @param net the pairwise network of the BAF
+     * @return P(A=1) for every argument, by argument index
+     * @throws InterruptedException if the inference was cancelled
+     * @throws ExecutionException if a chain failed
+     */
+    double[] computeMarginals(PairwiseNetwork net) throws InterruptedException, ExecutionException {
+
+        int n = net.n;
+        int batchSize = Math.max(1, samples / BATCHES);
+        int batches = (samples + batchSize - 1) / batchSize;
+
+        SplittableRandom root = new SplittableRandom(seed);
+        List<Chain> chainList = new ArrayList<>();
+        for(int c = 0; c < chains; c++){
+            chainList.add(new Chain(net, root.split()));
+        }
+
+        ExecutorService pool = Math.min(chains, threads) > 1
+                ? Executors.newFixedThreadPool(Math.min(chains, threads)) : null;
+        try{
+            // Burn-in
+            runRound(pool, chainList, burnIn, false);
+
+            // Sample batch by batch until precise enough
+            samplesDrawn = 0;
+            for(int b = 0; b < batches; b++){
+                int size = Math.min(batchSize, samples - samplesDrawn);
+                runRound(pool, chainList, size, true);
+                samplesDrawn += size;
+                computeDiagnostics(chainList, n, b + 1);
+                if(precision > 0 && b + 1 >= MIN_BATCHES && isPrecise(chainList)){
+                    break;
+                }
+            }
+        } finally {
+            if(pool != null){
+                pool.shutdownNow();
+            }
+        }
+
+        // Merge the chains
+        double[] marginals = new double[n];
+        for(Chain chain : chainList){
+            for(int v = 0; v < n; v++){
+                marginals[v] += chain.ones[v];
+            }
+        }
+        for(int v = 0; v < n; v++){
+            marginals[v] /= (double) chains * samplesDrawn;
+        }
+        return marginals;
+    }
+
+    /**
+     * Runs all chains for a number of sweeps in parallel
+     *
+     * @param pool the thread pool, null to run the chains
+     *          one after another in the calling thread
+     * @param chainList the chains
+     * @param sweeps the number of sweeps
+     * @param count true to count the samples as one batch
+     * @throws InterruptedException if the inference was cancelled
+     * @throws ExecutionException if a chain failed
+     */
+    private void runRound(ExecutorService pool, List<Chain> chainList, int sweeps, boolean count)
+            throws InterruptedException, ExecutionException {
+        if(pool == null){
+            for(Chain chain : chainList){
+                chain.run(sweeps, count);
+            }
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for(Chain chain : chainList){
+            tasks.add(() -> {
+                chain.run(sweeps, count);
+                return null;
+            });
+        }
+        for(Future<Void> f : pool.invokeAll(tasks)){
+            f.get();
+        }
+    }
+
+    /**
+     * Computes R-hat and the effective sample size of every
+     * argument from the samples drawn so far
+     *
+     * @param chainList the chains
+     * @param n the number of arguments
+     * @param batches the number of batches drawn so far
+     */
+    private void computeDiagnostics(List<Chain> chainList, int n, int batches){
+        rHat = new double[n];
+        ess = new double[n];
+        double draws = samplesDrawn;
+        double total = draws * chains;
+        for(int v = 0; v < n; v++){
+            double mean = 0;
+            double within = 0;
+            double asymptotic = 0;
+            for(Chain chain : chainList){
+                double p = chain.ones[v] / draws;
+                mean += p;
+                within += draws > 1 ? p * (1 - p) * draws / (draws - 1) : 0;
+                // Batch means estimate of the autocorrelated variance
+                if(batches > 1){
+                    double bm = chain.batchMeanSum[v];
+                    double var = (chain.batchMeanSquares[v] - bm * bm / batches) / (batches - 1);
+                    asymptotic += Math.max(var, 0) * (draws / batches);
+                }
+            }
+            mean /= chains;
+            within /= chains;
+            asymptotic /= chains;
+
+            double between = 0;
+            for(Chain chain : chainList){
+                double d = chain.ones[v] / draws - mean;
+                between += d * d;
+            }
+            between = chains > 1 ? between * draws / (chains - 1) : 0;
+
+            if(within > 0){
+                double pooled = (draws - 1) / draws * within + between / draws;
+                rHat[v] = Math.sqrt(pooled / within);
+            }
+            else {
+                // All chains constant: fine if they agree
+                rHat[v] = between > 0 ? Double.POSITIVE_INFINITY : 1.0;
+            }
+
+            double variance = mean * (1 - mean);
+            ess[v] = asymptotic > 0 ? Math.min(total, total * variance / asymptotic) : total;
+        }
+    }
+
+    /**
+     * Checks whether every argument has converged and reached
+     * the target precision
+     *
+     * @param chainList the chains
+     * @return true if sampling can stop
+     */
+    private boolean isPrecise(List<Chain> chainList){
+        for(int v = 0; v < rHat.length; v++){
+            double p = 0;
+            for(Chain chain : chainList){
+                p += chain.ones[v];
+            }
+            p /= (double) chains * samplesDrawn;
+            if(rHat[v] > MAX_R_HAT || standardError(p, ess[v]) > precision){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the Monte Carlo standard error of a marginal
+     *
+     * @param p the estimated marginal
+     * @param ess its effective sample size
+     * @return the standard error
+     */
+    static double standardError(double p, double ess){
+        return ess > 0 ? Math.sqrt(p * (1 - p) / ess) : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns R-hat per argument of the last run
+     *
+     * @return R-hat by argument index
+     */
+    double[] getRHat(){ return rHat; }
+
+    /**
+     * Returns the effective sample size per argument of the last run
+     *
+     * @return ESS by argument index
+     */
+    double[] getEss(){ return ess; }
+
+    /**
+     * Returns the samples drawn per chain in the last run
+     *
+     * @return samples per chain
+     */
+    int getSamplesDrawn(){ return samplesDrawn; }
+
+    /**
+     * Returns whether the last run stopped before drawing all samples
+     *
+     * @return true if stopped early
+     */
+    boolean stoppedEarly(){ return samplesDrawn < samples; }
+
+    /**
+     * A single Gibbs sampling chain with its own state and
+     * random generator
+     */
+    private static class Chain {
+
+        /**
+         * The pairwise network of the BAF
+         */
+        private final PairwiseNetwork net;
+        /**
+         * The random generator of this chain
+         */
+        private final SplittableRandom random;
+        /**
+         * Current value of each argument
+         */
+        private final byte[] state;
+        /**
+         * Samples with value 1 of each argument
+         */
+        private final int[] ones;
+        /**
+         * Samples with value 1 of each argument in the current batch
+         */
+        private final int[] batchOnes;
+        /**
+         * Sum of the batch means of each argument
+         */
+        private final double[] batchMeanSum;
+        /**
+         * Sum of the squared batch means of each argument
+         */
+        private final double[] batchMeanSquares;
+
+        /**
+         * Constructor, starts the chain in a random state
+         *
+         * @param net the pairwise network of the BAF
+         * @param random the random generator of this chain
+         */
+        Chain(PairwiseNetwork net, SplittableRandom random){
+            this.net = net;
+            this.random = random;
+            state = new byte[net.n];
+            ones = new int[net.n];
+            batchOnes = new int[net.n];
+            batchMeanSum = new double[net.n];
+            batchMeanSquares = new double[net.n];
+            for(int v = 0; v < net.n; v++){
+                state[v] = (byte) random.nextInt(2);
+            }
+        }
+
+        /**
+         * Runs a number of sweeps, resampling every argument
+         * given its neighbours once per sweep
+         *
+         * @param sweeps number of sweeps
+         * @param count true to count the samples as one batch
+         * @throws InterruptedException if the inference was cancelled
+         */
+        void run(int sweeps, boolean count) throws InterruptedException {
+            int n = net.n;
+            for(int s = 0; s < sweeps; s++){
+                for(int v = 0; v < n; v++){
+                    double a0 = net.logUnary[2*v];
+                    double a1 = net.logUnary[2*v+1];
+                    for(int k = net.adjStart[v]; k < net.adjStart[v+1]; k++){
+                        int e = net.adjEdge[k];
+                        int base = 4 * net.edgeTable[e];
+                        if(net.edgeA[e] == v){
+                            int u = state[net.edgeB[e]];
+                            a0 += net.logTables[base + u];
+                            a1 += net.logTables[base + 2 + u];
+                        }
+                        else {
+                            int u = state[net.edgeA[e]];
+                            a0 += net.logTables[base + 2 * u];
+                            a1 += net.logTables[base + 2 * u + 1];
+                        }
+                    }
+                    double p = PairwiseNetwork.probability(a0, a1);
+                    // Both values impossible given the neighbours
+                    if(Double.isNaN(p)){
+                        p = 0.5;
+                    }
+                    state[v] = (byte) (random.nextDouble() < p ? 1 : 0);
+                }
+                if(count){
+                    for(int v = 0; v < n; v++){
+                        batchOnes[v] += state[v];
+                    }
+                }
+                if(Thread.currentThread().isInterrupted()){
+                    throw new InterruptedException("Inference cancelled!");
+                }
+            }
+
+            if(count){
+                for(int v = 0; v < n; v++){
+                    double mean = batchOnes[v] / (double) sweeps;
+                    ones[v] += batchOnes[v];
+                    batchMeanSum[v] += mean;
+                    batchMeanSquares[v] += mean * mean;
+                    batchOnes[v] = 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package inferencer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The pairwise Markov network of a parsed BAF in primitive
+ * arrays, as used by the native inferencers. All arguments
+ * are binary, so every edge has a 2x2 table of log factor
+ * values and every argument a unary table of 2 log values.
+ *
+ * Relations between the same two arguments are merged into
+ * one edge, relations of an argument with itself into its
+ * unary table (only the diagonal of the factor applies).
+ * Evidence rules out the other value in the unary table.
+ *
+ * Edges don't own their tables: an edge refers to one of a
+ * few shared tables, one per combination of relations, e.g.
+ * a single attack or a single support in either direction,
+ * so an edge takes a few ints however large the model is.
+ * New factor values only recompute the shared tables, see
+ * withFactors. Only relations with their own factor values
+ * get a table of their own.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class PairwiseNetwork {
+
+    /**
+     * Kinds of relations on an edge: attack or support, in the
+     * direction of the edge or against it
+     */
+    private static final int KINDS = 4;
+    /**
+     * Largest number of relations of one kind on an edge that
+     * still shares its table
+     */
+    private static final int MAX_SHARED_COUNT = 0xFFFF;
+
+    /**
+     * Number of arguments
+     */
+    final int n;
+    /**
+     * Number of (merged) edges
+     */
+    int m;
+    /**
+     * First argument of each edge
+     */
+    final int[] edgeA;
+    /**
+     * Second argument of each edge
+     */
+    final int[] edgeB;
+    /**
+     * Shared table of each edge, an index into logTables
+     */
+    final int[] edgeTable;
+    /**
+     * Log factor values of the shared tables, 4 per table,
+     * indexed by 2 * value(edgeA) + value(edgeB)
+     */
+    final double[] logTables;
+    /**
+     * Log unary factor values of each argument, 2 per argument
+     */
+    final double[] logUnary;
+    /**
+     * Adjacency lists: edges of argument i are
+     * adjEdge[adjStart[i]] ... adjEdge[adjStart[i+1]-1]
+     */
+    final int[] adjStart;
+    /**
+     * Edge indices of the adjacency lists
+     */
+    final int[] adjEdge;
+    /**
+     * The parsed BAF of the network
+     */
+    private final ArgumentGraph graph;
+    /**
+     * Attack factor values of the network
+     */
+    private final double[] att;
+    /**
+     * Support factor values of the network
+     */
+    private final double[] sup;
+    /**
+     * Number of relations of each kind making up each shared
+     * table, KINDS per table
+     */
+    private final int[] tableCounts;
+    /**
+     * Log factor values of relations with their own factor
+     * values, 4 per shared table
+     */
+    private final double[] tableOwn;
+    /**
+     * Relations of an argument with itself
+     */
+    private final int[] selfRelations;
+
+    /**
+     * Builds the network of a parsed BAF
+     *
+     * @param graph the parsed BAF
+     * @param att attack factor values
+     * @param sup support factor values
+     */
+    PairwiseNetwork(ArgumentGraph graph, double[] att, double[] sup){
+
+        this.graph = graph;
+        this.att = att;
+        this.sup = sup;
+        n = graph.numArguments();
+        int relations = graph.numRelations();
+        int[] relationEdge = new int[relations];
+        edgeA = new int[relations];
+        edgeB = new int[relations];
+        m = 0;
+
+        // Open addressing table: (min, max) argument pair -> edge index
+        int capacity = Integer.highestOneBit(Math.max(2 * relations, 2)) << 1;
+        long[] pairKeys = new long[capacity];
+        int[] pairEdges = new int[capacity];
+        Arrays.fill(pairKeys, -1L);
+        int[] degree = new int[n];
+        int self = 0;
+        for(int r = 0; r < relations; r++){
+            int x = graph.from(r);
+            int y = graph.to(r);
+            if(x == y){
+                relationEdge[r] = -1;
+                self++;
+                continue;
+            }
+
+            long key = ((long) Math.min(x, y) << 32) | Math.max(x, y);
+            int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & (capacity - 1);
+            while(pairKeys[slot] != -1L && pairKeys[slot] != key){
+                slot = (slot + 1) & (capacity - 1);
+            }
+            int e;
+            if(pairKeys[slot] == key){
+                e = pairEdges[slot];
+            }
+            else{
+                e = m++;
+                pairKeys[slot] = key;
+                pairEdges[slot] = e;
+                edgeA[e] = x;
+                edgeB[e] = y;
+                degree[x]++;
+                degree[y]++;
+            }
+            relationEdge[r] = e;
+        }
+
+        // Count the relations of each kind on each edge, relations
+        // with their own factor values make the edge unique
+        int[] counts = new int[KINDS * m];
+        boolean[] unique = new boolean[m];
+        selfRelations = new int[self];
+        self = 0;
+        for(int r = 0; r < relations; r++){
+            int e = relationEdge[r];
+            if(e < 0){
+                selfRelations[self++] = r;
+            }
+            else if(graph.factor(r) != null){
+                unique[e] = true;
+            }
+            else{
+                int kind = 2 * graph.type(r) + (edgeA[e] == graph.from(r) ? 0 : 1);
+                if(++counts[KINDS * e + kind] > MAX_SHARED_COUNT){
+                    unique[e] = true;
+                }
+            }
+        }
+
+        // Share one table per combination of relations
+        edgeTable = new int[m];
+        Map<Long, Integer> shared = new HashMap<>();
+        int tables = 0;
+        for(int e = 0; e < m; e++){
+            if(unique[e]){
+                edgeTable[e] = tables++;
+                continue;
+            }
+            long key = 0;
+            for(int kind = 0; kind < KINDS; kind++){
+                key = (key << 16) | counts[KINDS * e + kind];
+            }
+            Integer table = shared.get(key);
+            if(table == null){
+                table = tables++;
+                shared.put(key, table);
+            }
+            edgeTable[e] = table;
+        }
+        tableCounts = new int[KINDS * tables];
+        tableOwn = new double[4 * tables];
+        for(int e = 0; e < m; e++){
+            System.arraycopy(counts, KINDS * e, tableCounts, KINDS * edgeTable[e], KINDS);
+        }
+        for(int r = 0; r < relations; r++){
+            int e = relationEdge[r];
+            double[] pot = graph.factor(r);
+            if(e >= 0 && pot != null){
+                addLog(tableOwn, 4 * edgeTable[e], pot, edgeA[e] == graph.from(r), 1);
+            }
+        }
+        logTables = computeTables(att, sup);
+        logUnary = computeUnary(graph, att, sup);
+
+        adjStart = new int[n + 1];
+        for(int i = 0; i < n; i++){
+            adjStart[i+1] = adjStart[i] + degree[i];
+        }
+        adjEdge = new int[2 * m];
+        int[] fill = Arrays.copyOf(adjStart, n);
+        for(int e = 0; e < m; e++){
+            adjEdge[fill[edgeA[e]]++] = e;
+            adjEdge[fill[edgeB[e]]++] = e;
+        }
+    }
+
+    /**
+     * Constructor of a network sharing the structure of another
+     * one under other factor values or evidence, see withFactors
+     * and withEvidence
+     *
+     * @param net the network whose structure is shared
+     * @param graph the BAF of the network, with its evidence
+     * @param att attack factor values
+     * @param sup support factor values
+     * @param logTables the log factor values of the shared tables
+     */
+    private PairwiseNetwork(PairwiseNetwork net, ArgumentGraph graph, double[] att, double[] sup, double[] logTables){
+        n = net.n;
+        m = net.m;
+        edgeA = net.edgeA;
+        edgeB = net.edgeB;
+        edgeTable = net.edgeTable;
+        adjStart = net.adjStart;
+        adjEdge = net.adjEdge;
+        this.graph = graph;
+        this.att = att;
+        this.sup = sup;
+        tableCounts = net.tableCounts;
+        tableOwn = net.tableOwn;
+        selfRelations = net.selfRelations;
+        this.logTables = logTables;
+        boolean shared = graph == net.graph && selfRelations.length == 0;
+        logUnary = shared ? net.logUnary : computeUnary(graph, att, sup);
+    }
+
+    /**
+     * Returns the network of the same BAF under other factor
+     * values. Only the shared tables are computed again, the
+     * edges are shared with this network, which is unchanged.
+     *
+     * @param att attack factor values
+     * @param sup support factor values
+     * @return the network under the new factor values
+     */
+    PairwiseNetwork withFactors(double[] att, double[] sup){
+        return new PairwiseNetwork(this, graph, att, sup, computeTables(att, sup));
+    }
+
+    /**
+     * Returns the network of the same BAF with other evidence.
+     * Only the unary tables are computed again, the edges and
+     * the shared tables are shared with this network.
+     *
+     * @param graph the BAF with the new evidence, sharing the
+     *          relations of the BAF of this network
+     * @return the network under the new evidence
+     */
+    PairwiseNetwork withEvidence(ArgumentGraph graph){
+        return new PairwiseNetwork(this, graph, att, sup, logTables);
+    }
+
+    /**
+     * Returns the number of shared tables
+     *
+     * @return the number of tables
+     */
+    int numTables(){ return tableCounts.length / KINDS; }
+
+    /**
+     * Computes the log factor values of the shared tables
+     *
+     * @param att attack factor values
+     * @param sup support factor values
+     * @return the log factor values, 4 per table
+     */
+    private double[] computeTables(double[] att, double[] sup){
+        double[] tables = Arrays.copyOf(tableOwn, tableOwn.length);
+        for(int t = 0; t < tableCounts.length / KINDS; t++){
+            addLog(tables, 4 * t, att, true, tableCounts[KINDS * t]);
+            addLog(tables, 4 * t, att, false, tableCounts[KINDS * t + 1]);
+            addLog(tables, 4 * t, sup, true, tableCounts[KINDS * t + 2]);
+            addLog(tables, 4 * t, sup, false, tableCounts[KINDS * t + 3]);
+        }
+        return tables;
+    }
+
+    /**
+     * Computes the log unary factor values of all arguments
+     * from their relations with themselves and their evidence
+     *
+     * @param graph the BAF, with its evidence
+     * @param att attack factor values
+     * @param sup support factor values
+     * @return the log unary factor values, 2 per argument
+     */
+    private double[] computeUnary(ArgumentGraph graph, double[] att, double[] sup){
+        double[] unary = new double[2 * n];
+        for(int r : selfRelations){
+            // attack(Ai,Ai): only the diagonal of the table applies
+            double[] pot = graph.factor(r, att, sup);
+            int x = graph.from(r);
+            unary[2*x] += Math.log(pot[0]);
+            unary[2*x+1] += Math.log(pot[3]);
+        }
+        for(int i = 0; i < n; i++){
+            int value = graph.evidence(i);
+            if(value != ArgumentGraph.NO_EVIDENCE){
+                unary[2*i + 1 - value] = Double.NEGATIVE_INFINITY;
+            }
+        }
+        return unary;
+    }
+
+    /**
+     * Adds a relation factor, possibly several times, to a
+     * 2x2 table of log values
+     *
+     * @param table the tables
+     * @param base position of the table
+     * @param pot the factor values of the relation
+     * @param same whether the relation has the direction of the edge
+     * @param count how often the factor is added
+     */
+    private static void addLog(double[] table, int base, double[] pot, boolean same, int count){
+        if(count == 0){
+            return;
+        }
+        table[base] += count * Math.log(pot[0]);
+        table[base + 1] += count * Math.log(same ? pot[1] : pot[2]);
+        table[base + 2] += count * Math.log(same ? pot[2] : pot[1]);
+        table[base + 3] += count * Math.log(pot[3]);
+    }
+
+    /**
+     * Computes a sum-product message over an edge
+     *
+     * @param e the edge
+     * @param from the sending argument
+     * @param h0 log value of the sender for outcome 0,
+     *          excluding the message of the receiver
+     * @param h1 log value of the sender for outcome 1
+     * @param out array the normalized log message is written to
+     * @param offset position of the message in out
+     */
+    void sendMessage(int e, int from, double h0, double h1, double[] out, int offset){
+        // Value index of a (sender, receiver) assignment
+        int s = from == edgeA[e] ? 2 : 1;
+        int r = from == edgeA[e] ? 1 : 2;
+        int base = 4 * edgeTable[e];
+        double m0 = logSumExp(h0 + logTables[base], h1 + logTables[base + s]);
+        double m1 = logSumExp(h0 + logTables[base + r], h1 + logTables[base + s + r]);
+
+        // Normalize to keep the values in range
+        double norm = logSumExp(m0, m1);
+        if(norm != Double.NEGATIVE_INFINITY){
+            m0 -= norm;
+            m1 -= norm;
+        }
+        out[offset] = m0;
+        out[offset + 1] = m1;
+    }
+
+    /**
+     * Returns the other argument of an edge
+     *
+     * @param e the edge
+     * @param v one argument of the edge
+     * @return the other argument of the edge
+     */
+    int other(int e, int v){
+        return edgeA[e] == v ? edgeB[e] : edgeA[e];
+    }
+
+    /**
+     * Returns the maximum number of edges of an argument
+     *
+     * @return the maximum degree
+     */
+    int maxDegree(){
+        int max = 0;
+        for(int i = 0; i < n; i++){
+            max = Math.max(max, adjStart[i+1] - adjStart[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Computes log(exp(a) + exp(b)) without overflow
+     *
+     * @param a first log value
+     * @param b second log value
+     * @return log(exp(a) + exp(b))
+     */
+    static double logSumExp(double a, double b){
+        double max = Math.max(a, b);
+        if(max == Double.NEGATIVE_INFINITY){
+            return max;
+        }
+        return max + Math.log(Math.exp(a - max) + Math.exp(b - max));
+    }
+
+    /**
+     * Converts the two log values of a belief into P(A=1)
+     *
+     * @param b0 log belief of outcome 0
+     * @param b1 log belief of outcome 1
+     * @return the normalized probability of outcome 1
+     */
+    static double probability(double b0, double b1){
+        return 1.0 / (1.0 + Math.exp(b0 - b1));
+    }
+
+    /**
+     * Throws an InterruptedException every few thousand steps
+     * if the current thread has been interrupted
+     *
+     * @param step the current step
+     * @throws InterruptedException if the inference was cancelled
+     */
+    static void checkInterrupted(int step) throws InterruptedException {
+        if((step & 0xFFF) == 0 && Thread.currentThread().isInterrupted()){
+            throw new InterruptedException("Inference cancelled!");
+        }
+    }
+}
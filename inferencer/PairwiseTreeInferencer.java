@@ -0,0 +1,124 @@
+package inferencer;
+
+import java.util.Arrays;
+
+/**
+ * Exact inferencer specialised for BAFs whose undirected graph
+ * is a forest, i.e. trees and polytrees. Works on the primitive
+ * arrays of the PairwiseNetwork and passes sum-product messages
+ * in log space, once from the leaves to the roots and once back,
+ * which takes time linear in the size of the BAF.
+ *
+ * Relations between the same two arguments and relations of an
+ * argument with itself are merged by the PairwiseNetwork, so
+ * they don't count as cycles.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class PairwiseTreeInferencer {
+
+    /**
+     * First line of the error message for models with cycles
+     */
+    static final String CYCLES = "The model contains cycles!";
+
+    /**
+     * Computes the exact marginals of all arguments
+     *
+     * @param net the pairwise network of the BAF
+     * @return P(A=1) for every argument, by argument index
+     * @throws Exception if the BAF contains a cycle
+     * @throws InterruptedException if the inference was cancelled
+     */
+    double[] computeMarginals(PairwiseNetwork net) throws Exception {
+
+        int n = net.n;
+
+        // Traversal order: parents before children
+        int[] order = new int[n];
+        int[] parentEdge = new int[n];
+        Arrays.fill(parentEdge, -2);
+        int head = 0;
+        int tail = 0;
+        for(int root = 0; root < n; root++){
+            if(parentEdge[root] != -2){
+                continue;
+            }
+            parentEdge[root] = -1;
+            order[tail++] = root;
+            while(head < tail){
+                int v = order[head++];
+                for(int k = net.adjStart[v]; k < net.adjStart[v+1]; k++){
+                    int e = net.adjEdge[k];
+                    if(e == parentEdge[v]){
+                        continue;
+                    }
+                    int w = net.other(e, v);
+                    if(parentEdge[w] != -2){
+                        throw new Exception(CYCLES + "\n" +
+                                "The pairwise tree inferencer only supports tree and polytree models, " +
+                                "choose the junction tree inferencer or the Gibbs sampler instead.");
+                    }
+                    parentEdge[w] = e;
+                    order[tail++] = w;
+                }
+            }
+        }
+
+        // Upward pass: message of each argument to its parent
+        double[] up = new double[2 * n];
+        double[] inner = Arrays.copyOf(net.logUnary, 2 * n);
+        for(int i = n - 1; i >= 0; i--){
+            int v = order[i];
+            int e = parentEdge[v];
+            if(e >= 0){
+                net.sendMessage(e, v, inner[2*v], inner[2*v+1], up, 2 * v);
+                int p = net.other(e, v);
+                inner[2*p] += up[2*v];
+                inner[2*p+1] += up[2*v+1];
+            }
+            PairwiseNetwork.checkInterrupted(i);
+        }
+
+        // Downward pass: message of each parent to its children,
+        // excluding the child's own message via prefix and suffix sums
+        double[] down = new double[2 * n];
+        double[] prefix = new double[2 * (net.maxDegree() + 1)];
+        double[] marginals = new double[n];
+        for(int i = 0; i < n; i++){
+            int v = order[i];
+            int pe = parentEdge[v];
+            double base0 = net.logUnary[2*v] + down[2*v];
+            double base1 = net.logUnary[2*v+1] + down[2*v+1];
+
+            int start = net.adjStart[v];
+            int deg = net.adjStart[v+1] - start;
+            prefix[0] = 0;
+            prefix[1] = 0;
+            for(int k = 0; k < deg; k++){
+                int e = net.adjEdge[start + k];
+                int c = net.other(e, v);
+                boolean child = e != pe;
+                prefix[2*k+2] = prefix[2*k] + (child ? up[2*c] : 0);
+                prefix[2*k+3] = prefix[2*k+1] + (child ? up[2*c+1] : 0);
+            }
+            double suffix0 = 0;
+            double suffix1 = 0;
+            for(int k = deg - 1; k >= 0; k--){
+                int e = net.adjEdge[start + k];
+                if(e == pe){
+                    continue;
+                }
+                int c = net.other(e, v);
+                net.sendMessage(e, v, base0 + prefix[2*k] + suffix0, base1 + prefix[2*k+1] + suffix1, down, 2 * c);
+                suffix0 += up[2*c];
+                suffix1 += up[2*c+1];
+            }
+
+            // Belief = unary + all incoming messages
+            marginals[v] = PairwiseNetwork.probability(base0 + prefix[2*deg], base1 + prefix[2*deg+1]);
+            PairwiseNetwork.checkInterrupted(i);
+        }
+        return marginals;
+    }
+}
@@ -0,0 +1,566 @@
+package inferencer;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the inference results of whole models, keyed by a
+ * SHA-256 hash over a canonical serialization of the parsed BAF,
+ * the factor values and the inferencer with its settings. The
+ * serialization lists the arguments sorted by label and the
+ * relations sorted by their arguments, so a reordered or
+ * reopened model hits the cache as well.
+ *
+ * Results are kept in memory up to a byte budget, evicting the
+ * least recently used ones, and optionally also written to a
+ * directory, so that they survive restarts; the files in the
+ * directory are bounded by a DiskBudget. Files are read
+ * and written outside the lock of the cache. Marginals are
+ * stored in canonical order, i.e. sorted by argument label.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class ResultCache {
+
+    /**
+     * Default memory budget of a cache in bytes
+     */
+    static final long DEFAULT_MEMORY = 64L << 20;
+    /**
+     * First int of every cache file, "BAFC"
+     */
+    private static final int MAGIC = 0x42414643;
+    /**
+     * Version of the cache file format
+     */
+    private static final int VERSION = 1;
+    /**
+     * Extension of the cache files
+     */
+    private static final String EXTENSION = ".bin";
+    /**
+     * Estimated memory of an entry besides its marginals
+     */
+    private static final long ENTRY_OVERHEAD = 256;
+
+    /**
+     * A cached result
+     */
+    static class Entry {
+
+        /**
+         * P(A=1) of every argument, sorted by argument label
+         */
+        final double[] marginals;
+        /**
+         * The summary lines of the inference
+         */
+        final String summary;
+
+        /**
+         * Constructor
+         *
+         * @param marginals P(A=1) of every argument, sorted by label
+         * @param summary the summary lines of the inference
+         */
+        Entry(double[] marginals, String summary){
+            this.marginals = marginals;
+            this.summary = summary;
+        }
+
+        /**
+         * Returns the estimated memory of this entry
+         *
+         * @return size in bytes
+         */
+        long bytes(){
+            return ENTRY_OVERHEAD + 8L * marginals.length + 2L * summary.length();
+        }
+    }
+
+    /**
+     * Maximum memory of all entries in bytes
+     */
+    private final long maxBytes;
+    /**
+     * The entries in memory, least recently used first
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Current memory of all entries in bytes
+     */
+    private long bytes = 0;
+    /**
+     * Budget of the files in the directory of the disk tier
+     */
+    private final DiskBudget diskBudget;
+    /**
+     * Directory of the disk tier, null if disabled
+     */
+    private File directory;
+    /**
+     * Number of lookups answered from memory or disk
+     */
+    private long hits = 0;
+    /**
+     * Number of lookups answered from disk
+     */
+    private long diskHits = 0;
+    /**
+     * Number of lookups not answered
+     */
+    private long misses = 0;
+
+    /**
+     * Constructor
+     *
+     * @param maxBytes maximum memory of all entries in bytes
+     * @param maxDiskBytes maximum size of all cache files in bytes,
+     *          see DiskBudget
+     * @param directory directory of the disk tier, null to keep
+     *          results in memory only
+     */
+    ResultCache(long maxBytes, long maxDiskBytes, File directory){
+        this.maxBytes = maxBytes;
+        this.diskBudget = new DiskBudget(maxDiskBytes);
+        this.directory = directory;
+    }
+
+    /**
+     * Computes the canonical hash of a model, which doesn't
+     * depend on the order of its arguments and relations:
+     * sums of mixed hashes of the argument labels, of the
+     * relations with their own factor values and of the
+     * evidence, in two independent lanes each
+     *
+     * @param graph the parsed BAF
+     * @return four 64 bit hash values
+     */
+    static long[] modelHash(ArgumentGraph graph){
+        return evidenceHash(graph, structureHash(graph));
+    }
+
+    /**
+     * Computes the canonical hash of a model without its
+     * evidence, see modelHash
+     *
+     * @param graph the parsed BAF
+     * @return four 64 bit hash values
+     */
+    static long[] structureHash(ArgumentGraph graph){
+
+        // Hash each label once, two independent 64 bit lanes
+        int n = graph.numArguments();
+        long[] labelHash1 = new long[n];
+        long[] labelHash2 = new long[n];
+        for(int i = 0; i < n; i++){
+            labelHash1[i] = labelHash(graph.label(i), 0x243F6A8885A308D3L, false);
+            labelHash2[i] = labelHash(graph.label(i), 0x13198A2E03707344L, true);
+        }
+
+        // Sums of mixed element hashes don't depend on the order
+        long[] hash = new long[4];
+        for(int i = 0; i < n; i++){
+            hash[0] += mix(labelHash1[i]);
+            hash[1] += mix(labelHash2[i] ^ 0x5A5A5A5A5A5A5A5AL);
+        }
+        for(int r = 0; r < graph.numRelations(); r++){
+            int x = graph.from(r);
+            int y = graph.to(r);
+            long h1 = mix(mix(labelHash1[x]) + labelHash1[y]) + graph.type(r);
+            long h2 = mix(mix(labelHash2[x] ^ 0x5A5A5A5A5A5A5A5AL) ^ labelHash2[y]) ^ graph.type(r);
+            // Own factor values of the relation, if any
+            double[] factor = graph.factor(r);
+            if(factor != null){
+                for(double value : factor){
+                    long bits = Double.doubleToLongBits(value);
+                    h1 = mix(h1 + 1) + bits;
+                    h2 = mix(h2 ^ 0x5A5A5A5A5A5A5A5AL) ^ bits;
+                }
+            }
+            hash[2] += mix(h1);
+            hash[3] += mix(h2);
+        }
+        return hash;
+    }
+
+    /**
+     * Adds the evidence of a model to the hash of the model
+     * without its evidence; a model without evidence keeps
+     * its hash
+     *
+     * @param graph the parsed BAF
+     * @param structureHash the hash of the model without its evidence
+     * @return four 64 bit hash values
+     */
+    static long[] evidenceHash(ArgumentGraph graph, long[] structureHash){
+        long[] hash = structureHash.clone();
+        for(int i = 0; i < graph.numArguments(); i++){
+            int value = graph.evidence(i);
+            if(value != ArgumentGraph.NO_EVIDENCE){
+                long h1 = labelHash(graph.label(i), 0x243F6A8885A308D3L, false);
+                long h2 = labelHash(graph.label(i), 0x13198A2E03707344L, true);
+                hash[0] += mix(mix(h1) + 3 + value);
+                hash[1] += mix(mix(h2 ^ 0x5A5A5A5A5A5A5A5AL) ^ (3 + value));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes an argument label in one of the two lanes
+     *
+     * @param label the label
+     * @param seed the start value of the lane
+     * @param xor true to combine the characters by xor,
+     *          false to add them
+     * @return the hash of the label
+     */
+    private static long labelHash(String label, long seed, boolean xor){
+        long h = seed;
+        for(int k = 0; k < label.length(); k++){
+            h = mix(xor ? h ^ label.charAt(k) : h + label.charAt(k));
+        }
+        return h;
+    }
+
+    /**
+     * Computes the cache key of a model: a SHA-256 hash over a
+     * canonical serialization of the BAF, the factor values and
+     * the inferencer with its settings. The arguments are listed
+     * by label, the relations sorted by the ranks of their
+     * arguments, their type and their own factor values, and the
+     * evidence by argument rank, so the key doesn't depend on
+     * the order of declaration.
+     *
+     * @param graph the parsed BAF
+     * @param order the canonical order of its arguments, see canonicalOrder
+     * @param att attack factor values
+     * @param sup support factor values
+     * @param inferencerKey the inferencer and, if they matter,
+     *          its settings
+     * @return the key as a hex String
+     */
+    static String key(ArgumentGraph graph, int[] order, double[] att, double[] sup, String inferencerKey){
+
+        int n = graph.numArguments();
+        int[] rank = new int[n];
+        for(int k = 0; k < n; k++){
+            rank[order[k]] = k;
+        }
+        Integer[] relations = new Integer[graph.numRelations()];
+        for(int r = 0; r < relations.length; r++){
+            relations[r] = r;
+        }
+        Arrays.sort(relations, (a, b) -> compareRelations(graph, rank, a, b));
+
+        try{
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DigestOutputStream(OutputStream.nullOutputStream(), digest)))){
+                out.writeInt(n);
+                for(int k = 0; k < n; k++){
+                    byte[] label = graph.label(order[k]).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(label.length);
+                    out.write(label);
+                }
+                out.writeInt(relations.length);
+                for(int r : relations){
+                    out.writeInt(rank[graph.from(r)]);
+                    out.writeInt(rank[graph.to(r)]);
+                    out.writeByte(graph.type(r));
+                    double[] factor = graph.factor(r);
+                    out.writeInt(factor == null ? -1 : factor.length);
+                    if(factor != null){
+                        for(double value : factor){
+                            out.writeDouble(value);
+                        }
+                    }
+                }
+                for(int k = 0; k < n; k++){
+                    out.writeByte(graph.evidence(order[k]));
+                }
+                for(double value : att){
+                    out.writeDouble(value);
+                }
+                for(double value : sup){
+                    out.writeDouble(value);
+                }
+                byte[] inferencer = inferencerKey.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(inferencer.length);
+                out.write(inferencer);
+            }
+            byte[] hash = digest.digest();
+
+            StringBuilder key = new StringBuilder(2 * hash.length);
+            for(byte b : hash){
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch(NoSuchAlgorithmException | IOException e){
+            // SHA-256 is always available, the null stream doesn't fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Compares two relations in canonical order: by the ranks of
+     * their arguments, their type and their own factor values
+     *
+     * @param graph the parsed BAF
+     * @param rank the rank of every argument in canonical order
+     * @param a the first relation
+     * @param b the second relation
+     * @return negative, zero or positive as a comes before, with or after b
+     */
+    private static int compareRelations(ArgumentGraph graph, int[] rank, int a, int b){
+        int cmp = Integer.compare(rank[graph.from(a)], rank[graph.from(b)]);
+        if(cmp == 0){
+            cmp = Integer.compare(rank[graph.to(a)], rank[graph.to(b)]);
+        }
+        if(cmp == 0){
+            cmp = Byte.compare(graph.type(a), graph.type(b));
+        }
+        if(cmp == 0){
+            double[] fa = graph.factor(a);
+            double[] fb = graph.factor(b);
+            if(fa == null || fb == null){
+                cmp = Boolean.compare(fa != null, fb != null);
+            }
+            else{
+                cmp = Arrays.compare(fa, fb);
+            }
+        }
+        return cmp;
+    }
+
+    /**
+     * Mixes the bits of a hash value
+     *
+     * @param h the hash value
+     * @return the mixed value
+     */
+    private static long mix(long h){
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Returns the canonical order of the arguments of a model
+     *
+     * @param graph the parsed BAF
+     * @return the argument indices, sorted by label
+     */
+    static int[] canonicalOrder(ArgumentGraph graph){
+        Integer[] order = new Integer[graph.numArguments()];
+        for(int i = 0; i < order.length; i++){
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> graph.label(a).compareTo(graph.label(b)));
+        int[] result = new int[order.length];
+        for(int i = 0; i < order.length; i++){
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    /**
+     * Looks up a cached result, first in memory, then on disk
+     *
+     * @param key the cache key of the model
+     * @return the cached result, null if there is none
+     */
+    Entry get(String key){
+        File dir;
+        synchronized(this){
+            Entry entry = entries.get(key);
+            if(entry != null){
+                hits++;
+                return entry;
+            }
+            dir = directory;
+        }
+
+        // Read the file without holding the lock
+        Entry entry = dir != null ? read(new File(dir, key + EXTENSION)) : null;
+        synchronized(this){
+            if(entry == null){
+                misses++;
+                return null;
+            }
+            hits++;
+            diskHits++;
+            putInMemory(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Caches a result in memory and, if enabled, on disk
+     *
+     * @param key the cache key of the model
+     * @param entry the result
+     */
+    void put(String key, Entry entry){
+        File dir;
+        synchronized(this){
+            putInMemory(key, entry);
+            dir = directory;
+        }
+
+        // Write the file without holding the lock
+        if(dir != null){
+            long written = write(new File(dir, key + EXTENSION), entry);
+            if(written > 0){
+                diskBudget.written(dir, written);
+            }
+        }
+    }
+
+    /**
+     * Caches a result in memory, evicting the least recently
+     * used results beyond the memory budget
+     *
+     * @param key the cache key of the model
+     * @param entry the result
+     */
+    private void putInMemory(String key, Entry entry){
+        if(entry.bytes() > maxBytes){
+            return;
+        }
+        Entry old = entries.put(key, entry);
+        if(old != null){
+            bytes -= old.bytes();
+        }
+        bytes += entry.bytes();
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while(bytes > maxBytes && it.hasNext()){
+            bytes -= it.next().getValue().bytes();
+            it.remove();
+        }
+    }
+
+    /**
+     * Reads a cached result from disk and marks it as recently
+     * used, so that the disk tier evicts other files first
+     *
+     * @param file the cache file
+     * @return the result, null if there is no valid file
+     */
+    private static Entry read(File file){
+        if(!file.isFile()){
+            return null;
+        }
+        long length = file.length();
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))){
+            if(in.readInt() != MAGIC || in.readInt() != VERSION){
+                return null;
+            }
+            int n = in.readInt();
+            if(n < 0 || 8L * n > length - 16){
+                return null;
+            }
+            double[] marginals = new double[n];
+            for(int i = 0; i < n; i++){
+                marginals[i] = in.readDouble();
+            }
+            int summaryLength = in.readInt();
+            if(summaryLength < 0 || summaryLength > length - 16 - 8L * n){
+                return null;
+            }
+            byte[] summary = new byte[summaryLength];
+            in.readFully(summary);
+            DiskBudget.used(file);
+            return new Entry(marginals, new String(summary, StandardCharsets.UTF_8));
+        } catch(IOException e){
+            // A broken cache file is just a miss
+            return null;
+        }
+    }
+
+    /**
+     * Writes a result to disk, via a temporary file so that
+     * concurrent readers never see a partial file
+     *
+     * @param file the cache file
+     * @param entry the result
+     * @return the size of the file in bytes, 0 if it wasn't written
+     */
+    private static long write(File file, Entry entry){
+        File dir = file.getParentFile();
+        if(!dir.isDirectory() && !dir.mkdirs()){
+            return 0;
+        }
+        try{
+            File tmp = File.createTempFile("result", ".tmp", dir);
+            byte[] summary = entry.summary.getBytes(StandardCharsets.UTF_8);
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))){
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(entry.marginals.length);
+                for(double p : entry.marginals){
+                    out.writeDouble(p);
+                }
+                out.writeInt(summary.length);
+                out.write(summary);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return 16 + 8L * entry.marginals.length + summary.length;
+        } catch(IOException e){
+            // The disk tier is optional, the result stays in memory
+            return 0;
+        }
+    }
+
+    /**
+     * Sets the directory of the disk tier
+     *
+     * @param directory the directory, null to disable the disk tier
+     */
+    synchronized void setDirectory(File directory){ this.directory = directory; }
+
+    /**
+     * Returns the directory of the disk tier
+     *
+     * @return the directory, null if the disk tier is disabled
+     */
+    synchronized File getDirectory(){ return directory; }
+
+    /**
+     * Returns the number of lookups answered from memory or disk
+     *
+     * @return the number of hits
+     */
+    synchronized long getHits(){ return hits; }
+
+    /**
+     * Returns the number of lookups answered from disk
+     *
+     * @return the number of disk hits
+     */
+    synchronized long getDiskHits(){ return diskHits; }
+
+    /**
+     * Returns the number of lookups not answered
+     *
+     * @return the number of misses
+     */
+    synchronized long getMisses(){ return misses; }
+
+    /**
+     * Returns the number of results in memory
+     *
+     * @return the number of results
+     */
+    synchronized int size(){ return entries.size(); }
+}
@@ -0,0 +1,451 @@
+package inferencer;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact binary result format and its memory-mapped reader.
+ * A result file holds a fixed header, the marginals P(A=1) as a
+ * packed double[], a label dictionary and an open addressing
+ * hash index over the labels, so that the reader can look up an
+ * argument by index or label in O(1) without parsing the file.
+ * The reader is public, so that other programs can read results;
+ * on opening it checks the header, the section offsets, the label
+ * offsets and the hash index against the size of the file.
+ *
+ * Layout (big-endian, all sections 8 byte aligned):
+ *
+ *    0  int     magic "BAFR"
+ *    4  int     format version
+ *    8  int     number of arguments n
+ *   12  int     capacity of the hash index (a power of 2)
+ *   16  long[4] canonical model hash, see ResultCache.modelHash
+ *   48  double[4] attack factor values
+ *   80  double[4] support factor values
+ *  112  long    parse time in nanoseconds
+ *  120  long    inference time in nanoseconds
+ *  128  long    offset of the marginals, double[n]
+ *  136  long    offset of the label offsets, int[n+1], relative
+ *               to the label bytes
+ *  144  long    offset of the label bytes, UTF-8
+ *  152  long    offset of the hash index, int[capacity], holding
+ *               argument index + 1 (0 = empty slot)
+ *  160  int     length of the inferencer String, followed by
+ *               its UTF-8 bytes
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+public class ResultFile implements Closeable {
+
+    /**
+     * First int of every result file, "BAFR"
+     */
+    private static final int MAGIC = 0x42414652;
+    /**
+     * Version of the format
+     */
+    private static final int VERSION = 1;
+    /**
+     * Size of the fixed part of the header in bytes
+     */
+    private static final int HEADER_SIZE = 164;
+    /**
+     * Buffer size used when writing result files
+     */
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The mapped file
+     */
+    private final MappedByteBuffer buffer;
+    /**
+     * Number of arguments
+     */
+    private final int n;
+    /**
+     * Capacity of the hash index
+     */
+    private final int capacity;
+    /**
+     * Offset of the marginals
+     */
+    private final int marginalsOffset;
+    /**
+     * Offset of the label offsets
+     */
+    private final int labelOffsetsOffset;
+    /**
+     * Offset of the label bytes
+     */
+    private final int labelBytesOffset;
+    /**
+     * Offset of the hash index
+     */
+    private final int indexOffset;
+    /**
+     * The inferencer and, if they matter, its settings
+     */
+    private final String inferencer;
+
+    /**
+     * Writes a result to a binary result file
+     *
+     * @param result the result
+     * @param file the file to write
+     * @throws IOException if writing fails
+     */
+    static void write(InferenceResult result, File file) throws IOException {
+
+        int n = result.size();
+        byte[] inferencer = result.getInferencer().getBytes(StandardCharsets.UTF_8);
+        byte[][] labels = new byte[n][];
+        long labelBytes = 0;
+        for(int i = 0; i < n; i++){
+            labels[i] = result.getLabel(i).getBytes(StandardCharsets.UTF_8);
+            labelBytes += labels[i].length;
+        }
+
+        // Hash index with load factor at most 1/2
+        int capacity = Integer.highestOneBit(Math.max(2 * n, 2)) << 1;
+        int[] index = new int[capacity];
+        for(int i = 0; i < n; i++){
+            int slot = hash(labels[i], 0, labels[i].length) & (capacity - 1);
+            while(index[slot] != 0){
+                slot = (slot + 1) & (capacity - 1);
+            }
+            index[slot] = i + 1;
+        }
+
+        long marginalsOffset = align(HEADER_SIZE + inferencer.length);
+        long labelOffsetsOffset = marginalsOffset + 8L * n;
+        long labelBytesOffset = align(labelOffsetsOffset + 4L * (n + 1));
+        long indexOffset = align(labelBytesOffset + labelBytes);
+        long size = indexOffset + 4L * capacity;
+        if(size > Integer.MAX_VALUE){
+            throw new IOException("Result too large for the binary result format!");
+        }
+
+        try(DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), WRITE_BUFFER_SIZE))){
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt(capacity);
+            for(long h : result.getModelHash()){
+                out.writeLong(h);
+            }
+            for(double value : result.getAttack()){
+                out.writeDouble(value);
+            }
+            for(double value : result.getSupport()){
+                out.writeDouble(value);
+            }
+            out.writeLong(result.getParseNanos());
+            out.writeLong(result.getInferenceNanos());
+            out.writeLong(marginalsOffset);
+            out.writeLong(labelOffsetsOffset);
+            out.writeLong(labelBytesOffset);
+            out.writeLong(indexOffset);
+            out.writeInt(inferencer.length);
+            out.write(inferencer);
+            pad(out, marginalsOffset);
+
+            for(int i = 0; i < n; i++){
+                out.writeDouble(result.getProbability(i));
+            }
+            int offset = 0;
+            out.writeInt(offset);
+            for(int i = 0; i < n; i++){
+                offset += labels[i].length;
+                out.writeInt(offset);
+            }
+            pad(out, labelBytesOffset);
+            for(int i = 0; i < n; i++){
+                out.write(labels[i]);
+            }
+            pad(out, indexOffset);
+            for(int slot : index){
+                out.writeInt(slot);
+            }
+        }
+    }
+
+    /**
+     * Rounds an offset up to a multiple of 8
+     *
+     * @param offset the offset
+     * @return the aligned offset
+     */
+    private static long align(long offset){
+        return (offset + 7) & ~7L;
+    }
+
+    /**
+     * Writes zero bytes up to an offset
+     *
+     * @param out the output stream
+     * @param offset the offset to pad to
+     * @throws IOException if writing fails
+     */
+    private static void pad(DataOutputStream out, long offset) throws IOException {
+        while(out.size() < offset){
+            out.writeByte(0);
+        }
+    }
+
+    /**
+     * Hashes the UTF-8 bytes of a label (FNV-1a, mixed)
+     *
+     * @param bytes the bytes
+     * @param from first byte of the label
+     * @param length number of bytes of the label
+     * @return the hash
+     */
+    private static int hash(byte[] bytes, int from, int length){
+        int h = 0x811C9DC5;
+        for(int k = from; k < from + length; k++){
+            h = (h ^ (bytes[k] & 0xFF)) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        return h ^ (h >>> 13);
+    }
+
+    /**
+     * Opens a binary result file by mapping it into memory
+     *
+     * @param file the result file
+     * @throws IOException if the file can't be read, is no result
+     *          file or is corrupt
+     */
+    public ResultFile(File file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            if(channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE){
+                throw new IOException("Not a binary result file: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if(buffer.getInt(0) != MAGIC){
+            throw new IOException("Not a binary result file: " + file);
+        }
+        if(buffer.getInt(4) != VERSION){
+            throw new IOException("Unsupported result file version " + buffer.getInt(4) + ": " + file);
+        }
+        int size = buffer.capacity();
+        n = buffer.getInt(8);
+        capacity = buffer.getInt(12);
+        // The hash index needs an empty slot to end every lookup
+        if(n < 0 || capacity <= n || Integer.bitCount(capacity) != 1){
+            throw new IOException("Corrupt result file, " + n + " arguments in a hash index of "
+                    + capacity + ": " + file);
+        }
+        int inferencerLength = buffer.getInt(160);
+        marginalsOffset = section(buffer.getLong(128), 8L * n, size, file);
+        labelOffsetsOffset = section(buffer.getLong(136), 4L * (n + 1), size, file);
+        labelBytesOffset = section(buffer.getLong(144), 0, size, file);
+        indexOffset = section(buffer.getLong(152), 4L * capacity, size, file);
+        if(inferencerLength < 0 || inferencerLength > marginalsOffset - HEADER_SIZE){
+            throw new IOException("Corrupt result file, inferencer of " + inferencerLength + " bytes: " + file);
+        }
+
+        // Label offsets ascend within the label bytes
+        int previous = 0;
+        for(int i = 0; i <= n; i++){
+            int offset = buffer.getInt(labelOffsetsOffset + 4 * i);
+            if(offset < previous || (i == 0 && offset != 0) || offset > size - labelBytesOffset){
+                throw new IOException("Corrupt result file, label offset " + offset + " of argument " + i
+                        + ": " + file);
+            }
+            previous = offset;
+        }
+        // Every argument is in the hash index once
+        int entries = 0;
+        for(int slot = 0; slot < capacity; slot++){
+            int entry = buffer.getInt(indexOffset + 4 * slot);
+            if(entry < 0 || entry > n){
+                throw new IOException("Corrupt result file, hash index entry " + entry + ": " + file);
+            }
+            if(entry != 0){
+                entries++;
+            }
+        }
+        if(entries != n){
+            throw new IOException("Corrupt result file, " + entries + " hash index entries for "
+                    + n + " arguments: " + file);
+        }
+
+        byte[] inf = new byte[inferencerLength];
+        ByteBuffer view = buffer.duplicate();
+        view.position(HEADER_SIZE);
+        view.get(inf);
+        inferencer = new String(inf, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks that a section of the file lies within the file
+     *
+     * @param offset offset of the section, from the header
+     * @param length length of the section in bytes
+     * @param size size of the file in bytes
+     * @param file the result file, for the error message
+     * @return the offset
+     * @throws IOException if the section doesn't fit into the file
+     */
+    private static int section(long offset, long length, int size, File file) throws IOException {
+        if(offset < HEADER_SIZE || offset > size - length){
+            throw new IOException("Corrupt result file, section of " + length + " bytes at offset "
+                    + offset + ": " + file);
+        }
+        return (int) offset;
+    }
+
+    /**
+     * Returns the number of arguments
+     *
+     * @return the number of arguments
+     */
+    public int size(){ return n; }
+
+    /**
+     * Returns the probability of an argument being true
+     *
+     * @param i index of the argument
+     * @return P(A=1)
+     */
+    public double getProbability(int i){
+        if(i < 0 || i >= n){
+            throw new IndexOutOfBoundsException("No argument " + i + "!");
+        }
+        return buffer.getDouble(marginalsOffset + 8 * i);
+    }
+
+    /**
+     * Returns the probability of an argument being true
+     *
+     * @param label the label of the argument
+     * @return P(A=1), NaN if there is no such argument
+     */
+    public double getProbability(String label){
+        int i = indexOf(label);
+        return i < 0 ? Double.NaN : getProbability(i);
+    }
+
+    /**
+     * Looks up an argument in the hash index
+     *
+     * @param label the label of the argument
+     * @return index of the argument, -1 if there is none
+     */
+    public int indexOf(String label){
+        byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+        int slot = hash(bytes, 0, bytes.length) & (capacity - 1);
+        int entry;
+        while((entry = buffer.getInt(indexOffset + 4 * slot)) != 0){
+            if(labelEquals(entry - 1, bytes)){
+                return entry - 1;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the label of an argument with the given bytes
+     *
+     * @param i index of the argument
+     * @param bytes UTF-8 bytes of a label
+     * @return true if they are equal
+     */
+    private boolean labelEquals(int i, byte[] bytes){
+        int from = buffer.getInt(labelOffsetsOffset + 4 * i);
+        int to = buffer.getInt(labelOffsetsOffset + 4 * (i + 1));
+        if(to - from != bytes.length){
+            return false;
+        }
+        for(int k = 0; k < bytes.length; k++){
+            if(buffer.get(labelBytesOffset + from + k) != bytes[k]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the label of an argument
+     *
+     * @param i index of the argument
+     * @return the label
+     */
+    public String getLabel(int i){
+        if(i < 0 || i >= n){
+            throw new IndexOutOfBoundsException("No argument " + i + "!");
+        }
+        int from = buffer.getInt(labelOffsetsOffset + 4 * i);
+        int to = buffer.getInt(labelOffsetsOffset + 4 * (i + 1));
+        byte[] bytes = new byte[to - from];
+        for(int k = 0; k < bytes.length; k++){
+            bytes[k] = buffer.get(labelBytesOffset + from + k);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the canonical hash of the inferred model
+     *
+     * @return four 64 bit hash values
+     */
+    public long[] getModelHash(){
+        return new long[] {buffer.getLong(16), buffer.getLong(24), buffer.getLong(32), buffer.getLong(40)};
+    }
+
+    /**
+     * Returns the attack factor values of the inference
+     *
+     * @return attack factor values
+     */
+    public double[] getAttack(){
+        return new double[] {buffer.getDouble(48), buffer.getDouble(56), buffer.getDouble(64), buffer.getDouble(72)};
+    }
+
+    /**
+     * Returns the support factor values of the inference
+     *
+     * @return support factor values
+     */
+    public double[] getSupport(){
+        return new double[] {buffer.getDouble(80), buffer.getDouble(88), buffer.getDouble(96), buffer.getDouble(104)};
+    }
+
+    /**
+     * Returns the time spent parsing the model
+     *
+     * @return time in nanoseconds
+     */
+    public long getParseNanos(){ return buffer.getLong(112); }
+
+    /**
+     * Returns the time spent on the inference
+     *
+     * @return time in nanoseconds
+     */
+    public long getInferenceNanos(){ return buffer.getLong(120); }
+
+    /**
+     * Returns the inferencer and, if they matter, its settings
+     *
+     * @return the inferencer
+     */
+    public String getInferencer(){ return inferencer; }
+
+    /**
+     * Closes the file; the mapping itself is released by the
+     * garbage collector, as Java offers no way to unmap it
+     */
+    @Override
+    public void close(){
+    }
+}
@@ -0,0 +1,61 @@
+package inferencer;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table model showing an InferenceResult in a JTable, with
+ * the same rows as the result table: one row per argument and
+ * outcome. Cells are formatted on demand, so only the visible
+ * rows of a large result are ever rendered.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class ResultTableModel extends AbstractTableModel {
+
+    /**
+     * Version of the serialized form
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The column names
+     */
+    private static final String[] COLUMNS = {"Variable", "Outcome", "Probability"};
+
+    /**
+     * The displayed result
+     */
+    private final InferenceResult result;
+
+    /**
+     * Constructor
+     *
+     * @param result the result to display
+     */
+    ResultTableModel(InferenceResult result){
+        this.result = result;
+    }
+
+    @Override
+    public int getRowCount(){ return 2 * result.size(); }
+
+    @Override
+    public int getColumnCount(){ return COLUMNS.length; }
+
+    @Override
+    public String getColumnName(int column){ return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column){
+        int i = row / 2;
+        int outcome = row % 2;
+        switch(column){
+            case 0:
+                return result.getLabel(i);
+            case 1:
+                return outcome;
+            default:
+                return InferenceResult.formatProbability(result.getProbability(i, outcome));
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package inferencer;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The result of a factor sweep: the argument labels and one
+ * column of marginals P(A=1) per factor setting, as primitive
+ * arrays, plus the summary lines of the sweep. Like an
+ * InferenceResult it is rendered as a text table or as
+ * delimited text, with one column per setting.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class SweepResult {
+
+    /**
+     * The file formats of writeTo
+     */
+    static final List<String> FORMATS = Arrays.asList("txt", "csv", "tsv");
+    /**
+     * Buffer size used when writing result files
+     */
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    /**
+     * Width of the label column of the text table
+     */
+    private static final int LABEL_WIDTH = 8;
+    /**
+     * Width of a probability column of the text table
+     */
+    private static final int VALUE_WIDTH = 6;
+
+    /**
+     * The argument labels, by argument index
+     */
+    private final String[] labels;
+    /**
+     * The names of the settings, one per column
+     */
+    private final String[] names;
+    /**
+     * P(A=1) of each argument, by setting and argument index
+     */
+    private final double[][] marginals;
+    /**
+     * The summary lines of the sweep
+     */
+    private final String summary;
+
+    /**
+     * Constructor
+     *
+     * @param labels the argument labels, by argument index
+     * @param names the names of the settings
+     * @param marginals P(A=1) of each argument, by setting and argument index
+     * @param summary the summary lines of the sweep
+     */
+    SweepResult(String[] labels, String[] names, double[][] marginals, String summary){
+        this.labels = labels;
+        this.names = names;
+        this.marginals = marginals;
+        this.summary = summary;
+    }
+
+    /**
+     * Returns the number of arguments
+     *
+     * @return the number of arguments
+     */
+    int size(){ return labels.length; }
+
+    /**
+     * Returns the number of settings
+     *
+     * @return the number of settings
+     */
+    int numSettings(){ return names.length; }
+
+    /**
+     * Returns the label of an argument
+     *
+     * @param i index of the argument
+     * @return the label
+     */
+    String getLabel(int i){ return labels[i]; }
+
+    /**
+     * Returns the name of a setting
+     *
+     * @param s index of the setting
+     * @return the name
+     */
+    String getName(int s){ return names[s]; }
+
+    /**
+     * Returns the probability of an argument being true
+     * under a setting
+     *
+     * @param s index of the setting
+     * @param i index of the argument
+     * @return P(A=1)
+     */
+    double getProbability(int s, int i){ return marginals[s][i]; }
+
+    /**
+     * Returns the summary lines of the sweep
+     *
+     * @return the summary
+     */
+    String getSummary(){ return summary; }
+
+    /**
+     * Writes the text table of P(A=1), one column per
+     * setting, and the summary
+     *
+     * @param out where the table is written to
+     * @throws IOException if writing fails
+     */
+    void writeTable(Appendable out) throws IOException {
+        int[] widths = new int[names.length + 1];
+        widths[0] = LABEL_WIDTH;
+        for(int s = 0; s < names.length; s++){
+            widths[s + 1] = Math.max(VALUE_WIDTH, names[s].length());
+        }
+        appendSeparator(out, widths);
+        out.append('|');
+        appendCell(out, "Variable", widths[0]);
+        for(int s = 0; s < names.length; s++){
+            appendCell(out, names[s], widths[s + 1]);
+        }
+        out.append('\n');
+        appendSeparator(out, widths);
+        for(int i = 0; i < labels.length; i++){
+            out.append('|');
+            appendCell(out, labels[i], widths[0]);
+            for(int s = 0; s < names.length; s++){
+                appendCell(out, InferenceResult.formatProbability(marginals[s][i]), widths[s + 1]);
+            }
+            out.append('\n');
+        }
+        appendSeparator(out, widths);
+        out.append(summary);
+    }
+
+    /**
+     * Writes the result as delimited text (CSV or TSV): a
+     * row per argument with P(A=1) under every setting
+     *
+     * @param out where the rows are written to
+     * @param delimiter the column delimiter, ',' or '\t'
+     * @throws IOException if writing fails
+     */
+    void writeDelimited(Appendable out, char delimiter) throws IOException {
+        out.append("Variable");
+        for(String name : names){
+            out.append(delimiter);
+            InferenceResult.appendField(out, name, delimiter);
+        }
+        out.append('\n');
+        for(int i = 0; i < labels.length; i++){
+            InferenceResult.appendField(out, labels[i], delimiter);
+            for(double[] column : marginals){
+                out.append(delimiter).append(InferenceResult.formatProbability(column[i]));
+            }
+            out.append('\n');
+        }
+    }
+
+    /**
+     * Writes the result to a file through a buffered writer
+     *
+     * @param file the file to write
+     * @param format one of FORMATS: txt (text table), csv or tsv
+     * @throws IOException if writing fails
+     */
+    void writeTo(File file, String format) throws IOException {
+        try(Writer w = new BufferedWriter(new FileWriter(file), WRITE_BUFFER_SIZE)){
+            if(format.equals("csv")){
+                writeDelimited(w, ',');
+            }
+            else if(format.equals("tsv")){
+                writeDelimited(w, '\t');
+            }
+            else{
+                writeTable(w);
+            }
+        }
+    }
+
+    /**
+     * Writes a separator line of the text table
+     *
+     * @param out where the line is written to
+     * @param widths the widths of the columns
+     * @throws IOException if writing fails
+     */
+    private static void appendSeparator(Appendable out, int[] widths) throws IOException {
+        out.append('+');
+        for(int width : widths){
+            for(int k = 0; k < width + 2; k++){
+                out.append('-');
+            }
+            out.append('+');
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Writes a right-aligned cell of the text table
+     *
+     * @param out where the cell is written to
+     * @param value the content of the cell
+     * @param width the width of the column
+     * @throws IOException if writing fails
+     */
+    private static void appendCell(Appendable out, String value, int width) throws IOException {
+        out.append(' ');
+        for(int k = value.length(); k < width; k++){
+            out.append(' ');
+        }
+        out.append(value).append(" |");
+    }
+}
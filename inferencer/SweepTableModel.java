@@ -0,0 +1,51 @@
+package inferencer;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table model showing a SweepResult in a JTable: one row per
+ * argument and one column of P(A=1) per factor setting. Cells
+ * are formatted on demand, like in the ResultTableModel.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class SweepTableModel extends AbstractTableModel {
+
+    /**
+     * Version of the serialized form
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The displayed sweep result
+     */
+    private final SweepResult result;
+
+    /**
+     * Constructor
+     *
+     * @param result the sweep result to display
+     */
+    SweepTableModel(SweepResult result){
+        this.result = result;
+    }
+
+    @Override
+    public int getRowCount(){ return result.size(); }
+
+    @Override
+    public int getColumnCount(){ return result.numSettings() + 1; }
+
+    @Override
+    public String getColumnName(int column){
+        return column == 0 ? "Variable" : result.getName(column - 1);
+    }
+
+    @Override
+    public Object getValueAt(int row, int column){
+        if(column == 0){
+            return result.getLabel(row);
+        }
+        return InferenceResult.formatProbability(result.getProbability(column - 1, row));
+    }
+}
@@ -1,6 +1,7 @@
 package inferencer;
 
 import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 
 /**
@@ -22,6 +23,14 @@ class View extends JFrame {
      * Calls a popup-menu to edit factors
      */
     JMenuItem itemEditFactors;
+    /**
+     * Calls a popup-menu to sweep several factor settings at once
+     */
+    JMenuItem itemSweepFactors;
+    /**
+     * The JMenuItem for File -> Show loaded model
+     */
+    JMenuItem itemShowModel;
     /**
      * The JMenuItem for File -> Save Results as Txt
      */
@@ -30,14 +39,30 @@ class View extends JFrame {
      * The JMenuItem for File -> Save Results as Csv
      */
     JMenuItem itemSaveResultsCsv;
+    /**
+     * The JMenuItem for File -> Save Results as Tsv
+     */
+    JMenuItem itemSaveResultsTsv;
+    /**
+     * The JCheckBoxMenuItem for File -> Only P(A=1) in .csv/.tsv
+     */
+    JCheckBoxMenuItem itemSaveTrueOnly;
     /**
      * The JMenuItem for File -> Save Model as Txt
      */
     JMenuItem itemSaveModelTxt;
+    /**
+     * The JMenuItem for File -> Save Model as binary .baf
+     */
+    JMenuItem itemSaveModelBaf;
     /**
      * The Inference Button on the lower right
      */
     JButton inferenceButton;
+    /**
+     * Cancels a running inference, next to the Inference Button
+     */
+    JButton cancelButton;
     /**
      * Shows the manual when clicked
      */
@@ -121,6 +146,24 @@ class View extends JFrame {
      */
     JRadioButtonMenuItem setFactorsCustom;
 
+    /**
+     * Chooses the presets of a factor sweep, in the order
+     * of FactorSetting.PRESETS
+     */
+    JCheckBox[] sweepPresets;
+    /**
+     * Grid over the factor values of a factor sweep
+     */
+    JTextField sweepGrid;
+    /**
+     * Starts a factor sweep
+     */
+    JButton sweepRunButton;
+    /**
+     * Frame for choosing the settings of a factor sweep
+     */
+    JFrame sweepFrame;
+
     /**
      * Chooses the junction tree inferencer
      */
@@ -129,6 +172,96 @@ class View extends JFrame {
      * Chooses the gibbs sampling inferencer
      */
     JRadioButtonMenuItem gibbsSampler;
+    /**
+     * Chooses the exact inferencer for tree and polytree models
+     */
+    JRadioButtonMenuItem pairwiseTree;
+    /**
+     * Chooses the loopy belief propagation inferencer
+     */
+    JRadioButtonMenuItem loopyBP;
+    /**
+     * Calls a popup-menu to edit the inferencer settings
+     */
+    JMenuItem itemEditSettings;
+    /**
+     * Keeps inference results on disk, so they survive restarts
+     */
+    JCheckBoxMenuItem itemDiskCache;
+    /**
+     * Calls a popup-menu to set evidence on the inferred model
+     */
+    JMenuItem itemWhatIf;
+
+    /**
+     * Label of the argument to set the evidence of
+     */
+    JTextField evidenceArgument;
+    /**
+     * Clamps the argument to 1
+     */
+    JRadioButton evidenceTrue;
+    /**
+     * Clamps the argument to 0
+     */
+    JRadioButton evidenceFalse;
+    /**
+     * Retracts the evidence of the argument
+     */
+    JRadioButton evidenceNone;
+    /**
+     * Sets the evidence and updates the results
+     */
+    JButton evidenceApplyButton;
+    /**
+     * Retracts all evidence and updates the results
+     */
+    JButton evidenceClearButton;
+    /**
+     * Frame for setting evidence
+     */
+    JFrame evidenceFrame;
+
+    /**
+     * Loopy BP damping
+     */
+    JTextField damping;
+    /**
+     * Loopy BP convergence tolerance
+     */
+    JTextField tolerance;
+    /**
+     * Loopy BP maximum number of iterations
+     */
+    JTextField maxIterations;
+    /**
+     * Gibbs sampler burn-in per chain
+     */
+    JTextField burnIn;
+    /**
+     * Gibbs sampler maximum samples per chain
+     */
+    JTextField samples;
+    /**
+     * Number of Gibbs sampler chains
+     */
+    JTextField chains;
+    /**
+     * Gibbs sampler target standard error
+     */
+    JTextField precision;
+    /**
+     * Gibbs sampler seed
+     */
+    JTextField seed;
+    /**
+     * Saves changes in inferencer settings
+     */
+    JButton editSettingsSaveButton;
+    /**
+     * Frame for editing the inferencer settings
+     */
+    JFrame editSettingsFrame;
 
     /**
      * The Font used throughout the application
@@ -142,6 +275,30 @@ class View extends JFrame {
      * The label for the inference results
      */
     private JTextArea resultText;
+    /**
+     * Shows the marginals of an inference result
+     */
+    private JTable resultTable;
+    /**
+     * Shows the summary lines of an inference result
+     */
+    private JTextArea resultSummary;
+    /**
+     * Shows either resultText or the resultTable
+     */
+    private JPanel resultPanel;
+    /**
+     * The displayed inference result (null if resultText is displayed)
+     */
+    private InferenceResult result;
+    /**
+     * The displayed sweep result (null if none is displayed)
+     */
+    private SweepResult sweepResult;
+    /**
+     * Shows the progress of a running inference
+     */
+    private JProgressBar progressBar;
 
 
     /**
@@ -172,9 +329,18 @@ class View extends JFrame {
         fileMenu.add(itemOpen);
         fileMenu.add(new JSeparator());
 
+        itemShowModel = new JMenuItem("Show loaded model");
+        itemShowModel.setFont(myFont);
+        itemShowModel.setEnabled(false);
+        fileMenu.add(itemShowModel);
+        fileMenu.add(new JSeparator());
+
         itemSaveModelTxt = new JMenuItem("Save model as .txt");
         itemSaveModelTxt.setFont(myFont);
         fileMenu.add(itemSaveModelTxt);
+        itemSaveModelBaf = new JMenuItem("Save model as .baf");
+        itemSaveModelBaf.setFont(myFont);
+        fileMenu.add(itemSaveModelBaf);
         fileMenu.add(new JSeparator());
 
         itemSaveResultsTxt = new JMenuItem("Save results as .txt");
@@ -185,6 +351,12 @@ class View extends JFrame {
         itemSaveResultsCsv = new JMenuItem("Save results as .csv");
         itemSaveResultsCsv.setFont(myFont);
         fileMenu.add(itemSaveResultsCsv);
+        itemSaveResultsTsv = new JMenuItem("Save results as .tsv");
+        itemSaveResultsTsv.setFont(myFont);
+        fileMenu.add(itemSaveResultsTsv);
+        itemSaveTrueOnly = new JCheckBoxMenuItem("Only P(A=1) in .csv/.tsv");
+        itemSaveTrueOnly.setFont(myFont);
+        fileMenu.add(itemSaveTrueOnly);
         menuBar.add(fileMenu);
 
         // Factors Menu and submenus
@@ -194,6 +366,9 @@ class View extends JFrame {
         itemEditFactors = new JMenuItem("Edit factors");
         itemEditFactors.setFont(myFont);
         factorsMenu.add(itemEditFactors);
+        itemSweepFactors = new JMenuItem("Sweep factor settings");
+        itemSweepFactors.setFont(myFont);
+        factorsMenu.add(itemSweepFactors);
         factorsMenu.add(new JSeparator());
 
         setFactorsStrong = new JRadioButtonMenuItem("Set strong");
@@ -257,6 +432,17 @@ class View extends JFrame {
         JMenu infMenu = new JMenu("Inferencer");
         infMenu.setFont(myFont);
 
+        itemEditSettings = new JMenuItem("Edit settings");
+        itemEditSettings.setFont(myFont);
+        infMenu.add(itemEditSettings);
+        itemDiskCache = new JCheckBoxMenuItem("Cache results on disk");
+        itemDiskCache.setFont(myFont);
+        infMenu.add(itemDiskCache);
+        itemWhatIf = new JMenuItem("What-if evidence");
+        itemWhatIf.setFont(myFont);
+        infMenu.add(itemWhatIf);
+        infMenu.add(new JSeparator());
+
         junctionTree = new JRadioButtonMenuItem("Junction Tree", true);
         junctionTree.setFont(myFont);
         infMenu.add(junctionTree);
@@ -265,9 +451,21 @@ class View extends JFrame {
         gibbsSampler = new JRadioButtonMenuItem("Gibbs Sampler");
         gibbsSampler.setFont(myFont);
         infMenu.add(gibbsSampler);
+        infMenu.add(new JSeparator());
+
+        pairwiseTree = new JRadioButtonMenuItem("Pairwise Tree (trees only)");
+        pairwiseTree.setFont(myFont);
+        infMenu.add(pairwiseTree);
+        infMenu.add(new JSeparator());
+
+        loopyBP = new JRadioButtonMenuItem("Loopy Belief Propagation");
+        loopyBP.setFont(myFont);
+        infMenu.add(loopyBP);
         ButtonGroup inf_group = new ButtonGroup();
         inf_group.add(junctionTree);
         inf_group.add(gibbsSampler);
+        inf_group.add(pairwiseTree);
+        inf_group.add(loopyBP);
         menuBar.add(infMenu);
 
         // Help Menu and submenus
@@ -297,6 +495,25 @@ class View extends JFrame {
                 ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED,
                 ScrollPaneConstants.HORIZONTAL_SCROLLBAR_AS_NEEDED);
 
+        // Result Table, only renders the visible rows
+        resultTable = new JTable();
+        resultTable.setFont(myFont);
+        resultTable.getTableHeader().setFont(myFont);
+        resultTable.setRowHeight(resultTable.getFontMetrics(myFont).getHeight() + 4);
+        resultTable.setEnabled(false);
+        resultSummary = new JTextArea();
+        resultSummary.setFont(myFont);
+        resultSummary.setLineWrap(true);
+        resultSummary.setWrapStyleWord(true);
+        resultSummary.setEditable(false);
+        JPanel tablePanel = new JPanel(new BorderLayout());
+        tablePanel.add(new JScrollPane(resultTable), BorderLayout.CENTER);
+        tablePanel.add(resultSummary, BorderLayout.SOUTH);
+
+        resultPanel = new JPanel(new CardLayout());
+        resultPanel.add(scrollResultText, "text");
+        resultPanel.add(tablePanel, "table");
+
         // Headlines
         JLabel modelHeadline = new JLabel("Type in or upload a model here");
         modelHeadline.setFont(myFont);
@@ -307,6 +524,17 @@ class View extends JFrame {
         inferenceButton = new JButton("Inference");
         inferenceButton.setFont(myFont);
 
+        // Cancel Button, only enabled while an inference is running
+        cancelButton = new JButton("Cancel");
+        cancelButton.setFont(myFont);
+        cancelButton.setEnabled(false);
+
+        // Progress Bar
+        progressBar = new JProgressBar();
+        progressBar.setFont(myFont);
+        progressBar.setStringPainted(true);
+        progressBar.setString("");
+
         // GridBagLayout specifications
         this.setLayout(new GridBagLayout());
         GridBagConstraints c = new GridBagConstraints();
@@ -336,17 +564,26 @@ class View extends JFrame {
         this.add(scrollModelText,c);
         c.gridx = 2;
         c.anchor = GridBagConstraints.LINE_END;
-        this.add(scrollResultText,c);
+        this.add(resultPanel,c);
 
-        // - InferenceButton
+        // - ProgressBar
         c.weightx = 0;
         c.weighty = 0;
-        c.anchor = GridBagConstraints.LAST_LINE_END;
-        c.gridx = 2;
+        c.anchor = GridBagConstraints.LAST_LINE_START;
+        c.gridx = 0;
         c.gridy = 2;
         c.ipady = 10;
+        c.insets = new Insets(20,10,10,10);  //top, left, bottom, right
+        this.add(progressBar, c);
+
+        // - CancelButton, InferenceButton
+        JPanel buttonPanel = new JPanel(new GridLayout(1, 2, 10, 0));
+        buttonPanel.add(cancelButton);
+        buttonPanel.add(inferenceButton);
+        c.anchor = GridBagConstraints.LAST_LINE_END;
+        c.gridx = 2;
         c.insets = new Insets(20,130,10,20);  //top, left, bottom, right
-        this.add(inferenceButton, c);
+        this.add(buttonPanel, c);
 
         this.setJMenuBar(menuBar);
         this.setVisible(true);
@@ -370,8 +607,8 @@ class View extends JFrame {
                           "+------------+\n" +
                           "| How to use |\n" +
                           "+------------+\n\n" +
-                          "(1) Type in or upload a .txt file with a model of the following\n" +
-                          "    form:\n" +
+                          "(1) Type in or upload a .txt file (or a binary .baf file) with a\n" +
+                          "    model of the following form:\n" +
                           "    Specify the unique arguments:\n" +
                           "        args{Ai,...,An}\n" +
                           "        ...\n" +
@@ -380,9 +617,16 @@ class View extends JFrame {
                           "        attack(Ai,Aj)\n" +
                           "        support(Ai,Aj)\n" +
                           "        ...\n" +
+                          "    A relation may have its own factor values, overriding those\n" +
+                          "    of its type:\n" +
+                          "        attack(Ai,Aj)[1.0,1.0,1.5,0.5]\n" +
+                          "    An argument may be clamped to a known value as evidence:\n" +
+                          "        evidence(Ai,1)\n" +
                           "    Line comments are allowed and must start with the comment\n" +
                           "     delimiter '#':\n" +
-                          "       # This is a comment line.\n\n" +
+                          "       # This is a comment line.\n" +
+                          "    Large model files are not displayed after loading, choose\n" +
+                          "    'File' -> 'Show loaded model' to display and edit them.\n\n" +
 
                           "(2) Edit the default factor values for the attack and support\n" +
                           "    relations by choosing one of the semantics listed under\n" +
@@ -394,18 +638,43 @@ class View extends JFrame {
                           "        or supports an already believed argument.\n" +
                           "        'Punishment' refers to the decrease in probability if a\n" +
                           "        strongly believed argument attacks a strongly believed\n" +
-                          "        argument or supports an less believed argument.\n\n" +
+                          "        argument or supports an less believed argument.\n" +
+                          "    To compare semantics, 'Factors' -> 'Sweep factor settings'\n" +
+                          "    infers the model under several presets, or under a grid of\n" +
+                          "    factor values such as 'att10=1,1.5,2;sup01=0:1:0.5', at once\n" +
+                          "    and shows P(A=1) with one column per setting.\n\n" +
 
                           "(3) Choose between a JunctionTree inferencer (exact inference)\n" +
                           "    for sparse models or a GibbsSampler (approximate inference)\n" +
-                          "    for dense models.\n\n" +
+                          "    for dense models. The GibbsSampler runs several chains in\n" +
+                          "    parallel and stops once the estimates are precise enough;\n" +
+                          "    its convergence diagnostics are shown below the results.\n" +
+                          "    The PairwiseTree inferencer does exact\n" +
+                          "    inference in linear time, but only for models without\n" +
+                          "    cycles, e.g. polytrees. Loopy Belief Propagation (approximate\n" +
+                          "    inference) is fast on dense models. The settings of the\n" +
+                          "    GibbsSampler and Loopy BP can be changed under\n" +
+                          "    'Inferencer' -> 'Edit settings'. Results of models inferred\n" +
+                          "    before are taken from a cache, with 'Inferencer' -> 'Cache\n" +
+                          "    results on disk' also after a restart. The JunctionTree\n" +
+                          "    keeps the triangulated structure of a model, so after\n" +
+                          "    changing only the factors it isn't triangulated again.\n" +
+                          "    After an inference, 'Inferencer' -> 'What-if evidence'\n" +
+                          "    clamps single arguments to 1 or 0 and updates the results\n" +
+                          "    without parsing the model again; only the components of\n" +
+                          "    the clamped arguments are inferred again, the JunctionTree\n" +
+                          "    just passes the evidence on through its calibrated tables.\n" +
+                          "    The evidence is kept until the model is parsed again.\n\n" +
 
                           "(4) Press the inference button to output the probabilities for\n" +
                           "    each argument either being true (outcome = 1) or false\n" +
-                          "    (outcome = 0).\n\n" +
+                          "    (outcome = 0). A running inference can be stopped with the\n" +
+                          "    cancel button.\n\n" +
 
-                          "(5) Save your typed in model as a .txt file or save your inference\n" +
-                          "    results either as a .txt or a .csv file.";
+                          "(5) Save your typed in model as a .txt file or as a compact binary\n" +
+                          "    .baf file for very large models or save your inference\n" +
+                          "    results either as a .txt, a .csv or a .tsv file; the .csv and\n" +
+                          "    .tsv files may contain only P(A=1) of each argument.";
 
         JTextArea helpTextArea = new JTextArea(helpText);
         helpTextArea.setFont(myFont);
@@ -562,6 +831,262 @@ class View extends JFrame {
         return editFactorsFrame;
     }
 
+    /**
+     * Displays the popup window for choosing the settings
+     * of a factor sweep: presets and a grid over the factor values
+     *
+     * @return the popup window to be made visible
+     */
+    JFrame initSweep(){
+
+        // Frame + Layout
+        sweepFrame = new JFrame("Sweep Factor Settings");
+        sweepFrame.setResizable(false);
+        sweepFrame.setLocation(this.getX()+getWidth()/3, this.getY()+getHeight()/4);
+        sweepFrame.setSize(650,560);
+        sweepFrame.setLayout(new GridBagLayout());
+        GridBagConstraints c = new GridBagConstraints();
+        c.fill = GridBagConstraints.BOTH;
+        c.ipadx = 20;
+        c.ipady = 5;
+        c.gridx = 0;
+        c.gridwidth = 2;
+
+        // Labels
+        JLabel presetsLabel = new JLabel("Presets");
+        presetsLabel.setFont(myFont);
+        JLabel gridLabel = new JLabel("Grid, e.g. att10=1,1.5,2;sup01=0:1:0.5");
+        gridLabel.setFont(myFont);
+
+        // One CheckBox per preset, all selected
+        sweepPresets = new JCheckBox[FactorSetting.PRESETS.size()];
+        for(int k = 0; k < sweepPresets.length; k++){
+            sweepPresets[k] = new JCheckBox(FactorSetting.PRESETS.get(k).getName(), true);
+            sweepPresets[k].setFont(myFont);
+        }
+        sweepGrid = new JTextField();
+        sweepGrid.setFont(myFont);
+
+        // Run Button
+        sweepRunButton = new JButton("Run sweep");
+
+        // GridBagLayout specifications
+        c.gridy = 0;
+        sweepFrame.add(presetsLabel,c);
+        c.gridwidth = 1;
+        for(int k = 0; k < sweepPresets.length; k++){
+            c.gridx = k % 2;
+            c.gridy = 1 + k / 2;
+            sweepFrame.add(sweepPresets[k],c);
+        }
+
+        c.gridx = 0;
+        c.gridy = 1 + (sweepPresets.length + 1) / 2;
+        c.gridwidth = 2;
+        c.insets = (new Insets(20,0,0,0));
+        sweepFrame.add(gridLabel,c);
+        c.gridy++;
+        c.insets = (new Insets(0,0,0,0));
+        sweepFrame.add(sweepGrid,c);
+
+        c.gridy++;
+        c.gridx = 1;
+        c.gridwidth = 1;
+        c.ipady = 10;
+        c.insets = (new Insets(20,0,0,0));
+        sweepFrame.add(sweepRunButton, c);
+
+        return sweepFrame;
+    }
+
+    /**
+     * Displays the popup window for setting the evidence of
+     * single arguments of the inferred model
+     *
+     * @return the popup window to be made visible
+     */
+    JFrame initEvidence(){
+
+        // Frame + Layout
+        evidenceFrame = new JFrame("What-if Evidence");
+        evidenceFrame.setResizable(false);
+        evidenceFrame.setLocation(this.getX()+getWidth()/3, this.getY()+getHeight()/3);
+        evidenceFrame.setSize(500,300);
+        evidenceFrame.setLayout(new GridBagLayout());
+        GridBagConstraints c = new GridBagConstraints();
+        c.fill = GridBagConstraints.BOTH;
+        c.ipadx = 20;
+        c.ipady = 5;
+
+        // Labels
+        JLabel argumentLabel = new JLabel("Argument");
+        argumentLabel.setFont(myFont);
+        evidenceArgument = new JTextField();
+        evidenceArgument.setFont(myFont);
+
+        // One RadioButton per value
+        evidenceTrue = new JRadioButton("1", true);
+        evidenceTrue.setFont(myFont);
+        evidenceFalse = new JRadioButton("0");
+        evidenceFalse.setFont(myFont);
+        evidenceNone = new JRadioButton("none");
+        evidenceNone.setFont(myFont);
+        ButtonGroup valueGroup = new ButtonGroup();
+        valueGroup.add(evidenceTrue);
+        valueGroup.add(evidenceFalse);
+        valueGroup.add(evidenceNone);
+
+        // Buttons
+        evidenceApplyButton = new JButton("Apply");
+        evidenceClearButton = new JButton("Clear all");
+
+        // GridBagLayout specifications
+        c.gridx = 0;
+        c.gridy = 0;
+        evidenceFrame.add(argumentLabel,c);
+        c.gridx = 1;
+        c.gridwidth = 2;
+        evidenceFrame.add(evidenceArgument,c);
+
+        c.gridy = 1;
+        c.gridwidth = 1;
+        c.gridx = 0;
+        evidenceFrame.add(evidenceTrue,c);
+        c.gridx = 1;
+        evidenceFrame.add(evidenceFalse,c);
+        c.gridx = 2;
+        evidenceFrame.add(evidenceNone,c);
+
+        c.gridy = 2;
+        c.ipady = 10;
+        c.insets = (new Insets(20,0,0,0));
+        c.gridx = 0;
+        evidenceFrame.add(evidenceClearButton, c);
+        c.gridx = 2;
+        evidenceFrame.add(evidenceApplyButton, c);
+
+        return evidenceFrame;
+    }
+
+    /**
+     * Displays the popup window for editing the inferencer
+     * settings.
+     *
+     * @param settings current inferencer settings
+     * @return the popup window to be made visible
+     */
+    JFrame initEditSettings(InferenceSettings settings){
+
+        // Frame + Layout
+        editSettingsFrame = new JFrame("Inferencer Settings");
+        editSettingsFrame.setResizable(false);
+        editSettingsFrame.setLocation(this.getX()+getWidth()/3, this.getY()+getHeight()/3);
+        editSettingsFrame.setSize(550,560);
+        editSettingsFrame.setLayout(new GridBagLayout());
+        GridBagConstraints c = new GridBagConstraints();
+        c.fill = GridBagConstraints.BOTH;
+        c.ipadx = 30;
+        c.ipady = 20;
+
+        // Labels
+        JLabel dampingLabel = new JLabel("Loopy BP damping");
+        dampingLabel.setFont(myFont);
+        JLabel toleranceLabel = new JLabel("Loopy BP tolerance");
+        toleranceLabel.setFont(myFont);
+        JLabel maxIterationsLabel = new JLabel("Loopy BP max. iterations");
+        maxIterationsLabel.setFont(myFont);
+        JLabel burnInLabel = new JLabel("Gibbs burn-in");
+        burnInLabel.setFont(myFont);
+        JLabel samplesLabel = new JLabel("Gibbs max. samples");
+        samplesLabel.setFont(myFont);
+        JLabel chainsLabel = new JLabel("Gibbs chains");
+        chainsLabel.setFont(myFont);
+        JLabel precisionLabel = new JLabel("Gibbs precision");
+        precisionLabel.setFont(myFont);
+        JLabel seedLabel = new JLabel("Gibbs seed");
+        seedLabel.setFont(myFont);
+
+        // TextFields from which inputs are extracted
+        // Initialize with current settings
+        damping = new JTextField(Double.toString(settings.getDamping()));
+        damping.setFont(myFont);
+        tolerance = new JTextField(Double.toString(settings.getTolerance()));
+        tolerance.setFont(myFont);
+        maxIterations = new JTextField(Integer.toString(settings.getMaxIterations()));
+        maxIterations.setFont(myFont);
+        burnIn = new JTextField(Integer.toString(settings.getBurnIn()));
+        burnIn.setFont(myFont);
+        samples = new JTextField(Integer.toString(settings.getSamples()));
+        samples.setFont(myFont);
+        chains = new JTextField(Integer.toString(settings.getChains()));
+        chains.setFont(myFont);
+        precision = new JTextField(Double.toString(settings.getPrecision()));
+        precision.setFont(myFont);
+        seed = new JTextField(Long.toString(settings.getSeed()));
+        seed.setFont(myFont);
+
+        // Save Button
+        editSettingsSaveButton = new JButton("Save changes");
+
+        // GridBagLayout specifications
+        c.gridx = 0;
+        c.gridy = 0;
+        editSettingsFrame.add(dampingLabel,c);
+        c.gridx = 1;
+        editSettingsFrame.add(damping,c);
+
+        c.gridx = 0;
+        c.gridy = 1;
+        editSettingsFrame.add(toleranceLabel,c);
+        c.gridx = 1;
+        editSettingsFrame.add(tolerance,c);
+
+        c.gridx = 0;
+        c.gridy = 2;
+        editSettingsFrame.add(maxIterationsLabel,c);
+        c.gridx = 1;
+        editSettingsFrame.add(maxIterations,c);
+
+        c.gridx = 0;
+        c.gridy = 3;
+        editSettingsFrame.add(burnInLabel,c);
+        c.gridx = 1;
+        editSettingsFrame.add(burnIn,c);
+
+        c.gridx = 0;
+        c.gridy = 4;
+        editSettingsFrame.add(samplesLabel,c);
+        c.gridx = 1;
+        editSettingsFrame.add(samples,c);
+
+        c.gridx = 0;
+        c.gridy = 5;
+        editSettingsFrame.add(chainsLabel,c);
+        c.gridx = 1;
+        editSettingsFrame.add(chains,c);
+
+        c.gridx = 0;
+        c.gridy = 6;
+        editSettingsFrame.add(precisionLabel,c);
+        c.gridx = 1;
+        editSettingsFrame.add(precision,c);
+
+        c.gridx = 0;
+        c.gridy = 7;
+        editSettingsFrame.add(seedLabel,c);
+        c.gridx = 1;
+        editSettingsFrame.add(seed,c);
+
+        c.gridy = 8;
+        c.gridx = 1;
+        c.ipady = 10;
+        c.ipadx = 10;
+        c.insets = (new Insets(20,0,0,0));
+        editSettingsFrame.add(editSettingsSaveButton, c);
+
+        return editSettingsFrame;
+    }
+
     /**
      * Clears the text in JTextArea modelText
      */
@@ -599,6 +1124,90 @@ class View extends JFrame {
      */
     void setResultText(String text){
         resultText.setText(text);
+        result = null;
+        sweepResult = null;
+        resultTable.setModel(new DefaultTableModel());
+        ((CardLayout) resultPanel.getLayout()).show(resultPanel, "text");
+    }
+
+    /**
+     * Displays an inference result in the result table
+     *
+     * @param result the inference result
+     */
+    void setResult(InferenceResult result){
+        this.result = result;
+        sweepResult = null;
+        resultTable.setModel(new ResultTableModel(result));
+        resultSummary.setText(result.getSummary().trim());
+        ((CardLayout) resultPanel.getLayout()).show(resultPanel, "table");
+    }
+
+    /**
+     * Displays a sweep result in the result table
+     *
+     * @param result the sweep result
+     */
+    void setSweepResult(SweepResult result){
+        this.result = null;
+        sweepResult = result;
+        resultTable.setModel(new SweepTableModel(result));
+        resultSummary.setText(result.getSummary().trim());
+        ((CardLayout) resultPanel.getLayout()).show(resultPanel, "table");
+    }
+
+    /**
+     * Returns the displayed sweep result
+     *
+     * @return the sweep result, null if none is displayed
+     */
+    SweepResult getSweepResult(){
+        return sweepResult;
+    }
+
+    /**
+     * Returns the menu items of the presets
+     *
+     * @return the menu items, in the order of FactorSetting.PRESETS
+     */
+    JRadioButtonMenuItem[] getPresetItems(){
+        return new JRadioButtonMenuItem[] {setFactorsStrong, setFactorsTol, setFactorsReq, setFactorsStrict,
+                setFactorsWeak, setFactorsPars, setFactorsPenal, setFactorsPerm};
+    }
+
+    /**
+     * Returns the displayed inference result
+     *
+     * @return the result, null if a text is displayed instead
+     */
+    InferenceResult getResult(){
+        return result;
+    }
+
+    /**
+     * Switches the view between a running and an idle
+     * inference; only one inference can run at a time
+     *
+     * @param running true if an inference has been started,
+     *          false if it finished or was cancelled
+     */
+    void setInferenceRunning(boolean running){
+        inferenceButton.setEnabled(!running);
+        cancelButton.setEnabled(running);
+        progressBar.setIndeterminate(running);
+        if(!running){
+            progressBar.setString("");
+        }
+    }
+
+    /**
+     * Sets the text shown in the progress bar, i.e. the
+     * current phase of a running inference
+     *
+     * @param text Text to be shown in the progress bar
+     */
+    void setProgressText(String text){
+        progressBar.setString(text);
     }
 
     /**
@@ -0,0 +1,706 @@
+package modelFormat;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A Bipolar Argumentation Framework as primitive arrays, in
+ * the compact binary model format shared by the BAF-Inferencer
+ * and the ModelGenerator: an interned label table, the attack
+ * and support relations as packed int arrays of argument
+ * indices, optional factor values overriding the attack or
+ * support factor values of single relations and optional
+ * evidence clamping arguments to 0 or 1.
+ *
+ * The text format can be converted into this format and back
+ * without loss: the same arguments, relations, factor
+ * overrides and evidence; only comments and the interleaving
+ * of attack, support and evidence lines are not kept.
+ *
+ * Layout (big-endian):
+ *
+ *    0  int     magic "BAFM"
+ *    4  int     format version
+ *    8  int     number of arguments n
+ *   12  int     number of attack relations a
+ *   16  int     number of support relations s
+ *   20  int     number of factor overrides k
+ *   24  int     number of label bytes
+ *   28  int     number of evidence arguments e (0 in version 1)
+ *   32  int[n+1]   label offsets into the label bytes
+ *       byte[]     label bytes, UTF-8, padded to 4 bytes
+ *       int[a]     first arguments of the attacks
+ *       int[a]     second arguments of the attacks
+ *       int[s]     first arguments of the supports
+ *       int[s]     second arguments of the supports
+ *       int[k]     relations with overridden factor values,
+ *                  attacks first, then supports
+ *       int[e]     evidence, 2 * argument + value each
+ *       double[4k] the factor values of these relations,
+ *                  padded to 8 bytes before
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+public class BinaryModel {
+
+    /**
+     * File extension of binary model files
+     */
+    public static final String EXTENSION = "baf";
+    /**
+     * First int of every binary model file, "BAFM"
+     */
+    private static final int MAGIC = 0x4241464D;
+    /**
+     * Version of the format
+     */
+    private static final int VERSION = 2;
+    /**
+     * Version of the format before evidence was added, still read
+     */
+    private static final int VERSION_WITHOUT_EVIDENCE = 1;
+    /**
+     * Size of the header in bytes
+     */
+    private static final int HEADER_SIZE = 32;
+    /**
+     * Buffer size used when reading and writing model files
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The argument labels
+     */
+    private final String[] labels;
+    /**
+     * First argument of each attack relation
+     */
+    private final int[] attackFrom;
+    /**
+     * Second argument of each attack relation
+     */
+    private final int[] attackTo;
+    /**
+     * First argument of each support relation
+     */
+    private final int[] supportFrom;
+    /**
+     * Second argument of each support relation
+     */
+    private final int[] supportTo;
+    /**
+     * Relations with overridden factor values, attacks
+     * numbered first, then supports
+     */
+    private final int[] overrides;
+    /**
+     * The factor values of the overridden relations, 4 each
+     */
+    private final double[] overrideFactors;
+    /**
+     * The evidence, 2 * argument + value each
+     */
+    private final int[] evidence;
+
+    /**
+     * Constructor
+     *
+     * @param labels the argument labels
+     * @param attackFrom first argument of each attack relation
+     * @param attackTo second argument of each attack relation
+     * @param supportFrom first argument of each support relation
+     * @param supportTo second argument of each support relation
+     * @param overrides relations with overridden factor values,
+     *          attacks numbered first, then supports
+     * @param overrideFactors the factor values of these relations, 4 each
+     */
+    public BinaryModel(String[] labels, int[] attackFrom, int[] attackTo, int[] supportFrom, int[] supportTo,
+                       int[] overrides, double[] overrideFactors){
+        this(labels, attackFrom, attackTo, supportFrom, supportTo, overrides, overrideFactors, new int[0]);
+    }
+
+    /**
+     * Constructor of a model with evidence
+     *
+     * @param labels the argument labels
+     * @param attackFrom first argument of each attack relation
+     * @param attackTo second argument of each attack relation
+     * @param supportFrom first argument of each support relation
+     * @param supportTo second argument of each support relation
+     * @param overrides relations with overridden factor values,
+     *          attacks numbered first, then supports
+     * @param overrideFactors the factor values of these relations, 4 each
+     * @param evidence the evidence, 2 * argument + value each
+     */
+    public BinaryModel(String[] labels, int[] attackFrom, int[] attackTo, int[] supportFrom, int[] supportTo,
+                       int[] overrides, double[] overrideFactors, int[] evidence){
+        this.labels = labels;
+        this.attackFrom = attackFrom;
+        this.attackTo = attackTo;
+        this.supportFrom = supportFrom;
+        this.supportTo = supportTo;
+        this.overrides = overrides;
+        this.overrideFactors = overrideFactors;
+        this.evidence = evidence;
+    }
+
+    /**
+     * Returns the number of arguments
+     *
+     * @return the number of arguments
+     */
+    public int numArguments(){ return labels.length; }
+
+    /**
+     * Returns the label of an argument
+     *
+     * @param i index of the argument
+     * @return the label
+     */
+    public String label(int i){ return labels[i]; }
+
+    /**
+     * Returns the number of attack relations
+     *
+     * @return the number of attacks
+     */
+    public int numAttacks(){ return attackFrom.length; }
+
+    /**
+     * Returns the first argument of an attack relation
+     *
+     * @param r index of the attack
+     * @return index of the first argument (Ai)
+     */
+    public int attackFrom(int r){ return attackFrom[r]; }
+
+    /**
+     * Returns the second argument of an attack relation
+     *
+     * @param r index of the attack
+     * @return index of the second argument (Aj)
+     */
+    public int attackTo(int r){ return attackTo[r]; }
+
+    /**
+     * Returns the number of support relations
+     *
+     * @return the number of supports
+     */
+    public int numSupports(){ return supportFrom.length; }
+
+    /**
+     * Returns the first argument of a support relation
+     *
+     * @param r index of the support
+     * @return index of the first argument (Ai)
+     */
+    public int supportFrom(int r){ return supportFrom[r]; }
+
+    /**
+     * Returns the second argument of a support relation
+     *
+     * @param r index of the support
+     * @return index of the second argument (Aj)
+     */
+    public int supportTo(int r){ return supportTo[r]; }
+
+    /**
+     * Returns the number of relations with overridden factor values
+     *
+     * @return the number of overrides
+     */
+    public int numOverrides(){ return overrides.length; }
+
+    /**
+     * Returns a relation with overridden factor values
+     *
+     * @param k index of the override
+     * @return the relation, attacks numbered first, then supports
+     */
+    public int overrideRelation(int k){ return overrides[k]; }
+
+    /**
+     * Returns the overridden factor values of a relation
+     *
+     * @param k index of the override
+     * @return the 4 factor values
+     */
+    public double[] overrideFactor(int k){ return Arrays.copyOfRange(overrideFactors, 4 * k, 4 * k + 4); }
+
+    /**
+     * Returns the number of arguments with evidence
+     *
+     * @return the number of evidence arguments
+     */
+    public int numEvidence(){ return evidence.length; }
+
+    /**
+     * Returns an argument with evidence
+     *
+     * @param k index of the evidence
+     * @return index of the argument
+     */
+    public int evidenceArgument(int k){ return evidence[k] >> 1; }
+
+    /**
+     * Returns the value an argument is clamped to
+     *
+     * @param k index of the evidence
+     * @return 0 or 1
+     */
+    public int evidenceValue(int k){ return evidence[k] & 1; }
+
+    /**
+     * Checks whether a file is a binary model file
+     *
+     * @param file the file
+     * @return true if the file starts with the magic number
+     */
+    public static boolean isBinaryModel(File file){
+        try(DataInputStream in = new DataInputStream(new FileInputStream(file))){
+            return in.readInt() == MAGIC;
+        } catch(IOException e){
+            return false;
+        }
+    }
+
+    /**
+     * Reads a binary model file. The file is mapped into memory
+     * and its arrays are copied in bulk.
+     *
+     * @param file the binary model file
+     * @return the model
+     * @throws IOException if the file can't be read or is corrupt
+     */
+    public static BinaryModel read(File file) throws IOException {
+        MappedByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            if(channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE){
+                throw new IOException("Not a binary model file: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if(buffer.getInt(0) != MAGIC){
+            throw new IOException("Not a binary model file: " + file);
+        }
+        int version = buffer.getInt(4);
+        if(version != VERSION && version != VERSION_WITHOUT_EVIDENCE){
+            throw new IOException("Unsupported binary model version " + buffer.getInt(4) + ": " + file);
+        }
+        int n = buffer.getInt(8);
+        int a = buffer.getInt(12);
+        int s = buffer.getInt(16);
+        int k = buffer.getInt(20);
+        int labelBytes = buffer.getInt(24);
+        int numEvidence = version == VERSION ? buffer.getInt(28) : 0;
+        if(n < 0 || a < 0 || s < 0 || k < 0 || labelBytes < 0 || numEvidence < 0
+                || size(n, a, s, k, numEvidence, labelBytes) != buffer.capacity()){
+            throw new IOException("Corrupt binary model file: " + file);
+        }
+
+        try{
+            buffer.position(HEADER_SIZE);
+            int[] offsets = new int[n + 1];
+            buffer.asIntBuffer().get(offsets);
+            buffer.position(HEADER_SIZE + 4 * (n + 1));
+            byte[] bytes = new byte[labelBytes];
+            buffer.get(bytes);
+            String[] labels = new String[n];
+            for(int i = 0; i < n; i++){
+                labels[i] = new String(bytes, offsets[i], offsets[i+1] - offsets[i], StandardCharsets.UTF_8);
+            }
+
+            buffer.position(align(buffer.position(), 4));
+            int[] attackFrom = readInts(buffer, a, n, file);
+            int[] attackTo = readInts(buffer, a, n, file);
+            int[] supportFrom = readInts(buffer, s, n, file);
+            int[] supportTo = readInts(buffer, s, n, file);
+            int[] overrides = readInts(buffer, k, a + s, file);
+            int[] evidence = readInts(buffer, numEvidence, 2 * n, file);
+            buffer.position(align(buffer.position(), 8));
+            double[] factors = new double[4 * k];
+            buffer.asDoubleBuffer().get(factors);
+            for(double value : factors){
+                checkFactorValue(value);
+            }
+            return new BinaryModel(labels, attackFrom, attackTo, supportFrom, supportTo, overrides, factors, evidence);
+        } catch(IndexOutOfBoundsException | IllegalArgumentException e){
+            throw new IOException("Corrupt binary model file: " + file);
+        }
+    }
+
+    /**
+     * Reads an int array of indices from a buffer
+     *
+     * @param buffer the buffer, positioned at the array
+     * @param length length of the array
+     * @param bound all indices must be below this bound
+     * @param file the file, for error messages
+     * @return the array
+     * @throws IOException if an index is out of range
+     */
+    private static int[] readInts(ByteBuffer buffer, int length, int bound, File file) throws IOException {
+        int[] values = new int[length];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * length);
+        for(int value : values){
+            if(value < 0 || value >= bound){
+                throw new IOException("Corrupt binary model file: " + file);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Writes the model to a binary model file
+     *
+     * @param file the file to write
+     * @throws IOException if writing fails
+     */
+    public void write(File file) throws IOException {
+        byte[][] bytes = new byte[labels.length][];
+        long labelBytes = 0;
+        for(int i = 0; i < labels.length; i++){
+            bytes[i] = labels[i].getBytes(StandardCharsets.UTF_8);
+            labelBytes += bytes[i].length;
+        }
+        int k = overrides.length;
+        if(labelBytes > Integer.MAX_VALUE
+                || size(labels.length, attackFrom.length, supportFrom.length, k, evidence.length, labelBytes) > Integer.MAX_VALUE){
+            throw new IOException("Model too large for the binary model format!");
+        }
+
+        try(DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE))){
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(labels.length);
+            out.writeInt(attackFrom.length);
+            out.writeInt(supportFrom.length);
+            out.writeInt(k);
+            out.writeInt((int) labelBytes);
+            out.writeInt(evidence.length);
+
+            int offset = 0;
+            out.writeInt(offset);
+            for(byte[] label : bytes){
+                offset += label.length;
+                out.writeInt(offset);
+            }
+            for(byte[] label : bytes){
+                out.write(label);
+            }
+            pad(out, 4);
+            writeInts(out, attackFrom);
+            writeInts(out, attackTo);
+            writeInts(out, supportFrom);
+            writeInts(out, supportTo);
+            writeInts(out, overrides);
+            writeInts(out, evidence);
+            pad(out, 8);
+            for(double value : overrideFactors){
+                out.writeDouble(value);
+            }
+        }
+    }
+
+    /**
+     * Writes an int array
+     *
+     * @param out the output stream
+     * @param values the values
+     * @throws IOException if writing fails
+     */
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for(int value : values){
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Writes zero bytes up to the next multiple of an alignment
+     *
+     * @param out the output stream
+     * @param alignment the alignment
+     * @throws IOException if writing fails
+     */
+    private static void pad(DataOutputStream out, int alignment) throws IOException {
+        while(out.size() % alignment != 0){
+            out.writeByte(0);
+        }
+    }
+
+    /**
+     * Rounds a position up to a multiple of an alignment
+     *
+     * @param position the position
+     * @param alignment the alignment, a power of 2
+     * @return the aligned position
+     */
+    private static long align(long position, int alignment){
+        return (position + alignment - 1) & -alignment;
+    }
+
+    /**
+     * Rounds a position up to a multiple of an alignment
+     *
+     * @param position the position
+     * @param alignment the alignment, a power of 2
+     * @return the aligned position
+     */
+    private static int align(int position, int alignment){
+        return (int) align((long) position, alignment);
+    }
+
+    /**
+     * Computes the size of a binary model file
+     *
+     * @param n number of arguments
+     * @param a number of attack relations
+     * @param s number of support relations
+     * @param k number of factor overrides
+     * @param e number of evidence arguments
+     * @param labelBytes number of label bytes
+     * @return the file size in bytes
+     */
+    private static long size(long n, long a, long s, long k, long e, long labelBytes){
+        long size = align(HEADER_SIZE + 4 * (n + 1) + labelBytes, 4);
+        size += 4 * (2 * a + 2 * s + k + e);
+        return align(size, 8) + 32 * k;
+    }
+
+    /**
+     * Checks a factor value, factor values must be finite and
+     * non-negative; 0 rules an assignment out, as in the strong,
+     * strict and penal presets
+     *
+     * @param value the factor value
+     * @throws IllegalArgumentException if the value is negative or not finite
+     */
+    private static void checkFactorValue(double value){
+        if(!(value >= 0) || Double.isInfinite(value)){
+            throw new IllegalArgumentException("Factor values must be non-negative numbers!");
+        }
+    }
+
+    /**
+     * Parses a model in the text format with the TextModelParser
+     *
+     * @param reader reader providing the model lines
+     * @return the model
+     * @throws Exception error message when a parsing error occurs
+     *          or IOException if reading fails
+     */
+    public static BinaryModel readText(BufferedReader reader) throws Exception {
+        TextTarget target = new TextTarget();
+        TextModelParser.parse(reader, target);
+        return target.toBinaryModel();
+    }
+
+    /**
+     * Collects a parsed text model into the arrays of a binary model
+     */
+    private static class TextTarget implements TextModelParser.Target {
+        /**
+         * Index of every label
+         */
+        private final Map<String, Integer> index = new HashMap<>();
+        /**
+         * The argument labels
+         */
+        private final List<String> labels = new ArrayList<>();
+        /**
+         * First and second argument of each attack (0) and
+         * support (1), as from0,to0,from1,to1,...
+         */
+        private final int[][] relations = {new int[16], new int[16]};
+        /**
+         * The number of attacks (0) and supports (1)
+         */
+        private final int[] counts = new int[2];
+        /**
+         * Attacks (0) and supports (1) with own factor values,
+         * numbered within their type
+         */
+        private final List<List<Integer>> overrides = Arrays.asList(new ArrayList<>(), new ArrayList<>());
+        /**
+         * The factor values of these relations
+         */
+        private final List<List<double[]>> factors = Arrays.asList(new ArrayList<>(), new ArrayList<>());
+        /**
+         * The evidence, by argument
+         */
+        private final Map<Integer, Integer> evidence = new LinkedHashMap<>();
+
+        @Override
+        public int addArgument(String label){
+            if(index.putIfAbsent(label, labels.size()) != null){
+                return -1;
+            }
+            labels.add(label);
+            return labels.size() - 1;
+        }
+
+        @Override
+        public int indexOf(String label){
+            Integer i = index.get(label);
+            return i == null ? -1 : i;
+        }
+
+        @Override
+        public void addRelation(boolean attack, int x, int y, double[] factor){
+            int type = attack ? 0 : 1;
+            int[] pairs = relations[type];
+            int k = 2 * counts[type];
+            if(k == pairs.length){
+                pairs = relations[type] = Arrays.copyOf(pairs, 2 * pairs.length);
+            }
+            pairs[k] = x;
+            pairs[k + 1] = y;
+            if(factor != null){
+                overrides.get(type).add(counts[type]);
+                factors.get(type).add(factor);
+            }
+            counts[type]++;
+        }
+
+        @Override
+        public void setEvidence(int i, int value){
+            evidence.put(i, value);
+        }
+
+        /**
+         * Returns the collected model
+         *
+         * @return the model
+         */
+        BinaryModel toBinaryModel(){
+            int[][] columns = new int[4][];
+            for(int type = 0; type < 2; type++){
+                columns[2 * type] = new int[counts[type]];
+                columns[2 * type + 1] = new int[counts[type]];
+                for(int r = 0; r < counts[type]; r++){
+                    columns[2 * type][r] = relations[type][2 * r];
+                    columns[2 * type + 1][r] = relations[type][2 * r + 1];
+                }
+            }
+
+            // Attacks numbered first, then supports
+            int k = overrides.get(0).size() + overrides.get(1).size();
+            int[] overrideArray = new int[k];
+            double[] factorArray = new double[4 * k];
+            k = 0;
+            for(int type = 0; type < 2; type++){
+                for(int o = 0; o < overrides.get(type).size(); o++){
+                    overrideArray[k] = (type == 0 ? 0 : counts[0]) + overrides.get(type).get(o);
+                    System.arraycopy(factors.get(type).get(o), 0, factorArray, 4 * k++, 4);
+                }
+            }
+
+            int[] evidenceArray = new int[evidence.size()];
+            int e = 0;
+            for(Map.Entry<Integer, Integer> entry : evidence.entrySet()){
+                evidenceArray[e++] = 2 * entry.getKey() + entry.getValue();
+            }
+            return new BinaryModel(labels.toArray(new String[0]), columns[0], columns[1], columns[2], columns[3],
+                    overrideArray, factorArray, evidenceArray);
+        }
+    }
+
+    /**
+     * Parses the 4 factor values of a relation, e.g. "1.0,1.0,1.5,0.5"
+     *
+     * @param values the comma separated factor values
+     * @return the factor values
+     * @throws IllegalArgumentException if there are not exactly 4
+     *          non-negative factor values
+     */
+    public static double[] parseFactor(String values){
+        String[] parts = values.split(",");
+        if(parts.length != 4){
+            throw new IllegalArgumentException("Factor values of a relation need to be of the form [w00,w01,w10,w11]!");
+        }
+        double[] factor = new double[4];
+        for(int k = 0; k < 4; k++){
+            try{
+                factor[k] = Double.parseDouble(parts[k]);
+            } catch(NumberFormatException e){
+                throw new IllegalArgumentException("Factor values must be non-negative numbers!");
+            }
+            checkFactorValue(factor[k]);
+        }
+        return factor;
+    }
+
+    /**
+     * Writes the model in the text format: the arguments in one
+     * args line, then the attacks, the supports and the evidence
+     *
+     * @param out where the model is written to
+     * @throws IOException if writing fails
+     */
+    public void writeText(Writer out) throws IOException {
+        // Factor values of the overridden relations, by relation
+        Map<Integer, Integer> factorOf = new HashMap<>();
+        for(int k = 0; k < overrides.length; k++){
+            factorOf.put(overrides[k], k);
+        }
+
+        out.write("args{");
+        for(int i = 0; i < labels.length; i++){
+            if(i > 0){
+                out.write(',');
+            }
+            out.write(labels[i]);
+        }
+        out.write("}\n");
+        for(int r = 0; r < attackFrom.length; r++){
+            writeRelation(out, "attack(", attackFrom[r], attackTo[r], factorOf.get(r));
+        }
+        for(int r = 0; r < supportFrom.length; r++){
+            writeRelation(out, "support(", supportFrom[r], supportTo[r], factorOf.get(attackFrom.length + r));
+        }
+        for(int k = 0; k < evidence.length; k++){
+            out.write("evidence(");
+            out.write(labels[evidenceArgument(k)]);
+            out.write(',');
+            out.write(Integer.toString(evidenceValue(k)));
+            out.write(")\n");
+        }
+    }
+
+    /**
+     * Writes one relation line in the text format
+     *
+     * @param out where the line is written to
+     * @param relation "attack(" or "support("
+     * @param x index of the first argument
+     * @param y index of the second argument
+     * @param override index of the factor override, null if none
+     * @throws IOException if writing fails
+     */
+    private void writeRelation(Writer out, String relation, int x, int y, Integer override) throws IOException {
+        out.write(relation);
+        out.write(labels[x]);
+        out.write(',');
+        out.write(labels[y]);
+        out.write(')');
+        if(override != null){
+            out.write('[');
+            for(int k = 0; k < 4; k++){
+                if(k > 0){
+                    out.write(',');
+                }
+                out.write(Double.toString(overrideFactors[4 * override + k]));
+            }
+            out.write(']');
+        }
+        out.write('\n');
+    }
+}
@@ -0,0 +1,59 @@
+package modelFormat;
+
+import java.io.*;
+
+/**
+ * Converts model files between the text format and the binary
+ * model format, in either direction: a binary input file is
+ * written as text, a text input file as binary.
+ *
+ * usage: ModelConverter <input> <output>
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+public class ModelConverter {
+
+    /**
+     * Buffer size used when reading and writing text models
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Returns a usage message to be printed to the command line
+     *
+     * @return String usage message
+     */
+    private static String usage(){
+        return "usage: ModelConverter <input> <output>\n" +
+                " converts a .txt model into a binary ." + BinaryModel.EXTENSION + " model and vice versa\n";
+    }
+
+    /**
+     * Converts a model file
+     *
+     * @param input the model file to convert
+     * @param output the converted model file
+     * @throws Exception error message when the input can't be
+     *          parsed or IOException if reading or writing fails
+     */
+    public static void convert(File input, File output) throws Exception {
+        if(BinaryModel.isBinaryModel(input)){
+            BinaryModel model = BinaryModel.read(input);
+            try(Writer out = new BufferedWriter(new FileWriter(output), BUFFER_SIZE)){
+                model.writeText(out);
+            }
+        }
+        else{
+            try(BufferedReader in = new BufferedReader(new FileReader(input), BUFFER_SIZE)){
+                BinaryModel.readText(in).write(output);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if(args.length != 2){
+            throw new Exception("Arguments entered incorrectly!\n" + usage());
+        }
+        convert(new File(args[0]), new File(args[1]));
+    }
+}
@@ -0,0 +1,198 @@
+package modelFormat;
+
+import java.io.BufferedReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the text format of a model, e.g.
+ *
+ *      args{A1,A2,A3}
+ *      attack(A1,A2)
+ *      support(A3,A1)[1.0,1.0,0.5,1.5]
+ *      evidence(A2,1)
+ *
+ * where the optional values in brackets override the support
+ * (or attack) factor values of a single relation and an
+ * evidence line clamps an argument to 0 or 1. Spaces are
+ * ignored, empty lines and lines starting with # are allowed.
+ *
+ * The model is passed to a Target, e.g. the internal model of
+ * the BAF-Inferencer or a BinaryModel, in a single pass: the
+ * labels are resolved by the target as soon as a relation is
+ * read, only relations referring to arguments declared further
+ * down are resolved at the end. The evidence is passed at the
+ * end, a later evidence line for an argument replacing an
+ * earlier one.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+public class TextModelParser {
+
+    /**
+     * Receives a parsed model and resolves its labels
+     */
+    public interface Target {
+        /**
+         * Adds a new argument
+         *
+         * @param label the label of the argument
+         * @return index of the new argument, -1 if an argument
+         *          with this label already exists
+         */
+        int addArgument(String label);
+
+        /**
+         * Returns the index of an argument
+         *
+         * @param label the label of the argument
+         * @return index of the argument, -1 if there is none
+         */
+        int indexOf(String label);
+
+        /**
+         * Adds a relation between two arguments
+         *
+         * @param attack true for an attack, false for a support
+         * @param x index of the first argument (Ai)
+         * @param y index of the second argument (Aj)
+         * @param factor own factor values of the relation, null if none
+         */
+        void addRelation(boolean attack, int x, int y, double[] factor);
+
+        /**
+         * Sets the evidence of an argument
+         *
+         * @param i index of the argument
+         * @param value 0 or 1
+         */
+        void setEvidence(int i, int value);
+    }
+
+    /**
+     * Parses a model line by line and passes it to the target
+     *
+     * @param reader reader providing the model lines
+     * @param target receives the arguments, relations and evidence
+     * @throws InterruptedException if the current thread is interrupted
+     * @throws Exception error message when a parsing error occurs
+     *          or IOException if reading fails
+     */
+    public static void parse(BufferedReader reader, Target target) throws Exception {
+
+        // Relations with not yet declared arguments
+        List<String[]> pendingRelations = new ArrayList<>();
+        List<double[]> pendingFactors = new ArrayList<>();
+        List<Integer> pendingLines = new ArrayList<>();
+        // Evidence as label and value, resolved at the end
+        List<String[]> evidence = new ArrayList<>();
+        List<Integer> evidenceLines = new ArrayList<>();
+
+        String line;
+        int lineCount = 0;
+        while((line = reader.readLine()) != null){
+            lineCount++;
+            if(Thread.currentThread().isInterrupted()){
+                throw new InterruptedException("Parsing cancelled!");
+            }
+
+            // Ignore whitespace
+            if(line.indexOf(' ') >= 0){
+                line = line.replace(" ", "");
+            }
+
+            // Empty lines and comments allowed
+            if(line.equals("") || line.startsWith("#")){
+                continue;
+            }
+
+            // ARGS
+            if(line.startsWith("args{") && line.endsWith("}")){
+                for(String label : line.substring(5, line.length()-1).split(",")){
+                    if(target.addArgument(label) < 0){
+                        throw new Exception("Error in line " + lineCount + ":\n Duplicate Variable!");
+                    }
+                }
+                continue;
+            }
+
+            // EVIDENCE
+            if(line.startsWith("evidence(") && line.endsWith(")")){
+                String[] parts = line.substring(9, line.length()-1).split(",");
+                if(parts.length != 2 || !(parts[1].equals("0") || parts[1].equals("1"))){
+                    throw new Exception("Error in line " + lineCount + ":\n" +
+                            "Evidence needs to be of the form evidence(Ai,0) or evidence(Ai,1)!");
+                }
+                evidence.add(parts);
+                evidenceLines.add(lineCount);
+                continue;
+            }
+
+            // ATT or SUP, with own factor values, e.g. attack(A1,A2)[1.0,1.0,1.5,0.5]
+            boolean attack = line.startsWith("attack(");
+            if(!attack && !line.startsWith("support(")){
+                throw new Exception("Error in line " + lineCount + ":\n Illegal start of expression!");
+            }
+            double[] factor = null;
+            int bracket = line.indexOf(")[");
+            if(bracket > 0 && line.endsWith("]")){
+                try{
+                    factor = BinaryModel.parseFactor(line.substring(bracket + 2, line.length()-1));
+                } catch(IllegalArgumentException e){
+                    throw new Exception("Error in line " + lineCount + ":\n" + e.getMessage());
+                }
+                line = line.substring(0, bracket + 1);
+            }
+            if(!line.endsWith(")")){
+                throw new Exception("Error in line " + lineCount + ":\n Illegal start of expression!");
+            }
+            String[] stringVars = line.substring(attack ? 7 : 8, line.length()-1).split(",");
+            if(stringVars.length != 2){
+                throw new Exception("Error in line " + lineCount + ":\n" +
+                        "Relations can only be binary, of the form attack(Ai,Aj) or support(Ai,Aj)!");
+            }
+            if(!addRelation(target, attack, stringVars[0], stringVars[1], factor)){
+                pendingRelations.add(new String[] {attack ? "attack" : "support", stringVars[0], stringVars[1]});
+                pendingFactors.add(factor);
+                pendingLines.add(lineCount);
+            }
+        }
+
+        // Resolve relations to arguments declared after them
+        for(int k = 0; k < pendingRelations.size(); k++){
+            String[] relation = pendingRelations.get(k);
+            if(!addRelation(target, relation[0].equals("attack"), relation[1], relation[2], pendingFactors.get(k))){
+                throw new Exception("Error in line " + pendingLines.get(k) + ":\n Variable not found!");
+            }
+        }
+        for(int k = 0; k < evidence.size(); k++){
+            int i = target.indexOf(evidence.get(k)[0]);
+            if(i < 0){
+                throw new Exception("Error in line " + evidenceLines.get(k) + ":\n Variable not found!");
+            }
+            target.setEvidence(i, Integer.parseInt(evidence.get(k)[1]));
+        }
+    }
+
+    /**
+     * Adds a relation to the target if both of its arguments
+     * are already declared
+     *
+     * @param target receives the relation
+     * @param attack true for an attack, false for a support
+     * @param from label of the first argument
+     * @param to label of the second argument
+     * @param factor own factor values of the relation, null if none
+     * @return true if the relation was added, false if an
+     *          argument is (not yet) declared
+     */
+    private static boolean addRelation(Target target, boolean attack, String from, String to, double[] factor){
+        int x = target.indexOf(from);
+        int y = target.indexOf(to);
+        if(x < 0 || y < 0){
+            return false;
+        }
+        target.addRelation(attack, x, y, factor);
+        return true;
+    }
+}
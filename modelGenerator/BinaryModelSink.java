@@ -0,0 +1,88 @@
+package modelGenerator;
+
+import modelFormat.BinaryModel;
+
+import java.util.Arrays;
+
+/**
+ * Collects a generated model into the int arrays of a
+ * binary model, without a detour through the text format.
+ * Attacks and supports keep the order they were generated
+ * in, as when the text is read by BinaryModel.readText.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class BinaryModelSink implements ModelSink {
+    /**
+     * The number of arguments
+     */
+    private int num_args;
+    /**
+     * First and second argument of each relation, by type,
+     * as from0,to0,from1,to1,...
+     */
+    private final int[][] relations = {new int[16], new int[16]};
+    /**
+     * The number of relations received, by type
+     */
+    private final int[] counts = new int[2];
+
+    /**
+     * Receives the arguments
+     *
+     * @param n number of arguments
+     */
+    @Override
+    public void arguments(int n){
+        num_args = n;
+    }
+
+    /**
+     * Appends a relation to those of its type
+     *
+     * @param type ATTACK or SUPPORT
+     * @param from id of the first argument
+     * @param to id of the second argument
+     */
+    @Override
+    public void relation(int type, int from, int to){
+        int[] pairs = relations[type];
+        int k = 2 * counts[type];
+        if(k == pairs.length){
+            pairs = relations[type] = Arrays.copyOf(pairs, 2 * pairs.length);
+        }
+        pairs[k] = from;
+        pairs[k + 1] = to;
+        counts[type]++;
+    }
+
+    /**
+     * Returns the collected model
+     *
+     * @return the binary model, labelled A0 to A(n-1)
+     */
+    BinaryModel toBinaryModel(){
+        String[] labels = new String[num_args];
+        for(int i = 0; i < num_args; i++){
+            labels[i] = "A" + i;
+        }
+        return new BinaryModel(labels, column(ATTACK, 0), column(ATTACK, 1),
+                column(SUPPORT, 0), column(SUPPORT, 1), new int[0], new double[0]);
+    }
+
+    /**
+     * Returns the first or second arguments of the relations of a type
+     *
+     * @param type ATTACK or SUPPORT
+     * @param side 0 for the first, 1 for the second arguments
+     * @return the arguments, one per relation
+     */
+    private int[] column(int type, int side){
+        int[] pairs = relations[type];
+        int[] column = new int[counts[type]];
+        for(int r = 0; r < column.length; r++){
+            column[r] = pairs[2 * r + side];
+        }
+        return column;
+    }
+}
@@ -0,0 +1,532 @@
+package modelGenerator;
+
+import modelFormat.BinaryModel;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Corpus mode of the model generator. Generates a number of
+ * models for every combination of the given node counts,
+ * densities and attack ratios on a bounded pool of worker
+ * threads, and lists every file with its parameters, seed and
+ * SHA-256 checksum in a manifest.tsv in the output directory.
+ *
+ * Every file gets its own seed, drawn in the order of the
+ * manifest from the corpus seed, so the corpus does not depend
+ * on the number of threads. A model of a named density with
+ * attack ratio 0.5 can be generated again on its own with
+ * Generator -n <nodes> {-d|-s|-p} --seed <seed>.
+ *
+ * usage: Generator --corpus -n <nodes> [-d <densities>] [-e <densities>] [-a <ratios>]
+ *                  [-c <count>] [-o <dir>] [-t <threads>] [-b] [--seed <seed>]
+ *          -n,--nodes          node counts, e.g. 100,500 or 1000:10000:1000 (from:to:step)
+ *          -d,--density        dense, sparse, polytree, relations per argument or a
+ *                              structured topology (treewidth, grid, scalefree,
+ *                              smallworld, cycles), e.g. dense,grid,0.2:1:0.2 (default: dense)
+ *          -e,--edge-density   relations per argument of the structured topologies,
+ *                              e.g. 1:2:0.5 (default: 1)
+ *          -a,--attack-ratio   fractions of attacks among the relations,
+ *                              e.g. 0.25,0.75 or 0:1:0.1 (default: 0.5)
+ *          -c,--count          number of models per configuration (default 1)
+ *          -o,--output         output directory (default: corpus)
+ *          -t,--threads        number of worker threads (default: number of cores)
+ *          -b,--binary         writes the models as binary .baf files
+ *          --seed              corpus seed (default: random seed)
+ *          --width, --rewiring, --cycle-length
+ *                              settings of the structured topologies, see Generator
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+public class CorpusGenerator {
+
+    /**
+     * Name of the manifest in the output directory
+     */
+    static final String MANIFEST = "manifest.tsv";
+
+    /**
+     * The node counts
+     */
+    private List<Integer> nodes = new ArrayList<>();
+    /**
+     * The densities, named or relations per argument,
+     * and the structured topologies
+     */
+    private List<String> densities = new ArrayList<>();
+    /**
+     * Relations per argument of the structured topologies
+     */
+    private List<Double> edgeDensities = new ArrayList<>();
+    /**
+     * The fractions of attacks among the relations
+     */
+    private List<Double> attackRatios = new ArrayList<>();
+    /**
+     * Settings of the structured topologies
+     */
+    private TopologySettings settings = new TopologySettings();
+    /**
+     * Number of models per configuration
+     */
+    private int count = 1;
+    /**
+     * Output directory of the models and the manifest
+     */
+    private File outputDir = new File("corpus");
+    /**
+     * Number of worker threads
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /**
+     * True if the models shall be written as binary .baf files
+     */
+    private boolean binary = false;
+    /**
+     * The corpus seed, null if none was given
+     */
+    private Long seed = null;
+    /**
+     * True if only the usage message shall be printed
+     */
+    private boolean help = false;
+
+    /**
+     * One model of the corpus
+     */
+    private static class Job {
+        /**
+         * Name of the model file
+         */
+        String file;
+        /**
+         * Number of arguments
+         */
+        int nodes;
+        /**
+         * The density, named or relations per argument,
+         * or the structured topology
+         */
+        String density;
+        /**
+         * Relations per argument, NaN for the polytree
+         */
+        double edgeDensity;
+        /**
+         * Fraction of attacks among the relations
+         */
+        double attackRatio;
+        /**
+         * Seed of this model
+         */
+        long seed;
+    }
+
+    /**
+     * Returns a usage message to be printed to the command line
+     *
+     * @return String usage message
+     */
+    private static String usage(){
+        return "usage: Generator --corpus -n <nodes> [-d <densities>] [-e <densities>] [-a <ratios>]\n" +
+                "                 [-c <count>] [-o <dir>] [-t <threads>] [-b] [--seed <seed>]\n" +
+                " -n,--nodes          node counts, e.g. 100,500 or 1000:10000:1000 (from:to:step)\n" +
+                " -d,--density        dense, sparse, polytree, relations per argument or a\n" +
+                "                     structured topology (treewidth, grid, scalefree,\n" +
+                "                     smallworld, cycles), e.g. dense,grid,0.2:1:0.2 (default: dense)\n" +
+                " -e,--edge-density   relations per argument of the structured topologies,\n" +
+                "                     e.g. 1:2:0.5 (default: 1)\n" +
+                " -a,--attack-ratio   fractions of attacks among the relations,\n" +
+                "                     e.g. 0.25,0.75 or 0:1:0.1 (default: 0.5)\n" +
+                " -c,--count          number of models per configuration (default 1)\n" +
+                " -o,--output         output directory (default: corpus)\n" +
+                " -t,--threads        number of worker threads (default: number of cores)\n" +
+                " -b,--binary         writes the models as binary .baf files\n" +
+                " --seed              corpus seed (default: random seed)\n" +
+                " --width             treewidth: treewidth bound (default 3)\n" +
+                " --rewiring          smallworld: rewiring probability (default 0.1)\n" +
+                " --cycle-length      cycles: length of the planted cycles (default 4)\n";
+    }
+
+    /**
+     * Parses command line arguments
+     *
+     * @param args command line arguments, passed from main method
+     * @throws Exception if a parsing error occurs
+     */
+    void parseArgs(String[] args) throws Exception {
+        int i = 0;
+        while(i < args.length){
+            String option = args[i];
+            if(option.equals("-h") || option.equals("--help")){
+                help = true;
+                return;
+            }
+            if(option.equals("-b") || option.equals("--binary")){
+                binary = true;
+                i++;
+                continue;
+            }
+            if(i + 1 >= args.length){
+                throw new Exception("Arguments entered incorrectly!\n" + usage());
+            }
+            String value = args[i + 1];
+            try{
+                switch (option) {
+                    case "-n":
+                    case "--nodes":
+                        for(double n : parseValues(value)){
+                            if(n < 0 || n != Math.rint(n) || n > Integer.MAX_VALUE){
+                                throw new IllegalArgumentException();
+                            }
+                            nodes.add((int) n);
+                        }
+                        break;
+                    case "-d":
+                    case "--density":
+                        for(String d : value.split(",")){
+                            if(d.equals("dense") || d.equals("sparse") || d.equals("polytree")
+                                    || GraphModel.TOPOLOGIES.contains(d)){
+                                densities.add(d);
+                            }
+                            else{
+                                for(double r : parseValues(d)){
+                                    if(r < 0) throw new IllegalArgumentException();
+                                    densities.add(format(r));
+                                }
+                            }
+                        }
+                        break;
+                    case "-e":
+                    case "--edge-density":
+                        for(double e : parseValues(value)){
+                            if(e < 0) throw new IllegalArgumentException();
+                            edgeDensities.add(e);
+                        }
+                        break;
+                    case "--width":
+                        settings.setWidth(Integer.parseInt(value));
+                        break;
+                    case "--rewiring":
+                        settings.setRewiring(Double.parseDouble(value));
+                        break;
+                    case "--cycle-length":
+                        settings.setCycleLength(Integer.parseInt(value));
+                        break;
+                    case "-a":
+                    case "--attack-ratio":
+                        for(double a : parseValues(value)){
+                            if(!(a >= 0 && a <= 1)) throw new IllegalArgumentException();
+                            attackRatios.add(a);
+                        }
+                        break;
+                    case "-c":
+                    case "--count":
+                        count = Integer.parseInt(value);
+                        if(count < 1) throw new IllegalArgumentException();
+                        break;
+                    case "-o":
+                    case "--output":
+                        outputDir = new File(value);
+                        break;
+                    case "-t":
+                    case "--threads":
+                        threads = Integer.parseInt(value);
+                        if(threads < 1) throw new IllegalArgumentException();
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(value);
+                        break;
+                    default:
+                        throw new Exception("Arguments entered incorrectly!\n" + usage());
+                }
+            } catch(IllegalArgumentException e){
+                throw new Exception("Invalid value for " + option + ": " + value + "\n" + usage());
+            }
+            i += 2;
+        }
+
+        if(nodes.isEmpty()){
+            throw new Exception("Arguments entered incorrectly!\n" + usage());
+        }
+        if(densities.isEmpty()){
+            densities.add("dense");
+        }
+        if(edgeDensities.isEmpty()){
+            edgeDensities.add(1.0);
+        }
+        if(attackRatios.isEmpty()){
+            attackRatios.add(0.5);
+        }
+    }
+
+    /**
+     * Parses a comma separated list of values and ranges
+     * from:to:step, e.g. 100,1000:5000:1000. Values are
+     * rounded to six decimals, so that ranges with
+     * fractional steps give the values one would expect.
+     *
+     * @param list the list
+     * @return the values in the given order
+     * @throws IllegalArgumentException if the list is malformed
+     */
+    static List<Double> parseValues(String list){
+        List<Double> values = new ArrayList<>();
+        for(String item : list.split(",")){
+            String[] range = item.split(":");
+            if(range.length == 1){
+                values.add(round(Double.parseDouble(range[0])));
+            }
+            else if(range.length == 3){
+                double from = Double.parseDouble(range[0]);
+                double to = Double.parseDouble(range[1]);
+                double step = Double.parseDouble(range[2]);
+                if(!(step > 0) || !(to >= from)){
+                    throw new IllegalArgumentException("Malformed range " + item + "!");
+                }
+                long steps = (long) Math.floor((to - from) / step + 1e-9);
+                for(long k = 0; k <= steps; k++){
+                    values.add(round(from + k * step));
+                }
+            }
+            else{
+                throw new IllegalArgumentException("Malformed range " + item + "!");
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Rounds a value to six decimals
+     *
+     * @param value the value
+     * @return the rounded value
+     */
+    private static double round(double value){
+        return Math.round(value * 1e6) / 1e6;
+    }
+
+    /**
+     * Formats a value without trailing zeros, e.g. 0.5 or 2
+     *
+     * @param value the value
+     * @return String the formatted value
+     */
+    private static String format(double value){
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * Lists all models of the corpus in manifest order
+     * and draws the seed of every model from the corpus seed
+     *
+     * @return the models
+     */
+    private List<Job> jobs(){
+        SplittableRandom corpus = new SplittableRandom(seed);
+        int width = String.valueOf(count - 1).length();
+        List<Job> jobs = new ArrayList<>();
+        for(int n : nodes){
+            for(String density : densities){
+                // Only the structured topologies take an edge density
+                boolean structured = GraphModel.TOPOLOGIES.contains(density);
+                for(double edgeDensity : structured ? edgeDensities : Arrays.asList(Double.NaN)){
+                    for(double attackRatio : attackRatios){
+                        for(int i = 0; i < count; i++){
+                            Job job = new Job();
+                            job.nodes = n;
+                            job.density = density;
+                            job.edgeDensity = structured ? edgeDensity : density.equals("polytree") ? Double.NaN
+                                    : density.equals("dense") || density.equals("sparse")
+                                    ? RandomModel.densityRatio(density) : Double.parseDouble(density);
+                            job.attackRatio = attackRatio;
+                            job.seed = corpus.nextLong();
+                            job.file = String.format("%dargs_%s%s_a%s_%0" + width + "d.%s", n, density,
+                                    structured ? "_e" + format(edgeDensity) : "", format(attackRatio), i,
+                                    binary ? BinaryModel.EXTENSION : "txt");
+                            jobs.add(job);
+                        }
+                    }
+                }
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Returns the generator of the model of a job
+     *
+     * @param job the model
+     * @return writes the model to a writer
+     */
+    private ModelWriter model(Job job){
+        SplittableRandom random = new SplittableRandom(job.seed);
+        if(GraphModel.TOPOLOGIES.contains(job.density)){
+            return GraphModel.create(job.density, job.nodes, job.edgeDensity, job.attackRatio,
+                    settings, random)::generateModel;
+        }
+        switch (job.density) {
+            case "polytree":
+                return new PolyTreeModel(job.nodes, job.attackRatio, random)::generateModel;
+            case "dense":
+            case "sparse":
+                return new RandomModel(job.nodes, RandomModel.densityRatio(job.density),
+                        job.attackRatio, random)::generateModel;
+            default:
+                return new RandomModel(job.nodes, Double.parseDouble(job.density),
+                        job.attackRatio, random)::generateModel;
+        }
+    }
+
+    /**
+     * Generates the model of a job into the output directory
+     *
+     * @param job the model
+     * @return the manifest line of the model
+     * @throws Exception if the model can't be generated or written
+     */
+    private String process(Job job) throws Exception {
+        ModelWriter model = model(job);
+        File file = new File(outputDir, job.file);
+        MessageDigest digest = sha256();
+
+        if(binary){
+            BinaryModelSink sink = new BinaryModelSink();
+            model.write(sink);
+            try{
+                sink.toBinaryModel().write(file);
+                digest.update(Files.readAllBytes(file.toPath()));
+            } catch(IOException | RuntimeException e){
+                // No partial models in the corpus
+                file.delete();
+                throw e;
+            }
+        }
+        else{
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new DigestOutputStream(
+                    new FileOutputStream(file), digest), StandardCharsets.UTF_8), 1 << 16)) {
+                model.write(new TextModelSink(writer));
+            } catch(IOException | RuntimeException e){
+                // No partial models in the corpus
+                file.delete();
+                throw e;
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for(byte b : digest.digest()){
+            hex.append(String.format("%02x", b));
+        }
+        return job.file + "\t" + job.nodes + "\t" + job.density + "\t"
+                + (Double.isNaN(job.edgeDensity) ? "-" : format(job.edgeDensity)) + "\t" + format(job.attackRatio)
+                + "\t" + job.seed + "\t" + file.length() + "\t" + hex;
+    }
+
+    /**
+     * Returns a new SHA-256 digest
+     *
+     * @return the digest
+     */
+    private static MessageDigest sha256(){
+        try{
+            return MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e){
+            // Every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Generates all models on a fixed size worker pool and writes
+     * the manifest of the generated models in the end
+     *
+     * @return number of models that failed
+     */
+    int run(){
+        if(!outputDir.isDirectory() && !outputDir.mkdirs()){
+            System.err.println("Could not create output directory " + outputDir + "!");
+            return 1;
+        }
+        if(seed == null){
+            seed = new SplittableRandom().nextLong();
+            System.out.println("Seed: " + seed);
+        }
+
+        List<Job> jobs = jobs();
+        List<String> manifest = new ArrayList<>();
+        int failed = 0;
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, jobs.size()));
+        try{
+            List<Future<String>> lines = new ArrayList<>();
+            for(Job job : jobs){
+                lines.add(pool.submit(() -> process(job)));
+            }
+
+            // Manifest in job order
+            for(int i = 0; i < lines.size(); i++){
+                try{
+                    manifest.add(lines.get(i).get());
+                } catch(ExecutionException e){
+                    failed++;
+                    Throwable cause = e.getCause();
+                    String message = cause.getMessage() != null ? cause.getMessage() : cause.toString();
+                    System.err.println(jobs.get(i).file + ": " + message);
+                }
+            }
+        } catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            return jobs.size();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        File manifestFile = new File(outputDir, MANIFEST);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(manifestFile), StandardCharsets.UTF_8))) {
+            writer.write("# corpus seed " + seed + "\n");
+            writer.write("file\tnodes\tdensity\tedge_density\tattack_ratio\tseed\tbytes\tsha256\n");
+            for(String line : manifest){
+                writer.write(line);
+                writer.write("\n");
+            }
+        } catch(IOException e){
+            System.err.println("Could not write " + manifestFile + ": " + e.getMessage());
+            return jobs.size();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int done = jobs.size() - failed;
+        System.out.println(String.format("Generated %d of %d models (%d failed) on %d threads in %.3f s -> %s",
+                done, jobs.size(), failed, Math.min(threads, jobs.size()), seconds, manifestFile.getPath()));
+        return failed;
+    }
+
+    public static void main(String[] args) {
+        CorpusGenerator corpus = new CorpusGenerator();
+        try{
+            corpus.parseArgs(args);
+        } catch(Exception e){
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+        if(corpus.help){
+            System.out.println(usage());
+            return;
+        }
+        System.exit(corpus.run() == 0 ? 0 : 1);
+    }
+}
@@ -1,17 +1,36 @@
 package modelGenerator;
 
+import modelFormat.BinaryModel;
+
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
 
 /**
  * Helping class to generate random Bipolar Argumentation
  * Frameworks as .txt model files to be used in the
  * BAF-Inferencer application.
  *
- * usage: Generator -n <nodes> {-d|-s|-p}
+ * usage: Generator -n <nodes> {-d|-s|-p|-g <topology>} [-e <density>] [-b] [--seed <seed>]
  *          -n,--nodes      number of nodes in model
  *          -d,--dense      creates random model with 80% density (default)
  *          -s,--sparse     creates random model with 50% density
  *          -p,--polytree   creates connected polytree model
+ *          -g,--topology   creates structured model: treewidth, grid,
+ *                          scalefree, smallworld or cycles
+ *          -e,--edge-density  relations per argument of the structured
+ *                          model (default 1)
+ *          --width         treewidth: treewidth bound (default 3)
+ *          --rewiring      smallworld: rewiring probability (default 0.1)
+ *          --cycle-length  cycles: length of the planted cycles (default 4)
+ *          -b,--binary     writes the model as binary .baf file
+ *          --seed          random seed; the same seed and parameters
+ *                          give the same model (default: random seed)
+ *
+ *        Generator --corpus [corpus options], see CorpusGenerator
  *
  * @author Hannah Lewerentz <hlewerentz@uos.de>
  */
@@ -33,6 +52,27 @@ public class Generator {
      * True if polytree modes shall be generated
      */
     private static boolean polytree = false;
+    /**
+     * True if the model shall be written as binary .baf file
+     */
+    private static boolean binary = false;
+    /**
+     * The structured topology, see GraphModel.TOPOLOGIES,
+     * null for the random and polytree models
+     */
+    private static String topology = null;
+    /**
+     * Relations per argument of the structured model
+     */
+    private static double edgeDensity = 1;
+    /**
+     * Settings of the structured topologies
+     */
+    private static TopologySettings settings = new TopologySettings();
+    /**
+     * The random seed, null if none was given
+     */
+    private static Long seed = null;
 
     /**
      * Returns a usage message to be printed to the command line
@@ -40,11 +80,19 @@ public class Generator {
      * @return String usage message
      */
     private static String usage(){
-        return "usage: Generator -n <nodes> {-d|-s|-p}\n" +
+        return "usage: Generator -n <nodes> {-d|-s|-p|-g <topology>} [-e <density>] [-b] [--seed <seed>]\n" +
                         " -n,--nodes    number of nodes in model\n" +
                         " -d,--dense   creates random model with 80% density (default)\n" +
                         " -s,--sparse   creates random model with 50% density\n" +
-                        " -p,--polytree   creates connected polytree model\n";
+                        " -p,--polytree   creates connected polytree model\n" +
+                        " -g,--topology   creates structured model: treewidth, grid, scalefree, smallworld or cycles\n" +
+                        " -e,--edge-density   relations per argument of the structured model (default 1)\n" +
+                        " --width   treewidth: treewidth bound (default 3)\n" +
+                        " --rewiring   smallworld: rewiring probability (default 0.1)\n" +
+                        " --cycle-length   cycles: length of the planted cycles (default 4)\n" +
+                        " -b,--binary   writes the model as binary .baf file\n" +
+                        " --seed   random seed, the same seed and parameters give the same model\n" +
+                        "Generator --corpus -h shows the options of the corpus mode\n";
     }
 
     /**
@@ -54,6 +102,31 @@ public class Generator {
      * @throws Exception if a parsing error occurs
      */
     private static void parseArgs(String[] args) throws Exception{
+        // Case -b or --binary, anywhere
+        List<String> rest = new ArrayList<>(Arrays.asList(args));
+        binary = rest.remove("-b") | rest.remove("--binary");
+
+        // Case options with a value, anywhere
+        try{
+            String value = takeOption(rest, "--seed", "--seed");
+            if(value != null) seed = Long.parseLong(value);
+            topology = takeOption(rest, "-g", "--topology");
+            if(topology != null && !GraphModel.TOPOLOGIES.contains(topology)){
+                throw new IllegalArgumentException();
+            }
+            value = takeOption(rest, "-e", "--edge-density");
+            if(value != null) edgeDensity = Double.parseDouble(value);
+            value = takeOption(rest, "--width", "--width");
+            if(value != null) settings.setWidth(Integer.parseInt(value));
+            value = takeOption(rest, "--rewiring", "--rewiring");
+            if(value != null) settings.setRewiring(Double.parseDouble(value));
+            value = takeOption(rest, "--cycle-length", "--cycle-length");
+            if(value != null) settings.setCycleLength(Integer.parseInt(value));
+        }catch(IllegalArgumentException e){
+            throw new Exception("Arguments entered incorrectly!\n"+usage());
+        }
+        args = rest.toArray(new String[0]);
+
         // Case -h or --help
         if (args.length == 1){
             if(args[0].equals("-h") || args[0].equals("--help")){
@@ -79,7 +152,7 @@ public class Generator {
         }
 
         // Case -n <INT> {-d|-s|-p}
-        else if(args.length == 3){
+        else if(args.length == 3 && topology == null){
             if(args[0].equals("-n") || args[0].equals("--nodes")){
                 try{
                     nodes = Integer.parseInt(args[1]);
@@ -111,42 +184,110 @@ public class Generator {
     }
 
     /**
-     * Writes the generated model string into an output .txt file
-     * @param text the generated model string
+     * Removes an option and its value from the arguments
+     *
+     * @param rest the remaining arguments
+     * @param shortName short name of the option
+     * @param longName long name of the option
+     * @return the value of the option, null if it isn't given
+     * @throws IllegalArgumentException if the value is missing
+     */
+    private static String takeOption(List<String> rest, String shortName, String longName){
+        int i = rest.indexOf(shortName);
+        if(i < 0) i = rest.indexOf(longName);
+        if(i < 0) return null;
+        if(i + 1 >= rest.size()){
+            throw new IllegalArgumentException();
+        }
+        String value = rest.get(i + 1);
+        rest.subList(i, i + 2).clear();
+        return value;
+    }
+
+    /**
+     * Writes the generated model into an output .txt file, streaming
+     * it through a buffered writer, or collects its argument ids into
+     * an output .baf file if binary is set
+     * @param model writes the generated model to the given sink
      * @param filename the output filename destination
+     * @throws Exception if the model can't be written
      */
-    private static void writeToFile(String text, String filename){
+    private static void writeToFile(ModelWriter model, String filename) throws Exception {
+        if(binary){
+            BinaryModelSink sink = new BinaryModelSink();
+            try{
+                model.write(sink);
+            }catch(IllegalArgumentException e){
+                // The parameters don't fit the model
+                throw new Exception(e.getMessage());
+            }
+            File file = new File(System.getProperty("user.home") + File.separator + filename
+                    + "." + BinaryModel.EXTENSION);
+            try{
+                sink.toBinaryModel().write(file);
+            }catch(IOException e){
+                // No partial model file
+                file.delete();
+                throw e;
+            }
+            return;
+        }
+        File file = new File(System.getProperty("user.home") + File.separator + filename +".txt");
         try (Writer writer = new BufferedWriter(new OutputStreamWriter(
-                new FileOutputStream(System.getProperty("user.home") + File.separator + filename +".txt")))) {
-            writer.write(text);
+                new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            model.write(new TextModelSink(writer));
         }catch(IOException e){
             e.printStackTrace();
+        }catch(IllegalArgumentException e){
+            // The parameters don't fit the model, no partial model file
+            file.delete();
+            throw new Exception(e.getMessage());
         }
     }
 
     public static void main(String[] args) throws Exception {
+        // Case --corpus, handled by the CorpusGenerator
+        if(args.length > 0 && args[0].equals("--corpus")){
+            CorpusGenerator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         try{
             parseArgs(args);
         }catch(Exception e){
             throw new Exception(e.getMessage());
         }
 
+        // All randomness comes from one seeded generator,
+        // print a random seed so that the model can be rebuilt
+        if(seed == null){
+            seed = new SplittableRandom().nextLong();
+            System.out.println("Seed: " + seed);
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+
+        // Case structured model
+        if(topology != null){
+            GraphModel p = GraphModel.create(topology, nodes, edgeDensity, 0.5, settings, random);
+            writeToFile(p::generateModel, nodes + "args_" + topology);
+        }
+
         // Case random model
-        if(!polytree){
+        else if(!polytree){
             if(sparse){
-                RandomModel p = new RandomModel(nodes, "sparse");
-                writeToFile(p.generateModel(), nodes + "args_sparse");
+                RandomModel p = new RandomModel(nodes, "sparse", random);
+                writeToFile(p::generateModel, nodes + "args_sparse");
             }
             else{
-                RandomModel p = new RandomModel(nodes, "dense");
-                writeToFile(p.generateModel(), nodes + "args_dense");
+                RandomModel p = new RandomModel(nodes, "dense", random);
+                writeToFile(p::generateModel, nodes + "args_dense");
             }
         }
 
         // Case polytree model
         else {
-            PolyTreeModel p = new PolyTreeModel(nodes);
-            writeToFile(p.generateModel(), nodes + "args_polytree");
+            PolyTreeModel p = new PolyTreeModel(nodes, random);
+            writeToFile(p::generateModel, nodes + "args_polytree");
         }
     }
 }
@@ -0,0 +1,218 @@
+package modelGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Base class of the structured graph models, which generate
+ * a Bipolar Argumentation Framework of a given topology with
+ * a target edge density, i.e. relations per argument, in the
+ * .txt format of the BAF-Inferencer application. Subclasses
+ * pick the pairs of arguments; the direction and the type of
+ * every relation are random.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+abstract class GraphModel {
+    /**
+     * The available structured topologies, see create
+     */
+    static final List<String> TOPOLOGIES = Arrays.asList("treewidth", "grid", "scalefree", "smallworld", "cycles");
+    /**
+     * The number of nodes, i.e. arguments, in the argumentation graph
+     */
+    final int num_args;
+    /**
+     * The target number of relations
+     */
+    final long num_relations;
+    /**
+     * The fraction of attacks among the relations
+     */
+    private final double attack_ratio;
+    /**
+     * Source of all randomness of the model
+     */
+    final SplittableRandom random;
+    /**
+     * The connected pairs of arguments, as min*num_args+max
+     */
+    private LongHashSet pairs;
+    /**
+     * The sink the relations are written to
+     */
+    private ModelSink out;
+    /**
+     * The number of relations written so far
+     */
+    long written;
+
+    // Ctor
+    GraphModel(int nodes, double density, double attackRatio, SplittableRandom random){
+        if(nodes < 0 || !(density >= 0)){
+            throw new IllegalArgumentException("The density must not be negative!");
+        }
+        if(!(attackRatio >= 0 && attackRatio <= 1)){
+            throw new IllegalArgumentException("The attack ratio must be in [0,1]!");
+        }
+        num_args = nodes;
+        num_relations = (long)(nodes*density);
+        attack_ratio = attackRatio;
+        this.random = random;
+    }
+
+    /**
+     * Creates the model of a structured topology
+     *
+     * @param topology one of TOPOLOGIES
+     * @param nodes number of arguments
+     * @param density target number of relations per argument
+     * @param attackRatio fraction of attacks among the relations
+     * @param settings settings of the topology
+     * @param random source of all randomness of the model
+     * @return the model
+     */
+    static GraphModel create(String topology, int nodes, double density, double attackRatio,
+                             TopologySettings settings, SplittableRandom random){
+        switch (topology) {
+            case "treewidth":
+                return new TreewidthModel(nodes, density, attackRatio, settings.getWidth(), random);
+            case "grid":
+                return new GridModel(nodes, density, attackRatio, random);
+            case "scalefree":
+                return new ScaleFreeModel(nodes, density, attackRatio, random);
+            case "smallworld":
+                return new SmallWorldModel(nodes, density, attackRatio, settings.getRewiring(), random);
+            case "cycles":
+                return new PlantedCycleModel(nodes, density, attackRatio, settings.getCycleLength(), random);
+            default:
+                throw new IllegalArgumentException("Unknown topology " + topology + "!");
+        }
+    }
+
+    /**
+     * Returns the largest number of relations the topology
+     * can have on num_args arguments
+     *
+     * @return maximum number of relations
+     */
+    abstract long maxRelations();
+
+    /**
+     * Generates the relations by calling connect
+     *
+     * @throws IOException if writing fails
+     */
+    abstract void generateRelations() throws IOException;
+
+    /**
+     * Generates the model string of the given model.
+     *
+     * @return String generated model
+     */
+    String generateModel(){
+        StringWriter model = new StringWriter();
+        try{
+            generateModel(new TextModelSink(model));
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return model.toString();
+    }
+
+    /**
+     * Generates the model and writes it to out
+     *
+     * @param out the sink the model is written to
+     * @throws IOException if writing fails
+     * @throws IllegalArgumentException if the topology can't
+     *          have num_relations relations
+     */
+    void generateModel(ModelSink out) throws IOException {
+        long max = maxRelations();
+        if(num_relations > max){
+            throw new IllegalArgumentException("At most " + (num_args == 0 ? 0 : (double) max / num_args)
+                    + " relations per argument are possible!");
+        }
+
+        // Arg-line
+        out.arguments(num_args);
+
+        pairs = new LongHashSet((int) Math.min(num_relations, 1 << 29));
+        this.out = out;
+        written = 0;
+        try{
+            generateRelations();
+        } finally {
+            pairs = null;
+            this.out = null;
+        }
+        if(written < num_relations){
+            throw new IllegalArgumentException("Only " + written + " of " + num_relations
+                    + " relations could be placed, try fewer relations per argument!");
+        }
+    }
+
+    /**
+     * Returns the key of the pair of the arguments a and b
+     *
+     * @param a id of an argument
+     * @param b id of an argument
+     * @return key of the unordered pair
+     */
+    private long key(int a, int b){
+        return (long) Math.min(a, b) * num_args + Math.max(a, b);
+    }
+
+    /**
+     * Returns whether the arguments a and b are related
+     *
+     * @param a id of an argument
+     * @param b id of an argument
+     * @return true if there is a relation between a and b
+     */
+    boolean connected(int a, int b){
+        return pairs.contains(key(a, b));
+    }
+
+    /**
+     * Writes a relation between the arguments a and b with
+     * random direction and type, unless a and b are the same
+     * or already related
+     *
+     * @param a id of an argument
+     * @param b id of an argument
+     * @return true if the relation was written
+     * @throws IOException if writing fails
+     */
+    boolean connect(int a, int b) throws IOException {
+        if(a == b || !pairs.add(key(a, b))){
+            return false;
+        }
+        SplittableRandom r = random;
+        if(r.nextBoolean()){
+            int t = a;
+            a = b;
+            b = t;
+        }
+        out.relation(r.nextDouble() < attack_ratio ? ModelSink.ATTACK : ModelSink.SUPPORT, a, b);
+        written++;
+        return true;
+    }
+
+    /**
+     * Selection sampling: decides whether to keep the next of
+     * the remaining candidate relations, such that exactly the
+     * missing relations are kept from all candidates
+     *
+     * @param remaining number of candidates left, including the next one
+     * @return true if the next candidate shall be kept
+     */
+    boolean keep(long remaining){
+        return random.nextLong(remaining) < num_relations - written;
+    }
+}
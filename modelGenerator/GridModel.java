@@ -0,0 +1,63 @@
+package modelGenerator;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Class generating a grid graph model: the arguments are laid
+ * out row by row on a square lattice and related to their right
+ * and lower neighbours, sampled down to the target density (at
+ * most about two relations per argument). The treewidth grows
+ * with the side length, i.e. the square root of the number of
+ * arguments, which soon exceeds the junction tree inferencer.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class GridModel extends GraphModel {
+    /**
+     * Number of columns of the lattice
+     */
+    private final int cols;
+
+    // Ctor
+    GridModel(int nodes, double density, double attackRatio, SplittableRandom random){
+        super(nodes, density, attackRatio, random);
+        cols = (int) Math.ceil(Math.sqrt(nodes));
+    }
+
+    /**
+     * Returns the number of relations of the full lattice
+     *
+     * @return maximum number of relations
+     */
+    @Override
+    long maxRelations(){
+        long count = 0;
+        for(int v = 0; v < num_args; v++){
+            if((v + 1) % cols != 0 && v + 1 < num_args) count++;
+            if(v + cols < num_args) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Walks the lattice and keeps each of its relations by
+     * selection sampling
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    void generateRelations() throws IOException {
+        long remaining = maxRelations();
+        for(int v = 0; v < num_args; v++){
+            // Right neighbour
+            if((v + 1) % cols != 0 && v + 1 < num_args){
+                if(keep(remaining--)) connect(v, v + 1);
+            }
+            // Lower neighbour
+            if(v + cols < num_args){
+                if(keep(remaining--)) connect(v, v + cols);
+            }
+        }
+    }
+}
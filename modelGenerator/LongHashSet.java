@@ -0,0 +1,121 @@
+package modelGenerator;
+
+import java.util.Arrays;
+
+/**
+ * Set of non-negative long keys, hashed by open addressing
+ * into a single long array, so that a key costs a few bytes
+ * and no objects. Used by the generators to reject existing
+ * relations, which are encoded as longs over the argument ids.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class LongHashSet {
+    /**
+     * Marks a free slot; keys are never negative
+     */
+    private static final long FREE = -1L;
+    /**
+     * The hash table, its length is a power of two
+     */
+    private long[] table;
+    /**
+     * The number of keys in the set
+     */
+    private int size;
+
+    // Ctor
+    LongHashSet(int expected){
+        if(expected > 1 << 29){
+            throw new IllegalArgumentException("Too many keys!");
+        }
+        int capacity = 16;
+        while(capacity < 2L * expected){
+            capacity <<= 1;
+        }
+        table = new long[capacity];
+        Arrays.fill(table, FREE);
+    }
+
+    /**
+     * Returns whether the key is in the set
+     *
+     * @param key non-negative key
+     * @return true if the key was added before
+     */
+    boolean contains(long key){
+        int mask = table.length - 1;
+        for(int i = hash(key) & mask; ; i = (i + 1) & mask){
+            if(table[i] == key) return true;
+            if(table[i] == FREE) return false;
+        }
+    }
+
+    /**
+     * Adds the key to the set
+     *
+     * @param key non-negative key
+     * @return true if the key wasn't in the set yet
+     */
+    boolean add(long key){
+        if(key < 0){
+            throw new IllegalArgumentException("Keys must not be negative!");
+        }
+        // Keep the load factor at most 1/2
+        if(2L * (size + 1) > table.length){
+            grow();
+        }
+        int mask = table.length - 1;
+        int i = hash(key) & mask;
+        while(table[i] != FREE){
+            if(table[i] == key) return false;
+            i = (i + 1) & mask;
+        }
+        table[i] = key;
+        size++;
+        return true;
+    }
+
+    /**
+     * Returns the number of keys in the set
+     *
+     * @return number of keys
+     */
+    int size(){
+        return size;
+    }
+
+    /**
+     * Doubles the table and rehashes all keys
+     */
+    private void grow(){
+        long[] old = table;
+        table = new long[old.length * 2];
+        Arrays.fill(table, FREE);
+        int mask = table.length - 1;
+        for(long key : old){
+            if(key == FREE) continue;
+            int i = hash(key) & mask;
+            while(table[i] != FREE){
+                i = (i + 1) & mask;
+            }
+            table[i] = key;
+        }
+    }
+
+    /**
+     * Spreads all bits of the key, since the keys of
+     * relations differ mostly in their low bits
+     *
+     * @param key the key
+     * @return the hash of the key
+     */
+    private static int hash(long key){
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
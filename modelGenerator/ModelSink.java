@@ -0,0 +1,39 @@
+package modelGenerator;
+
+import java.io.IOException;
+
+/**
+ * Receives a generated model as argument ids, written either
+ * as text by TextModelSink or collected into a binary model
+ * by BinaryModelSink. The arguments are labelled A0 to A(n-1).
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+interface ModelSink {
+    /**
+     * The relation type of an attack
+     */
+    int ATTACK = 0;
+    /**
+     * The relation type of a support
+     */
+    int SUPPORT = 1;
+
+    /**
+     * Receives the arguments, before any relation
+     *
+     * @param n number of arguments
+     * @throws IOException if writing fails
+     */
+    void arguments(int n) throws IOException;
+
+    /**
+     * Receives a relation
+     *
+     * @param type ATTACK or SUPPORT
+     * @param from id of the first argument
+     * @param to id of the second argument
+     * @throws IOException if writing fails
+     */
+    void relation(int type, int from, int to) throws IOException;
+}
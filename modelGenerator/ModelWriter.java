@@ -0,0 +1,19 @@
+package modelGenerator;
+
+import java.io.IOException;
+
+/**
+ * Writes a generated model to a sink, e.g. the
+ * generateModel method of one of the model classes.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+interface ModelWriter {
+    /**
+     * Writes the model
+     *
+     * @param out the sink the model is written to
+     * @throws IOException if writing fails
+     */
+    void write(ModelSink out) throws IOException;
+}
@@ -0,0 +1,115 @@
+package modelGenerator;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Class generating a graph model with planted cycles: a random
+ * tree of all arguments, in which every further relation closes
+ * a cycle of the given length. It joins the ends of a random
+ * path through the tree; relations beyond one per argument are
+ * all such chords. Below that the tree relations are sampled
+ * down to the target density, a forest without cycles.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class PlantedCycleModel extends GraphModel {
+    /**
+     * Tries per planted cycle before giving up
+     */
+    private static final int MAX_TRIES = 64;
+    /**
+     * Length of the planted cycles
+     */
+    private final int cycleLength;
+
+    // Ctor
+    PlantedCycleModel(int nodes, double density, double attackRatio, int cycleLength, SplittableRandom random){
+        super(nodes, density, attackRatio, random);
+        this.cycleLength = cycleLength;
+    }
+
+    /**
+     * Returns the number of relations of the complete graph
+     *
+     * @return maximum number of relations
+     */
+    @Override
+    long maxRelations(){
+        return (long) num_args * (num_args - 1) / 2;
+    }
+
+    /**
+     * Writes a random tree, sampled down if there are fewer
+     * relations than tree relations, and plants the cycles
+     * into it. Walks that find no path or only related ends
+     * are retried up to MAX_TRIES times per cycle; generateModel
+     * fails if cycles are still missing.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    void generateRelations() throws IOException {
+        SplittableRandom r = random;
+        int n = num_args;
+        if(n < 2) return;
+
+        // Random recursive tree, every argument hangs below an earlier one
+        int[] parent = new int[n];
+        int[] degree = new int[n];
+        parent[0] = -1;
+        boolean all = num_relations >= n - 1;
+        for(int v = 1; v < n; v++){
+            parent[v] = r.nextInt(v);
+            degree[v]++;
+            degree[parent[v]]++;
+            if(all || keep(n - v)){
+                connect(parent[v], v);
+            }
+        }
+        if(!all) return;
+
+        // Tree neighbours in compressed rows
+        int[] start = new int[n + 1];
+        for(int v = 0; v < n; v++){
+            start[v + 1] = start[v] + degree[v];
+        }
+        int[] fill = new int[n];
+        int[] adjacent = new int[2 * (n - 1)];
+        for(int v = 1; v < n; v++){
+            int p = parent[v];
+            adjacent[start[v] + fill[v]++] = p;
+            adjacent[start[p] + fill[p]++] = v;
+        }
+
+        // Chords: a path of cycleLength-1 tree relations, walked without
+        // turning back, is closed to a cycle by relating its ends
+        long chords = num_relations - written;
+        for(long c = 0; c < chords; c++){
+            for(int t = 0; t < MAX_TRIES; t++){
+                int first = r.nextInt(n);
+                int prev = -1;
+                int at = first;
+                int steps = 0;
+                while(steps < cycleLength - 1){
+                    int choices = prev < 0 ? degree[at] : degree[at] - 1;
+                    if(choices == 0) break;
+                    int next = r.nextInt(choices);
+                    int i = start[at];
+                    // Skip the argument the walk came from
+                    while(true){
+                        if(adjacent[i] != prev){
+                            if(next == 0) break;
+                            next--;
+                        }
+                        i++;
+                    }
+                    prev = at;
+                    at = adjacent[i];
+                    steps++;
+                }
+                if(steps == cycleLength - 1 && connect(first, at)) break;
+            }
+        }
+    }
+}
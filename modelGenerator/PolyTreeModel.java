@@ -1,6 +1,9 @@
 package modelGenerator;
 
-import java.util.*;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.SplittableRandom;
 
 /**
  * Class generating a polytree (acyclic tree) graph model
@@ -11,75 +14,107 @@ import java.util.*;
  */
 public class PolyTreeModel {
     /**
-     * The available relations in the BAF
+     * The number of nodes, i.e. arguments, in the argumentation graph
      */
-    private static String[] relations = {"attack(", "support("};
+    private final int num_args;
     /**
-     * The number of nodes, i.e. arguments, in the argumentation graph
+     * The fraction of attacks among the relations
      */
-    private static int num_args;
+    private final double attack_ratio;
+    /**
+     * Source of all randomness of the model
+     */
+    private final SplittableRandom random;
+
+    // Ctor
+    PolyTreeModel(int nodes, SplittableRandom random){
+        this(nodes, 0.5, random);
+    }
 
     // Ctor
-    PolyTreeModel(int nodes){
+    PolyTreeModel(int nodes, double attackRatio, SplittableRandom random){
+        if(!(attackRatio >= 0 && attackRatio <= 1)){
+            throw new IllegalArgumentException("The attack ratio must be in [0,1]!");
+        }
         num_args = nodes;
+        attack_ratio = attackRatio;
+        this.random = random;
     }
 
     /**
      * Generates the model string of the given model.
-     * Iteratively picks new nodes and connecting them
-     * to already connected nodes, thus generating a tree.
      *
      * @return String generated model
      */
     String generateModel(){
+        StringWriter model = new StringWriter();
+        try{
+            generateModel(new TextModelSink(model));
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return model.toString();
+    }
+
+    /**
+     * Generates the model and writes it to out.
+     * Iteratively picks new nodes and connecting them
+     * to already connected nodes, thus generating a tree.
+     *
+     * @param out the sink the model is written to
+     * @throws IOException if writing fails
+     */
+    void generateModel(ModelSink out) throws IOException {
 
         // Arg-line
-        String model = "args{";
-        String[] arguments = new String[num_args];
+        out.arguments(num_args);
+
+        // Generate random relations; the ids of unpicked nodes are
+        // kept in nodes[0..left), a picked one is swapped out
+        int[] nodes = new int[num_args];
         for(int i = 0; i < num_args; i++){
-            arguments[i] = "A" + i;
-            model += "A" + i;
-            if(i != num_args-1) model += ",";
-            else model += "}\n";
+            nodes[i] = i;
         }
-
-        // Generate random relations
-        List<String> nodes = new ArrayList<>(Arrays.asList(arguments));
-        List<String> picked = new ArrayList<>();
+        int left = num_args;
+        int[] picked = new int[num_args];
+        int numPicked = 0;
+        SplittableRandom r = random;
 
         // Up to n-1, to ensure acyclicity and connectedness
         for(int i = 0; i < num_args-1; i++){
-            Random r = new Random();
-            String rel = relations[r.nextInt(2)];
-            String a1 = "";
-            String a2 = "";
+            int rel = r.nextDouble() < attack_ratio ? ModelSink.ATTACK : ModelSink.SUPPORT;
+            int a1;
+            int a2;
 
             // Root node case
-            if(picked.isEmpty()){
-                a1 = nodes.get(r.nextInt(nodes.size()));
-                a2 = nodes.get(r.nextInt(nodes.size()));
-                while(a2.equals(a1)){
-                    a2 = nodes.get(r.nextInt(nodes.size()));
+            if(numPicked == 0){
+                int i1 = r.nextInt(left);
+                int i2 = r.nextInt(left);
+                while(i2 == i1){
+                    i2 = r.nextInt(left);
                 }
-                picked.add(a1);
-                picked.add(a2);
-                nodes.remove(a1);
-                nodes.remove(a2);
+                a1 = nodes[i1];
+                a2 = nodes[i2];
+                picked[numPicked++] = a1;
+                picked[numPicked++] = a2;
+                // Swap out the larger index first, so the other stays valid
+                nodes[Math.max(i1, i2)] = nodes[--left];
+                nodes[Math.min(i1, i2)] = nodes[--left];
             }
 
             else {
                 // From picked...
-                a1 = picked.get(r.nextInt(picked.size()));
+                a1 = picked[r.nextInt(numPicked)];
                 // Connect to a new node!
-                a2 = nodes.get(r.nextInt(nodes.size()));
+                int i2 = r.nextInt(left);
+                a2 = nodes[i2];
                 // They can (and should) not be the same
                 // - no check necessary
-                picked.add(a2);
-                nodes.remove(a2);
+                picked[numPicked++] = a2;
+                nodes[i2] = nodes[--left];
             }
 
-            model += rel + a1 + "," + a2 + ")\n";
+            out.relation(rel, a1, a2);
         }
-        return model;
     }
 }
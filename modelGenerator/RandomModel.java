@@ -1,8 +1,9 @@
 package modelGenerator;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.SplittableRandom;
 
 /**
  * Class generating a random graph model (not necessarily
@@ -12,115 +13,137 @@ import java.util.Random;
  * @author Hannah Lewerentz <hlewerentz@uos.de>
  */
 public class RandomModel {
-    /**
-     * The available relations in the BAF
-     */
-    private static String[] relations = {"attack(", "support("};
-    /**
-     * The generated arguments' labels
-     */
-    private String[] arguments;
     /**
      * The number of nodes, i.e. arguments, in the argumentation graph
      */
-    private static int num_args;
+    private final int num_args;
     /**
      * The number of relations, dependent on chosen density
      */
-    private static int num_relations;
+    private final int num_relations;
     /**
-     * The chosen density; can be "sparse" or "dense"
+     * The fraction of attacks among the relations
      */
-    private String density;
+    private final double attack_ratio;
+    /**
+     * Source of all randomness of the model
+     */
+    private final SplittableRandom random;
+
+    // Ctor
+    RandomModel(int nodes, String density, SplittableRandom random){
+        this(nodes, densityRatio(density), 0.5, random);
+    }
 
     // Ctor
-    RandomModel(int nodes, String density){
+    RandomModel(int nodes, double density, double attackRatio, SplittableRandom random){
+        if(nodes < 0 || !(density >= 0)){
+            throw new IllegalArgumentException("The density must not be negative!");
+        }
+        // At most half of the possible relations, beyond that
+        // rejecting existing relations takes longer and longer
+        if((long)(nodes*density) > (long) nodes * (nodes - 1) / 2){
+            throw new IllegalArgumentException("At most " + (nodes - 1) / 2.0
+                    + " relations per argument are possible!");
+        }
+        if(!(attackRatio >= 0 && attackRatio <= 1)){
+            throw new IllegalArgumentException("The attack ratio must be in [0,1]!");
+        }
+        this.random = random;
         num_args = nodes;
+        num_relations = (int)(num_args*density);
+        attack_ratio = attackRatio;
+    }
+
+    /**
+     * Returns the number of relations per argument of
+     * a named density
+     *
+     * @param density "sparse" or "dense"
+     * @return relations per argument
+     */
+    static double densityRatio(String density){
         if(density.equals("dense")){
             // NOT TOO DENSE!!!!
-            num_relations = (int)(num_args*0.8);
+            return 0.8;
         }
         else if (density.equals("sparse")){
-            num_relations = num_args/2;
+            return 0.5;
         }
-        this.density = density;
+        throw new IllegalArgumentException("Unknown density " + density + "!");
     }
 
     /**
-     * Helper function that generates random relations
-     * "support" or "attack" given the arguments of the model.
+     * Encodes a relation of the given type between
+     * the arguments with the ids from and to
      *
-     * @return String the new relation
+     * @param from id of the first argument
+     * @param to id of the second argument
+     * @param type index into relations
+     * @return the key of the relation
      */
-    private String generateNewRel(){
-        Random r = new Random();
-        String a1 = arguments[r.nextInt(num_args)];
-        String a2 = arguments[r.nextInt(num_args)];
-
-        // Sanity check, no self-referring relations
-        while(a1.equals(a2)){
-            a2 = arguments[r.nextInt(num_args)];
-        }
-
-        return relations[r.nextInt(2)] +
-                a1 + "," + a2 + ")\n";
+    private long key(int from, int to, int type){
+        return ((long) from * num_args + to) * 2 + type;
     }
 
     /**
      * Generates the model string of the given model.
-     * Iteratively picks random nodes and connecting them.
-     * Connectivity is not ensured.
      *
      * @return String generated model
      */
     String generateModel(){
+        StringWriter model = new StringWriter();
+        try{
+            generateModel(new TextModelSink(model));
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return model.toString();
+    }
+
+    /**
+     * Generates the model and writes it to out.
+     * Iteratively picks random nodes and connecting them.
+     * Connectivity is not ensured. Existing relations are
+     * kept as keys over the argument ids in a LongHashSet,
+     * so every relation is checked in constant time and
+     * nothing but the set grows with the model.
+     *
+     * @param out the sink the model is written to
+     * @throws IOException if writing fails
+     */
+    void generateModel(ModelSink out) throws IOException {
 
         // Arg-line
-        String model = "args{";
-        arguments = new String[num_args];
-        for(int i = 0; i < num_args; i++){
-            arguments[i] = "A" + i;
-            model += "A" + i;
-            if(i != num_args-1) model += ",";
-            else model += "}\n";
-        }
+        out.arguments(num_args);
 
         // Generate random relations
-        List<String> cropped_curr_rels = new ArrayList<String>();
-        List<String> full_curr_rels = new ArrayList<String>();
+        SplittableRandom r = random;
+        LongHashSet rels = new LongHashSet(num_relations);
 
         for(int i = 0; i < num_relations; i++){
-            String cropped_rel = "";
-            String reverse_rel = "";
-            String new_rel = "";
+            int a1;
+            int a2;
+            int type;
 
             do{
-                new_rel = generateNewRel();
+                a1 = r.nextInt(num_args);
+                a2 = r.nextInt(num_args);
 
-                // Check if exact same relation already exists
-                if(full_curr_rels.contains(new_rel)){
-                    new_rel = generateNewRel();
+                // Sanity check, no self-referring relations
+                while(a1 == a2){
+                    a2 = r.nextInt(num_args);
                 }
+                type = r.nextDouble() < attack_ratio ? ModelSink.ATTACK : ModelSink.SUPPORT;
 
-                if(new_rel.startsWith("support")){
-                    cropped_rel = new_rel.substring(7);
-                    String[] args = cropped_rel.split(",");
-                    reverse_rel = ("attack(" + args[1] + "," + args[0] + ")");
-                }
-                else if(new_rel.startsWith("attack")){
-                    cropped_rel = new_rel.substring(6);
-                    String[] args = cropped_rel.split(",");
-                    reverse_rel = ("support(" + args[1] + "," + args[0] + ")");
-                }
             // Check if there is no relation A->B
             // Check if there is no perpendicular relation B->A
-            } while(cropped_curr_rels.contains(cropped_rel) ||
-                    full_curr_rels.contains(reverse_rel));
+            } while(rels.contains(key(a1, a2, 0)) ||
+                    rels.contains(key(a1, a2, 1)) ||
+                    rels.contains(key(a2, a1, 1 - type)));
 
-            cropped_curr_rels.add(cropped_rel);
-            full_curr_rels.add(new_rel);
-            model += new_rel;
+            rels.add(key(a1, a2, type));
+            out.relation(type, a1, a2);
         }
-        return model;
     }
 }
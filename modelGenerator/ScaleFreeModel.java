@@ -0,0 +1,70 @@
+package modelGenerator;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Class generating a scale-free graph model by preferential
+ * attachment: every new argument is related to earlier arguments
+ * chosen with probability proportional to their degree plus one,
+ * as many as needed to reach the target density. Few hubs end up
+ * with most of the relations, so the graph is dense around them.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class ScaleFreeModel extends GraphModel {
+
+    // Ctor
+    ScaleFreeModel(int nodes, double density, double attackRatio, SplittableRandom random){
+        super(nodes, density, attackRatio, random);
+    }
+
+    /**
+     * Returns the number of relations of the complete graph
+     *
+     * @return maximum number of relations
+     */
+    @Override
+    long maxRelations(){
+        return (long) num_args * (num_args - 1) / 2;
+    }
+
+    /**
+     * Adds the arguments one by one, each with the relations
+     * its share of the target density asks for
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    void generateRelations() throws IOException {
+        SplittableRandom r = random;
+        double density = num_args == 0 ? 0 : (double) num_relations / num_args;
+
+        // Both arguments of every relation; picking a random entry
+        // picks an argument with probability proportional to its degree
+        int[] ends = new int[16];
+        int size = 0;
+
+        for(int v = 1; v < num_args; v++){
+            // Spread the relations evenly over the arguments
+            long target = Math.min(num_relations, (long) Math.floor(density * (v + 1)));
+            long m = Math.min(v, target - written);
+            for(long i = 0; i < m; i++){
+                int u;
+                do{
+                    // One extra entry per argument, so that
+                    // arguments without relations can be picked
+                    int pick = r.nextInt(size + v);
+                    u = pick < size ? ends[pick] : pick - size;
+                } while(!connect(u, v));
+
+                if(size + 2 > ends.length){
+                    ends = Arrays.copyOf(ends, Math.max(ends.length * 2, size + 2));
+                }
+                ends[size++] = u;
+                ends[size++] = v;
+            }
+        }
+    }
+}
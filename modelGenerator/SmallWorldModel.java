@@ -0,0 +1,80 @@
+package modelGenerator;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Class generating a small-world graph model after Watts and
+ * Strogatz: the arguments are placed on a ring and related to
+ * their nearest neighbours on both sides, sampled down to the
+ * target density, and every relation is rewired to a random
+ * argument with the rewiring probability. The few random
+ * shortcuts close many long cycles through the ring.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class SmallWorldModel extends GraphModel {
+    /**
+     * Tries to rewire a relation before giving up
+     */
+    private static final int MAX_TRIES = 64;
+    /**
+     * Probability of rewiring a relation
+     */
+    private final double rewiring;
+    /**
+     * Number of neighbours on each side of the ring
+     */
+    private final int reach;
+
+    // Ctor
+    SmallWorldModel(int nodes, double density, double attackRatio, double rewiring, SplittableRandom random){
+        super(nodes, density, attackRatio, random);
+        this.rewiring = rewiring;
+        reach = (int) Math.ceil(density);
+    }
+
+    /**
+     * Returns the number of neighbours on each side of the ring,
+     * on small rings fewer, so that no pair is related twice
+     *
+     * @return number of neighbours on each side
+     */
+    private int ringReach(){
+        return num_args > 2 * reach ? reach : Math.max(0, (num_args - 1) / 2);
+    }
+
+    /**
+     * Returns the number of relations of the ring lattice
+     *
+     * @return maximum number of relations
+     */
+    @Override
+    long maxRelations(){
+        return (long) num_args * ringReach();
+    }
+
+    /**
+     * Walks the ring lattice, keeps each of its relations by
+     * selection sampling and rewires the kept ones; a relation
+     * that finds no free argument in MAX_TRIES tries is missing,
+     * so that generateModel fails
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    void generateRelations() throws IOException {
+        SplittableRandom r = random;
+        int k = ringReach();
+        long remaining = maxRelations();
+
+        for(int j = 1; j <= k; j++){
+            for(int v = 0; v < num_args; v++){
+                if(!keep(remaining--)) continue;
+                if(r.nextDouble() >= rewiring && connect(v, (v + j) % num_args)) continue;
+                // Rewire, or the lattice relation was taken by an earlier shortcut
+                for(int t = 0; t < MAX_TRIES && !connect(v, r.nextInt(num_args)); t++);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package modelGenerator;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a generated model in the .txt format of the
+ * BAF-Inferencer application.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class TextModelSink implements ModelSink {
+    /**
+     * The available relations in the BAF, by type
+     */
+    private static final String[] relations = {"attack(", "support("};
+    /**
+     * The writer the model text is written to
+     */
+    private final Writer out;
+
+    // Ctor
+    TextModelSink(Writer out){
+        this.out = out;
+    }
+
+    /**
+     * Writes the args line
+     *
+     * @param n number of arguments
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void arguments(int n) throws IOException {
+        out.write("args{");
+        for(int i = 0; i < n; i++){
+            if(i != 0) out.write(",");
+            out.write("A");
+            out.write(Integer.toString(i));
+        }
+        out.write("}\n");
+    }
+
+    /**
+     * Writes a relation line
+     *
+     * @param type ATTACK or SUPPORT
+     * @param from id of the first argument
+     * @param to id of the second argument
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void relation(int type, int from, int to) throws IOException {
+        out.write(relations[type]);
+        out.write("A");
+        out.write(Integer.toString(from));
+        out.write(",A");
+        out.write(Integer.toString(to));
+        out.write(")\n");
+    }
+}
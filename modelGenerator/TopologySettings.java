@@ -0,0 +1,81 @@
+package modelGenerator;
+
+/**
+ * The settings of the structured topologies of GraphModel;
+ * every topology reads only the settings that concern it.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class TopologySettings {
+
+    /**
+     * Treewidth: the treewidth bound k of the partial k-tree
+     */
+    private int width = 3;
+    /**
+     * Small-world: probability of rewiring a lattice relation
+     * to a random argument
+     */
+    private double rewiring = 0.1;
+    /**
+     * Planted cycles: length of the planted cycles
+     */
+    private int cycleLength = 4;
+
+    /**
+     * Returns the treewidth bound
+     *
+     * @return the treewidth bound k
+     */
+    int getWidth(){ return width; }
+
+    /**
+     * Sets the treewidth bound
+     *
+     * @param width the treewidth bound k, at least 1
+     */
+    void setWidth(int width){
+        if(width < 1){
+            throw new IllegalArgumentException("The width must be at least 1!");
+        }
+        this.width = width;
+    }
+
+    /**
+     * Returns the small-world rewiring probability
+     *
+     * @return probability of rewiring a relation
+     */
+    double getRewiring(){ return rewiring; }
+
+    /**
+     * Sets the small-world rewiring probability
+     *
+     * @param rewiring probability of rewiring a relation, in [0,1]
+     */
+    void setRewiring(double rewiring){
+        if(!(rewiring >= 0 && rewiring <= 1)){
+            throw new IllegalArgumentException("The rewiring probability must be in [0,1]!");
+        }
+        this.rewiring = rewiring;
+    }
+
+    /**
+     * Returns the length of the planted cycles
+     *
+     * @return the cycle length
+     */
+    int getCycleLength(){ return cycleLength; }
+
+    /**
+     * Sets the length of the planted cycles
+     *
+     * @param cycleLength the cycle length, at least 3
+     */
+    void setCycleLength(int cycleLength){
+        if(cycleLength < 3){
+            throw new IllegalArgumentException("The cycle length must be at least 3!");
+        }
+        this.cycleLength = cycleLength;
+    }
+}
@@ -0,0 +1,88 @@
+package modelGenerator;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Class generating a graph model of bounded treewidth: a random
+ * partial k-tree. A k-tree starts with a clique of k+1 arguments
+ * and connects every further argument to all arguments of a
+ * k-clique of the graph so far; its relations are then sampled
+ * down to the target density, which keeps the treewidth at most
+ * k. The junction tree inferencer handles these models as long
+ * as k stays small, however many arguments there are.
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+class TreewidthModel extends GraphModel {
+    /**
+     * The treewidth bound k
+     */
+    private final int width;
+
+    // Ctor
+    TreewidthModel(int nodes, double density, double attackRatio, int width, SplittableRandom random){
+        super(nodes, density, attackRatio, random);
+        this.width = width;
+    }
+
+    /**
+     * Returns the number of relations of the full k-tree
+     *
+     * @return maximum number of relations
+     */
+    @Override
+    long maxRelations(){
+        long c = Math.min(num_args, width + 1);
+        return c * (c - 1) / 2 + (num_args - c) * width;
+    }
+
+    /**
+     * Builds the k-tree argument by argument and keeps each
+     * of its relations by selection sampling
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    void generateRelations() throws IOException {
+        SplittableRandom r = random;
+        int k = width;
+        int c = Math.min(num_args, k + 1);
+        long remaining = maxRelations();
+
+        // The initial clique
+        for(int a = 0; a < c; a++){
+            for(int b = a + 1; b < c; b++){
+                if(keep(remaining--)) connect(a, b);
+            }
+        }
+
+        // bags[v*k..v*k+k) is the k-clique argument v was
+        // connected to; with v it forms a (k+1)-clique
+        if((long)(num_args - c) * k > Integer.MAX_VALUE - 8){
+            throw new IllegalArgumentException("Too many arguments for width " + k + "!");
+        }
+        int[] bags = new int[(num_args - c) * k];
+        int[] clique = new int[k + 1];
+        for(int v = c; v < num_args; v++){
+            // A random (k+1)-clique, that of an earlier argument w
+            int w = r.nextInt(v);
+            if(w < c){
+                for(int i = 0; i <= k; i++){
+                    clique[i] = i;
+                }
+            }
+            else{
+                System.arraycopy(bags, (w - c) * k, clique, 0, k);
+                clique[k] = w;
+            }
+            // Without one of its arguments it is a k-clique
+            clique[r.nextInt(k + 1)] = clique[k];
+            System.arraycopy(clique, 0, bags, (v - c) * k, k);
+
+            for(int i = 0; i < k; i++){
+                if(keep(remaining--)) connect(clique[i], v);
+            }
+        }
+    }
+}
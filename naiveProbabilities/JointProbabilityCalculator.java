@@ -0,0 +1,462 @@
+package naiveProbabilities;
+
+import modelFormat.BinaryModel;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Brute-force reference engine: computes the exact marginals
+ * P(A=1) of all arguments of a model by enumerating all 2^n
+ * assignments of the joint distribution, the product of the
+ * factors of all relations. Meant to check the inferencers of
+ * the BAF-Inferencer on models of up to MAX_ARGUMENTS arguments.
+ *
+ * The assignments are never materialised: an assignment is the
+ * bits of an int, argument i being bit i. The low LOW_BITS
+ * arguments are enumerated as a block for every assignment of
+ * the high arguments; the factors between low arguments are a
+ * table over the block computed once, those between a low and a
+ * high argument a table built per block by doubling, so every
+ * assignment costs a few multiplications and no allocation.
+ * The blocks are split across fork/join workers, and the sums
+ * are combined in a fixed order, so the result does not depend
+ * on the number of threads.
+ *
+ * usage: JointProbabilityCalculator [-t <threads>] [--attack <w>] [--support <w>] <model>
+ *          -t,--threads   number of worker threads (default: number of cores)
+ *          --attack       attack factor values w00,w01,w10,w11 (default 1.0,1.0,1.5,0.5)
+ *          --support      support factor values w00,w01,w10,w11 (default 1.0,1.0,0.5,1.5)
+ *          <model>        model file, .txt or binary .baf
+ *
+ * @author Hannah Lewerentz <hlewerentz@uos.de>
+ */
+public class JointProbabilityCalculator {
+
+    /**
+     * Largest number of arguments that is enumerated
+     */
+    public static final int MAX_ARGUMENTS = 30;
+    /**
+     * Default attack factor values, indexed by 2*from+to
+     */
+    public static final double[] ATTACK = {1.0, 1.0, 1.5, 0.5};
+    /**
+     * Default support factor values, indexed by 2*from+to
+     */
+    public static final double[] SUPPORT = {1.0, 1.0, 0.5, 1.5};
+    /**
+     * Number of low arguments enumerated as one block
+     */
+    private static final int LOW_BITS = 12;
+    /**
+     * Number of leaf tasks the blocks are split into at most
+     */
+    private static final int LEAVES = 1024;
+
+    /**
+     * Number of arguments
+     */
+    private final int n;
+    /**
+     * Number of low arguments, enumerated as one block
+     */
+    private final int low;
+    /**
+     * Product of the factors between low arguments, per low assignment
+     */
+    private final double[] lowWeight;
+    /**
+     * Factors between high arguments: first argument,
+     * as bit of the high assignment
+     */
+    private final int[] highFrom;
+    /**
+     * Factors between high arguments: second argument,
+     * as bit of the high assignment
+     */
+    private final int[] highTo;
+    /**
+     * Factors between high arguments: the factor values, 4 each
+     */
+    private final double[] highFactors;
+    /**
+     * Factors between a low and a high argument: the low argument
+     */
+    private final int[] mixedLow;
+    /**
+     * Factors between a low and a high argument: the high
+     * argument, as bit of the high assignment
+     */
+    private final int[] mixedHigh;
+    /**
+     * Factors between a low and a high argument: the factor
+     * values, 4 each, indexed by 2*low+high
+     */
+    private final double[] mixedFactors;
+
+    /**
+     * Prepares the enumeration of a model
+     *
+     * @param n number of arguments
+     * @param from first argument of each relation
+     * @param to second argument of each relation
+     * @param factors the factor values of each relation, 4 each,
+     *          indexed by 2*from+to
+     */
+    private JointProbabilityCalculator(int n, int[] from, int[] to, double[] factors){
+        this.n = n;
+        low = Math.min(n, LOW_BITS);
+        int m = from.length;
+
+        int numHigh = 0, numMixed = 0;
+        for(int r = 0; r < m; r++){
+            boolean fromLow = from[r] < low, toLow = to[r] < low;
+            if(!fromLow && !toLow) numHigh++;
+            else if(fromLow != toLow) numMixed++;
+        }
+        highFrom = new int[numHigh];
+        highTo = new int[numHigh];
+        highFactors = new double[4 * numHigh];
+        mixedLow = new int[numMixed];
+        mixedHigh = new int[numMixed];
+        mixedFactors = new double[4 * numMixed];
+        lowWeight = new double[1 << low];
+        Arrays.fill(lowWeight, 1.0);
+
+        numHigh = 0;
+        numMixed = 0;
+        for(int r = 0; r < m; r++){
+            int a = from[r], b = to[r];
+            boolean fromLow = a < low, toLow = b < low;
+            if(fromLow && toLow){
+                for(int x = 0; x < lowWeight.length; x++){
+                    lowWeight[x] *= factors[4 * r + ((x >>> a & 1) << 1 | (x >>> b & 1))];
+                }
+            }
+            else if(!fromLow && !toLow){
+                highFrom[numHigh] = a - low;
+                highTo[numHigh] = b - low;
+                System.arraycopy(factors, 4 * r, highFactors, 4 * numHigh, 4);
+                numHigh++;
+            }
+            else{
+                // Reorder the factor values to 2*low+high
+                mixedLow[numMixed] = fromLow ? a : b;
+                mixedHigh[numMixed] = (fromLow ? b : a) - low;
+                for(int l = 0; l < 2; l++){
+                    for(int h = 0; h < 2; h++){
+                        mixedFactors[4 * numMixed + 2 * l + h] = factors[4 * r + (fromLow ? 2 * l + h : 2 * h + l)];
+                    }
+                }
+                numMixed++;
+            }
+        }
+    }
+
+    /**
+     * Sums the joint distribution over the blocks of the given
+     * high assignments
+     *
+     * @param first first high assignment
+     * @param end high assignment after the last one
+     * @return the unnormalised P(A=1) of every argument, and the
+     *          sum of all assignments at index n
+     */
+    private double[] enumerate(int first, int end){
+        int size = 1 << low;
+        double[] sums = new double[n + 1];
+        double[] lowSums = new double[size];
+        double[] table = new double[size];
+        double[] mixed = new double[2 * low];
+
+        for(int high = first; high < end; high++){
+            // Factors between high arguments, constant in the block
+            double highWeight = 1.0;
+            for(int r = 0; r < highFrom.length; r++){
+                highWeight *= highFactors[4 * r + ((high >>> highFrom[r] & 1) << 1 | (high >>> highTo[r] & 1))];
+            }
+
+            // Factors to high arguments, by value of their low argument
+            Arrays.fill(mixed, 1.0);
+            for(int r = 0; r < mixedLow.length; r++){
+                int h = high >>> mixedHigh[r] & 1;
+                mixed[2 * mixedLow[r]] *= mixedFactors[4 * r + h];
+                mixed[2 * mixedLow[r] + 1] *= mixedFactors[4 * r + 2 + h];
+            }
+            // ... as a table over the block, doubled argument by argument
+            table[0] = 1.0;
+            for(int v = 0, filled = 1; v < low; v++, filled <<= 1){
+                double w0 = mixed[2 * v], w1 = mixed[2 * v + 1];
+                for(int x = 0; x < filled; x++){
+                    table[x | filled] = table[x] * w1;
+                    table[x] *= w0;
+                }
+            }
+
+            double block = 0.0;
+            for(int x = 0; x < size; x++){
+                double w = lowWeight[x] * table[x];
+                lowSums[x] += highWeight * w;
+                block += w;
+            }
+            block *= highWeight;
+
+            sums[n] += block;
+            for(int bits = high; bits != 0; bits &= bits - 1){
+                sums[low + Integer.numberOfTrailingZeros(bits)] += block;
+            }
+        }
+
+        // P(A=1) of the low arguments from the sums per low assignment
+        for(int x = 1; x < size; x++){
+            for(int bits = x; bits != 0; bits &= bits - 1){
+                sums[Integer.numberOfTrailingZeros(bits)] += lowSums[x];
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * Splits the high assignments in halves until a range is
+     * small enough, and adds up the sums of the halves
+     */
+    private class Enumeration extends RecursiveTask<double[]> {
+        /**
+         * Version of the serialized form
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * First high assignment
+         */
+        private final int first;
+        /**
+         * High assignment after the last one
+         */
+        private final int end;
+        /**
+         * Largest range enumerated by one task
+         */
+        private final int leaf;
+
+        // Ctor
+        Enumeration(int first, int end, int leaf){
+            this.first = first;
+            this.end = end;
+            this.leaf = leaf;
+        }
+
+        @Override
+        protected double[] compute(){
+            if(end - first <= leaf){
+                return enumerate(first, end);
+            }
+            int middle = (first + end) >>> 1;
+            Enumeration left = new Enumeration(first, middle, leaf);
+            left.fork();
+            double[] sums = new Enumeration(middle, end, leaf).compute();
+            double[] leftSums = left.join();
+            for(int i = 0; i < sums.length; i++){
+                sums[i] += leftSums[i];
+            }
+            return sums;
+        }
+    }
+
+    /**
+     * Computes the exact marginals of a model
+     *
+     * @param n number of arguments
+     * @param from first argument of each relation
+     * @param to second argument of each relation
+     * @param factors the non-negative factor values of each relation,
+     *          4 each, indexed by 2*from+to
+     * @param pool the workers
+     * @return P(A=1) of every argument
+     * @throws IllegalArgumentException if there are more than MAX_ARGUMENTS arguments
+     *          or zero factor values rule out every assignment
+     */
+    public static double[] marginals(int n, int[] from, int[] to, double[] factors, ForkJoinPool pool){
+        if(n > MAX_ARGUMENTS){
+            throw new IllegalArgumentException("At most " + MAX_ARGUMENTS + " arguments can be enumerated, not " + n + "!");
+        }
+        if(from.length != to.length || factors.length != 4 * from.length){
+            throw new IllegalArgumentException("Every relation needs two arguments and four factor values!");
+        }
+        if(n == 0){
+            return new double[0];
+        }
+
+        JointProbabilityCalculator calculator = new JointProbabilityCalculator(n, from, to, factors);
+        int blocks = 1 << (n - calculator.low);
+        double[] sums = pool.invoke(calculator.new Enumeration(0, blocks, Math.max(1, blocks / LEAVES)));
+
+        // Normalize
+        if(!(sums[n] > 0)){
+            throw new IllegalArgumentException("The factor values rule out every assignment of the arguments!");
+        }
+        double[] marginals = new double[n];
+        for(int i = 0; i < n; i++){
+            marginals[i] = sums[i] / sums[n];
+        }
+        return marginals;
+    }
+
+    /**
+     * Computes the exact marginals of a model on the common pool
+     *
+     * @param n number of arguments
+     * @param from first argument of each relation
+     * @param to second argument of each relation
+     * @param factors the non-negative factor values of each relation,
+     *          4 each, indexed by 2*from+to
+     * @return P(A=1) of every argument
+     */
+    public static double[] marginals(int n, int[] from, int[] to, double[] factors){
+        return marginals(n, from, to, factors, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes the exact marginals of a model, with the given
+     * factor values for all relations without own factor values,
+     * conditioned on the evidence of the model
+     *
+     * @param model the model
+     * @param attack attack factor values, indexed by 2*from+to
+     * @param support support factor values, indexed by 2*from+to
+     * @param pool the workers
+     * @return P(A=1) of every argument, NaN if the evidence is impossible
+     */
+    public static double[] marginals(BinaryModel model, double[] attack, double[] support, ForkJoinPool pool){
+        int a = model.numAttacks(), m = a + model.numSupports();
+        int[] from = new int[m + model.numEvidence()];
+        int[] to = new int[from.length];
+        double[] factors = new double[4 * from.length];
+        for(int r = 0; r < m; r++){
+            from[r] = r < a ? model.attackFrom(r) : model.supportFrom(r - a);
+            to[r] = r < a ? model.attackTo(r) : model.supportTo(r - a);
+            System.arraycopy(r < a ? attack : support, 0, factors, 4 * r, 4);
+        }
+        // Own factor values, relations numbered attacks first
+        for(int k = 0; k < model.numOverrides(); k++){
+            System.arraycopy(model.overrideFactor(k), 0, factors, 4 * model.overrideRelation(k), 4);
+        }
+        // Evidence as a relation of the argument with itself
+        // ruling out the other value
+        for(int k = 0; k < model.numEvidence(); k++){
+            from[m + k] = model.evidenceArgument(k);
+            to[m + k] = model.evidenceArgument(k);
+            factors[4 * (m + k) + 3 * model.evidenceValue(k)] = 1.0;
+        }
+        return marginals(model.numArguments(), from, to, factors, pool);
+    }
+
+    /**
+     * Reads a model file in the text or the binary model format
+     *
+     * @param file the model file
+     * @return the model
+     * @throws Exception if the file can't be read or parsed
+     */
+    public static BinaryModel readModel(File file) throws Exception {
+        if(BinaryModel.isBinaryModel(file)){
+            return BinaryModel.read(file);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            return BinaryModel.readText(reader);
+        }
+    }
+
+    /**
+     * Returns a usage message to be printed to the command line
+     *
+     * @return String usage message
+     */
+    private static String usage(){
+        return "usage: JointProbabilityCalculator [-t <threads>] [--attack <w>] [--support <w>] <model>\n" +
+                " -t,--threads   number of worker threads (default: number of cores)\n" +
+                " --attack       attack factor values w00,w01,w10,w11 (default 1.0,1.0,1.5,0.5)\n" +
+                " --support      support factor values w00,w01,w10,w11 (default 1.0,1.0,0.5,1.5)\n" +
+                " <model>        model file, .txt or binary .baf, of at most " + MAX_ARGUMENTS + " arguments\n";
+    }
+    /**
+     * Parses the factor values of --attack or --support and exits
+     * with the reason if they are malformed, e.g. negative
+     *
+     * @param option the option name
+     * @param value the comma separated factor values
+     * @return the four factor values
+     */
+    private static double[] factorOption(String option, String value){
+        try{
+            return BinaryModel.parseFactor(value);
+        } catch(IllegalArgumentException e){
+            System.err.println(option + " " + value + ": " + e.getMessage() + "\n" + usage());
+            System.exit(2);
+            return null;
+        }
+    }
+
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        double[] attack = ATTACK;
+        double[] support = SUPPORT;
+        File modelFile = null;
+
+        try{
+            for(int i = 0; i < args.length; i++){
+                switch (args[i]) {
+                    case "-h":
+                    case "--help":
+                        System.out.println(usage());
+                        return;
+                    case "-t":
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        if(threads < 1) throw new IllegalArgumentException();
+                        break;
+                    case "--attack":
+                        attack = factorOption("--attack", args[++i]);
+                        break;
+                    case "--support":
+                        support = factorOption("--support", args[++i]);
+                        break;
+                    default:
+                        if(modelFile != null) throw new IllegalArgumentException();
+                        modelFile = new File(args[i]);
+                }
+            }
+            if(modelFile == null) throw new IllegalArgumentException();
+        } catch(IllegalArgumentException | ArrayIndexOutOfBoundsException e){
+            System.err.println("Arguments entered incorrectly!\n" + usage());
+            System.exit(2);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try{
+            BinaryModel model = readModel(modelFile);
+            long start = System.nanoTime();
+            double[] marginals = marginals(model, attack, support, pool);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.println("Variable\tP(A=1)");
+            for(int i = 0; i < marginals.length; i++){
+                System.out.println(model.label(i) + "\t" + marginals[i]);
+            }
+            System.out.println(String.format("Enumerated 2^%d assignments on %d threads in %.3f s",
+                    model.numArguments(), threads, seconds));
+        } catch(Exception e){
+            System.err.println(modelFile.getPath() + ": " + e.getMessage());
+            System.exit(1);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}